@@ -0,0 +1,122 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.repository.TodoIndexManager;
+import com.example.todoapp.repository.TodoSchemaMigration;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.service.TodoCache;
+import com.example.todoapp.service.TodoChangeFeed;
+import com.example.todoapp.service.TodoChangeEvent;
+import com.example.todoapp.service.TodoJournal;
+import com.example.todoapp.service.TodoQueryCache;
+import com.example.todoapp.service.TodoRollups;
+import com.example.todoapp.service.TodoSearchIndex;
+import com.example.todoapp.service.TodoService;
+import com.example.todoapp.service.TodoSync;
+import com.example.todoapp.service.TodoWriteBehind;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Todos, the service and mapping infrastructure configured the way the application configures them
+ */
+final class Fixtures {
+
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "HIGH"};
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private Fixtures() {
+    }
+
+    static Todo todo(int i) {
+        LocalDateTime createdAt = EPOCH.plusMinutes(i);
+        return Todo.builder()
+                .id(new ObjectId().toHexString())
+                .title("Todo " + i + " buy groceries")
+                .description("Milk, eggs, bread and a few things for the weekend, item " + i)
+                .completed(i % 4 == 0)
+                .priority(PRIORITIES[i % PRIORITIES.length])
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusSeconds(i % 60))
+                .build();
+    }
+
+    static List<Todo> todos(int count) {
+        return IntStream.range(0, count).mapToObj(Fixtures::todo).toList();
+    }
+
+    /**
+     * Service over the given repository with the real caches, search index and change events,
+     * delivered synchronously as the application's listeners receive them
+     */
+    static TodoService todoService(TodoRepository repository) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TodoSearchIndex searchIndex = new TodoSearchIndex(repository, meterRegistry, false, Runnable::run);
+        TodoCache cache = new TodoCache(meterRegistry, DataSize.ofMegabytes(32), Duration.ofMinutes(10));
+        TodoQueryCache queryCache = new TodoQueryCache(meterRegistry, 1000, Duration.ofMinutes(1));
+        searchIndex.rebuildOnStartup();
+        // disabled, so benchmarks measure the service without the journal's disk writes
+        TodoJournal journal = new TodoJournal(repository, mongoConverter(), meterRegistry, false, "",
+                DataSize.ofMegabytes(64), 2, false, false, Runnable::run);
+        TodoChangeFeed changeFeed = new TodoChangeFeed(meterRegistry, 256, 10000, Duration.ofMinutes(30), 1, 1,
+                false);
+
+        return new TodoService(repository,
+                new TodoIndexManager(null, false, false, Runnable::run),
+                new TodoSchemaMigration(null, null, null, false, 1, Duration.ofMinutes(1), false, Runnable::run),
+                searchIndex, cache, queryCache,
+                // rollups are left out of the change events, so they never touch the missing repository
+                new TodoRollups(null, false, Runnable::run),
+                new TodoWriteBehind(repository, event -> {
+                }, meterRegistry, false, 1, 1, Duration.ZERO),
+                journal,
+                changeFeed,
+                // left out of the change events, so deletes never touch the missing tombstone repository
+                new TodoSync(repository, null, Duration.ofSeconds(5), Duration.ofDays(30), false, Runnable::run),
+                event -> {
+                    TodoChangeEvent change = (TodoChangeEvent) event;
+                    searchIndex.onChange(change);
+                    cache.onChange(change);
+                    queryCache.onChange(change);
+                    changeFeed.onChange(change);
+                });
+    }
+
+    /**
+     * Mapper as Spring Boot builds it: Java time module, dates written as ISO strings
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    /**
+     * Converter as Spring Boot builds it, without a database behind it
+     */
+    static MappingMongoConverter mongoConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
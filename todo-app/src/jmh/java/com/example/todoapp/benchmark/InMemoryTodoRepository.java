@@ -0,0 +1,152 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.repository.TodoRepository;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * {@link TodoRepository} held in a sorted map, so service benchmarks measure the service and
+ * not the database. Only the methods {@link com.example.todoapp.service.TodoService} calls on
+ * its benchmarked paths are implemented; anything else throws.
+ */
+final class InMemoryTodoRepository {
+
+    private final NavigableMap<String, Todo> todos = new ConcurrentSkipListMap<>();
+
+    private final Map<String, Function<Object[], Object>> methods = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private InMemoryTodoRepository() {
+        on("save", 1, args -> save((Todo) args[0]));
+        on("findById", 1, args -> Optional.ofNullable(todos.get((String) args[0])));
+        on("findAndUpdate", 2, args -> modify((String) args[0], todo -> apply((Todo) args[1], todo)));
+        on("findAndUpdate", 3, args -> findAndUpdate((String) args[0], (Collection<Long>) args[1], (Todo) args[2]));
+        on("findAndSetCompleted", 2, args -> modify((String) args[0], todo -> todo.setCompleted((Boolean) args[1])));
+        on("findAndToggleCompleted", 1, args -> modify((String) args[0], todo -> todo.setCompleted(!todo.isCompleted())));
+        on("findAllBy", 4, args -> window(todo -> true, (Limit) args[1]));
+        on("findByCompleted", 5, args -> window(todo -> todo.isCompleted() == (Boolean) args[0], (Limit) args[2]));
+        on("findByPriority", 5, args -> window(todo -> args[0].equals(todo.getPriority()), (Limit) args[2]));
+        on("streamBy", 2, args -> todos.values().stream()
+                .filter(todo -> args[0] == null || todo.isCompleted() == (Boolean) args[0])
+                .filter(todo -> args[1] == null || args[1].equals(todo.getPriority())));
+        on("existsById", 1, args -> todos.containsKey((String) args[0]));
+        on("removeById", 1, args -> todos.remove((String) args[0]) == null ? 0L : 1L);
+        on("count", 0, args -> (long) todos.size());
+    }
+
+    static TodoRepository create() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        return (TodoRepository) Proxy.newProxyInstance(TodoRepository.class.getClassLoader(),
+                new Class<?>[]{TodoRepository.class}, (proxy, method, args) -> {
+                    Object[] arguments = args == null ? new Object[0] : args;
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(repository, arguments);
+                    }
+                    Function<Object[], Object> implementation =
+                            repository.methods.get(method.getName() + "/" + arguments.length);
+                    if (implementation == null) {
+                        throw new UnsupportedOperationException(method.toString());
+                    }
+                    return implementation.apply(arguments);
+                });
+    }
+
+    private void on(String name, int arity, Function<Object[], Object> implementation) {
+        methods.put(name + "/" + arity, implementation);
+    }
+
+    private Todo save(Todo todo) {
+        if (todo.getId() == null) {
+            todo.setId(new ObjectId().toHexString());
+        }
+        todos.put(todo.getId(), todo);
+        return todo;
+    }
+
+    /**
+     * Compare-and-set on the stored todo, as the conditional find-and-modify matches on the
+     * version: no lock is held, and a writer that loses the race sees the new version
+     */
+    private Optional<Todo> findAndUpdate(String id, Collection<Long> versions, Todo details) {
+        while (true) {
+            Todo current = todos.get(id);
+            if (current == null || !versions.contains(current.getVersion())) {
+                return Optional.empty();
+            }
+            Todo updated = copy(current);
+            apply(details, updated);
+            if (todos.replace(id, current, updated)) {
+                return Optional.of(updated);
+            }
+        }
+    }
+
+    private static void apply(Todo details, Todo todo) {
+        if (details.getTitle() != null) {
+            todo.setTitle(details.getTitle());
+        }
+        if (details.getDescription() != null) {
+            todo.setDescription(details.getDescription());
+        }
+        if (details.getPriority() != null) {
+            todo.setPriority(details.getPriority());
+        }
+        todo.setCompleted(details.isCompleted());
+    }
+
+    /**
+     * Apply the change to a copy and store it, as a find-and-modify returns a new document
+     */
+    private Optional<Todo> modify(String id, Consumer<Todo> change) {
+        Todo current = todos.get(id);
+        if (current == null) {
+            return Optional.empty();
+        }
+        Todo updated = copy(current);
+        change.accept(updated);
+        todos.put(id, updated);
+        return Optional.of(updated);
+    }
+
+    /**
+     * The next version of a todo, as every write bumps it
+     */
+    private static Todo copy(Todo current) {
+        return Todo.builder()
+                .id(current.getId())
+                .title(current.getTitle())
+                .description(current.getDescription())
+                .completed(current.isCompleted())
+                .priority(current.getPriority())
+                .createdAt(current.getCreatedAt())
+                .updatedAt(LocalDateTime.now())
+                .version(current.getVersion() + 1)
+                .build();
+    }
+
+    private Window<Todo> window(Predicate<Todo> filter, Limit limit) {
+        List<Todo> page = todos.values().stream()
+                .filter(filter)
+                .limit(limit.max() + 1L)
+                .toList();
+        boolean hasNext = page.size() > limit.max();
+        List<Todo> content = hasNext ? page.subList(0, limit.max()) : page;
+        return Window.from(content, index -> ScrollPosition.forward(Map.of("id", content.get(index).getId())), hasNext);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.todoapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.convert.ConversionService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link LocalDateTime} work behind every todo: stamping writes, the ISO strings in
+ * JSON bodies and keyset cursors, and the zone conversion to and from the {@link Date}
+ * MongoDB stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalDateTimeBenchmark {
+
+    private LocalDateTime value;
+
+    private String iso;
+
+    private byte[] json;
+
+    private Date date;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private ConversionService conversionService;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Fixtures.objectMapper();
+        writer = mapper.writerFor(LocalDateTime.class);
+        reader = mapper.readerFor(LocalDateTime.class);
+        conversionService = Fixtures.mongoConverter().getConversionService();
+        value = LocalDateTime.of(2024, 5, 17, 14, 3, 27, 123_456_000);
+        iso = value.toString();
+        json = writer.writeValueAsBytes(value);
+        date = conversionService.convert(value, Date.class);
+    }
+
+    @Benchmark
+    public LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+
+    @Benchmark
+    public String format() {
+        return value.toString();
+    }
+
+    @Benchmark
+    public LocalDateTime parse() {
+        return LocalDateTime.parse(iso);
+    }
+
+    @Benchmark
+    public byte[] jsonWrite() throws IOException {
+        return writer.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public LocalDateTime jsonRead() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public Date toDate() {
+        return conversionService.convert(value, Date.class);
+    }
+
+    @Benchmark
+    public LocalDateTime fromDate() {
+        return conversionService.convert(date, LocalDateTime.class);
+    }
+}
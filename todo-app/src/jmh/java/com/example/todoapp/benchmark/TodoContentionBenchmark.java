@@ -0,0 +1,117 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.service.TodoService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-then-write updates from many threads to a small set of hot todos, the way concurrent
+ * editors read a todo and send it back with {@code If-Match}.
+ * <p>
+ * {@code optimistic} is the service's conditional update: nothing is locked, and a writer
+ * whose version went stale fails and is counted as a conflict. {@code locked} serializes the
+ * read and the write under a lock per todo instead, which is what preventing lost updates
+ * would take without versions. Fewer hot todos means more contention; vary the thread count
+ * with {@code -Djmh.args="-t 16"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TodoContentionBenchmark {
+
+    @Param({"1", "16", "1024"})
+    int hotTodos;
+
+    private TodoService todoService;
+
+    private String[] ids;
+
+    private ReentrantLock[] locks;
+
+    private Todo details;
+
+    @Setup
+    public void setUp() {
+        TodoRepository repository = InMemoryTodoRepository.create();
+        ids = new String[hotTodos];
+        locks = new ReentrantLock[hotTodos];
+        for (int i = 0; i < hotTodos; i++) {
+            ids[i] = repository.save(Fixtures.todo(i)).getId();
+            locks[i] = new ReentrantLock();
+        }
+        todoService = Fixtures.todoService(repository);
+        details = Todo.builder().title("Renamed todo").priority("HIGH").build();
+    }
+
+    /**
+     * Outcomes of the updates, reported per second alongside the throughput
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+
+        public long applied;
+
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            applied = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    public Optional<Todo> optimistic(Outcomes outcomes) {
+        String id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        long version = todoService.getTodoVersion(id).orElseThrow();
+        try {
+            Optional<Todo> updated = todoService.updateTodo(id, details, List.of(version));
+            outcomes.applied++;
+            return updated;
+        } catch (OptimisticLockingFailureException e) {
+            outcomes.conflicts++;
+            return Optional.empty();
+        }
+    }
+
+    @Benchmark
+    public Optional<Todo> locked(Outcomes outcomes) {
+        int todo = ThreadLocalRandom.current().nextInt(ids.length);
+        ReentrantLock lock = locks[todo];
+        lock.lock();
+        try {
+            todoService.getTodoVersion(ids[todo]).orElseThrow();
+            Optional<Todo> updated = todoService.updateTodo(ids[todo], details);
+            outcomes.applied++;
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
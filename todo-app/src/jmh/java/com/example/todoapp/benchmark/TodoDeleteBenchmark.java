@@ -0,0 +1,85 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.model.Todo;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleting a todo by id against a running MongoDB: {@code existsThenDelete} checks for it first
+ * the way the repository once did, {@code remove} sends the delete alone and reads the deleted
+ * count. The difference is one round trip, so it grows with the latency to the database.
+ * <p>
+ * Needs a MongoDB at {@code mongodb://localhost:27017}, or the URI given with
+ * {@code -Djmh.args="-jvmArgsAppend -Dtodo.benchmark.mongodb-uri=..."}; it writes to the
+ * {@code todo-benchmark} database and drops it afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoDeleteBenchmark {
+
+    private static final String DATABASE = "todo-benchmark";
+
+    private MongoClient client;
+
+    private MongoTemplate mongoTemplate;
+
+    private String id;
+
+    @Setup
+    public void setUp() {
+        client = MongoClients.create(System.getProperty("todo.benchmark.mongodb-uri", "mongodb://localhost:27017"));
+        mongoTemplate = new MongoTemplate(client, DATABASE);
+        mongoTemplate.dropCollection(Todo.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void insertTodo() {
+        id = mongoTemplate.insert(Fixtures.todo(0)).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Benchmark
+    public boolean existsThenDelete() {
+        Query query = byId(id);
+        if (!mongoTemplate.exists(query, Todo.class)) {
+            return false;
+        }
+        mongoTemplate.remove(query, Todo.class);
+        return true;
+    }
+
+    @Benchmark
+    public boolean remove() {
+        return mongoTemplate.remove(byId(id), Todo.class).getDeletedCount() > 0;
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("id").is(id));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.model.Todo;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Todo} to BSON and back through Spring Data's {@link MappingMongoConverter}: the
+ * converter alone ({@code write}, {@code read}), and together with the driver's codec as on
+ * every save and query ({@code encode}, {@code decode}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoMappingBenchmark {
+
+    private final DocumentCodec codec = new DocumentCodec();
+
+    private MappingMongoConverter converter;
+
+    private Todo todo;
+
+    private Document document;
+
+    private byte[] bson;
+
+    @Setup
+    public void setUp() {
+        converter = Fixtures.mongoConverter();
+        todo = Fixtures.todo(42);
+        document = write();
+        bson = encode();
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        converter.write(todo, target);
+        return target;
+    }
+
+    @Benchmark
+    public Todo read() {
+        return converter.read(Todo.class, document);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(256);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, write(), EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public Todo decode() {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bson))) {
+            return converter.read(Todo.class, codec.decode(reader, DecoderContext.builder().build()));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.todoapp.benchmark;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.service.TodoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TodoService} operations over an in-memory repository, with the real caches, search
+ * index and change events, so the cost measured is the service's own: cache lookups, event
+ * fan-out and invalidation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoServiceBenchmark {
+
+    private static final Limit PAGE = Limit.of(20);
+
+    @Param({"10000"})
+    int todos;
+
+    private TodoService todoService;
+
+    private String[] ids;
+
+    private int next;
+
+    private Todo details;
+
+    @Setup
+    public void setUp() {
+        TodoRepository repository = InMemoryTodoRepository.create();
+        ids = new String[todos];
+        for (int i = 0; i < todos; i++) {
+            ids[i] = repository.save(Fixtures.todo(i)).getId();
+        }
+
+        todoService = Fixtures.todoService(repository);
+        details = Todo.builder().title("Renamed todo").priority("HIGH").build();
+    }
+
+    private String nextId() {
+        next = next + 1 == ids.length ? 0 : next + 1;
+        return ids[next];
+    }
+
+    @Benchmark
+    public boolean createThenDelete() {
+        Todo created = todoService.createTodo(Todo.builder()
+                .title("Benchmark todo")
+                .description("Created and deleted again")
+                .priority("LOW")
+                .build());
+        return todoService.deleteTodo(created.getId());
+    }
+
+    @Benchmark
+    public Optional<Todo> getTodoById() {
+        return todoService.getTodoById(nextId());
+    }
+
+    @Benchmark
+    public Optional<Todo> updateTodo() {
+        return todoService.updateTodo(nextId(), details);
+    }
+
+    @Benchmark
+    public Optional<Todo> toggleCompleted() {
+        return todoService.toggleCompleted(nextId());
+    }
+
+    @Benchmark
+    public Window<Todo> getAllTodos() {
+        return todoService.getAllTodos(ScrollPosition.keyset(), PAGE, Sort.unsorted(), TodoFields.ALL);
+    }
+
+    @Benchmark
+    public Window<Todo> getTodosByStatus() {
+        return todoService.getTodosByStatus(true, ScrollPosition.keyset(), PAGE, Sort.unsorted(), TodoFields.ALL);
+    }
+
+    @Benchmark
+    public Window<Todo> quickSearch() {
+        return todoService.quickSearch("grocereis weekend", ScrollPosition.offset(), PAGE);
+    }
+}
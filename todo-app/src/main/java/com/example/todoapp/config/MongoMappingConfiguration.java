@@ -0,0 +1,32 @@
+package com.example.todoapp.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+/**
+ * Mapping settings for the converter Spring Boot configures.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MongoMappingConfiguration {
+
+    /**
+     * Stop writing the {@code _class} type hint. Each collection holds a single class with no
+     * subtypes, so the hint never decides anything on read, while its fully qualified class name
+     * is the longest value in a small document.
+     */
+    @Bean
+    static BeanPostProcessor mongoTypeKeyRemover() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof MappingMongoConverter converter) {
+                    converter.setTypeMapper(new DefaultMongoTypeMapper(null));
+                }
+                return bean;
+            }
+        };
+    }
+}
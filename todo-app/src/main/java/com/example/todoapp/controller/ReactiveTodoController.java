@@ -0,0 +1,451 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoDeleteManyResult;
+import com.example.todoapp.model.TodoFeedEvent;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoIndexReport;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.service.ReactiveTodoService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.todoapp.controller.TodoController.DEFAULT_ANALYTICS_DAYS;
+import static com.example.todoapp.controller.TodoController.DEFAULT_LIMIT;
+import static com.example.todoapp.controller.TodoController.LAST_EVENT_ID_HEADER;
+import static com.example.todoapp.controller.TodoController.MAX_BATCH_SIZE;
+
+/**
+ * Non-blocking counterpart of {@link TodoController}, serving the same REST contract when the
+ * application runs as a reactive web application
+ */
+@RestController
+@RequestMapping("/api/todos")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveTodoController {
+
+    private final ReactiveTodoService todoService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Get a page of todos, with only the requested fields of each
+     */
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllTodos(
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        TodoCursor page = TodoCursor.of(cursor, sort);
+        TodoFields projection = TodoController.fields(fields);
+        return todoService.getAllTodos(page.getPosition(), TodoController.limit(limit), page.getSort(), projection)
+                .map(window -> TodoController.page(page, window, projection));
+    }
+
+    /**
+     * Export todos as newline-delimited JSON, streamed from a database cursor as fast as the
+     * client reads it. The response is gzip-compressed when the client accepts it.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> exportTodos(
+            @RequestParam(required = false) Boolean completed,
+            @RequestParam(required = false) String priority,
+            @RequestHeader HttpHeaders headers) {
+        boolean gzip = TodoController.acceptsGzip(headers);
+        Flux<DataBuffer> body = Flux.using(() -> new ExportEncoder(objectMapper, gzip),
+                encoder -> todoService.exportTodos(completed, priority)
+                        .buffer(TodoController.EXPORT_FLUSH_INTERVAL)
+                        .map(encoder::encode)
+                        .concatWith(Mono.fromCallable(encoder::finish))
+                        .filter(chunk -> chunk.length > 0)
+                        .map(DefaultDataBufferFactory.sharedInstance::wrap),
+                ExportEncoder::close);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Get the state of the collection's indexes compared to their declarations
+     */
+    @GetMapping("/indexes")
+    public ResponseEntity<TodoIndexReport> getIndexReport() {
+        return ResponseEntity.ok(todoService.getIndexReport());
+    }
+
+    /**
+     * Get the progress of rewriting todos stored before the compact schema
+     */
+    @GetMapping("/migration")
+    public ResponseEntity<TodoMigrationReport> getMigrationReport() {
+        return ResponseEntity.ok(todoService.getMigrationReport());
+    }
+
+    /**
+     * Get todos created and completed per day, overall and by priority, for the days from
+     * {@code from} to {@code to}, both included; the last 30 days by default
+     */
+    @GetMapping("/analytics")
+    public Mono<ResponseEntity<TodoAnalytics>> getAnalytics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_ANALYTICS_DAYS - 1) : from;
+        TodoController.validateAnalyticsRange(start, end);
+        return todoService.getAnalytics(start, end).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Read records of the change journal from sequence {@code from} on
+     */
+    @GetMapping("/journal")
+    public Mono<ResponseEntity<List<TodoJournalRecord>>> getJournal(
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        return todoService.getJournal(from, TodoController.limit(limit).max()).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Stream changes to todos as server-sent events, optionally only those with the given status
+     * and priority. A client reconnecting with the token of the last event it received, as
+     * {@code Last-Event-ID} or {@code since}, continues where it left off.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TodoFeedEvent>> streamChanges(
+            @RequestParam(required = false) Boolean completed,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return todoService.subscribeToChanges(completed, priority, TodoController.resumeToken(lastEventId, since))
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getToken())
+                        .event(event.getType().name())
+                        .build())
+                .take(todoService.getChangeFeedTimeout());
+    }
+
+    /**
+     * Get the todos changed and deleted since the sync token of an earlier response, or every
+     * todo without one
+     */
+    @GetMapping("/changes")
+    public Mono<ResponseEntity<TodoChanges>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        return todoService.getChanges(since, TodoController.limit(limit).max())
+                .map(ResponseEntity::ok)
+                .onErrorMap(IllegalArgumentException.class, TodoController::invalidSyncToken);
+    }
+
+    /**
+     * Get todo by ID. A conditional request whose tag still matches is answered from the
+     * todo's version alone, without reading the todo.
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Todo>> getTodoById(@PathVariable String id, ServerWebExchange exchange) {
+        if (!exchange.getRequest().getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)) {
+            return found(todoService.getTodoById(id));
+        }
+        return todoService.getTodoVersion(id)
+                .map(TodoETags::of)
+                .filter(exchange::checkNotModified)
+                .map(etag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<Todo>build())
+                .switchIfEmpty(Mono.defer(() -> found(todoService.getTodoById(id))));
+    }
+
+    /**
+     * Create a new todo
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Todo>> createTodo(@RequestBody Todo todo) {
+        return todoService.createTodo(todo)
+                .map(createdTodo -> ResponseEntity.status(HttpStatus.CREATED)
+                        .eTag(TodoETags.of(createdTodo))
+                        .body(createdTodo));
+    }
+
+    /**
+     * Execute a batch of create, update, delete and completion operations in one bulk write
+     */
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<TodoOperationResult>>> executeBatch(@RequestBody TodoBatchRequest batch) {
+        TodoController.validate(batch);
+        return todoService.executeBatch(batch).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Set completion and/or priority on every todo matching a filter, without loading them
+     */
+    @PatchMapping
+    public Mono<ResponseEntity<TodoUpdateManyResult>> updateMany(@RequestBody TodoUpdateManyRequest request) {
+        if (request.getFilter() == null || request.getFilter().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A non-empty filter is required");
+        }
+        if (request.getCompleted() == null && request.getPriority() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
+        return todoService.updateMany(request).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Update a todo. With {@code If-Match} the update only applies if the todo is still at the
+     * version its tag names, and fails with 412 Precondition Failed otherwise. With
+     * {@code Prefer: respond-async} and write-behind enabled, an unconditional update is
+     * queued and answered with 202 Accepted.
+     */
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Todo>> updateTodo(
+            @PathVariable String id,
+            @RequestBody Todo todoDetails,
+            @RequestHeader HttpHeaders headers) {
+        List<Long> versions = TodoController.ifMatch(headers);
+        if (versions == null && TodoController.respondAsync(headers) && todoService.isWriteBehind()) {
+            todoService.queueUpdate(id, todoDetails);
+            return Mono.just(TodoController.accepted(id));
+        }
+        if (versions == null) {
+            return found(todoService.updateTodo(id, todoDetails));
+        }
+        return found(todoService.updateTodo(id, todoDetails, versions)
+                .onErrorMap(OptimisticLockingFailureException.class, TodoController::preconditionFailed));
+    }
+
+    /**
+     * Delete a todo
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteTodo(@PathVariable String id) {
+        return todoService.deleteTodo(id)
+                .map(deleted -> deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Delete all todos with the given ids in one round trip
+     */
+    @DeleteMapping
+    public Mono<ResponseEntity<TodoDeleteManyResult>> deleteTodos(@RequestParam List<String> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + MAX_BATCH_SIZE + " ids are required");
+        }
+        return todoService.deleteTodos(ids)
+                .map(result -> result.getDeleted() == 0
+                        ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(result)
+                        : ResponseEntity.ok(result));
+    }
+
+    /**
+     * Get a page of todos by completion status, with only the requested fields of each
+     */
+    @GetMapping("/status/{status}")
+    public Mono<ResponseEntity<?>> getTodosByStatus(
+            @PathVariable boolean status,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        TodoCursor page = TodoCursor.of(cursor, sort);
+        TodoFields projection = TodoController.fields(fields);
+        return todoService.getTodosByStatus(status, page.getPosition(), TodoController.limit(limit), page.getSort(),
+                        projection)
+                .map(window -> TodoController.page(page, window, projection));
+    }
+
+    /**
+     * Get a page of todos by priority, with only the requested fields of each
+     */
+    @GetMapping("/priority/{priority}")
+    public Mono<ResponseEntity<?>> getTodosByPriority(
+            @PathVariable String priority,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        TodoCursor page = TodoCursor.of(cursor, sort);
+        TodoFields projection = TodoController.fields(fields);
+        return todoService.getTodosByPriority(priority, page.getPosition(), TodoController.limit(limit),
+                        page.getSort(), projection)
+                .map(window -> TodoController.page(page, window, projection));
+    }
+
+    /**
+     * Typo-tolerant search of title and description, answered from memory
+     */
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<Todo>>> quickSearch(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor) {
+        TodoCursor page = TodoCursor.ranked(cursor);
+        return todoService.quickSearch(q, page.getPosition(), TodoController.limit(limit))
+                .map(window -> TodoController.page(page, window));
+    }
+
+    /**
+     * Search a page of todos by title and description, ranked by relevance
+     */
+    @GetMapping("/search/{title}")
+    public Mono<ResponseEntity<List<Todo>>> searchTodosByTitle(
+            @PathVariable String title,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor) {
+        TodoCursor page = TodoCursor.ranked(cursor);
+        return todoService.searchTodos(title, page.getPosition(), TodoController.limit(limit))
+                .map(window -> TodoController.page(page, window));
+    }
+
+    /**
+     * Mark todo as completed, queued with 202 Accepted on {@code Prefer: respond-async} when
+     * write-behind is enabled
+     */
+    @PutMapping("/{id}/complete")
+    public Mono<ResponseEntity<Todo>> markAsCompleted(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        if (TodoController.respondAsync(headers) && todoService.isWriteBehind()) {
+            todoService.queueCompletion(id, true);
+            return Mono.just(TodoController.accepted(id));
+        }
+        return found(todoService.markAsCompleted(id));
+    }
+
+    /**
+     * Mark todo as incomplete, queued with 202 Accepted on {@code Prefer: respond-async} when
+     * write-behind is enabled
+     */
+    @PutMapping("/{id}/incomplete")
+    public Mono<ResponseEntity<Todo>> markAsIncomplete(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        if (TodoController.respondAsync(headers) && todoService.isWriteBehind()) {
+            todoService.queueCompletion(id, false);
+            return Mono.just(TodoController.accepted(id));
+        }
+        return found(todoService.markAsIncomplete(id));
+    }
+
+    /**
+     * Toggle the completion status of a todo
+     */
+    @PatchMapping("/{id}/toggle")
+    public Mono<ResponseEntity<Todo>> toggleCompleted(@PathVariable String id) {
+        return found(todoService.toggleCompleted(id));
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<String> health() {
+        return ResponseEntity.ok("Todo App is running!");
+    }
+
+    /**
+     * A write rejected because the write-behind queue is full, to be retried shortly
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> writeQueueFull() {
+        return TodoController.retryLater();
+    }
+
+    /**
+     * A query on stored field names while todos are being migrated, to be retried shortly
+     */
+    @ExceptionHandler(TransientDataAccessResourceException.class)
+    public ResponseEntity<Void> schemaMigrating() {
+        return TodoController.retryLater();
+    }
+
+    private static Mono<ResponseEntity<Todo>> found(Mono<Todo> todo) {
+        return todo.map(TodoController::tagged)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Writes exported todos as newline-delimited JSON, a chunk at a time, through one gzip
+     * stream when compressing so the chunks concatenate into a single gzip member
+     */
+    private static final class ExportEncoder {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private final JsonGenerator json;
+
+        ExportEncoder(ObjectMapper objectMapper, boolean gzip) throws IOException {
+            OutputStream target = gzip ? new GZIPOutputStream(buffer, true) : buffer;
+            this.json = objectMapper.createGenerator(target);
+            json.setRootValueSeparator(null);
+        }
+
+        byte[] encode(List<Todo> todos) {
+            try {
+                for (Todo todo : todos) {
+                    json.writeObject(todo);
+                    json.writeRaw('\n');
+                }
+                json.flush();
+                return drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Bytes still to be sent once the last todo is written, such as the gzip trailer
+         */
+        byte[] finish() throws IOException {
+            json.close();
+            return drain();
+        }
+
+        void close() {
+            try {
+                json.close();
+            } catch (IOException e) {
+                // nothing is sent after a failed or cancelled export
+            }
+        }
+
+        private byte[] drain() {
+            byte[] chunk = buffer.toByteArray();
+            buffer.reset();
+            return chunk;
+        }
+    }
+}
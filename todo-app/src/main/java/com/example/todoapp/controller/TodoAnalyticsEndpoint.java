@@ -0,0 +1,31 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.service.TodoRollups;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Management endpoint rebuilding the analytics rollups from the todos, at
+ * {@code POST /actuator/todoanalytics}. A backfill aggregates every todo and rewrites every
+ * rollup, so the endpoint is off unless enabled with
+ * {@code management.endpoint.todoanalytics.enabled} and exposed, like {@link TodoJournalEndpoint}.
+ */
+@Component
+@WebEndpoint(id = "todoanalytics", enableByDefault = false)
+@RequiredArgsConstructor
+public class TodoAnalyticsEndpoint {
+
+    private final TodoRollups todoRollups;
+
+    /**
+     * Rebuild every rollup, returning how many were written
+     */
+    @WriteOperation
+    public Map<String, Long> backfill() {
+        return Map.of("rollups", todoRollups.backfill());
+    }
+}
@@ -1,36 +1,267 @@
 package com.example.todoapp.controller;
 
 import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoDeleteManyResult;
+import com.example.todoapp.model.TodoFeedEvent;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoIndexReport;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.service.TodoChangeFeed;
 import com.example.todoapp.service.TodoService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Window;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/todos")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 public class TodoController {
 
+    /**
+     * Response header carrying the cursor of the next page, absent on the last page
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Preference (RFC 7240) with which a client asks for a write to be accepted without waiting
+     * for it to be written
+     */
+    public static final String RESPOND_ASYNC = "respond-async";
+
+    static final String PREFER_HEADER = "Prefer";
+
+    static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+
+    /**
+     * Header with which an EventSource reconnecting to the change feed sends the token of the
+     * last event it received
+     */
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    /**
+     * Seconds a client is asked to wait before retrying a write rejected by a full write queue
+     */
+    static final int RETRY_AFTER_SECONDS = 1;
+
+    static final int DEFAULT_LIMIT = 100;
+
+    static final int MAX_LIMIT = 1000;
+
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Number of exported todos written between flushes, so the export goes out in chunks
+     */
+    static final int EXPORT_FLUSH_INTERVAL = 500;
+
+    static final int DEFAULT_ANALYTICS_DAYS = 30;
+
+    static final int MAX_ANALYTICS_DAYS = 366;
+
+    /**
+     * A weight in an {@code Accept-Encoding} header, from 0 to 1 with at most three decimals
+     */
+    private static final Pattern Q_VALUE = Pattern.compile("0(\\.\\d{0,3})?|1(\\.0{0,3})?");
+
     private final TodoService todoService;
 
+    private final ObjectMapper objectMapper;
+
     /**
-     * Get all todos
+     * Get a page of todos, with only the requested fields of each
      */
     @GetMapping
-    public ResponseEntity<List<Todo>> getAllTodos() {
-        return ResponseEntity.ok(todoService.getAllTodos());
+    public ResponseEntity<?> getAllTodos(
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        TodoCursor page = TodoCursor.of(cursor, sort);
+        TodoFields projection = fields(fields);
+        return page(page, todoService.getAllTodos(page.getPosition(), limit(limit), page.getSort(), projection),
+                projection);
+    }
+
+    /**
+     * Export todos as newline-delimited JSON, streamed from a database cursor.
+     * The response is gzip-compressed when the client accepts it.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTodos(
+            @RequestParam(required = false) Boolean completed,
+            @RequestParam(required = false) String priority,
+            @RequestHeader HttpHeaders headers) {
+        boolean gzip = acceptsGzip(headers);
+        StreamingResponseBody body = out -> {
+            try (Stream<Todo> todos = todoService.exportTodos(completed, priority);
+                 OutputStream target = gzip ? new GZIPOutputStream(out) : out;
+                 JsonGenerator json = objectMapper.createGenerator(target)) {
+                json.setRootValueSeparator(null);
+                int written = 0;
+                for (Todo todo : (Iterable<Todo>) todos::iterator) {
+                    json.writeObject(todo);
+                    json.writeRaw('\n');
+                    if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                        json.flush();
+                    }
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     /**
-     * Get todo by ID
+     * Get the state of the collection's indexes compared to their declarations
+     */
+    @GetMapping("/indexes")
+    public ResponseEntity<TodoIndexReport> getIndexReport() {
+        return ResponseEntity.ok(todoService.getIndexReport());
+    }
+
+    /**
+     * Get the progress of rewriting todos stored before the compact schema
+     */
+    @GetMapping("/migration")
+    public ResponseEntity<TodoMigrationReport> getMigrationReport() {
+        return ResponseEntity.ok(todoService.getMigrationReport());
+    }
+
+    /**
+     * Get todos created and completed per day, overall and by priority, for the days from
+     * {@code from} to {@code to}, both included; the last 30 days by default
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<TodoAnalytics> getAnalytics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_ANALYTICS_DAYS - 1) : from;
+        validateAnalyticsRange(start, end);
+        return ResponseEntity.ok(todoService.getAnalytics(start, end));
+    }
+
+    /**
+     * Read records of the change journal from sequence {@code from} on
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<List<TodoJournalRecord>> getJournal(
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(todoService.getJournal(from, limit(limit).max()));
+    }
+
+    /**
+     * Stream changes to todos as server-sent events, optionally only those with the given status
+     * and priority. A client reconnecting with the token of the last event it received, as
+     * {@code Last-Event-ID} or {@code since}, continues where it left off.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) Boolean completed,
+            @RequestParam(required = false) String priority,
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(todoService.getChangeFeedTimeout().toMillis());
+        TodoChangeFeed.Subscription subscription = todoService.subscribeToChanges(completed, priority,
+                resumeToken(lastEventId, since), new TodoChangeFeed.Sink() {
+                    @Override
+                    public long requested() {
+                        // a servlet response gives no demand signal: a send blocks one of the feed's
+                        // threads, and a client that cannot keep up fills its buffer and is dropped
+                        return Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public void send(TodoFeedEvent event) throws Exception {
+                        emitter.send(SseEmitter.event()
+                                .id(event.getToken())
+                                .name(event.getType().name())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+
+                    @Override
+                    public void close(boolean dropped) {
+                        emitter.complete();
+                    }
+                });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    /**
+     * Get the todos changed and deleted since the sync token of an earlier response, or every
+     * todo without one. Apply the todos before the deletions, ask again with {@code next} while
+     * {@code hasMore} is set, and replace what is held locally when {@code reset} is.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<TodoChanges> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(todoService.getChanges(since, limit(limit).max()));
+        } catch (IllegalArgumentException e) {
+            throw invalidSyncToken(e);
+        }
+    }
+
+    /**
+     * Get todo by ID. A conditional request whose tag still matches is answered from the
+     * todo's version alone, without reading the todo.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Todo> getTodoById(@PathVariable String id) {
+    public ResponseEntity<Todo> getTodoById(@PathVariable String id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> etag = todoService.getTodoVersion(id).map(TodoETags::of);
+            if (etag.isPresent() && request.checkNotModified(etag.get())) {
+                // the 304 and its ETag are already on the response
+                return null;
+            }
+        }
         return todoService.getTodoById(id)
-                .map(ResponseEntity::ok)
+                .map(TodoController::tagged)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -40,18 +271,62 @@ public class TodoController {
     @PostMapping
     public ResponseEntity<Todo> createTodo(@RequestBody Todo todo) {
         Todo createdTodo = todoService.createTodo(todo);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdTodo);
+        ResponseEntity.BodyBuilder created = ResponseEntity.status(HttpStatus.CREATED);
+        if (createdTodo != null) {
+            created.eTag(TodoETags.of(createdTodo));
+        }
+        return created.body(createdTodo);
     }
 
     /**
-     * Update a todo
+     * Execute a batch of create, update, delete and completion operations in one bulk write
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<TodoOperationResult>> executeBatch(@RequestBody TodoBatchRequest batch) {
+        validate(batch);
+        return ResponseEntity.ok(todoService.executeBatch(batch));
+    }
+
+    /**
+     * Set completion and/or priority on every todo matching a filter, without loading them
+     */
+    @PatchMapping
+    public ResponseEntity<TodoUpdateManyResult> updateMany(@RequestBody TodoUpdateManyRequest request) {
+        if (request.getFilter() == null || request.getFilter().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A non-empty filter is required");
+        }
+        if (request.getCompleted() == null && request.getPriority() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
+        return ResponseEntity.ok(todoService.updateMany(request));
+    }
+
+    /**
+     * Update a todo. With {@code If-Match} the update only applies if the todo is still at the
+     * version its tag names, and fails with 412 Precondition Failed otherwise. With
+     * {@code Prefer: respond-async} and write-behind enabled, an unconditional update is
+     * queued and answered with 202 Accepted.
      */
     @PutMapping("/{id}")
     public ResponseEntity<Todo> updateTodo(
             @PathVariable String id,
-            @RequestBody Todo todoDetails) {
-        return todoService.updateTodo(id, todoDetails)
-                .map(ResponseEntity::ok)
+            @RequestBody Todo todoDetails,
+            @RequestHeader HttpHeaders headers) {
+        List<Long> versions = ifMatch(headers);
+        if (versions == null && respondAsync(headers) && todoService.isWriteBehind()) {
+            todoService.queueUpdate(id, todoDetails);
+            return accepted(id);
+        }
+        Optional<Todo> updated;
+        try {
+            updated = versions == null
+                    ? todoService.updateTodo(id, todoDetails)
+                    : todoService.updateTodo(id, todoDetails, versions);
+        } catch (OptimisticLockingFailureException e) {
+            throw preconditionFailed(e);
+        }
+        return updated
+                .map(TodoController::tagged)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -67,46 +342,114 @@ public class TodoController {
     }
 
     /**
-     * Get todos by completion status
+     * Delete all todos with the given ids in one round trip
+     */
+    @DeleteMapping
+    public ResponseEntity<TodoDeleteManyResult> deleteTodos(@RequestParam List<String> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + MAX_BATCH_SIZE + " ids are required");
+        }
+        TodoDeleteManyResult result = todoService.deleteTodos(ids);
+        if (result.getDeleted() == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Get a page of todos by completion status, with only the requested fields of each
      */
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Todo>> getTodosByStatus(@PathVariable boolean status) {
-        return ResponseEntity.ok(todoService.getTodosByStatus(status));
+    public ResponseEntity<?> getTodosByStatus(
+            @PathVariable boolean status,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        TodoCursor page = TodoCursor.of(cursor, sort);
+        TodoFields projection = fields(fields);
+        return page(page, todoService.getTodosByStatus(status, page.getPosition(), limit(limit), page.getSort(),
+                projection), projection);
     }
 
     /**
-     * Get todos by priority
+     * Get a page of todos by priority, with only the requested fields of each
      */
     @GetMapping("/priority/{priority}")
-    public ResponseEntity<List<Todo>> getTodosByPriority(@PathVariable String priority) {
-        return ResponseEntity.ok(todoService.getTodosByPriority(priority));
+    public ResponseEntity<?> getTodosByPriority(
+            @PathVariable String priority,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        TodoCursor page = TodoCursor.of(cursor, sort);
+        TodoFields projection = fields(fields);
+        return page(page, todoService.getTodosByPriority(priority, page.getPosition(), limit(limit), page.getSort(),
+                projection), projection);
+    }
+
+    /**
+     * Typo-tolerant search of title and description, answered from memory
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Todo>> quickSearch(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor) {
+        TodoCursor page = TodoCursor.ranked(cursor);
+        return page(page, todoService.quickSearch(q, page.getPosition(), limit(limit)));
     }
 
     /**
-     * Search todos by title
+     * Search a page of todos by title and description, ranked by relevance
      */
     @GetMapping("/search/{title}")
-    public ResponseEntity<List<Todo>> searchTodosByTitle(@PathVariable String title) {
-        return ResponseEntity.ok(todoService.searchTodosByTitle(title));
+    public ResponseEntity<List<Todo>> searchTodosByTitle(
+            @PathVariable String title,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor) {
+        TodoCursor page = TodoCursor.ranked(cursor);
+        return page(page, todoService.searchTodos(title, page.getPosition(), limit(limit)));
     }
 
     /**
-     * Mark todo as completed
+     * Mark todo as completed, queued with 202 Accepted on {@code Prefer: respond-async} when
+     * write-behind is enabled
      */
     @PutMapping("/{id}/complete")
-    public ResponseEntity<Todo> markAsCompleted(@PathVariable String id) {
+    public ResponseEntity<Todo> markAsCompleted(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        if (respondAsync(headers) && todoService.isWriteBehind()) {
+            todoService.queueCompletion(id, true);
+            return accepted(id);
+        }
         return todoService.markAsCompleted(id)
-                .map(ResponseEntity::ok)
+                .map(TodoController::tagged)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
-     * Mark todo as incomplete
+     * Mark todo as incomplete, queued with 202 Accepted on {@code Prefer: respond-async} when
+     * write-behind is enabled
      */
     @PutMapping("/{id}/incomplete")
-    public ResponseEntity<Todo> markAsIncomplete(@PathVariable String id) {
+    public ResponseEntity<Todo> markAsIncomplete(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        if (respondAsync(headers) && todoService.isWriteBehind()) {
+            todoService.queueCompletion(id, false);
+            return accepted(id);
+        }
         return todoService.markAsIncomplete(id)
-                .map(ResponseEntity::ok)
+                .map(TodoController::tagged)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Toggle the completion status of a todo
+     */
+    @PatchMapping("/{id}/toggle")
+    public ResponseEntity<Todo> toggleCompleted(@PathVariable String id) {
+        return todoService.toggleCompleted(id)
+                .map(TodoController::tagged)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -117,4 +460,192 @@ public class TodoController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Todo App is running!");
     }
+
+    /**
+     * A write rejected because the write-behind queue is full: the client is asked to retry
+     * shortly rather than have the write queued without bound
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> writeQueueFull() {
+        return retryLater();
+    }
+
+    /**
+     * A query on stored field names while todos are still being migrated to the compact
+     * schema, which would leave the todos not yet migrated out of its results
+     */
+    @ExceptionHandler(TransientDataAccessResourceException.class)
+    public ResponseEntity<Void> schemaMigrating() {
+        return retryLater();
+    }
+
+    static void validate(TodoBatchRequest batch) {
+        List<TodoOperation> operations = batch.getOperations();
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch must contain between 1 and " + MAX_BATCH_SIZE + " operations");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            TodoOperation operation = operations.get(i);
+            TodoOperation.Type type = operation == null ? null : operation.getType();
+            boolean valid = type != null
+                    && (type == TodoOperation.Type.CREATE || operation.getId() != null)
+                    && (type != TodoOperation.Type.CREATE && type != TodoOperation.Type.UPDATE
+                        || operation.getTodo() != null);
+            if (!valid) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid operation at index " + i);
+            }
+        }
+    }
+
+    static Limit limit(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Limit.of(Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Reject an analytics range that is reversed or longer than {@value #MAX_ANALYTICS_DAYS} days
+     */
+    static void validateAnalyticsRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || from.plusDays(MAX_ANALYTICS_DAYS).isBefore(to.plusDays(1))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "from must not be after to, and the range at most " + MAX_ANALYTICS_DAYS + " days");
+        }
+    }
+
+    /**
+     * Resolve the fields request parameter: a comma-separated list of todo fields, or
+     * {@code summary}
+     */
+    static TodoFields fields(String fields) {
+        try {
+            return TodoFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The versions the request's {@code If-Match} header accepts, or {@code null} for any
+     */
+    static List<Long> ifMatch(HttpHeaders headers) {
+        try {
+            return TodoETags.versions(headers.getIfMatch());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match header", e);
+        }
+    }
+
+    /**
+     * Whether the request's {@code Accept-Encoding} header accepts gzip: named as {@code gzip}
+     * or {@code x-gzip}, or else covered by {@code *}, with a q-value above zero
+     */
+    static boolean acceptsGzip(HttpHeaders headers) {
+        double gzip = -1;
+        double any = -1;
+        for (String encoding : headers.getValuesAsList(HttpHeaders.ACCEPT_ENCODING)) {
+            String[] parameters = encoding.split(";");
+            String coding = parameters[0].trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, qValue(parameters));
+            } else if (coding.equals("*")) {
+                any = Math.max(any, qValue(parameters));
+            }
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+
+    /**
+     * The q-value among the parameters after a coding: 1 if there is none, 0 if it is malformed
+     */
+    private static double qValue(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String[] parameter = parameters[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                String value = parameter[1].trim();
+                return Q_VALUE.matcher(value).matches() ? Double.parseDouble(value) : 0;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Whether the request prefers a write to be answered before it is written
+     */
+    static boolean respondAsync(HttpHeaders headers) {
+        return headers.getValuesAsList(PREFER_HEADER).stream()
+                .anyMatch(preference -> preference.split(";", 2)[0].trim().equalsIgnoreCase(RESPOND_ASYNC));
+    }
+
+    /**
+     * 202 Accepted for a queued write, pointing at the todo it will change
+     */
+    static ResponseEntity<Todo> accepted(String id) {
+        return ResponseEntity.accepted()
+                .location(UriComponentsBuilder.fromPath("/api/todos/{id}").buildAndExpand(id).encode().toUri())
+                .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC)
+                .build();
+    }
+
+    /**
+     * 503 Service Unavailable, asking the client to retry shortly
+     */
+    static ResponseEntity<Void> retryLater() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                .build();
+    }
+
+    /**
+     * The change feed token to resume from: the one an EventSource sends on reconnecting wins
+     * over the one the client passed when it first connected
+     */
+    static String resumeToken(String lastEventId, String since) {
+        return lastEventId != null && !lastEventId.isBlank() ? lastEventId : since;
+    }
+
+    static ResponseStatusException invalidSyncToken(IllegalArgumentException e) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sync token", e);
+    }
+
+    static ResponseStatusException preconditionFailed(OptimisticLockingFailureException e) {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+    }
+
+    /**
+     * A todo with its entity tag
+     */
+    static ResponseEntity<Todo> tagged(Todo todo) {
+        return ResponseEntity.ok().eTag(TodoETags.of(todo)).body(todo);
+    }
+
+    static ResponseEntity<List<Todo>> page(TodoCursor cursor, Window<Todo> window) {
+        return page(cursor, window, TodoFields.ALL, window.getContent());
+    }
+
+    /**
+     * A page of todos read with the given fields, written with only those fields
+     */
+    static ResponseEntity<?> page(TodoCursor cursor, Window<Todo> window, TodoFields fields) {
+        if (fields.isAll()) {
+            return page(cursor, window);
+        }
+        return page(cursor, window, fields, new TodoProjection(window.getContent(), fields));
+    }
+
+    /**
+     * A page with the cursor of the next one and an entity tag, so a conditional request for
+     * an unchanged page is answered without writing it
+     */
+    private static <T> ResponseEntity<T> page(TodoCursor cursor, Window<Todo> window, TodoFields fields, T body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String next = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            next = cursor.next(window.positionAt(window.size() - 1));
+            response.header(NEXT_CURSOR_HEADER, next);
+        }
+        return response.eTag(TodoETags.of(window.getContent(), fields, next)).body(body);
+    }
 }
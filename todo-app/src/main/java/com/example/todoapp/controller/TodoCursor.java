@@ -0,0 +1,149 @@
+package com.example.todoapp.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opaque keyset cursor for the list endpoints.
+ * <p>
+ * A cursor carries the sort it was issued for together with the sort key values of the
+ * last todo on the page, so the next page resumes with an index range scan on
+ * {@code (sort key, _id)} instead of skipping over everything already returned.
+ * Relevance-ranked search has no stored sort key, so its cursors carry an offset instead.
+ */
+final class TodoCursor {
+
+    /**
+     * Properties clients may sort by. Both are always set by the service, which keyset
+     * paging requires since it cannot resume from a {@code null} key.
+     */
+    static final Set<String> SORTABLE_PROPERTIES = Set.of("createdAt", "updatedAt");
+
+    private static final Set<String> DATE_KEYS = Set.of("createdAt", "updatedAt");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String sortParam;
+
+    private final Sort sort;
+
+    private final ScrollPosition position;
+
+    private TodoCursor(String sortParam, ScrollPosition position) {
+        this.sortParam = sortParam;
+        this.sort = parseSort(sortParam);
+        this.position = position;
+    }
+
+    /**
+     * Resolve the cursor and sort request parameters. A cursor always wins over
+     * {@code sort}, since it must be resumed with the sort it was issued for.
+     */
+    static TodoCursor of(String cursor, String sort) {
+        if (cursor != null && !cursor.isBlank()) {
+            return decode(cursor);
+        }
+        return new TodoCursor(sort == null ? "" : sort.trim(), ScrollPosition.keyset());
+    }
+
+    /**
+     * Resolve the cursor request parameter of a relevance-ranked endpoint
+     */
+    static TodoCursor ranked(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new TodoCursor("", ScrollPosition.offset());
+        }
+        TodoCursor decoded = decode(cursor);
+        if (!(decoded.position instanceof OffsetScrollPosition)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        return decoded;
+    }
+
+    Sort getSort() {
+        return sort;
+    }
+
+    ScrollPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * Encode the position after the last element of a page as the cursor for the next page.
+     */
+    String next(ScrollPosition next) {
+        Payload payload;
+        if (next instanceof OffsetScrollPosition offset) {
+            payload = new Payload(sortParam, null, offset.getOffset());
+        } else if (next instanceof KeysetScrollPosition keyset) {
+            Map<String, String> keys = new LinkedHashMap<>();
+            keyset.getKeys().forEach((key, value) -> keys.put(key, String.valueOf(value)));
+            payload = new Payload(sortParam, keys, null);
+        } else {
+            throw new IllegalArgumentException("Unsupported position: " + next);
+        }
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(payload);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    private static TodoCursor decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            Payload payload = MAPPER.readValue(json, Payload.class);
+            if (payload.o() != null) {
+                if (payload.o() < 0) {
+                    throw new IllegalArgumentException("Negative offset");
+                }
+                return new TodoCursor(payload.s(), ScrollPosition.offset(payload.o()));
+            }
+            if (payload.k() == null || !payload.k().containsKey("id")) {
+                throw new IllegalArgumentException("Cursor carries no keyset");
+            }
+            Map<String, Object> keys = new LinkedHashMap<>();
+            payload.k().forEach((key, value) ->
+                    keys.put(key, DATE_KEYS.contains(key) ? LocalDateTime.parse(value) : value));
+            return new TodoCursor(payload.s(), ScrollPosition.forward(keys));
+        } catch (IllegalArgumentException | DateTimeParseException | IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+    }
+
+    private static Sort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.unsorted();
+        }
+        String[] parts = sort.split(",");
+        String property = parts[0].trim();
+        if (!SORTABLE_PROPERTIES.contains(property) || parts.length > 2) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort);
+        }
+        Sort.Direction direction = parts.length == 1 ? Sort.Direction.ASC
+                : Sort.Direction.fromOptionalString(parts[1].trim())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort));
+        return Sort.by(direction, property);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Payload(String s, Map<String, String> k, Long o) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Strong entity tags for todos and pages of todos.
+ * <p>
+ * A todo's tag is its version, which every write bumps. A page's tag is a digest of the ids
+ * and versions of the todos on it together with everything else that shapes the response,
+ * the fields returned and the cursor of the next page, so it can be computed without
+ * serializing the page.
+ * <p>
+ * Versions also make updates conditional: an {@code If-Match} tag names the version a
+ * client read, and the update only applies if the todo is still at it.
+ */
+final class TodoETags {
+
+    private TodoETags() {
+    }
+
+    static String of(Todo todo) {
+        return of(todo.getVersion());
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * The versions a list of {@code If-Match} tags accepts, or {@code null} if it accepts any
+     * version, as an absent header or {@code *} does. If-Match compares strongly, so weak tags
+     * never match, and neither do tags that are not versions.
+     */
+    static List<Long> versions(List<String> ifMatch) {
+        if (ifMatch.isEmpty() || ifMatch.contains("*")) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch) {
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag, 1, tag.length() - 1, 10));
+                } catch (NumberFormatException e) {
+                    // a page's tag or one from elsewhere, which no todo version matches
+                }
+            }
+        }
+        return versions;
+    }
+
+    static String of(List<Todo> todos, TodoFields fields, String nextCursor) {
+        MessageDigest digest = md5();
+        update(digest, fields.toString());
+        update(digest, nextCursor == null ? "" : nextCursor);
+        byte[] version = new byte[Long.BYTES];
+        for (Todo todo : todos) {
+            update(digest, todo.getId());
+            long value = todo.getVersion();
+            for (int i = 0; i < Long.BYTES; i++) {
+                version[i] = (byte) (value >>> (8 * i));
+            }
+            digest.update(version);
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // terminate every value, so adjacent values cannot run into each other
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
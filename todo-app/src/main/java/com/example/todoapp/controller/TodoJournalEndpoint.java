@@ -0,0 +1,48 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.service.TodoJournalRestore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Management endpoint rebuilding the todos collection from the change journal, at
+ * {@code POST /actuator/todojournal} with a body of {@code {"at": "2024-01-15T12:00:00"}}.
+ * A restore rewrites every todo, so the endpoint is off unless enabled with
+ * {@code management.endpoint.todojournal.enabled} and exposed, and it is served with the other
+ * actuator endpoints, which belong on a management port kept off the public network.
+ */
+@Component
+@WebEndpoint(id = "todojournal", enableByDefault = false)
+@RequiredArgsConstructor
+public class TodoJournalEndpoint {
+
+    private final TodoJournalRestore todoJournalRestore;
+
+    /**
+     * Rebuild the todos collection as it was at the given local time, while nothing else writes;
+     * 409 if the journal is disabled or cannot replay up to that time
+     */
+    @WriteOperation
+    public WebEndpointResponse<Object> restore(String at) {
+        LocalDateTime time;
+        try {
+            time = LocalDateTime.parse(at);
+        } catch (DateTimeParseException e) {
+            throw new InvalidEndpointRequestException("Invalid time " + at, "at must be an ISO local date-time");
+        }
+        try {
+            return new WebEndpointResponse<>(todoJournalRestore.restore(time));
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("message", e.getMessage()), HttpStatus.CONFLICT.value());
+        }
+    }
+}
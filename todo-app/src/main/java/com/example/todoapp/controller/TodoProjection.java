@@ -0,0 +1,38 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A page of todos read with a projection, written with only the fields that were asked for
+ * rather than with the unset ones as nulls and defaults. Field values are written with the
+ * same serializers as a full todo.
+ */
+record TodoProjection(List<Todo> todos, TodoFields fields) implements JsonSerializable {
+
+    @Override
+    public void serialize(JsonGenerator json, SerializerProvider serializers) throws IOException {
+        json.writeStartArray(todos, todos.size());
+        for (Todo todo : todos) {
+            json.writeStartObject(todo);
+            for (String field : fields.getNames()) {
+                serializers.defaultSerializeField(field, TodoFields.valueOf(todo, field), json);
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator json, SerializerProvider serializers, TypeSerializer typeSerializer)
+            throws IOException {
+        serialize(json, serializers);
+    }
+}
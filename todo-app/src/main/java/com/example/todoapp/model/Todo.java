@@ -5,31 +5,85 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
+/**
+ * A todo. Documents store each field under a one- or two-letter name, given by its
+ * {@link Field} annotation, since field names are repeated in every document and make up much
+ * of a small one. Documents written with the full property names are rewritten by
+ * {@code TodoSchemaMigration} and read as before until then.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Document(collection = "todos")
+@Document(collection = Todo.COLLECTION)
+@CompoundIndex(name = "c_p_ca", def = "{'c': 1, 'p': 1, 'ca': 1}")
+@CompoundIndex(name = "p_ca", def = "{'p': 1, 'ca': 1}")
+@CompoundIndex(name = Todo.VERSION_INDEX, def = "{'_id': 1, 'v': 1}")
+@CompoundIndex(name = Todo.CHANGES_INDEX, def = "{'ua': 1, '_id': 1}")
 public class Todo {
 
+    public static final String COLLECTION = "todos";
+
+    /**
+     * Index covering lookups of a todo's version, so they never read the document
+     */
+    public static final String VERSION_INDEX = "id_v";
+
+    /**
+     * Index ordering todos by when they last changed, for keyset scans of the changes since a
+     * point in time; it also serves every query on updatedAt alone
+     */
+    public static final String CHANGES_INDEX = "ua_id";
+
     @Id
     private String id;
 
+    @TextIndexed(weight = 3)
+    @Field("t")
     private String title;
 
+    @TextIndexed
+    @Field("d")
     private String description;
 
+    @Field("c")
     private boolean completed;
 
+    @Indexed(name = "ca")
+    @Field("ca")
     private LocalDateTime createdAt;
 
+    @Field("ua")
     private LocalDateTime updatedAt;
 
-    private String priority; // LOW, MEDIUM, HIGH
+    /**
+     * LOW, MEDIUM or HIGH, stored as its {@link TodoPriority} code
+     */
+    @Field("p")
+    @ValueConverter(TodoPriority.Converter.class)
+    private String priority;
+
+    /**
+     * When the todo was completed, set by the write that completed it and unset while the
+     * todo is incomplete
+     */
+    @Field("da")
+    private LocalDateTime completedAt;
+
+    /**
+     * Incremented atomically by every write, so it identifies the state of the todo
+     */
+    @Field("v")
+    private long version;
 
     @Override
     public String toString() {
@@ -41,6 +95,8 @@ public class Todo {
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 ", priority='" + priority + '\'' +
+                ", completedAt=" + completedAt +
+                ", version=" + version +
                 '}';
     }
 }
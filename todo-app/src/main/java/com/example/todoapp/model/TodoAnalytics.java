@@ -0,0 +1,94 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Todos created and completed per day over a range of days, overall and by priority
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoAnalytics {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    /**
+     * Totals over the whole range
+     */
+    private Counts total;
+
+    /**
+     * Totals over the whole range by priority
+     */
+    @Builder.Default
+    private Map<String, Counts> byPriority = new TreeMap<>();
+
+    /**
+     * Every day of the range that had any activity, in order
+     */
+    @Builder.Default
+    private List<Day> days = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Counts {
+
+        private long created;
+
+        private long completed;
+
+        public void add(long created, long completed) {
+            this.created += created;
+            this.completed += completed;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Day {
+
+        private LocalDate day;
+
+        private Counts total;
+
+        @Builder.Default
+        private Map<String, Counts> byPriority = new TreeMap<>();
+    }
+
+    /**
+     * Sum rollups, given in day order, into per-day and per-priority totals
+     */
+    public static TodoAnalytics of(LocalDate from, LocalDate to, List<TodoRollup> rollups) {
+        TodoAnalytics analytics = TodoAnalytics.builder().from(from).to(to).total(new Counts()).build();
+        Day current = null;
+        for (TodoRollup rollup : rollups) {
+            LocalDate day = LocalDate.parse(rollup.getDay());
+            if (current == null || !current.getDay().equals(day)) {
+                current = Day.builder().day(day).total(new Counts()).build();
+                analytics.getDays().add(current);
+            }
+            current.getTotal().add(rollup.getCreated(), rollup.getCompleted());
+            current.getByPriority().computeIfAbsent(rollup.getPriority(), priority -> new Counts())
+                    .add(rollup.getCreated(), rollup.getCompleted());
+            analytics.getTotal().add(rollup.getCreated(), rollup.getCompleted());
+            analytics.getByPriority().computeIfAbsent(rollup.getPriority(), priority -> new Counts())
+                    .add(rollup.getCreated(), rollup.getCompleted());
+        }
+        return analytics;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of writes executed as one bulk write
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoBatchRequest {
+
+    /**
+     * Ordered batches stop at the first failing operation, unordered batches run every operation
+     */
+    @Builder.Default
+    private boolean ordered = true;
+
+    @Builder.Default
+    private List<TodoOperation> operations = new ArrayList<>();
+}
@@ -0,0 +1,47 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The todos changed and deleted since a sync token
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoChanges {
+
+    /**
+     * Todos created or changed since the token, in their current state
+     */
+    @Builder.Default
+    private List<Todo> todos = new ArrayList<>();
+
+    /**
+     * Ids of the todos deleted since the token
+     */
+    @Builder.Default
+    private List<String> deleted = new ArrayList<>();
+
+    /**
+     * Token to ask for the changes after these with
+     */
+    private String next;
+
+    /**
+     * Whether more changes are waiting; ask again with {@link #getNext()} right away
+     */
+    private boolean hasMore;
+
+    /**
+     * The token was older than the deletions kept, so these are all the todos: the client
+     * has to replace what it holds rather than apply them
+     */
+    private boolean reset;
+}
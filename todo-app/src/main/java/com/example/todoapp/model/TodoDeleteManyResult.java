@@ -0,0 +1,17 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoDeleteManyResult {
+
+    private long requested;
+
+    private long deleted;
+}
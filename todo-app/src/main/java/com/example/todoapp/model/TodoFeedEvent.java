@@ -0,0 +1,61 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change pushed to subscribers of the todo change feed
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoFeedEvent {
+
+    public enum Type {
+        /**
+         * First event of a subscription; its token is where the events that follow continue from
+         */
+        SUBSCRIBED,
+        /**
+         * {@link #getTodo()} was created
+         */
+        CREATED,
+        /**
+         * {@link #getTodo()} holds the state of a todo after a write changed it
+         */
+        UPDATED,
+        /**
+         * The todo with {@link #getId()} was deleted
+         */
+        DELETED,
+        /**
+         * {@link #getUpdate()} was applied to every matching todo at {@link #getAt()}
+         */
+        UPDATED_MANY,
+        /**
+         * Changes were missed, either because the resume token is no longer known or because
+         * the collection was rebuilt: the subscriber has to reload the todos
+         */
+        RESET
+    }
+
+    /**
+     * Resume token: subscribing with it continues with the event after this one
+     */
+    private String token;
+
+    private Type type;
+
+    private LocalDateTime at;
+
+    private Todo todo;
+
+    private String id;
+
+    private TodoUpdateManyRequest update;
+}
@@ -0,0 +1,97 @@
+package com.example.todoapp.model;
+
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields of each todo a list query returns. Fields left out are excluded from the
+ * query's projection, so they are never sent by the database nor read into the todos;
+ * excluded fields are left unset in the returned todos.
+ */
+@EqualsAndHashCode
+public final class TodoFields {
+
+    /**
+     * Every field of a todo, in the order they are written
+     */
+    public static final List<String> NAMES = List.of(
+            "id", "title", "description", "completed", "createdAt", "updatedAt", "priority", "completedAt",
+            "version");
+
+    public static final TodoFields ALL = new TodoFields(NAMES);
+
+    /**
+     * Compact representation for list views, leaving out the description and timestamps
+     */
+    public static final TodoFields SUMMARY = new TodoFields(List.of("id", "title", "completed", "priority"));
+
+    private static final String SUMMARY_NAME = "summary";
+
+    private final Set<String> names;
+
+    private TodoFields(Collection<String> names) {
+        this.names = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+    }
+
+    /**
+     * Parse a comma-separated list of field names, or {@code summary}. The id is always
+     * returned, since it addresses the todo; no fields at all means every field.
+     *
+     * @throws IllegalArgumentException if a name is not a field of a todo
+     */
+    public static TodoFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        if (fields.trim().equals(SUMMARY_NAME)) {
+            return SUMMARY;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        requested.add("id");
+        for (String name : fields.split(",")) {
+            String field = name.trim();
+            if (!NAMES.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            requested.add(field);
+        }
+        // keep the field order of a full todo whatever order they were asked for in
+        return new TodoFields(NAMES.stream().filter(requested::contains).toList());
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    public boolean isAll() {
+        return names.size() == NAMES.size();
+    }
+
+    /**
+     * Read a field of a todo by name
+     */
+    public static Object valueOf(Todo todo, String field) {
+        return switch (field) {
+            case "id" -> todo.getId();
+            case "title" -> todo.getTitle();
+            case "description" -> todo.getDescription();
+            case "completed" -> todo.isCompleted();
+            case "createdAt" -> todo.getCreatedAt();
+            case "updatedAt" -> todo.getUpdatedAt();
+            case "priority" -> todo.getPriority();
+            case "completedAt" -> todo.getCompletedAt();
+            case "version" -> todo.getVersion();
+            default -> throw new IllegalArgumentException("Unknown field: " + field);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", names);
+    }
+}
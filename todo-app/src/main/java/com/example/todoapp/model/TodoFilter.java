@@ -0,0 +1,56 @@
+package com.example.todoapp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Criteria selecting todos for a server-side mass operation. Unset fields do not filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoFilter {
+
+    private Boolean completed;
+
+    private String priority;
+
+    /**
+     * Case-insensitive substring of the title
+     */
+    private String title;
+
+    /**
+     * Inclusive lower bound on createdAt
+     */
+    private LocalDateTime createdFrom;
+
+    /**
+     * Exclusive upper bound on createdAt
+     */
+    private LocalDateTime createdTo;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return completed == null && priority == null && title == null && createdFrom == null && createdTo == null;
+    }
+
+    /**
+     * Evaluate the filter against a todo held in memory, with the same semantics as the query
+     */
+    public boolean matches(Todo todo) {
+        return (completed == null || completed == todo.isCompleted())
+                && (priority == null || priority.equals(todo.getPriority()))
+                && (title == null || todo.getTitle() != null
+                        && todo.getTitle().toLowerCase(Locale.ROOT).contains(title.toLowerCase(Locale.ROOT)))
+                && (createdFrom == null || todo.getCreatedAt() != null && !todo.getCreatedAt().isBefore(createdFrom))
+                && (createdTo == null || todo.getCreatedAt() != null && todo.getCreatedAt().isBefore(createdTo));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of comparing the indexes declared on {@link Todo} with those present in the collection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoIndexReport {
+
+    public enum Status {
+        PENDING, IN_SYNC, DRIFT, FAILED
+    }
+
+    private Status status;
+
+    /**
+     * Declared indexes that were missing and have been built
+     */
+    @Builder.Default
+    private List<String> created = new ArrayList<>();
+
+    /**
+     * Text indexes dropped to make way for the declared one
+     */
+    @Builder.Default
+    private List<String> dropped = new ArrayList<>();
+
+    /**
+     * Declared indexes that are still missing
+     */
+    @Builder.Default
+    private List<String> missing = new ArrayList<>();
+
+    /**
+     * Indexes whose name is declared but whose keys differ from the declaration
+     */
+    @Builder.Default
+    private List<String> mismatched = new ArrayList<>();
+
+    /**
+     * Indexes present in the collection that are not declared
+     */
+    @Builder.Default
+    private List<String> unexpected = new ArrayList<>();
+
+    private String error;
+
+    private LocalDateTime checkedAt;
+}
@@ -0,0 +1,74 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A record of the todo change journal, numbered by its position in the journal
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoJournalRecord {
+
+    public enum Type {
+        /**
+         * Todos were created or changed; {@link #getTodos()} holds their state after the write
+         */
+        SAVED,
+        /**
+         * Todos with {@link #getIds()} were deleted, if they existed
+         */
+        DELETED,
+        /**
+         * {@link #getUpdate()} was applied to every matching todo at {@link #getAt()}
+         */
+        UPDATED_MANY,
+        /**
+         * A snapshot of the whole collection follows; everything before it is superseded
+         */
+        RESET,
+        /**
+         * Part of the snapshot started by the last {@link #RESET}, as read from the database
+         * while writes went on
+         */
+        SNAPSHOT,
+        /**
+         * The snapshot started by the last {@link #RESET} is complete
+         */
+        SNAPSHOT_END,
+        /**
+         * Records of changes made from {@link #getAt()} on were lost; the journal cannot be
+         * replayed past it until the next complete snapshot
+         */
+        GAP
+    }
+
+    private long sequence;
+
+    private Type type;
+
+    private LocalDateTime at;
+
+    @Builder.Default
+    private List<Todo> todos = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> ids = new ArrayList<>();
+
+    /**
+     * Fields a {@link Type#SAVED} write may have changed on existing todos
+     */
+    @Builder.Default
+    private Set<String> changedFields = Set.of();
+
+    private TodoUpdateManyRequest update;
+}
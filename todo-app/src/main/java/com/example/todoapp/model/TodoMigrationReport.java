@@ -0,0 +1,53 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of rewriting todos stored before the compact schema of {@link Todo}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class TodoMigrationReport {
+
+    public enum Status {
+        PENDING, DISABLED, RUNNING, DONE, INCOMPLETE, FAILED
+    }
+
+    private Status status;
+
+    /**
+     * Todos rewritten so far, over every run
+     */
+    private long migrated;
+
+    /**
+     * Todos of the current pass that were written concurrently and are left for the next pass
+     */
+    private long skipped;
+
+    /**
+     * Passes over the collection in this run; another one is made while todos were skipped
+     */
+    private int passes;
+
+    /**
+     * Legacy indexes dropped once every todo was rewritten
+     */
+    @Builder.Default
+    private List<String> droppedIndexes = new ArrayList<>();
+
+    private String error;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+}
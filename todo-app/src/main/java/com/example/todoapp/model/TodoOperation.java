@@ -0,0 +1,32 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single write in a batch request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoOperation {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE, COMPLETE, INCOMPLETE
+    }
+
+    private Type type;
+
+    /**
+     * Target todo, required for every type except CREATE
+     */
+    private String id;
+
+    /**
+     * Payload for CREATE and UPDATE, with the same semantics as the single-todo endpoints
+     */
+    private Todo todo;
+}
@@ -0,0 +1,32 @@
+package com.example.todoapp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a single operation in a batch, reported at the operation's index
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TodoOperationResult {
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, NOT_FOUND, FAILED, SKIPPED
+    }
+
+    private int index;
+
+    private TodoOperation.Type type;
+
+    private String id;
+
+    private Status status;
+
+    private String error;
+}
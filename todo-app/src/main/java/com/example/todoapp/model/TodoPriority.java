@@ -0,0 +1,95 @@
+package com.example.todoapp.model;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The known todo priorities and the small integer codes they are stored as. Codes increase
+ * with importance, so sorting on the stored priority orders LOW before MEDIUM before HIGH.
+ * <p>
+ * Priorities are free-form in the API; one that is not known here is stored as given.
+ */
+public enum TodoPriority {
+
+    LOW(1),
+    MEDIUM(2),
+    HIGH(3);
+
+    private static final Map<String, TodoPriority> BY_NAME = new LinkedHashMap<>();
+
+    static {
+        for (TodoPriority priority : values()) {
+            BY_NAME.put(priority.name(), priority);
+        }
+    }
+
+    private final int code;
+
+    TodoPriority(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * The stored form of a priority: its code if it is known, otherwise the priority itself
+     */
+    public static Object encode(String priority) {
+        TodoPriority known = priority == null ? null : BY_NAME.get(priority);
+        return known == null ? priority : known.code;
+    }
+
+    /**
+     * The priority a stored value stands for; documents written before priorities were coded
+     * hold the name itself
+     */
+    public static String decode(Object stored) {
+        if (stored instanceof Number number) {
+            for (TodoPriority priority : values()) {
+                if (priority.code == number.intValue()) {
+                    return priority.name();
+                }
+            }
+        }
+        return stored == null ? null : stored.toString();
+    }
+
+    /**
+     * Stores {@link Todo#getPriority()} as its code. Query and update values for the property go
+     * through the converter too, including operator documents and lists of values.
+     */
+    public static class Converter implements MongoValueConverter<Object, Object> {
+
+        @Override
+        public Object read(Object value, MongoConversionContext context) {
+            return decode(value);
+        }
+
+        @Override
+        public Object write(Object value, MongoConversionContext context) {
+            return encodeValue(value);
+        }
+
+        private static Object encodeValue(Object value) {
+            if (value instanceof String priority) {
+                return encode(priority);
+            }
+            if (value instanceof Document operators) {
+                Document encoded = new Document();
+                operators.forEach((operator, operand) -> encoded.put(operator, encodeValue(operand)));
+                return encoded;
+            }
+            if (value instanceof Collection<?> values) {
+                return values.stream().map(Converter::encodeValue).toList();
+            }
+            return value;
+        }
+    }
+}
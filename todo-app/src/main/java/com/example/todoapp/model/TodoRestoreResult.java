@@ -0,0 +1,38 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of rebuilding the todos collection from the change journal
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoRestoreResult {
+
+    /**
+     * The point in time the collection was rebuilt to
+     */
+    private LocalDateTime at;
+
+    /**
+     * Sequence of the last journal record applied
+     */
+    private long sequence;
+
+    /**
+     * Todos written back as they were at that point
+     */
+    private long restored;
+
+    /**
+     * Todos deleted because they did not exist at that point
+     */
+    private long deleted;
+}
@@ -0,0 +1,56 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+/**
+ * Todos created and completed on one day with one priority, kept up to date as todos are
+ * written so analytics read one document per day and priority rather than every todo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = TodoRollup.COLLECTION)
+public class TodoRollup {
+
+    public static final String COLLECTION = "todo_rollups";
+
+    /**
+     * Bucket for todos without a priority
+     */
+    public static final String NO_PRIORITY = "NONE";
+
+    /**
+     * The day and priority, e.g. {@code 2024-01-15/HIGH}
+     */
+    @Id
+    private String id;
+
+    /**
+     * ISO date in the server's time zone, so days sort and range-scan as strings
+     */
+    @Indexed(name = "day")
+    private String day;
+
+    private String priority;
+
+    private long created;
+
+    private long completed;
+
+    public static String idOf(LocalDate day, String priority) {
+        return day + "/" + priorityOf(priority);
+    }
+
+    public static String priorityOf(String priority) {
+        return priority == null ? NO_PRIORITY : priority;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a deleted todo for clients syncing the changes since a point in time, which would
+ * otherwise never learn that it is gone. Tombstones expire once no sync token can still reach
+ * back to them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = TodoTombstone.COLLECTION)
+public class TodoTombstone {
+
+    public static final String COLLECTION = "todo_tombstones";
+
+    /**
+     * TTL index on deletedAt, which also orders tombstones for keyset scans
+     */
+    public static final String EXPIRY_INDEX = "da_ttl";
+
+    /**
+     * The id of the deleted todo
+     */
+    @Id
+    private String id;
+
+    @Field("da")
+    private LocalDateTime deletedAt;
+}
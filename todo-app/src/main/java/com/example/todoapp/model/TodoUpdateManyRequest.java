@@ -0,0 +1,22 @@
+package com.example.todoapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sets completion and/or priority on every todo matching the filter
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoUpdateManyRequest {
+
+    private TodoFilter filter;
+
+    private Boolean completed;
+
+    private String priority;
+}
@@ -0,0 +1,25 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking counterpart of {@link TodoRepository}, used when serving the reactive profile
+ */
+@Repository
+public interface ReactiveTodoRepository extends ReactiveMongoRepository<Todo, String>, ReactiveTodoRepositoryCustom {
+
+    /**
+     * Delete a todo with a single remove command and emit how many documents it removed
+     */
+    Mono<Long> removeById(String id);
+
+    /**
+     * Delete all todos with the given ids with a single remove command and emit how many it removed
+     */
+    Mono<Long> removeByIdIn(Collection<String> ids);
+}
@@ -0,0 +1,83 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Todo queries that need direct access to {@link org.springframework.data.mongodb.core.ReactiveMongoTemplate},
+ * with the same semantics as their {@link TodoRepositoryCustom} counterparts.
+ */
+public interface ReactiveTodoRepositoryCustom {
+
+    /**
+     * Atomically apply the non-null fields of the given details and emit the updated todo
+     */
+    Mono<Todo> findAndUpdate(String id, Todo details);
+
+    /**
+     * Atomically apply the non-null fields of the given details if the todo is at one of the
+     * given versions, and emit the updated todo; empty if it is missing or at another version
+     */
+    Mono<Todo> findAndUpdate(String id, Collection<Long> versions, Todo details);
+
+    /**
+     * Atomically set the completion status and emit the updated todo
+     */
+    Mono<Todo> findAndSetCompleted(String id, boolean completed);
+
+    /**
+     * Atomically flip the completion status and emit the updated todo
+     */
+    Mono<Todo> findAndToggleCompleted(String id);
+
+    /**
+     * Keyset-paged todos, reading only the given fields of each
+     */
+    Mono<Window<Todo>> findAllBy(ScrollPosition position, Limit limit, Sort sort, TodoFields fields);
+
+    Mono<Window<Todo>> findByCompleted(boolean completed, ScrollPosition position, Limit limit, Sort sort, TodoFields fields);
+
+    Mono<Window<Todo>> findByPriority(String priority, ScrollPosition position, Limit limit, Sort sort, TodoFields fields);
+
+    /**
+     * Read a todo's version from the {@link Todo#VERSION_INDEX} index alone, without reading
+     * the document. The index must exist.
+     */
+    Mono<Long> findVersion(String id);
+
+    /**
+     * Full-text search over title and description, best matches first, paged by offset
+     */
+    Mono<Window<Todo>> searchByText(String text, ScrollPosition position, Limit limit);
+
+    /**
+     * Stream todos off a Mongo cursor, optionally filtered by status and priority, with backpressure
+     */
+    Flux<Todo> streamBy(Boolean completed, String priority);
+
+    /**
+     * Execute the operations as a single bulk write and report a result per operation.
+     * Operations on ids that do not exist are reported as not found without being sent.
+     */
+    Mono<List<TodoOperationResult>> bulkWrite(List<TodoOperation> operations, boolean ordered);
+
+    /**
+     * Set completion and/or priority on every todo matching the filter with a single
+     * updateMany, stamping changed todos with {@code updatedAt}
+     */
+    Mono<TodoUpdateManyResult> updateMany(TodoFilter filter, Boolean completed, String priority, LocalDateTime updatedAt);
+}
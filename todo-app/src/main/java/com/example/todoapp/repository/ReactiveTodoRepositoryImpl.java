@@ -0,0 +1,168 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.mongodb.MongoBulkWriteException;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+
+/**
+ * Reactive implementation of the custom todo queries, built from the same queries and updates
+ * as {@link TodoRepositoryImpl}
+ */
+@RequiredArgsConstructor
+class ReactiveTodoRepositoryImpl implements ReactiveTodoRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final TodoLegacySchema legacySchema;
+
+    @Override
+    public Mono<Todo> findAndUpdate(String id, Todo details) {
+        return findAndModify(id, TodoRepositoryImpl.updateFor(details));
+    }
+
+    @Override
+    public Mono<Todo> findAndUpdate(String id, Collection<Long> versions, Todo details) {
+        return findAndModify(id, TodoRepositoryImpl.versionedQuery(id, versions),
+                TodoRepositoryImpl.updateFor(details));
+    }
+
+    @Override
+    public Mono<Todo> findAndSetCompleted(String id, boolean completed) {
+        return findAndModify(id, TodoRepositoryImpl.completionUpdate(completed));
+    }
+
+    @Override
+    public Mono<Todo> findAndToggleCompleted(String id) {
+        return findAndModify(id, TodoRepositoryImpl.toggleUpdate());
+    }
+
+    @Override
+    public Mono<Window<Todo>> findAllBy(ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+        Mono<Void> check = TodoRepositoryImpl.readsStoredFields(sort, fields)
+                ? legacySchema.checkMigrated() : Mono.empty();
+        return check.then(scroll(new BasicQuery(new Document()), position, limit, sort, fields));
+    }
+
+    @Override
+    public Mono<Window<Todo>> findByCompleted(boolean completed, ScrollPosition position, Limit limit, Sort sort,
+                                              TodoFields fields) {
+        Mono<Void> check = TodoRepositoryImpl.readsStoredFields(sort, fields)
+                ? legacySchema.checkMigrated() : Mono.empty();
+        return check.then(Mono.defer(() -> scroll(TodoRepositoryImpl.filterQuery(completed, null, legacySchema),
+                position, limit, sort, fields)));
+    }
+
+    @Override
+    public Mono<Window<Todo>> findByPriority(String priority, ScrollPosition position, Limit limit, Sort sort,
+                                             TodoFields fields) {
+        Mono<Void> check = TodoRepositoryImpl.readsStoredFields(sort, fields)
+                ? legacySchema.checkMigrated() : Mono.empty();
+        return check.then(Mono.defer(() -> scroll(TodoRepositoryImpl.filterQuery(null, priority, legacySchema),
+                position, limit, sort, fields)));
+    }
+
+    @Override
+    public Mono<Long> findVersion(String id) {
+        return mongoTemplate.findOne(TodoRepositoryImpl.versionQuery(id, legacySchema), Todo.class)
+                .map(Todo::getVersion);
+    }
+
+    @Override
+    public Mono<Window<Todo>> searchByText(String text, ScrollPosition position, Limit limit) {
+        return legacySchema.checkMigrated()
+                .then(mongoTemplate.scroll(TodoRepositoryImpl.textQuery(text, position, limit), Todo.class));
+    }
+
+    @Override
+    public Flux<Todo> streamBy(Boolean completed, String priority) {
+        return Flux.defer(() -> mongoTemplate.find(TodoRepositoryImpl.exportQuery(completed, priority, legacySchema),
+                Todo.class));
+    }
+
+    @Override
+    public Mono<List<TodoOperationResult>> bulkWrite(List<TodoOperation> operations, boolean ordered) {
+        List<String> targets = TodoRepositoryImpl.targetIds(operations);
+        Mono<Set<String>> existingIds = targets.isEmpty() ? Mono.just(new HashSet<>())
+                : legacySchema.findAndCompact(mongoTemplate, targets);
+        return existingIds.flatMap(existing -> {
+            ReactiveBulkOperations bulk = mongoTemplate.bulkOps(
+                    ordered ? BulkMode.ORDERED : BulkMode.UNORDERED, Todo.class);
+            List<TodoOperationResult> submitted = new ArrayList<>(operations.size());
+            List<TodoOperationResult> results = TodoRepositoryImpl.plan(operations, existing, submitted,
+                    bulk::insert, bulk::updateOne, bulk::remove);
+            if (submitted.isEmpty()) {
+                return Mono.just(results);
+            }
+            return bulk.execute()
+                    .onErrorResume(DataAccessException.class, e -> {
+                        // unlike the blocking template, bulk write errors arrive as translated exceptions
+                        if (!(NestedExceptionUtils.getMostSpecificCause(e) instanceof MongoBulkWriteException bulkError)) {
+                            return Mono.error(e);
+                        }
+                        TodoRepositoryImpl.reportFailures(bulkError.getWriteErrors(), submitted, ordered);
+                        return Mono.empty();
+                    })
+                    .thenReturn(results);
+        });
+    }
+
+    @Override
+    public Mono<TodoUpdateManyResult> updateMany(TodoFilter filter, Boolean completed, String priority,
+                                                 LocalDateTime updatedAt) {
+        return Mono.fromCallable(() -> TodoRepositoryImpl.updateManyQuery(filter, completed, priority))
+                .flatMap(query -> legacySchema.compact(mongoTemplate, filter).thenReturn(query))
+                .flatMap(query -> mongoTemplate.updateMulti(query,
+                        TodoRepositoryImpl.updateManyUpdate(completed, priority, updatedAt), Todo.class))
+                .map(result -> new TodoUpdateManyResult(result.getMatchedCount(), result.getModifiedCount()));
+    }
+
+    private Mono<Todo> findAndModify(String id, UpdateDefinition update) {
+        return findAndModify(id, Query.query(Criteria.where("id").is(id)), update);
+    }
+
+    /**
+     * Reactive form of the blocking write by id, retried once a legacy todo has been rewritten
+     */
+    private Mono<Todo> findAndModify(String id, Query query, UpdateDefinition update) {
+        return mongoTemplate.findAndModify(legacySchema.compactOnly(query), update, TodoRepositoryImpl.RETURN_NEW,
+                        Todo.class)
+                .switchIfEmpty(Mono.defer(() -> legacySchema.compact(mongoTemplate, List.of(id))
+                        .filter(Boolean::booleanValue)
+                        .flatMap(compacted -> mongoTemplate.findAndModify(query, update,
+                                TodoRepositoryImpl.RETURN_NEW, Todo.class))));
+    }
+
+    private Mono<Window<Todo>> scroll(Query query, ScrollPosition position, Limit limit, Sort sort,
+                                      TodoFields fields) {
+        return mongoTemplate.scroll(TodoRepositoryImpl.scrollQuery(query, position, limit, sort, fields), Todo.class);
+    }
+}
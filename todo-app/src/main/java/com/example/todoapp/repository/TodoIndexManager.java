@@ -0,0 +1,222 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoIndexReport;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the indexes of the todos collection in line with the index annotations on {@link Todo}.
+ * <p>
+ * Reconciliation runs once the application is ready, on the application task executor, so
+ * index builds on a large collection never hold up startup or readiness. Missing indexes are created;
+ * mismatched and undeclared ones are only reported, since dropping an index is not something
+ * to do unattended. The one exception is a text index: a collection holds only one, so the
+ * declared one can only be built once any other text index, or one under its name on other
+ * fields, has been dropped.
+ */
+@Slf4j
+@Component
+public class TodoIndexManager {
+
+    private static final String ID_INDEX = "_id_";
+
+    /**
+     * Internal key the server adds to every text index, listed next to the text fields
+     */
+    private static final String TEXT_INDEX_KEY = "_ftsx";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final boolean createMissing;
+
+    private final Executor executor;
+
+    /**
+     * Serializes reconciliations; a lock rather than a monitor, so a reconciliation blocked on
+     * the database does not pin a virtual thread to its carrier
+     */
+    private final Lock reconcileLock = new ReentrantLock();
+
+    private volatile TodoIndexReport report = TodoIndexReport.builder()
+            .status(TodoIndexReport.Status.PENDING)
+            .build();
+
+    @Autowired
+    public TodoIndexManager(MongoTemplate mongoTemplate,
+                            @Value("${todo.indexes.create-missing:true}") boolean createMissing,
+                            @Value("${todo.indexes.background:true}") boolean background,
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this(mongoTemplate, createMissing, background ? executor : Runnable::run);
+    }
+
+    TodoIndexManager(MongoTemplate mongoTemplate, boolean createMissing, Executor executor) {
+        this.mongoTemplate = mongoTemplate;
+        this.createMissing = createMissing;
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        executor.execute(this::reconcile);
+    }
+
+    /**
+     * Latest reconciliation report
+     */
+    public TodoIndexReport getReport() {
+        return report;
+    }
+
+    /**
+     * Whether the named declared index is known to exist, as of the latest reconciliation
+     */
+    public boolean hasIndex(String name) {
+        TodoIndexReport current = report;
+        return (current.getStatus() == TodoIndexReport.Status.IN_SYNC
+                || current.getStatus() == TodoIndexReport.Status.DRIFT)
+                && !current.getMissing().contains(name)
+                && !current.getMismatched().contains(name);
+    }
+
+    /**
+     * Compare declared and existing indexes, build the missing ones and record the drift
+     */
+    public TodoIndexReport reconcile() {
+        reconcileLock.lock();
+        try {
+            return reconcileLocked();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private TodoIndexReport reconcileLocked() {
+        TodoIndexReport result = TodoIndexReport.builder().checkedAt(LocalDateTime.now()).build();
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Todo.class);
+            Map<String, List<Map.Entry<String, Object>>> existing = new LinkedHashMap<>();
+            for (IndexInfo info : indexOps.getIndexInfo()) {
+                existing.put(info.getName(), keysOf(info));
+            }
+
+            for (IndexDefinition declared : declaredIndexes()) {
+                String name = declared.getIndexOptions().getString("name");
+                List<Map.Entry<String, Object>> keys = existing.remove(name);
+                boolean text = declared.getIndexKeys().containsValue("text");
+                if (keys != null && text && createMissing && !keys.equals(entries(declared.getIndexKeys()))) {
+                    log.info("Dropping text index {} on other fields to build the declared one", name);
+                    indexOps.dropIndex(name);
+                    result.getDropped().add(name);
+                    keys = null;
+                }
+                if (keys == null) {
+                    if (createMissing) {
+                        if (text) {
+                            dropTextIndexes(indexOps, existing, result);
+                        }
+                        log.info("Building missing index {} on {}", name, declared.getIndexKeys().toJson());
+                        indexOps.ensureIndex(declared);
+                        result.getCreated().add(name);
+                    } else {
+                        result.getMissing().add(name);
+                    }
+                } else if (!keys.equals(entries(declared.getIndexKeys()))) {
+                    result.getMismatched().add(name);
+                }
+            }
+            existing.keySet().stream()
+                    .filter(name -> !ID_INDEX.equals(name))
+                    .forEach(result.getUnexpected()::add);
+
+            boolean inSync = result.getMissing().isEmpty()
+                    && result.getMismatched().isEmpty()
+                    && result.getUnexpected().isEmpty();
+            result.setStatus(inSync ? TodoIndexReport.Status.IN_SYNC : TodoIndexReport.Status.DRIFT);
+            if (!inSync) {
+                log.warn("Index drift on todos: missing={}, mismatched={}, unexpected={}",
+                        result.getMissing(), result.getMismatched(), result.getUnexpected());
+            }
+        } catch (RuntimeException e) {
+            log.error("Index reconciliation for todos failed", e);
+            result.setStatus(TodoIndexReport.Status.FAILED);
+            result.setError(e.getMessage());
+        }
+        report = result;
+        return result;
+    }
+
+    /**
+     * Drop the existing text indexes other than the declared one, such as the one on the field
+     * names before the compact schema, which would make building the declared one fail
+     */
+    private static void dropTextIndexes(IndexOperations indexOps, Map<String, List<Map.Entry<String, Object>>> existing,
+                                        TodoIndexReport result) {
+        existing.entrySet().removeIf(index -> {
+            boolean text = index.getValue().stream().anyMatch(key -> "text".equals(key.getValue()));
+            if (text) {
+                log.info("Dropping text index {} to build the declared one", index.getKey());
+                indexOps.dropIndex(index.getKey());
+                result.getDropped().add(index.getKey());
+            }
+            return text;
+        });
+    }
+
+    private Iterable<? extends IndexDefinition> declaredIndexes() {
+        return new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Todo.class);
+    }
+
+    private static List<Map.Entry<String, Object>> keysOf(IndexInfo info) {
+        Document keys = new Document();
+        for (IndexField field : info.getIndexFields()) {
+            if (field.isText()) {
+                keys.put(field.getKey(), "text");
+            } else if (!TEXT_INDEX_KEY.equals(field.getKey())) {
+                keys.put(field.getKey(), field.getDirection() == Sort.Direction.DESC ? -1 : 1);
+            }
+        }
+        return entries(keys);
+    }
+
+    // key order is significant for an index, so compare entry lists rather than documents;
+    // the server keeps the fields of a text index in its own order, so those are sorted by name
+    private static List<Map.Entry<String, Object>> entries(Document keys) {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        List<Map.Entry<String, Object>> textEntries = new ArrayList<>();
+        keys.forEach((key, value) -> {
+            if ("text".equals(value)) {
+                textEntries.add(Map.entry(key, value));
+            } else {
+                entries.add(Map.entry(key, value instanceof Number n ? n.intValue() : value));
+            }
+        });
+        textEntries.sort(Map.Entry.comparingByKey());
+        entries.addAll(textEntries);
+        return entries;
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoPriority;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reads todos stored before the compact schema of {@link Todo}, which used the property names
+ * as field names, the priority's name rather than its code and a {@code _class} type hint.
+ * <p>
+ * Such documents are rewritten into the compact form in memory as they are loaded, before they
+ * are mapped, so they read as before. {@link TodoSchemaMigration} rewrites them in the
+ * database. Until it has finished, writes by id skip todos still carrying the type hint and
+ * rewrite them only if that finds nothing, so a field update never leaves a document holding
+ * both names of a field while compact todos are written in one round trip. Queries on stored
+ * field names cannot see legacy todos: until the migration has finished, filters compare each
+ * field under either name, and mass updates and pages of changes first rewrite the legacy todos
+ * they would miss. Queries that cannot be served either way fail with {@link #requireMigrated()}.
+ */
+@Component
+public class TodoLegacySchema extends AbstractMongoEventListener<Todo> {
+
+    static final String TYPE_KEY = "_class";
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    /**
+     * Legacy todos rewritten per bulk write ahead of a query
+     */
+    private static final int REWRITE_BATCH_SIZE = 500;
+
+    /**
+     * Order of {@link Todo#CHANGES_INDEX} on the old field names
+     */
+    private static final Bson CHANGES_ORDER = Sorts.ascending("updatedAt", "_id");
+
+    /**
+     * Stored name of every property whose name differs from it, by property name
+     */
+    private final Map<String, String> fields;
+
+    private final String priorityField;
+
+    /**
+     * Fields every write changes, compared before a rewrite so a concurrent write is never undone
+     */
+    private final List<String> writeMarkers;
+
+    private volatile boolean migrated;
+
+    public TodoLegacySchema(MongoMappingContext mappingContext) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        mappingContext.getRequiredPersistentEntity(Todo.class).doWithProperties((MongoPersistentProperty property) -> {
+            if (!property.isIdProperty() && !property.getName().equals(property.getFieldName())) {
+                fields.put(property.getName(), property.getFieldName());
+            }
+        });
+        this.fields = Collections.unmodifiableMap(fields);
+        this.priorityField = fields.getOrDefault("priority", "priority");
+        this.writeMarkers = List.of("version", fields.getOrDefault("version", "version"),
+                "updatedAt", fields.getOrDefault("updatedAt", "updatedAt"));
+    }
+
+    /**
+     * Stored name of a todo property
+     */
+    public String stored(String property) {
+        return fields.getOrDefault(property, property);
+    }
+
+    /**
+     * Whether every todo is known to be in the compact form, after which writes stop checking
+     */
+    public boolean isMigrated() {
+        return migrated;
+    }
+
+    void markMigrated() {
+        migrated = true;
+    }
+
+    /**
+     * Fail a query on stored field names, which cannot match todos still stored under the old
+     * ones, until every todo is in the compact form
+     *
+     * @throws TransientDataAccessResourceException while the migration has not finished
+     */
+    public void requireMigrated() {
+        if (!migrated) {
+            throw new TransientDataAccessResourceException("Todos are being migrated to the compact schema");
+        }
+    }
+
+    /**
+     * Reactive {@link #requireMigrated()}, checked on subscription
+     */
+    public Mono<Void> checkMigrated() {
+        return Mono.fromRunnable(this::requireMigrated);
+    }
+
+    /**
+     * Query for the todos with the given completion and priority, either of which may be null,
+     * whether in the compact form or the legacy one. Each field is compared under either name in
+     * an expression, which no index serves, so it is meant for the time the migration runs.
+     */
+    public Query either(Boolean completed, String priority) {
+        List<Document> conditions = new ArrayList<>();
+        if (completed != null) {
+            conditions.add(new Document("$eq", List.of(field("completed"), completed)));
+        }
+        if (priority != null) {
+            // a legacy todo holds the priority's name
+            conditions.add(new Document("$in", List.of(field("priority"),
+                    List.of(TodoPriority.encode(priority), priority))));
+        }
+        // the query mapper renames the keys of a query, not the field paths of an expression
+        return new BasicQuery(new Document("$expr", new Document("$and", conditions)));
+    }
+
+    /**
+     * A todo field under its stored name, or under its property name in a legacy todo
+     */
+    private Document field(String property) {
+        return new Document("$ifNull", List.of("$" + stored(property), "$" + property));
+    }
+
+    /**
+     * Rewrite into the compact form the legacy todos the given filter selects, so that a mass
+     * update on the stored field names reaches them
+     */
+    public void compact(MongoTemplate mongoTemplate, TodoFilter filter) {
+        if (migrated) {
+            return;
+        }
+        MongoCollection<Document> collection = mongoTemplate.getCollection(Todo.COLLECTION);
+        rewriteAll(collection, collection.find(legacy(filter, mongoTemplate.getConverter())));
+    }
+
+    /**
+     * Reactive {@link #compact(MongoTemplate, TodoFilter)}
+     */
+    public Mono<Void> compact(ReactiveMongoTemplate mongoTemplate, TodoFilter filter) {
+        if (migrated) {
+            return Mono.empty();
+        }
+        return mongoTemplate.getCollection(Todo.COLLECTION)
+                .flatMapMany(collection -> Flux.from(collection.find(legacy(filter, mongoTemplate.getConverter())))
+                        .mapNotNull(this::rewrite)
+                        .buffer(REWRITE_BATCH_SIZE)
+                        .concatMap(rewrites -> collection.bulkWrite(rewrites, UNORDERED)))
+                .then();
+    }
+
+    /**
+     * Rewrite into the compact form the first {@code limit} legacy todos changed at or after
+     * {@code from}, or after the todo with {@code afterId} at that time, in the order of
+     * {@link Todo#CHANGES_INDEX}. A keyset page over that index read afterwards is then the one
+     * it would be once every todo is migrated.
+     */
+    public void compactChangedSince(MongoTemplate mongoTemplate, LocalDateTime from, String afterId, int limit) {
+        if (migrated) {
+            return;
+        }
+        MongoCollection<Document> collection = mongoTemplate.getCollection(Todo.COLLECTION);
+        rewriteAll(collection, collection.find(changedSince(mongoTemplate.getConverter(), from, afterId))
+                .sort(CHANGES_ORDER)
+                .limit(limit));
+    }
+
+    private void rewriteAll(MongoCollection<Document> collection, Iterable<Document> legacy) {
+        List<ReplaceOneModel<Document>> rewrites = new ArrayList<>(REWRITE_BATCH_SIZE);
+        for (Document stored : legacy) {
+            ReplaceOneModel<Document> rewrite = rewrite(stored);
+            if (rewrite != null) {
+                rewrites.add(rewrite);
+            }
+            if (rewrites.size() == REWRITE_BATCH_SIZE) {
+                collection.bulkWrite(rewrites, UNORDERED);
+                rewrites.clear();
+            }
+        }
+        if (!rewrites.isEmpty()) {
+            collection.bulkWrite(rewrites, UNORDERED);
+        }
+    }
+
+    /**
+     * Filter for the legacy todos a {@link TodoFilter} selects, on the old field names, which
+     * legacy todos store the priority's name under
+     */
+    private Bson legacy(TodoFilter filter, MongoConverter converter) {
+        List<Bson> criteria = new ArrayList<>();
+        criteria.add(legacy());
+        if (filter.getCompleted() != null) {
+            criteria.add(Filters.eq("completed", filter.getCompleted()));
+        }
+        if (filter.getPriority() != null) {
+            criteria.add(Filters.eq("priority", filter.getPriority()));
+        }
+        if (filter.getTitle() != null) {
+            criteria.add(Filters.regex("title", Pattern.quote(filter.getTitle()), "i"));
+        }
+        // dates as the converter stores them, which the driver's own codec does not match
+        if (filter.getCreatedFrom() != null) {
+            criteria.add(Filters.gte("createdAt", converter.convertToMongoType(filter.getCreatedFrom())));
+        }
+        if (filter.getCreatedTo() != null) {
+            criteria.add(Filters.lt("createdAt", converter.convertToMongoType(filter.getCreatedTo())));
+        }
+        return Filters.and(criteria);
+    }
+
+    private Bson changedSince(MongoConverter converter, LocalDateTime from, String afterId) {
+        if (from == null) {
+            return Filters.and(legacy(), Filters.exists("updatedAt"));
+        }
+        Object at = converter.convertToMongoType(from);
+        Bson position = afterId == null
+                ? Filters.gte("updatedAt", at)
+                : Filters.or(Filters.gt("updatedAt", at),
+                        Filters.and(Filters.eq("updatedAt", at), Filters.gt("_id", storedId(afterId))));
+        return Filters.and(legacy(), position);
+    }
+
+    Set<String> legacyFields() {
+        return fields.keySet();
+    }
+
+    @Override
+    public void onAfterLoad(AfterLoadEvent<Todo> event) {
+        // checked on every load, not only until the migration has finished, in case an instance
+        // still on the old schema writes during a rolling deployment
+        if (event.getDocument() != null) {
+            compact(event.getDocument());
+        }
+    }
+
+    /**
+     * Rewrite a stored todo into the compact form in place
+     *
+     * @return whether it was in the legacy form
+     */
+    boolean compact(Document document) {
+        boolean changed = document.remove(TYPE_KEY) != null;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (document.containsKey(field.getKey())) {
+                // a value already stored under the new name was written later
+                document.putIfAbsent(field.getValue(), document.remove(field.getKey()));
+                changed = true;
+            }
+        }
+        if (document.get(priorityField) instanceof String priority) {
+            Object code = TodoPriority.encode(priority);
+            if (!priority.equals(code)) {
+                document.put(priorityField, code);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Filter for stored todos in the legacy form. Every legacy todo has a type hint or a field
+     * under its old name, and priorities are only stored by name under the old name.
+     */
+    Bson legacy() {
+        List<Bson> markers = new ArrayList<>();
+        markers.add(Filters.exists(TYPE_KEY));
+        fields.keySet().forEach(field -> markers.add(Filters.exists(field)));
+        return Filters.or(markers);
+    }
+
+    /**
+     * Replacement of a stored legacy todo by its compact form, applied only if no write has
+     * changed the todo since it was read; {@code null} if it is already compact
+     */
+    ReplaceOneModel<Document> rewrite(Document stored) {
+        Document compacted = new Document(stored);
+        if (!compact(compacted)) {
+            return null;
+        }
+        List<Bson> unchanged = new ArrayList<>();
+        unchanged.add(Filters.eq("_id", stored.get("_id")));
+        // equality with null also matches a missing field
+        writeMarkers.forEach(field -> unchanged.add(Filters.eq(field, stored.get(field))));
+        return new ReplaceOneModel<>(Filters.and(unchanged), compacted);
+    }
+
+    /**
+     * The given query narrowed to todos in the compact form until the migration has finished.
+     * Every todo written by the previous version carries the type hint, which is not a property
+     * and so is left alone by the query mapper.
+     */
+    public Query compactOnly(Query query) {
+        return migrated ? query : Query.of(query).addCriteria(Criteria.where(TYPE_KEY).exists(false));
+    }
+
+    /**
+     * Rewrite the given todos into the compact form if any is still stored in the legacy one
+     *
+     * @return whether any was rewritten
+     */
+    public boolean compact(MongoTemplate mongoTemplate, Collection<String> ids) {
+        if (migrated || ids.isEmpty()) {
+            return false;
+        }
+        MongoCollection<Document> collection = mongoTemplate.getCollection(Todo.COLLECTION);
+        List<ReplaceOneModel<Document>> rewrites = new ArrayList<>();
+        for (Document stored : collection.find(legacy(ids))) {
+            rewrites.add(rewrite(stored));
+        }
+        if (!rewrites.isEmpty()) {
+            collection.bulkWrite(rewrites, UNORDERED);
+        }
+        return !rewrites.isEmpty();
+    }
+
+    /**
+     * Reactive {@link #compact(MongoTemplate, Collection)}
+     */
+    public Mono<Boolean> compact(ReactiveMongoTemplate mongoTemplate, Collection<String> ids) {
+        if (migrated || ids.isEmpty()) {
+            return Mono.just(false);
+        }
+        return mongoTemplate.getCollection(Todo.COLLECTION)
+                .flatMap(collection -> Flux.from(collection.find(legacy(ids)))
+                        .map(this::rewrite)
+                        .collectList()
+                        .flatMap(rewrites -> rewrites.isEmpty()
+                                ? Mono.just(false)
+                                : Mono.from(collection.bulkWrite(rewrites, UNORDERED)).thenReturn(true)));
+    }
+
+    /**
+     * Ids of those of the given todos that exist, rewriting any still stored in the legacy form
+     * with the same read until the migration has finished
+     */
+    public Set<String> findAndCompact(MongoTemplate mongoTemplate, Collection<String> ids) {
+        Set<String> existing = new HashSet<>();
+        if (migrated) {
+            mongoTemplate.find(existingQuery(ids), Todo.class).forEach(todo -> existing.add(todo.getId()));
+            return existing;
+        }
+        MongoCollection<Document> collection = mongoTemplate.getCollection(Todo.COLLECTION);
+        List<ReplaceOneModel<Document>> rewrites = new ArrayList<>();
+        for (Document stored : collection.find(Filters.in("_id", storedIds(ids)))) {
+            existing.add(id(stored));
+            ReplaceOneModel<Document> rewrite = rewrite(stored);
+            if (rewrite != null) {
+                rewrites.add(rewrite);
+            }
+        }
+        if (!rewrites.isEmpty()) {
+            collection.bulkWrite(rewrites, UNORDERED);
+        }
+        return existing;
+    }
+
+    /**
+     * Reactive {@link #findAndCompact(MongoTemplate, Collection)}
+     */
+    public Mono<Set<String>> findAndCompact(ReactiveMongoTemplate mongoTemplate, Collection<String> ids) {
+        if (migrated) {
+            return mongoTemplate.find(existingQuery(ids), Todo.class)
+                    .map(Todo::getId)
+                    .<Set<String>>collect(HashSet::new, Set::add);
+        }
+        return mongoTemplate.getCollection(Todo.COLLECTION)
+                .flatMap(collection -> Flux.from(collection.find(Filters.in("_id", storedIds(ids))))
+                        .collectList()
+                        .flatMap(stored -> {
+                            Set<String> existing = new HashSet<>();
+                            List<ReplaceOneModel<Document>> rewrites = new ArrayList<>();
+                            stored.forEach(document -> {
+                                existing.add(id(document));
+                                ReplaceOneModel<Document> rewrite = rewrite(document);
+                                if (rewrite != null) {
+                                    rewrites.add(rewrite);
+                                }
+                            });
+                            return rewrites.isEmpty()
+                                    ? Mono.just(existing)
+                                    : Mono.from(collection.bulkWrite(rewrites, UNORDERED)).thenReturn(existing);
+                        }));
+    }
+
+    private static Query existingQuery(Collection<String> ids) {
+        Query query = Query.query(Criteria.where("id").in(ids));
+        query.fields().include("id");
+        return query;
+    }
+
+    private static String id(Document stored) {
+        return stored.get("_id") instanceof ObjectId id ? id.toHexString() : String.valueOf(stored.get("_id"));
+    }
+
+    private static List<Object> storedIds(Collection<String> ids) {
+        return ids.stream().map(TodoLegacySchema::storedId).toList();
+    }
+
+    private static Object storedId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private Bson legacy(Collection<String> ids) {
+        return Filters.and(Filters.in("_id", storedIds(ids)), legacy());
+    }
+}
@@ -4,13 +4,24 @@ import com.example.todoapp.model.Todo;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface TodoRepository extends MongoRepository<Todo, String> {
+public interface TodoRepository extends MongoRepository<Todo, String>, TodoRepositoryCustom {
     List<Todo> findByCompleted(boolean completed);
 
     List<Todo> findByPriority(String priority);
 
     List<Todo> findByTitleContainingIgnoreCase(String title);
+
+    /**
+     * Delete a todo with a single remove command and return how many documents it removed
+     */
+    long removeById(String id);
+
+    /**
+     * Delete all todos with the given ids with a single remove command and return how many it removed
+     */
+    long removeByIdIn(Collection<String> ids);
 }
@@ -0,0 +1,91 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Todo queries that need direct access to {@link org.springframework.data.mongodb.core.MongoTemplate}.
+ */
+public interface TodoRepositoryCustom {
+
+    /**
+     * Atomically apply the non-null fields of the given details and return the updated todo
+     */
+    Optional<Todo> findAndUpdate(String id, Todo details);
+
+    /**
+     * Atomically apply the non-null fields of the given details if the todo is at one of the
+     * given versions, and return the updated todo; empty if it is missing or at another version
+     */
+    Optional<Todo> findAndUpdate(String id, Collection<Long> versions, Todo details);
+
+    /**
+     * Atomically set the completion status and return the updated todo
+     */
+    Optional<Todo> findAndSetCompleted(String id, boolean completed);
+
+    /**
+     * Atomically flip the completion status and return the updated todo
+     */
+    Optional<Todo> findAndToggleCompleted(String id);
+
+    /**
+     * Keyset-paged todos, reading only the given fields of each
+     */
+    Window<Todo> findAllBy(ScrollPosition position, Limit limit, Sort sort, TodoFields fields);
+
+    Window<Todo> findByCompleted(boolean completed, ScrollPosition position, Limit limit, Sort sort, TodoFields fields);
+
+    Window<Todo> findByPriority(String priority, ScrollPosition position, Limit limit, Sort sort, TodoFields fields);
+
+    /**
+     * Read a todo's version from the {@link Todo#VERSION_INDEX} index alone, without reading
+     * the document. The index must exist.
+     */
+    Optional<Long> findVersion(String id);
+
+    /**
+     * Full-text search over title and description, best matches first. Served by the text
+     * index, so the position is an offset into the ranking rather than a keyset.
+     */
+    Window<Todo> searchByText(String text, ScrollPosition position, Limit limit);
+
+    /**
+     * Stream todos straight off a Mongo cursor, optionally filtered by status and priority.
+     * The stream holds the cursor open and must be closed by the caller.
+     */
+    Stream<Todo> streamBy(Boolean completed, String priority);
+
+    /**
+     * Up to {@code limit} todos changed at or after {@code from}, or after the todo with
+     * {@code afterId} if given, ordered by updatedAt and id; every todo if {@code from} is null
+     */
+    List<Todo> findChangedSince(LocalDateTime from, String afterId, int limit);
+
+    /**
+     * Execute the operations as a single bulk write and report a result per operation.
+     * Operations on ids that do not exist are reported as not found without being sent.
+     */
+    List<TodoOperationResult> bulkWrite(List<TodoOperation> operations, boolean ordered);
+
+    /**
+     * Set completion and/or priority on every todo matching the filter with a single
+     * updateMany, stamping changed todos with {@code updatedAt}. Todos that already have
+     * the requested values are left untouched.
+     */
+    TodoUpdateManyResult updateMany(TodoFilter filter, Boolean completed, String priority, LocalDateTime updatedAt);
+}
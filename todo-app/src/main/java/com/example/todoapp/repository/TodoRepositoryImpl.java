@@ -0,0 +1,481 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+class TodoRepositoryImpl implements TodoRepositoryCustom {
+
+    static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final TodoLegacySchema legacySchema;
+
+    @Override
+    public Optional<Todo> findAndUpdate(String id, Todo details) {
+        return findAndModify(id, updateFor(details));
+    }
+
+    @Override
+    public Optional<Todo> findAndUpdate(String id, Collection<Long> versions, Todo details) {
+        return findAndModify(id, versionedQuery(id, versions), updateFor(details));
+    }
+
+    @Override
+    public Optional<Todo> findAndSetCompleted(String id, boolean completed) {
+        return findAndModify(id, completionUpdate(completed));
+    }
+
+    @Override
+    public Optional<Todo> findAndToggleCompleted(String id) {
+        return findAndModify(id, toggleUpdate());
+    }
+
+    @Override
+    public Window<Todo> findAllBy(ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+        if (readsStoredFields(sort, fields)) {
+            legacySchema.requireMigrated();
+        }
+        // a criteria-less Query yields an immutable query document the keyset $or cannot be added to
+        return scroll(new BasicQuery(new Document()), position, limit, sort, fields);
+    }
+
+    @Override
+    public Window<Todo> findByCompleted(boolean completed, ScrollPosition position, Limit limit, Sort sort,
+                                        TodoFields fields) {
+        if (readsStoredFields(sort, fields)) {
+            legacySchema.requireMigrated();
+        }
+        return scroll(filterQuery(completed, null, legacySchema), position, limit, sort, fields);
+    }
+
+    @Override
+    public Window<Todo> findByPriority(String priority, ScrollPosition position, Limit limit, Sort sort,
+                                       TodoFields fields) {
+        if (readsStoredFields(sort, fields)) {
+            legacySchema.requireMigrated();
+        }
+        return scroll(filterQuery(null, priority, legacySchema), position, limit, sort, fields);
+    }
+
+    @Override
+    public Optional<Long> findVersion(String id) {
+        return Optional.ofNullable(mongoTemplate.findOne(versionQuery(id, legacySchema), Todo.class))
+                .map(Todo::getVersion);
+    }
+
+    @Override
+    public Window<Todo> searchByText(String text, ScrollPosition position, Limit limit) {
+        legacySchema.requireMigrated();
+        return mongoTemplate.scroll(textQuery(text, position, limit), Todo.class);
+    }
+
+    @Override
+    public Stream<Todo> streamBy(Boolean completed, String priority) {
+        return mongoTemplate.stream(exportQuery(completed, priority, legacySchema), Todo.class);
+    }
+
+    @Override
+    public List<Todo> findChangedSince(LocalDateTime from, String afterId, int limit) {
+        legacySchema.compactChangedSince(mongoTemplate, from, afterId, limit);
+        return mongoTemplate.find(changedSinceQuery(from, afterId, limit), Todo.class);
+    }
+
+    @Override
+    public List<TodoOperationResult> bulkWrite(List<TodoOperation> operations, boolean ordered) {
+        List<String> targets = targetIds(operations);
+        Set<String> existing = targets.isEmpty() ? new HashSet<>()
+                : legacySchema.findAndCompact(mongoTemplate, targets);
+        BulkOperations bulk = mongoTemplate.bulkOps(
+                ordered ? BulkOperations.BulkMode.ORDERED : BulkOperations.BulkMode.UNORDERED, Todo.class);
+        List<TodoOperationResult> submitted = new ArrayList<>(operations.size());
+        List<TodoOperationResult> results = plan(operations, existing, submitted,
+                bulk::insert, bulk::updateOne, bulk::remove);
+
+        if (!submitted.isEmpty()) {
+            try {
+                bulk.execute();
+            } catch (BulkOperationException e) {
+                reportFailures(e.getErrors(), submitted, ordered);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public TodoUpdateManyResult updateMany(TodoFilter filter, Boolean completed, String priority,
+                                           LocalDateTime updatedAt) {
+        Query query = updateManyQuery(filter, completed, priority);
+        legacySchema.compact(mongoTemplate, filter);
+        UpdateResult result = mongoTemplate.updateMulti(query, updateManyUpdate(completed, priority, updatedAt),
+                Todo.class);
+        return new TodoUpdateManyResult(result.getMatchedCount(), result.getModifiedCount());
+    }
+
+    /**
+     * Pipeline update flipping completion, so the new value is computed from the stored one
+     * inside the server
+     */
+    static AggregationUpdate toggleUpdate() {
+        LocalDateTime now = LocalDateTime.now();
+        return AggregationUpdate.update()
+                .set("completed").toValue(BooleanOperators.Not.not("completed"))
+                .set("updatedAt").toValue(now)
+                .set("completedAt").toValue(ConditionalOperators.when("completed").then(now).otherwise("$$REMOVE"))
+                .set("version").toValue(ArithmeticOperators.Add.valueOf(
+                        ConditionalOperators.ifNull("version").then(0)).add(1));
+    }
+
+    /**
+     * Query for a todo's version alone, answered from the version index without reading the
+     * document. Only to be run once the index exists, since a hint on a missing index fails.
+     * Until the schema migration has finished the whole todo is read instead.
+     */
+    static Query versionQuery(String id, TodoLegacySchema legacySchema) {
+        if (!legacySchema.isMigrated()) {
+            // a legacy todo keeps its version under the old name, off the index
+            return Query.query(Criteria.where("id").is(id));
+        }
+        Query query = Query.query(Criteria.where("id").is(id)).withHint(Todo.VERSION_INDEX);
+        query.fields().include("id", "version");
+        return query;
+    }
+
+    /**
+     * Whether a page of todos in this order and with these fields reads stored field names,
+     * so that it would leave out or misplace todos still in the legacy form
+     */
+    static boolean readsStoredFields(Sort sort, TodoFields fields) {
+        return !fields.isAll() || sort.stream().anyMatch(order -> !order.getProperty().equals("id"));
+    }
+
+    /**
+     * Query for a todo at one of the given versions. Todos written before versions were
+     * introduced have no version field and read as version 0, so version 0 also matches them.
+     */
+    static Query versionedQuery(String id, Collection<Long> versions) {
+        List<Long> accepted = new ArrayList<>(versions);
+        if (accepted.contains(0L)) {
+            // $in with null also matches a missing field
+            accepted.add(null);
+        }
+        return Query.query(Criteria.where("id").is(id).and("version").in(accepted));
+    }
+
+    /**
+     * Full-text query ranked by the textScore $meta, which has no stored value a keyset could
+     * resume from, so it is paged by offset
+     */
+    static Query textQuery(String text, ScrollPosition position, Limit limit) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text)).sortByScore();
+        return query.with(position).limit(limit);
+    }
+
+    /**
+     * Keyset query over {@link Todo#CHANGES_INDEX}. Todos not yet rewritten into the compact
+     * schema have no updatedAt under its stored name, so until the migration has finished the
+     * ones that belong on the page are rewritten first, see
+     * {@link TodoLegacySchema#compactChangedSince}.
+     */
+    static Query changedSinceQuery(LocalDateTime from, String afterId, int limit) {
+        Criteria criteria;
+        if (from == null) {
+            criteria = Criteria.where("updatedAt").exists(true);
+        } else if (afterId == null) {
+            criteria = Criteria.where("updatedAt").gte(from);
+        } else {
+            criteria = new Criteria().orOperator(
+                    Criteria.where("updatedAt").gt(from),
+                    Criteria.where("updatedAt").is(from).and("id").gt(afterId));
+        }
+        return Query.query(criteria).with(Sort.by("updatedAt", "id")).limit(limit);
+    }
+
+    static Query exportQuery(Boolean completed, String priority, TodoLegacySchema legacySchema) {
+        return filterQuery(completed, priority, legacySchema).with(Sort.by("id"));
+    }
+
+    /**
+     * Query for the todos with the given completion and priority, either of which may be null.
+     * Until the schema migration has finished it compares the fields under either name, see
+     * {@link TodoLegacySchema#either}; that is only served in id order with every field.
+     */
+    static Query filterQuery(Boolean completed, String priority, TodoLegacySchema legacySchema) {
+        if (completed == null && priority == null) {
+            return new Query();
+        }
+        if (!legacySchema.isMigrated()) {
+            return legacySchema.either(completed, priority);
+        }
+        Query query = new Query();
+        if (completed != null) {
+            query.addCriteria(Criteria.where("completed").is(completed));
+        }
+        if (priority != null) {
+            query.addCriteria(Criteria.where("priority").is(priority));
+        }
+        return query;
+    }
+
+    /**
+     * Resolve each operation of a bulk write against the ids that exist and hand the ones to
+     * send to the given bulk operations, in order. Returns a result per operation; the ones
+     * sent are also collected in {@code submitted}, in the order they were queued.
+     */
+    static List<TodoOperationResult> plan(List<TodoOperation> operations, Set<String> existing,
+                                          List<TodoOperationResult> submitted, Consumer<Todo> insert,
+                                          BiConsumer<Query, UpdateDefinition> update, Consumer<Query> remove) {
+        List<TodoOperationResult> results = new ArrayList<>(operations.size());
+
+        for (int index = 0; index < operations.size(); index++) {
+            TodoOperation operation = operations.get(index);
+            TodoOperationResult result = TodoOperationResult.builder()
+                    .index(index)
+                    .type(operation.getType())
+                    .id(operation.getId())
+                    .build();
+            results.add(result);
+
+            if (operation.getType() == TodoOperation.Type.CREATE) {
+                Todo todo = operation.getTodo();
+                if (todo.getId() == null) {
+                    todo.setId(new ObjectId().toHexString());
+                }
+                insert.accept(todo);
+                existing.add(todo.getId());
+                result.setId(todo.getId());
+                result.setStatus(TodoOperationResult.Status.CREATED);
+                submitted.add(result);
+                continue;
+            }
+
+            if (!existing.contains(operation.getId())) {
+                result.setStatus(TodoOperationResult.Status.NOT_FOUND);
+                continue;
+            }
+            Query byId = Query.query(Criteria.where("id").is(operation.getId()));
+            switch (operation.getType()) {
+                case UPDATE -> update.accept(byId, updateFor(operation.getTodo()));
+                case COMPLETE -> update.accept(byId, completionUpdate(true));
+                case INCOMPLETE -> update.accept(byId, completionUpdate(false));
+                case DELETE -> {
+                    remove.accept(byId);
+                    existing.remove(operation.getId());
+                }
+                default -> throw new IllegalArgumentException("Unsupported operation: " + operation.getType());
+            }
+            result.setStatus(operation.getType() == TodoOperation.Type.DELETE
+                    ? TodoOperationResult.Status.DELETED : TodoOperationResult.Status.UPDATED);
+            submitted.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Todos matching the filter that the update would change, so those already holding the
+     * requested values are left untouched
+     */
+    static Query updateManyQuery(TodoFilter filter, Boolean completed, String priority) {
+        List<Criteria> changes = new ArrayList<>();
+        if (completed != null) {
+            changes.add(Criteria.where("completed").ne(completed));
+        }
+        if (priority != null) {
+            changes.add(Criteria.where("priority").ne(priority));
+        }
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        return Query.query(criteriaFor(filter).orOperator(changes));
+    }
+
+    static Update updateManyUpdate(Boolean completed, String priority, LocalDateTime updatedAt) {
+        Update update = new Update().set("updatedAt", updatedAt).inc("version", 1);
+        if (completed != null) {
+            setCompleted(update, completed, updatedAt);
+        }
+        if (priority != null) {
+            update.set("priority", priority);
+        }
+        return update;
+    }
+
+    static Criteria criteriaFor(TodoFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter.getCompleted() != null) {
+            criteria.and("completed").is(filter.getCompleted());
+        }
+        if (filter.getPriority() != null) {
+            criteria.and("priority").is(filter.getPriority());
+        }
+        if (filter.getTitle() != null) {
+            criteria.and("title").regex(Pattern.quote(filter.getTitle()), "i");
+        }
+        if (filter.getCreatedFrom() != null || filter.getCreatedTo() != null) {
+            Criteria createdAt = criteria.and("createdAt");
+            if (filter.getCreatedFrom() != null) {
+                createdAt.gte(filter.getCreatedFrom());
+            }
+            if (filter.getCreatedTo() != null) {
+                createdAt.lt(filter.getCreatedTo());
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Field-level update applying the non-null fields of the given details, with the same
+     * semantics as a full PUT of a todo
+     */
+    static Update updateFor(Todo details) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = setCompleted(new Update(), details.isCompleted(), now)
+                .set("updatedAt", now)
+                .inc("version", 1);
+        if (details.getTitle() != null) {
+            update.set("title", details.getTitle());
+        }
+        if (details.getDescription() != null) {
+            update.set("description", details.getDescription());
+        }
+        if (details.getPriority() != null) {
+            update.set("priority", details.getPriority());
+        }
+        return update;
+    }
+
+    private Optional<Todo> findAndModify(String id, UpdateDefinition update) {
+        return findAndModify(id, Query.query(Criteria.where("id").is(id)), update);
+    }
+
+    /**
+     * Write a todo in one round trip. Until the migration has finished, a miss may be a legacy
+     * todo, which is then rewritten and written again.
+     */
+    private Optional<Todo> findAndModify(String id, Query query, UpdateDefinition update) {
+        Todo todo = mongoTemplate.findAndModify(legacySchema.compactOnly(query), update, RETURN_NEW, Todo.class);
+        if (todo == null && legacySchema.compact(mongoTemplate, List.of(id))) {
+            todo = mongoTemplate.findAndModify(query, update, RETURN_NEW, Todo.class);
+        }
+        return Optional.ofNullable(todo);
+    }
+
+    static Update completionUpdate(boolean completed) {
+        LocalDateTime now = LocalDateTime.now();
+        return setCompleted(new Update(), completed, now)
+                .set("updatedAt", now)
+                .inc("version", 1);
+    }
+
+    /**
+     * Set completion and when it happened. $min keeps the time of an earlier completion, so
+     * completedAt equals updatedAt only right after the write that completed the todo.
+     */
+    static Update setCompleted(Update update, boolean completed, LocalDateTime now) {
+        update.set("completed", completed);
+        return completed ? update.min("completedAt", now) : update.unset("completedAt");
+    }
+
+    /**
+     * Ids of the todos a bulk write targets, empty if it only creates
+     */
+    static List<String> targetIds(List<TodoOperation> operations) {
+        return operations.stream()
+                .filter(operation -> operation.getType() != TodoOperation.Type.CREATE)
+                .map(TodoOperation::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Map bulk write errors back onto the operations that were sent. An ordered bulk write
+     * stops at its first error, so everything sent after it never ran.
+     */
+    static void reportFailures(List<BulkWriteError> errors, List<TodoOperationResult> submitted,
+                                       boolean ordered) {
+        int firstFailure = submitted.size();
+        for (BulkWriteError error : errors) {
+            TodoOperationResult result = submitted.get(error.getIndex());
+            result.setStatus(TodoOperationResult.Status.FAILED);
+            result.setError(error.getMessage());
+            firstFailure = Math.min(firstFailure, error.getIndex());
+        }
+        if (ordered) {
+            for (int i = firstFailure + 1; i < submitted.size(); i++) {
+                submitted.get(i).setStatus(TodoOperationResult.Status.SKIPPED);
+            }
+        }
+    }
+
+    /**
+     * Run a keyset scroll. Windows report the id key as the String property value, which
+     * would be compared against the stored ObjectIds as a string and match nothing, so it is
+     * converted back before resuming.
+     */
+    private Window<Todo> scroll(Query query, ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+        return mongoTemplate.scroll(scrollQuery(query, position, limit, sort, fields), Todo.class);
+    }
+
+    static Query scrollQuery(Query query, ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+        if (!fields.isAll()) {
+            // the window reads the sort keys off the last todo to resume from, and the page's
+            // ETag is computed from the versions, so they are read even when not asked for
+            fields.getNames().forEach(query.fields()::include);
+            sort.forEach(order -> query.fields().include(order.getProperty()));
+            query.fields().include("version");
+        }
+        if (position instanceof KeysetScrollPosition keyset && keyset.getKeys().get("id") instanceof String id
+                && ObjectId.isValid(id)) {
+            Map<String, Object> keys = new LinkedHashMap<>(keyset.getKeys());
+            keys.put("id", new ObjectId(id));
+            position = ScrollPosition.of(keys, keyset.getDirection());
+        }
+        return query.with(position).limit(limit).with(sort);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoPriority;
+import com.example.todoapp.model.TodoRollup;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Reads and writes the {@link TodoRollup} documents behind todo analytics.
+ */
+@Component
+@RequiredArgsConstructor
+public class TodoRollupRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final TodoLegacySchema legacySchema;
+
+    /**
+     * Add each delta's counts to the rollup with its id in one unordered bulk write, creating
+     * rollups that do not exist yet
+     */
+    public void increment(Collection<TodoRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TodoRollup.class);
+        for (TodoRollup delta : deltas) {
+            bulk.upsert(Query.query(Criteria.where("id").is(delta.getId())), new Update()
+                    .setOnInsert("day", delta.getDay())
+                    .setOnInsert("priority", delta.getPriority())
+                    .inc("created", delta.getCreated())
+                    .inc("completed", delta.getCompleted()));
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Rollups of the days from one to the other, both included, ordered by day and priority
+     */
+    public List<TodoRollup> findBetween(LocalDate from, LocalDate to) {
+        Query query = Query.query(Criteria.where("day").gte(from.toString()).lte(to.toString()))
+                .with(Sort.by("day", "priority"));
+        return mongoTemplate.find(query, TodoRollup.class);
+    }
+
+    public boolean isEmpty() {
+        return !mongoTemplate.exists(new Query(), TodoRollup.class);
+    }
+
+    /**
+     * Todos completed by the mass update made at the given time, by priority. That update set
+     * both updatedAt and, on the todos it completed, completedAt to that time.
+     */
+    public Map<String, Long> countCompletedAt(LocalDateTime timestamp) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("updatedAt").is(timestamp).and("completedAt").is(timestamp)),
+                Aggregation.group("priority").count().as("completed"));
+        Map<String, Long> completed = new HashMap<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, Todo.class, Document.class)) {
+            completed.put(TodoRollup.priorityOf(TodoPriority.decode(group.get("_id"))),
+                    ((Number) group.get("completed")).longValue());
+        }
+        return completed;
+    }
+
+    /**
+     * Replace every rollup with one computed from the todos as they are now, in a single
+     * aggregation pipeline that runs and writes its output inside the server. Each todo counts
+     * as created on the day of its createdAt and, if completed, as completed on the day of its
+     * completedAt, or of its updatedAt for todos completed before completedAt was recorded.
+     * Todos not yet rewritten into the compact schema are read under their old field names.
+     *
+     * @return the number of rollups written
+     */
+    public long backfill() {
+        mongoTemplate.remove(new Query(), TodoRollup.class);
+        String timezone = TimeZone.getDefault().getID();
+        Aggregation aggregation = Aggregation.newAggregation(
+                // a creation and a completion event, each with the day it happened on; the
+                // completion's day is null for incomplete todos, which drops it
+                Aggregation.stage(new Document("$project", new Document()
+                        .append("priority", priorityName(field("priority")))
+                        .append("events", List.of(
+                                event(day(field("createdAt"), timezone), 1, 0),
+                                event(new Document("$cond", Arrays.asList(field("completed"), day(new Document("$ifNull",
+                                        List.of(field("completedAt"), field("updatedAt"))), timezone), null)), 0, 1))))),
+                Aggregation.unwind("events"),
+                Aggregation.match(Criteria.where("events.day").ne(null)),
+                Aggregation.stage(new Document("$group", new Document()
+                        .append("_id", new Document("$concat", List.of("$events.day", "/", "$priority")))
+                        .append("day", new Document("$first", "$events.day"))
+                        .append("priority", new Document("$first", "$priority"))
+                        .append("created", new Document("$sum", "$events.created"))
+                        .append("completed", new Document("$sum", "$events.completed")))),
+                Aggregation.merge()
+                        .intoCollection(TodoRollup.COLLECTION)
+                        .whenMatched(MergeOperation.WhenDocumentsMatch.replaceDocument())
+                        .whenDocumentsDontMatch(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                        .build());
+        mongoTemplate.aggregate(aggregation, Todo.class, Document.class);
+        return mongoTemplate.count(new Query(), TodoRollup.class);
+    }
+
+    /**
+     * A todo field under its stored name, or under its property name in a legacy todo
+     */
+    private Document field(String property) {
+        return new Document("$ifNull", List.of("$" + legacySchema.stored(property), "$" + property));
+    }
+
+    /**
+     * The name of a stored priority: known codes are decoded, anything else is kept as stored
+     */
+    private static Object priorityName(Object stored) {
+        Object name = new Document("$ifNull", List.of(stored, TodoRollup.NO_PRIORITY));
+        for (TodoPriority priority : TodoPriority.values()) {
+            name = new Document("$cond", List.of(
+                    new Document("$eq", List.of(stored, priority.getCode())), priority.name(), name));
+        }
+        return name;
+    }
+
+    private static Document event(Object day, int created, int completed) {
+        return new Document("day", day).append("created", created).append("completed", completed);
+    }
+
+    private static Document day(Object date, String timezone) {
+        return new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                .append("date", date)
+                .append("timezone", timezone));
+    }
+}
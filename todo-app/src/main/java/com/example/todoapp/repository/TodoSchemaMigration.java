@@ -0,0 +1,276 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rewrites todos stored before the compact schema of {@link Todo} while the application serves
+ * requests, see {@link TodoLegacySchema}.
+ * <p>
+ * The collection is walked in {@code _id} order in batches of legacy todos, each rewritten with
+ * one unordered bulk write. A rewrite only applies if the todo has not been written since it was
+ * read; todos written in between are counted as skipped and picked up by another pass. The last
+ * {@code _id} of every batch is saved in the {@code todo_migrations} collection, so a restart
+ * resumes where the previous run stopped. Once no legacy todo is left, the indexes on the old
+ * field names are dropped and their replacements built. A run started on startup that fails or
+ * leaves todos behind is retried after retry-delay, doubled for every retry up to an hour.
+ */
+@Slf4j
+@Component
+public class TodoSchemaMigration {
+
+    static final String CHECKPOINTS = "todo_migrations";
+
+    static final String CHECKPOINT_ID = "compact-schema";
+
+    /**
+     * Passes made in one run before leaving todos that keep being written to the next run
+     */
+    static final int MAX_PASSES = 5;
+
+    static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final TodoLegacySchema legacySchema;
+
+    private final TodoIndexManager indexManager;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final Duration retryDelay;
+
+    private final Executor executor;
+
+    /**
+     * Serializes runs; a lock rather than a monitor, so a run blocked on the database does not
+     * pin a virtual thread to its carrier
+     */
+    private final Lock migrateLock = new ReentrantLock();
+
+    private volatile TodoMigrationReport report = TodoMigrationReport.builder()
+            .status(TodoMigrationReport.Status.PENDING)
+            .build();
+
+    @Autowired
+    public TodoSchemaMigration(MongoTemplate mongoTemplate, TodoLegacySchema legacySchema,
+                               TodoIndexManager indexManager,
+                               @Value("${todo.schema.migrate:true}") boolean enabled,
+                               @Value("${todo.schema.batch-size:500}") int batchSize,
+                               @Value("${todo.schema.retry-delay:1m}") Duration retryDelay,
+                               @Value("${todo.schema.background:true}") boolean background,
+                               @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this(mongoTemplate, legacySchema, indexManager, enabled, batchSize, retryDelay,
+                background ? executor : Runnable::run);
+    }
+
+    TodoSchemaMigration(MongoTemplate mongoTemplate, TodoLegacySchema legacySchema, TodoIndexManager indexManager,
+                        boolean enabled, int batchSize, Duration retryDelay, Executor executor) {
+        this.mongoTemplate = mongoTemplate;
+        this.legacySchema = legacySchema;
+        this.indexManager = indexManager;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            // turning the migration off asserts that no todo is left in the legacy form
+            legacySchema.markMigrated();
+            report = TodoMigrationReport.builder().status(TodoMigrationReport.Status.DISABLED).build();
+            return;
+        }
+        executor.execute(() -> migrateUntilDone(retryDelay));
+    }
+
+    /**
+     * Run the migration, and again after the given delay while it fails or leaves todos behind,
+     * as the queries that wait for it keep failing until then
+     */
+    private void migrateUntilDone(Duration delay) {
+        TodoMigrationReport.Status status = migrate().getStatus();
+        if (status != TodoMigrationReport.Status.FAILED && status != TodoMigrationReport.Status.INCOMPLETE) {
+            return;
+        }
+        log.info("Retrying the todo schema migration in {}", delay);
+        Duration next = delay.multipliedBy(2).compareTo(MAX_RETRY_DELAY) < 0 ? delay.multipliedBy(2) : MAX_RETRY_DELAY;
+        CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, executor)
+                .execute(() -> migrateUntilDone(next));
+    }
+
+    /**
+     * Latest progress of the migration
+     */
+    public TodoMigrationReport getReport() {
+        return report;
+    }
+
+    /**
+     * Rewrite every legacy todo, resuming from the saved checkpoint
+     */
+    public TodoMigrationReport migrate() {
+        migrateLock.lock();
+        try {
+            return migrateLocked();
+        } catch (RuntimeException e) {
+            // the checkpoint could not be read
+            log.error("Todo schema migration failed", e);
+            report = report.toBuilder()
+                    .status(TodoMigrationReport.Status.FAILED)
+                    .error(e.getMessage())
+                    .finishedAt(LocalDateTime.now())
+                    .build();
+            return report;
+        } finally {
+            migrateLock.unlock();
+        }
+    }
+
+    private TodoMigrationReport migrateLocked() {
+        MongoCollection<Document> checkpoints = mongoTemplate.getCollection(CHECKPOINTS);
+        Document checkpoint = Objects.requireNonNullElseGet(
+                checkpoints.find(Filters.eq("_id", CHECKPOINT_ID)).first(), () -> new Document("_id", CHECKPOINT_ID));
+        TodoMigrationReport progress = TodoMigrationReport.builder()
+                .status(TodoMigrationReport.Status.RUNNING)
+                .migrated(checkpoint.get("migrated", 0L))
+                .skipped(checkpoint.get("skipped", 0L))
+                .startedAt(LocalDateTime.now())
+                .build();
+        if (checkpoint.containsKey("completedAt")) {
+            legacySchema.markMigrated();
+            report = progress.toBuilder().status(TodoMigrationReport.Status.DONE).finishedAt(LocalDateTime.now()).build();
+            return report;
+        }
+        report = progress.toBuilder().build();
+
+        try {
+            MongoCollection<Document> todos = mongoTemplate.getCollection(Todo.COLLECTION);
+            Object after = checkpoint.get("after");
+            for (int pass = 1; ; pass++) {
+                progress.setPasses(pass);
+                List<Document> batch;
+                while (!(batch = nextBatch(todos, after)).isEmpty()) {
+                    migrateBatch(todos, batch, progress);
+                    after = batch.get(batch.size() - 1).get("_id");
+                    saveCheckpoint(checkpoints, new Document("after", after)
+                            .append("migrated", progress.getMigrated())
+                            .append("skipped", progress.getSkipped()));
+                    report = progress.toBuilder().build();
+                }
+                if (progress.getSkipped() == 0) {
+                    break;
+                }
+                if (pass == MAX_PASSES) {
+                    log.warn("{} todos kept being written during the schema migration; they are left for the next run",
+                            progress.getSkipped());
+                    progress.setStatus(TodoMigrationReport.Status.INCOMPLETE);
+                    progress.setFinishedAt(LocalDateTime.now());
+                    report = progress;
+                    return progress;
+                }
+                // another pass from the start for the todos written while they were rewritten
+                after = null;
+                progress.setSkipped(0);
+                saveCheckpoint(checkpoints, new Document("after", null).append("skipped", 0L));
+            }
+
+            saveCheckpoint(checkpoints, new Document("completedAt", LocalDateTime.now()));
+            legacySchema.markMigrated();
+            progress.setDroppedIndexes(dropLegacyIndexes());
+            if (!progress.getDroppedIndexes().isEmpty()) {
+                indexManager.reconcile();
+            }
+            progress.setStatus(TodoMigrationReport.Status.DONE);
+            log.info("Todo schema migration done: {} todos rewritten, legacy indexes dropped: {}",
+                    progress.getMigrated(), progress.getDroppedIndexes());
+        } catch (RuntimeException e) {
+            log.error("Todo schema migration failed", e);
+            progress.setStatus(TodoMigrationReport.Status.FAILED);
+            progress.setError(e.getMessage());
+        }
+        progress.setFinishedAt(LocalDateTime.now());
+        report = progress;
+        return progress;
+    }
+
+    private List<Document> nextBatch(MongoCollection<Document> todos, Object after) {
+        Bson filter = after == null ? legacySchema.legacy() : Filters.and(Filters.gt("_id", after), legacySchema.legacy());
+        return todos.find(filter).sort(Sorts.ascending("_id")).limit(batchSize).into(new ArrayList<>());
+    }
+
+    private void migrateBatch(MongoCollection<Document> todos, List<Document> batch, TodoMigrationReport progress) {
+        List<ReplaceOneModel<Document>> rewrites = batch.stream()
+                .map(legacySchema::rewrite)
+                .filter(Objects::nonNull)
+                .toList();
+        if (rewrites.isEmpty()) {
+            return;
+        }
+        BulkWriteResult result = todos.bulkWrite(rewrites, UNORDERED);
+        progress.setMigrated(progress.getMigrated() + result.getMatchedCount());
+        progress.setSkipped(progress.getSkipped() + rewrites.size() - result.getMatchedCount());
+    }
+
+    private void saveCheckpoint(MongoCollection<Document> checkpoints, Document fields) {
+        checkpoints.updateOne(Filters.eq("_id", CHECKPOINT_ID), new Document("$set", fields),
+                UPSERT);
+    }
+
+    /**
+     * Drop the indexes with a key on a field's old name, which no query uses any more
+     */
+    private List<String> dropLegacyIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Todo.class);
+        List<String> dropped = new ArrayList<>();
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            boolean legacy = info.getIndexFields().stream()
+                    .anyMatch(field -> legacySchema.legacyFields().contains(field.getKey()));
+            if (legacy) {
+                log.info("Dropping legacy index {}", info.getName());
+                indexOps.dropIndex(info.getName());
+                dropped.add(info.getName());
+            }
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.model.TodoTombstone;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the {@link TodoTombstone}s left by deleted todos.
+ */
+@Component
+@RequiredArgsConstructor
+public class TodoTombstoneRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Leave a tombstone for each id in one unordered bulk write; deleting an id again moves
+     * its tombstone to the later time
+     */
+    public void record(Collection<String> ids, LocalDateTime deletedAt) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TodoTombstone.class);
+        for (String id : ids) {
+            bulk.upsert(Query.query(Criteria.where("id").is(id)), new Update().set("deletedAt", deletedAt));
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Up to {@code limit} tombstones left at or after {@code from}, or after the tombstone with
+     * {@code afterId} if given, ordered by deletedAt and id
+     */
+    public List<TodoTombstone> findDeletedSince(LocalDateTime from, String afterId, int limit) {
+        Criteria criteria = afterId == null
+                ? Criteria.where("deletedAt").gte(from)
+                : new Criteria().orOperator(
+                        Criteria.where("deletedAt").gt(from),
+                        Criteria.where("deletedAt").is(from).and("id").gt(afterId));
+        return mongoTemplate.find(Query.query(criteria).with(Sort.by("deletedAt", "id")).limit(limit),
+                TodoTombstone.class);
+    }
+
+    /**
+     * Build the TTL index that expires tombstones the given time after the delete. The server
+     * keeps an existing index with other options, which is reported as a failure.
+     */
+    public void ensureIndexes(Duration ttl) {
+        mongoTemplate.indexOps(TodoTombstone.class).ensureIndex(new Index()
+                .on("da", Sort.Direction.ASC)
+                .named(TodoTombstone.EXPIRY_INDEX)
+                .expire(ttl));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.todoapp.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Loads into Caffeine async caches from the caller instead of the cache's executor, so a
+ * blocking loader runs in the calling thread and a non-blocking one is simply subscribed to.
+ */
+final class CacheLoads {
+
+    private CacheLoads() {
+    }
+
+    /**
+     * Get the cached value, loading it on a miss. Callers asking while a load is in flight
+     * share its result, and an invalidation during the load keeps the result out of the cache.
+     */
+    static <K, V> CompletableFuture<V> get(AsyncCache<K, V> cache, K key, Function<K, CompletableFuture<V>> loader) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> cached = cache.get(key, (k, executor) -> pending);
+        if (cached == pending) {
+            CompletableFuture<V> loaded;
+            try {
+                loaded = loader.apply(key);
+            } catch (RuntimeException e) {
+                loaded = CompletableFuture.failedFuture(e);
+            }
+            loaded.whenComplete((value, error) -> {
+                if (error != null) {
+                    pending.completeExceptionally(error);
+                } else {
+                    pending.complete(value);
+                }
+            });
+        }
+        return cached;
+    }
+
+    /**
+     * Wait for a value, rethrowing what its load failed with
+     */
+    static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
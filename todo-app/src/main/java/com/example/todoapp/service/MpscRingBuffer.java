@@ -0,0 +1,104 @@
+package com.example.todoapp.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Each slot carries a
+ * sequence telling whose turn it is: producers claim a position with a compare-and-set on the
+ * tail and publish the element by advancing the slot's sequence, and the consumer hands the slot
+ * back to the producers one lap later. Producers never wait for each other, and a full ring is
+ * reported rather than grown.
+ */
+final class MpscRingBuffer<E> {
+
+    private final int mask;
+
+    private final Object[] elements;
+
+    /**
+     * Per slot: equal to the position while free for the producer claiming that position, one
+     * past it once the element is published for the consumer
+     */
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next position to consume; only written by the consumer
+     */
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * Add an element, from any thread
+     *
+     * @return false if the ring is full
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[slot] = element;
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the consumer has not taken the element of the previous lap yet
+                return false;
+            }
+            // another producer claimed the position first
+        }
+    }
+
+    /**
+     * Take the oldest published element; only called by the consumer
+     *
+     * @return null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E element = (E) elements[slot];
+        elements[slot] = null;
+        sequences.set(slot, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Whether there is no published element; only called by the consumer
+     */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Elements claimed by producers and not consumed yet, from any thread; an estimate while
+     * they are running
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoDeleteManyResult;
+import com.example.todoapp.model.TodoFeedEvent;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoIndexReport;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.repository.ReactiveTodoRepository;
+import com.example.todoapp.repository.TodoIndexManager;
+import com.example.todoapp.repository.TodoSchemaMigration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link TodoService}, serving the reactive profile. Writes publish
+ * the same {@link TodoChangeEvent}s and are shed the same way while the change journal is
+ * behind; reads go through the same caches and search index.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveTodoService {
+
+    private final ReactiveTodoRepository todoRepository;
+
+    private final TodoIndexManager todoIndexManager;
+
+    private final TodoSchemaMigration todoSchemaMigration;
+
+    private final TodoSearchIndex todoSearchIndex;
+
+    private final TodoCache todoCache;
+
+    private final TodoQueryCache todoQueryCache;
+
+    private final TodoRollups todoRollups;
+
+    private final TodoWriteBehind todoWriteBehind;
+
+    private final TodoJournal todoJournal;
+
+    private final TodoChangeFeed todoChangeFeed;
+
+    private final TodoSync todoSync;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Create a new todo
+     */
+    public Mono<Todo> createTodo(Todo todo) {
+        return todoJournal.checkCapacity().then(Mono.defer(() -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    todo.setCreatedAt(now);
+                    todo.setUpdatedAt(now);
+                    todo.setCompleted(false);
+                    todo.setCompletedAt(null);
+                    todo.setVersion(0);
+                    return todoRepository.save(todo);
+                }))
+                .doOnNext(saved -> eventPublisher.publishEvent(TodoChangeEvent.saved(List.of(saved), Set.of())));
+    }
+
+    /**
+     * Execute a batch of writes as a single bulk write
+     */
+    public Mono<List<TodoOperationResult>> executeBatch(TodoBatchRequest batch) {
+        return todoJournal.checkCapacity().then(Mono.defer(() -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    for (TodoOperation operation : batch.getOperations()) {
+                        if (operation.getType() == TodoOperation.Type.CREATE) {
+                            Todo todo = operation.getTodo();
+                            todo.setCreatedAt(now);
+                            todo.setUpdatedAt(now);
+                            todo.setCompleted(false);
+                            todo.setCompletedAt(null);
+                            todo.setVersion(0);
+                        }
+                    }
+                    return todoRepository.bulkWrite(batch.getOperations(), batch.isOrdered());
+                }))
+                .flatMap(results -> publishBatchChanges(batch.getOperations(), results).thenReturn(results));
+    }
+
+    /**
+     * Set completion and/or priority on every todo matching the request's filter
+     */
+    public Mono<TodoUpdateManyResult> updateMany(TodoUpdateManyRequest request) {
+        return todoJournal.checkCapacity().then(Mono.defer(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            return todoRepository.updateMany(request.getFilter(), request.getCompleted(), request.getPriority(), now)
+                    .doOnNext(result -> {
+                        if (result.getModified() > 0) {
+                            eventPublisher.publishEvent(TodoChangeEvent.updatedMany(request, now));
+                        }
+                    });
+        }));
+    }
+
+    /**
+     * Get a window of todos, resuming after the given keyset position and reading only the
+     * given fields
+     */
+    public Mono<Window<Todo>> getAllTodos(ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+        return todoRepository.findAllBy(position, limit, sort, fields);
+    }
+
+    /**
+     * Get todo by ID, served from the cache when it holds the todo; empty if there is none
+     */
+    public Mono<Todo> getTodoById(String id) {
+        return cached(() -> todoCache.getAsync(id, key -> todoRepository.findById(key)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .toFuture()))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Get the version of a todo without reading the document: from the cache when it holds
+     * the todo, otherwise from the version index, falling back to a cached read while that
+     * index is not built yet
+     */
+    public Mono<Long> getTodoVersion(String id) {
+        return Mono.defer(() -> {
+            Todo cached = todoCache.peek(id);
+            if (cached != null) {
+                return Mono.just(cached.getVersion());
+            }
+            if (!todoIndexManager.hasIndex(Todo.VERSION_INDEX)) {
+                return getTodoById(id).map(Todo::getVersion);
+            }
+            return todoRepository.findVersion(id);
+        });
+    }
+
+    /**
+     * Stream todos for export, optionally filtered by status and priority, at the pace the
+     * client reads them
+     */
+    public Flux<Todo> exportTodos(Boolean completed, String priority) {
+        return todoRepository.streamBy(completed, priority);
+    }
+
+    /**
+     * Update a todo in a single atomic round trip, touching only the given fields; with
+     * write-behind, as part of the next bulk write
+     */
+    public Mono<Todo> updateTodo(String id, Todo todoDetails) {
+        if (todoWriteBehind.isEnabled()) {
+            return written(() -> queueUpdate(id, todoDetails));
+        }
+        return published(todoRepository.findAndUpdate(id, todoDetails), TodoService.changedFields(todoDetails));
+    }
+
+    /**
+     * Update a todo only if it is still at one of the given versions, in the same single atomic
+     * round trip and without locking; errors with {@link OptimisticLockingFailureException} if
+     * the todo is at another version
+     */
+    public Mono<Todo> updateTodo(String id, Todo todoDetails, Collection<Long> versions) {
+        return published(todoRepository.findAndUpdate(id, versions, todoDetails),
+                TodoService.changedFields(todoDetails))
+                .switchIfEmpty(Mono.defer(() -> todoRepository.existsById(id))
+                        .flatMap(exists -> exists
+                                ? Mono.<Todo>error(TodoService.conflict(id, versions))
+                                : Mono.<Todo>empty()));
+    }
+
+    /**
+     * Delete a todo in a single round trip, emitting whether it existed
+     */
+    public Mono<Boolean> deleteTodo(String id) {
+        return todoJournal.checkCapacity().then(todoRepository.removeById(id))
+                .map(deleted -> deleted > 0)
+                .doOnNext(deleted -> {
+                    if (deleted) {
+                        eventPublisher.publishEvent(TodoChangeEvent.deleted(List.of(id)));
+                    }
+                });
+    }
+
+    /**
+     * Delete all todos with the given ids in a single round trip
+     */
+    public Mono<TodoDeleteManyResult> deleteTodos(Collection<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        return todoJournal.checkCapacity().then(todoRepository.removeByIdIn(distinct))
+                .map(deleted -> {
+                    if (deleted > 0) {
+                        eventPublisher.publishEvent(TodoChangeEvent.deleted(distinct));
+                    }
+                    return TodoDeleteManyResult.builder()
+                            .requested(distinct.size())
+                            .deleted(deleted)
+                            .build();
+                });
+    }
+
+    /**
+     * Get a window of todos by completion status, served from the query cache while no write
+     * has touched that status
+     */
+    public Mono<Window<Todo>> getTodosByStatus(boolean completed, ScrollPosition position, Limit limit, Sort sort,
+                                               TodoFields fields) {
+        return cached(() -> todoQueryCache.byStatusAsync(completed, position, limit, sort, fields,
+                () -> todoRepository.findByCompleted(completed, position, limit, sort, fields).toFuture()));
+    }
+
+    /**
+     * Get a window of todos by priority, served from the query cache while no write has
+     * touched that priority
+     */
+    public Mono<Window<Todo>> getTodosByPriority(String priority, ScrollPosition position, Limit limit, Sort sort,
+                                                 TodoFields fields) {
+        return cached(() -> todoQueryCache.byPriorityAsync(priority, position, limit, sort, fields,
+                () -> todoRepository.findByPriority(priority, position, limit, sort, fields).toFuture()));
+    }
+
+    /**
+     * Search a window of todos by the words in their title and description, best matches first
+     */
+    public Mono<Window<Todo>> searchTodos(String text, ScrollPosition position, Limit limit) {
+        return todoRepository.searchByText(text, position, limit);
+    }
+
+    /**
+     * Typo-tolerant search served from the in-memory index, falling back to the text index
+     * while the in-memory index is still being built
+     */
+    public Mono<Window<Todo>> quickSearch(String query, ScrollPosition position, Limit limit) {
+        if (!todoSearchIndex.isReady()) {
+            return todoRepository.searchByText(query, position, limit);
+        }
+        return Mono.fromSupplier(() -> todoSearchIndex.search(query, position, limit));
+    }
+
+    /**
+     * Mark todo as completed
+     */
+    public Mono<Todo> markAsCompleted(String id) {
+        if (todoWriteBehind.isEnabled()) {
+            return written(() -> queueCompletion(id, true));
+        }
+        return published(todoRepository.findAndSetCompleted(id, true), TodoService.COMPLETION);
+    }
+
+    /**
+     * Mark todo as incomplete
+     */
+    public Mono<Todo> markAsIncomplete(String id) {
+        if (todoWriteBehind.isEnabled()) {
+            return written(() -> queueCompletion(id, false));
+        }
+        return published(todoRepository.findAndSetCompleted(id, false), TodoService.COMPLETION);
+    }
+
+    /**
+     * Whether updates and completion changes of single todos go through the write-behind
+     * pipeline, and so can be accepted before they are written
+     */
+    public boolean isWriteBehind() {
+        return todoWriteBehind.isEnabled();
+    }
+
+    /**
+     * Queue an update of a todo for the next bulk write without waiting for it; queuing never
+     * blocks, so this is safe on the event loop
+     */
+    public CompletableFuture<Optional<Todo>> queueUpdate(String id, Todo todoDetails) {
+        todoJournal.requireCapacity();
+        return todoWriteBehind.submit(id, todoDetails);
+    }
+
+    /**
+     * Queue a completion change of a todo for the next bulk write without waiting for it
+     */
+    public CompletableFuture<Optional<Todo>> queueCompletion(String id, boolean completed) {
+        todoJournal.requireCapacity();
+        return todoWriteBehind.submit(id, Todo.builder().completed(completed).build());
+    }
+
+    /**
+     * Flip the completion status of a todo atomically
+     */
+    public Mono<Todo> toggleCompleted(String id) {
+        return published(todoRepository.findAndToggleCompleted(id), TodoService.COMPLETION);
+    }
+
+    /**
+     * Todos created and completed per day from one day to the other, both included, read from
+     * the rollups on the blocking driver off the event loop
+     */
+    public Mono<TodoAnalytics> getAnalytics(LocalDate from, LocalDate to) {
+        return Mono.fromCallable(() -> todoRollups.getAnalytics(from, to)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Read up to {@code limit} records of the change journal from the given sequence on, off the
+     * event loop
+     */
+    public Mono<List<TodoJournalRecord>> getJournal(long from, int limit) {
+        return Mono.fromCallable(() -> todoJournal.read(from, limit)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Follow the changes to todos with the given status and priority, either unset to follow
+     * all, after the given resume token if any. Events are sent as the subscriber requests them
+     * and the subscription ends when it cancels.
+     */
+    public Flux<TodoFeedEvent> subscribeToChanges(Boolean completed, String priority, String resumeToken) {
+        TodoFilter filter = TodoFilter.builder().completed(completed).priority(priority).build();
+        return Flux.create(sink -> {
+            TodoChangeFeed.Subscription subscription = todoChangeFeed.subscribe(filter, resumeToken,
+                    new TodoChangeFeed.Sink() {
+                        @Override
+                        public long requested() {
+                            return sink.requestedFromDownstream();
+                        }
+
+                        @Override
+                        public void send(TodoFeedEvent event) {
+                            sink.next(event);
+                        }
+
+                        @Override
+                        public void close(boolean dropped) {
+                            sink.complete();
+                        }
+                    });
+            sink.onRequest(requested -> subscription.signal());
+            sink.onDispose(subscription::cancel);
+        });
+    }
+
+    /**
+     * How long a change feed subscription stays open before the client is expected to reconnect
+     */
+    public Duration getChangeFeedTimeout() {
+        return todoChangeFeed.getTimeout();
+    }
+
+    /**
+     * The todos changed and deleted since the given sync token, up to {@code limit} of each, or
+     * every todo if there is no token
+     */
+    public Mono<TodoChanges> getChanges(String since, int limit) {
+        return Mono.fromCallable(() -> todoSync.getChanges(since, limit)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Get the latest index reconciliation report, which is held in memory
+     */
+    public TodoIndexReport getIndexReport() {
+        return todoIndexManager.getReport();
+    }
+
+    /**
+     * Get the progress of rewriting todos stored before the compact schema
+     */
+    public TodoMigrationReport getMigrationReport() {
+        return todoSchemaMigration.getReport();
+    }
+
+    private Mono<Todo> published(Mono<Todo> saved, Set<String> changedFields) {
+        return todoJournal.checkCapacity().then(saved).doOnNext(todo -> eventPublisher.publishEvent(TodoChangeEvent.saved(List.of(todo), changedFields)));
+    }
+
+    /**
+     * Subscribe to a cache lookup. A cancelled request must not cancel a load other callers
+     * may be sharing, so cancellation is not passed on to the future.
+     */
+    private static <T> Mono<T> cached(Supplier<CompletableFuture<T>> lookup) {
+        return Mono.fromFuture(lookup, true);
+    }
+
+    /**
+     * Subscribe to a queued write. Writes to a todo are merged while queued, so, as for cache
+     * loads, cancellation is not passed on to a write other requests may be sharing.
+     */
+    private static Mono<Todo> written(Supplier<CompletableFuture<Optional<Todo>>> write) {
+        return Mono.fromFuture(write, true).flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Publish what a bulk write changed, reading updated todos back in one query
+     */
+    private Mono<Void> publishBatchChanges(List<TodoOperation> operations, List<TodoOperationResult> results) {
+        TodoService.BatchChanges changes = TodoService.BatchChanges.of(operations, results);
+        Mono<List<Todo>> updated = changes.updated().isEmpty() ? Mono.just(List.of())
+                : todoRepository.findAllById(changes.updated()).collectList();
+        return updated.doOnNext(todos -> {
+            List<Todo> saved = new ArrayList<>(changes.created());
+            saved.addAll(todos);
+            changes.publish(eventPublisher, saved);
+        }).then();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of todos by id, bounded by an estimate of the memory its entries hold
+ * and evicted by Caffeine's W-TinyLFU policy. Lookups of missing ids are cached too.
+ * <p>
+ * Entries are dropped as {@link TodoChangeEvent}s arrive rather than replaced, so a late
+ * event can never put back an older state. Cached todos are shared between callers and must
+ * not be modified.
+ */
+@Component
+public class TodoCache {
+
+    public static final String NAME = "todos";
+
+    /**
+     * Rough footprint of a cache node, its key and the Optional wrapping the value
+     */
+    static final int ENTRY_BYTES = 96;
+
+    /**
+     * Rough footprint of a Todo and its timestamps, excluding its strings
+     */
+    static final int TODO_BYTES = 128;
+
+    private final AsyncCache<String, Optional<Todo>> cache;
+
+    /**
+     * Counts mass updates, so a load that raced one can tell its result may be stale
+     */
+    private final AtomicLong massUpdates = new AtomicLong();
+
+    @Autowired
+    public TodoCache(MeterRegistry meterRegistry,
+                     @Value("${todo.cache.max-size:32MB}") DataSize maxSize,
+                     @Value("${todo.cache.ttl:10m}") Duration ttl) {
+        this(meterRegistry, maxSize.toBytes(), ttl, ForkJoinPool.commonPool());
+    }
+
+    TodoCache(MeterRegistry meterRegistry, long maxBytes, Duration ttl, Executor executor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(TodoCache::weigh)
+                .expireAfterWrite(ttl)
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    /**
+     * Get the cached todo, loading it once on a miss however many callers ask at the same time
+     */
+    public Optional<Todo> get(String id, Function<String, Optional<Todo>> loader) {
+        return CacheLoads.join(getAsync(id, key -> CompletableFuture.completedFuture(loader.apply(key))));
+    }
+
+    /**
+     * Get the cached todo, subscribing to a non-blocking load on a miss
+     */
+    public CompletableFuture<Optional<Todo>> getAsync(String id,
+                                                      Function<String, CompletableFuture<Optional<Todo>>> loader) {
+        long[] loadedAfter = {-1};
+        CompletableFuture<Optional<Todo>> todo = CacheLoads.get(cache, id, key -> {
+            loadedAfter[0] = massUpdates.get();
+            return loader.apply(key);
+        });
+        // Single-id invalidations drop a load in flight; a mass update cannot see one, so a
+        // load it overlapped drops its own result
+        return todo.whenComplete((value, error) -> {
+            if (loadedAfter[0] >= 0 && loadedAfter[0] != massUpdates.get()) {
+                cache.synchronous().invalidate(id);
+            }
+        });
+    }
+
+    /**
+     * The cached todo, without loading it; {@code null} unless a todo is cached and loaded
+     */
+    public Todo peek(String id) {
+        CompletableFuture<Optional<Todo>> todo = cache.getIfPresent(id);
+        if (todo == null || !todo.isDone() || todo.isCompletedExceptionally()) {
+            return null;
+        }
+        return todo.join().orElse(null);
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED -> cache.synchronous().invalidateAll(event.getTodos().stream().map(Todo::getId).toList());
+            case DELETED -> cache.synchronous().invalidateAll(event.getIds());
+            case UPDATED_MANY -> {
+                massUpdates.incrementAndGet();
+                TodoFilter filter = event.getUpdate().getFilter();
+                cache.synchronous().asMap().values().removeIf(todo -> todo.isPresent() && filter.matches(todo.get()));
+            }
+            case RESTORED -> cache.synchronous().invalidateAll();
+        }
+    }
+
+    long size() {
+        cache.synchronous().cleanUp();
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * Estimated bytes held by an entry; strings are counted at two bytes per character
+     */
+    static int weigh(String id, Optional<Todo> todo) {
+        int weight = ENTRY_BYTES + chars(id);
+        if (todo.isPresent()) {
+            Todo value = todo.get();
+            weight += TODO_BYTES + chars(value.getTitle()) + chars(value.getDescription())
+                    + chars(value.getPriority());
+        }
+        return weight;
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : 2 * value.length();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published by {@link TodoService} after every successful write, for components that keep
+ * a derived view of the todos in step with the database.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TodoChangeEvent {
+
+    public enum Type {
+        /**
+         * Todos were created or changed; {@link #getTodos()} holds their state after the write
+         * and {@link #getChangedFields()} the fields it may have changed on existing todos
+         */
+        SAVED,
+        /**
+         * Todos with {@link #getIds()} were deleted, if they existed
+         */
+        DELETED,
+        /**
+         * {@link #getUpdate()} was applied to every matching todo at {@link #getTimestamp()}
+         */
+        UPDATED_MANY,
+        /**
+         * The collection was rebuilt and now holds exactly {@link #getTodos()}; {@link #getIds()}
+         * are the todos it removed
+         */
+        RESTORED
+    }
+
+    /**
+     * Fields a write can change on an existing todo
+     */
+    public static final Set<String> ALL_FIELDS = Set.of("title", "description", "completed", "priority");
+
+    private final Type type;
+
+    private final List<Todo> todos;
+
+    private final List<String> ids;
+
+    private final Set<String> changedFields;
+
+    private final TodoUpdateManyRequest update;
+
+    private final LocalDateTime timestamp;
+
+    /**
+     * Todos saved by a write that may have changed any of their fields
+     */
+    public static TodoChangeEvent saved(Collection<Todo> todos) {
+        return saved(todos, ALL_FIELDS);
+    }
+
+    /**
+     * Todos saved by a write that only changed the given fields, or none for newly created todos
+     */
+    public static TodoChangeEvent saved(Collection<Todo> todos, Set<String> changedFields) {
+        return new TodoChangeEvent(Type.SAVED, List.copyOf(todos), List.of(), Set.copyOf(changedFields),
+                null, LocalDateTime.now());
+    }
+
+    public static TodoChangeEvent deleted(Collection<String> ids) {
+        return new TodoChangeEvent(Type.DELETED, List.of(), List.copyOf(ids), Set.of(), null, LocalDateTime.now());
+    }
+
+    public static TodoChangeEvent updatedMany(TodoUpdateManyRequest update, LocalDateTime timestamp) {
+        return new TodoChangeEvent(Type.UPDATED_MANY, List.of(), List.of(), Set.of(), update, timestamp);
+    }
+
+    public static TodoChangeEvent restored(Collection<Todo> todos) {
+        return restored(todos, List.of());
+    }
+
+    public static TodoChangeEvent restored(Collection<Todo> todos, Collection<String> removedIds) {
+        return new TodoChangeEvent(Type.RESTORED, List.copyOf(todos), List.copyOf(removedIds), ALL_FIELDS, null,
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFeedEvent;
+import com.example.todoapp.model.TodoFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes every change to the todos to subscribers as {@link TodoFeedEvent}s, so clients can
+ * follow the collection instead of polling it.
+ * <p>
+ * Each event gets the next number of a sequence local to this instance, and its resume token
+ * names that number. The last {@code history-size} events are kept, so a subscriber reconnecting
+ * with the token of the last event it received gets what it missed; a token that is unknown,
+ * from another instance or older than the history gets a {@link TodoFeedEvent.Type#RESET} instead,
+ * telling the client to reload.
+ * <p>
+ * A write only numbers its events and adds them to the history under the lock. Handing them
+ * out to subscribers and sending them happen on the feed's own bounded pool of
+ * {@code threads}, so a blocking send never ties up a thread other work needs, and the lock is
+ * never held while a subscriber is filtered for or sent to. Events are handed out to a bounded
+ * buffer of {@code buffer-size} events per subscriber; one whose buffer is full is dropped and
+ * closed rather than waited for, and can reconnect with its last token.
+ */
+@Slf4j
+@Component
+public class TodoChangeFeed implements SmartLifecycle {
+
+    private final int bufferSize;
+
+    private final Duration timeout;
+
+    private final Executor executor;
+
+    /**
+     * Distinguishes the tokens of this instance from those of another or an earlier run
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Orders events and subscriptions, so every subscriber sees events in sequence without gaps;
+     * a lock rather than a monitor, so a writer on a virtual thread is never pinned
+     */
+    private final Lock lock = new ReentrantLock();
+
+    private final Counter published;
+
+    private final Counter dropped;
+
+    /**
+     * Signals to hand out events not handled yet; the one raising it from zero starts a task
+     */
+    private final AtomicInteger dispatchPending = new AtomicInteger();
+
+    private volatile boolean running;
+
+    // guarded by lock
+
+    private final Entry[] history;
+
+    private long sequence;
+
+    /**
+     * Last event handed out to the subscribers
+     */
+    private long dispatched;
+
+    @Autowired
+    public TodoChangeFeed(MeterRegistry meterRegistry,
+                          @Value("${todo.feed.buffer-size:256}") int bufferSize,
+                          @Value("${todo.feed.history-size:10000}") int historySize,
+                          @Value("${todo.feed.timeout:30m}") Duration timeout,
+                          @Value("${todo.feed.threads:4}") int threads,
+                          @Value("${todo.feed.queue-size:1000}") int queueSize,
+                          @Value("${todo.feed.background:true}") boolean background) {
+        this(meterRegistry, bufferSize, historySize, timeout,
+                background ? newExecutor(threads, queueSize) : Runnable::run);
+    }
+
+    TodoChangeFeed(MeterRegistry meterRegistry, int bufferSize, int historySize, Duration timeout, Executor executor) {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.executor = executor;
+        this.history = new Entry[historySize];
+        this.published = Counter.builder("todo.feed.events")
+                .description("Events published to the todo change feed")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("todo.feed.dropped")
+                .description("Subscribers dropped because their buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("todo.feed.subscribers", subscriptions, Set::size)
+                .description("Subscribers of the todo change feed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * How long a subscription stays open before the client is expected to reconnect
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Subscribe to the changes of todos matching the filter's status and priority. The first
+     * event sent is {@link TodoFeedEvent.Type#SUBSCRIBED}, followed by what was missed since the
+     * resume token if one is given, or {@link TodoFeedEvent.Type#RESET} if that is not known.
+     *
+     * @param resumeToken token of the last event received, or null to start from now
+     */
+    public Subscription subscribe(TodoFilter filter, String resumeToken, Sink sink) {
+        Subscription subscription = new Subscription(filter, sink);
+        lock.lock();
+        try {
+            // the events up to now are replayed here, the later ones are handed out by dispatch
+            subscription.after = sequence;
+            List<TodoFeedEvent> replay = resumeToken == null ? List.of() : replay(subscription, resumeToken);
+            if (replay == null) {
+                subscription.buffer.offer(control(TodoFeedEvent.Type.RESET, token(sequence)));
+            } else {
+                subscription.buffer.offer(control(TodoFeedEvent.Type.SUBSCRIBED,
+                        resumeToken == null ? token(sequence) : resumeToken));
+                replay.forEach(subscription.buffer::offer);
+            }
+            subscriptions.add(subscription);
+        } finally {
+            lock.unlock();
+        }
+        subscription.signal();
+        return subscription;
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        int appended;
+        lock.lock();
+        try {
+            long before = sequence;
+            switch (event.getType()) {
+                case SAVED -> event.getTodos().forEach(todo -> append(TodoFeedEvent.builder()
+                        .type(todo.getVersion() == 0 ? TodoFeedEvent.Type.CREATED : TodoFeedEvent.Type.UPDATED)
+                        .at(event.getTimestamp())
+                        .todo(todo), event.getChangedFields()));
+                case DELETED -> event.getIds().forEach(id -> append(TodoFeedEvent.builder()
+                        .type(TodoFeedEvent.Type.DELETED)
+                        .at(event.getTimestamp())
+                        .id(id), Set.of()));
+                case UPDATED_MANY -> append(TodoFeedEvent.builder()
+                        .type(TodoFeedEvent.Type.UPDATED_MANY)
+                        .at(event.getTimestamp())
+                        .update(event.getUpdate()), Set.of());
+                case RESTORED -> append(TodoFeedEvent.builder()
+                        .type(TodoFeedEvent.Type.RESET)
+                        .at(event.getTimestamp()), Set.of());
+            }
+            appended = (int) (sequence - before);
+        } finally {
+            lock.unlock();
+        }
+        published.increment(appended);
+        if (appended > 0) {
+            signalDispatch();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * End every subscription, so open streams do not hold up a graceful shutdown
+     */
+    @Override
+    public void stop() {
+        running = false;
+        subscriptions.forEach(Subscription::cancel);
+        if (executor instanceof ExecutorService pool) {
+            // the closing tasks just queued still run
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stopped before the web server shuts down gracefully
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    String token(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Number the event and keep it in the history
+     */
+    private void append(TodoFeedEvent.TodoFeedEventBuilder event, Set<String> changedFields) {
+        long next = ++sequence;
+        history[(int) (next % history.length)] = new Entry(next, event.token(token(next)).build(), changedFields);
+    }
+
+    private void signalDispatch() {
+        if (dispatchPending.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::dispatch);
+            } catch (RejectedExecutionException e) {
+                // the events stay in the history and are handed out after the next write
+                dispatchPending.set(0);
+            }
+        }
+    }
+
+    /**
+     * Hand the events added since the last run to the subscribers they concern, one run at a
+     * time, so every subscriber gets them in sequence
+     */
+    private void dispatch() {
+        int missed = 1;
+        do {
+            List<Entry> entries = new ArrayList<>();
+            long lostUpTo;
+            lock.lock();
+            try {
+                // events overwritten in the history before they were handed out are lost
+                long first = Math.max(dispatched + 1, sequence - history.length + 1);
+                lostUpTo = first - 1 > dispatched ? first - 1 : 0;
+                for (long next = first; next <= sequence; next++) {
+                    entries.add(history[(int) (next % history.length)]);
+                }
+                dispatched = sequence;
+            } finally {
+                lock.unlock();
+            }
+            for (Subscription subscription : subscriptions) {
+                if (subscription.after < lostUpTo) {
+                    drop(subscription);
+                } else {
+                    handOut(subscription, entries);
+                }
+            }
+            missed = dispatchPending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void handOut(Subscription subscription, List<Entry> entries) {
+        boolean added = false;
+        for (Entry entry : entries) {
+            if (entry.sequence() <= subscription.after || !subscription.accepts(entry)) {
+                continue;
+            }
+            if (!subscription.buffer.offer(entry.event())) {
+                drop(subscription);
+                return;
+            }
+            added = true;
+        }
+        if (added) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * End a subscriber that fell behind; it closes once any send in progress has returned
+     */
+    private void drop(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            subscription.dropped = true;
+            dropped.increment();
+            log.debug("Dropped a change feed subscriber with {} events buffered", bufferSize);
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Events after the token that the subscription accepts, or null if they are not all known or
+     * would not fit its buffer next to the first event
+     */
+    private List<TodoFeedEvent> replay(Subscription subscription, String resumeToken) {
+        long from = sequence(resumeToken);
+        if (from < 0 || from > sequence || sequence - from > history.length) {
+            return null;
+        }
+        List<TodoFeedEvent> missed = new ArrayList<>();
+        for (long next = from + 1; next <= sequence; next++) {
+            Entry entry = history[(int) (next % history.length)];
+            if (subscription.accepts(entry)) {
+                if (missed.size() == bufferSize - 1) {
+                    return null;
+                }
+                missed.add(entry.event());
+            }
+        }
+        return missed;
+    }
+
+    /**
+     * Sequence number a token of this instance names, or -1 if it is not one
+     */
+    private long sequence(String token) {
+        String prefix = epoch + "-";
+        if (!token.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads, int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().name("todo-feed-", 0).daemon().factory());
+    }
+
+    private static TodoFeedEvent control(TodoFeedEvent.Type type, String token) {
+        return TodoFeedEvent.builder()
+                .token(token)
+                .type(type)
+                .at(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * An event as kept in the history, with the fields the write may have changed
+     */
+    private record Entry(long sequence, TodoFeedEvent event, Set<String> changedFields) {
+    }
+
+    /**
+     * Where a subscription's events go, in the order they happened
+     */
+    public interface Sink {
+
+        /**
+         * How many more events the subscriber takes now
+         */
+        long requested();
+
+        /**
+         * Send an event; failing ends the subscription
+         */
+        void send(TodoFeedEvent event) throws Exception;
+
+        /**
+         * Called once when the subscription ends, after the last event it sends
+         *
+         * @param dropped whether it ended because the subscriber fell too far behind
+         */
+        void close(boolean dropped);
+    }
+
+    /**
+     * A subscriber's filter and buffer. Events are sent by one task at a time on the feed's
+     * threads, started whenever events are added or the subscriber asks for more.
+     */
+    public final class Subscription {
+
+        private final TodoFilter filter;
+
+        private final Sink sink;
+
+        private final MpscRingBuffer<TodoFeedEvent> buffer = new MpscRingBuffer<>(bufferSize);
+
+        /**
+         * Signals not handled yet; the one raising it from zero starts a sending task
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        /**
+         * Last event replayed when it subscribed; later ones are handed out by dispatch
+         */
+        private long after;
+
+        private volatile boolean dropped;
+
+        private volatile boolean cancelled;
+
+        private Subscription(TodoFilter filter, Sink sink) {
+            this.filter = filter;
+            this.sink = sink;
+        }
+
+        /**
+         * End the subscription; events still buffered are not sent
+         */
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            signal();
+        }
+
+        /**
+         * Send what is buffered and the subscriber takes, on the feed's threads
+         */
+        public void signal() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    subscriptions.remove(this);
+                    if (closed.compareAndSet(false, true)) {
+                        sink.close(false);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Whether an event concerns todos this subscriber follows. A todo that no longer matches
+         * is still sent when the write may have changed a filtered field, since it may just have
+         * left the filter; deletes and mass updates are always sent.
+         */
+        boolean accepts(Entry entry) {
+            Todo todo = entry.event().getTodo();
+            if (todo == null) {
+                return true;
+            }
+            return filter.matches(todo)
+                    || filter.getCompleted() != null && entry.changedFields().contains("completed")
+                    || filter.getPriority() != null && entry.changedFields().contains("priority");
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                long requested = sink.requested();
+                TodoFeedEvent event;
+                while (!dropped && !cancelled && requested > 0 && (event = buffer.poll()) != null) {
+                    try {
+                        sink.send(event);
+                        requested--;
+                    } catch (Exception e) {
+                        log.debug("Sending a change feed event failed, ending the subscription", e);
+                        cancelled = true;
+                        subscriptions.remove(this);
+                    }
+                }
+                if ((dropped || cancelled) && closed.compareAndSet(false, true)) {
+                    sink.close(dropped);
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
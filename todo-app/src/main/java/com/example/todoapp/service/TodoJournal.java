@@ -0,0 +1,584 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of every change to the todos, written to memory-mapped segment files in
+ * the directory given by {@code todo.journal.directory}; off unless {@code todo.journal.enabled}
+ * is set. Each {@link TodoChangeEvent} is encoded by the thread that published it and handed to
+ * a single writer thread through a lock-free ring, so writes never wait on the disk or add a
+ * database round trip. Segments are preallocated at {@code segment-size} and a new one is
+ * started when a record does not fit. Pages are left to the operating system to flush unless
+ * {@code force} is set, which forces them to disk after every batch the writer appends.
+ * <p>
+ * Publishers never wait for the writer. Once the ring is three quarters full, writes are
+ * rejected before they reach the database, see {@link #requireCapacity()}; a record that still
+ * finds no room, or that the writer fails to append, is lost. The writer then appends a
+ * {@link TodoJournalRecord.Type#GAP} from the time of the first lost record, which a restore
+ * cannot replay past, and takes a new snapshot; until it is complete the journal is not
+ * {@linkplain #isIntact() intact}, which the health endpoint reports as down.
+ * <p>
+ * A new journal starts with a snapshot of the collection, taken in the background after
+ * startup, so the collection can be rebuilt from the journal alone; see
+ * {@link TodoJournalRestore}. Records are read with a {@link TodoJournalReader}.
+ */
+@Slf4j
+@Component
+public class TodoJournal implements SmartLifecycle {
+
+    /**
+     * Started before and stopped after the write-behind pipeline, so its last writes are recorded
+     */
+    static final int PHASE = TodoWriteBehind.PHASE - 4096;
+
+    /**
+     * Todos per snapshot record
+     */
+    static final int SNAPSHOT_CHUNK = 500;
+
+    private static final long STALL_NANOS = 50_000;
+
+    private static final long NO_GAP = Long.MAX_VALUE;
+
+    private static final long STOP_TIMEOUT_MILLIS = 10_000;
+
+    private final TodoRepository todoRepository;
+
+    private final TodoJournalCodec codec;
+
+    private final Path directory;
+
+    private final boolean enabled;
+
+    private final int segmentSize;
+
+    private final boolean force;
+
+    private final Executor executor;
+
+    private final ThreadFactory writerFactory;
+
+    private final MpscRingBuffer<Entry> ring;
+
+    private final Counter records;
+
+    private final Counter rejected;
+
+    private final Counter lost;
+
+    /**
+     * Time of the earliest record lost since the writer last appended a gap, or {@link #NO_GAP}
+     */
+    private final AtomicLong gapSince = new AtomicLong(NO_GAP);
+
+    /**
+     * Whether every change since the last complete snapshot was recorded
+     */
+    private volatile boolean intact = true;
+
+    private volatile boolean running;
+
+    private volatile Thread writer;
+
+    /**
+     * Set by the writer before it parks on an empty ring, for publishers to wake it
+     */
+    private volatile boolean sleeping;
+
+    private volatile long lastSequence = -1;
+
+    /**
+     * Whether the journal holds a complete snapshot since its last reset, as found on startup
+     */
+    private volatile boolean snapshotComplete;
+
+    // written by the writer thread only, once started
+
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private int position;
+
+    private long nextSequence;
+
+    /**
+     * Whether a snapshot was started since the last gap, so its end makes the journal intact again
+     */
+    private boolean resetSinceGap;
+
+    @Autowired
+    public TodoJournal(TodoRepository todoRepository, MongoConverter mongoConverter, MeterRegistry meterRegistry,
+                       @Value("${todo.journal.enabled:false}") boolean enabled,
+                       @Value("${todo.journal.directory:}") String directory,
+                       @Value("${todo.journal.segment-size:64MB}") DataSize segmentSize,
+                       @Value("${todo.journal.ring-size:8192}") int ringSize,
+                       @Value("${todo.journal.force:false}") boolean force,
+                       @Value("${todo.journal.background:true}") boolean background,
+                       @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this(todoRepository, mongoConverter, meterRegistry, enabled, directory.isBlank() ? null : Path.of(directory),
+                segmentSize, ringSize, force, background ? executor : Runnable::run,
+                Thread.ofPlatform().name("todo-journal").daemon().factory());
+    }
+
+    TodoJournal(TodoRepository todoRepository, MongoConverter mongoConverter, MeterRegistry meterRegistry,
+                boolean enabled, Path directory, DataSize segmentSize, int ringSize, boolean force, Executor executor,
+                ThreadFactory writerFactory) {
+        this.todoRepository = todoRepository;
+        this.codec = new TodoJournalCodec(mongoConverter);
+        this.directory = directory;
+        this.enabled = enabled;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.force = force;
+        this.executor = executor;
+        this.writerFactory = writerFactory;
+        this.ring = new MpscRingBuffer<>(ringSize);
+        this.records = Counter.builder("todo.journal.records")
+                .description("Records appended to the todo change journal")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("todo.journal.rejected")
+                .description("Writes rejected because the todo journal writer had fallen behind")
+                .register(meterRegistry);
+        this.lost = Counter.builder("todo.journal.lost")
+                .description("Records the todo journal could not append, each leaving a gap until the next snapshot")
+                .register(meterRegistry);
+        Gauge.builder("todo.journal.backlog", ring, MpscRingBuffer::size)
+                .description("Records waiting in the ring for the journal writer")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether every change since the last complete snapshot was recorded, so the journal can be
+     * replayed up to now
+     */
+    public boolean isIntact() {
+        return intact && gapSince.get() == NO_GAP;
+    }
+
+    /**
+     * Sequence of the last record appended, or -1 if there is none
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Reader over the journal's directory
+     */
+    public TodoJournalReader reader() {
+        return new TodoJournalReader(directory, codec);
+    }
+
+    /**
+     * Read up to {@code limit} records from the given sequence on
+     */
+    public List<TodoJournalRecord> read(long from, int limit) {
+        if (directory == null) {
+            return List.of();
+        }
+        TodoJournalReader.Cursor cursor = reader().from(from);
+        List<TodoJournalRecord> read = new ArrayList<>(Math.min(limit, SNAPSHOT_CHUNK));
+        while (read.size() < limit) {
+            TodoJournalRecord record = cursor.next().orElse(null);
+            if (record == null) {
+                break;
+            }
+            read.add(record);
+        }
+        return read;
+    }
+
+    /**
+     * Shed a write before it is made while the writer is behind, rather than lose its record
+     *
+     * @throws TaskRejectedException if the ring is three quarters full
+     */
+    public void requireCapacity() {
+        if (running && ring.size() >= ring.capacity() - ring.capacity() / 4) {
+            rejected.increment();
+            throw new TaskRejectedException("The todo journal is behind (" + ring.size() + " records)");
+        }
+    }
+
+    /**
+     * Reactive {@link #requireCapacity()}, checked on subscription
+     */
+    public Mono<Void> checkCapacity() {
+        return Mono.fromRunnable(this::requireCapacity);
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        if (!running) {
+            return;
+        }
+        switch (event.getType()) {
+            case SAVED -> offer(TodoJournalRecord.Type.SAVED, event.getTimestamp(),
+                    event.getTodos(), List.of(), event.getChangedFields(), null);
+            case DELETED -> offer(TodoJournalRecord.Type.DELETED, event.getTimestamp(),
+                    List.of(), event.getIds(), Set.of(), null);
+            case UPDATED_MANY -> offer(TodoJournalRecord.Type.UPDATED_MANY, event.getTimestamp(),
+                    List.of(), List.of(), Set.of(), event.getUpdate());
+            case RESTORED -> appendSnapshot(event.getTimestamp(), event.getTodos().stream());
+        }
+    }
+
+    /**
+     * Start a new journal with a snapshot of the collection, unless it already has a complete one
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void snapshotOnStartup() {
+        if (running && !snapshotComplete) {
+            executor.execute(this::snapshot);
+        }
+    }
+
+    /**
+     * Record a snapshot of every todo in the database. Writes made while it is read are recorded
+     * as usual and win over the snapshot when the journal is replayed. Unlike those of writes,
+     * its records wait for room in the ring rather than be lost.
+     */
+    public void snapshot() {
+        LocalDateTime start = LocalDateTime.now();
+        try (Stream<Todo> todos = todoRepository.streamBy(null, null)) {
+            appendSnapshot(start, todos);
+            log.info("Recorded a snapshot of the todos in the journal, started at {}", start);
+        } catch (RuntimeException e) {
+            log.error("Recording a snapshot of the todos in the journal failed", e);
+        }
+    }
+
+    private void appendSnapshot(LocalDateTime at, Stream<Todo> todos) {
+        append(TodoJournalRecord.Type.RESET, at, List.of(), List.of(), Set.of(), null);
+        List<Todo> chunk = new ArrayList<>(SNAPSHOT_CHUNK);
+        todos.forEach(todo -> {
+            chunk.add(todo);
+            if (chunk.size() == SNAPSHOT_CHUNK) {
+                append(TodoJournalRecord.Type.SNAPSHOT, LocalDateTime.now(), chunk, List.of(), Set.of(), null);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            append(TodoJournalRecord.Type.SNAPSHOT, LocalDateTime.now(), chunk, List.of(), Set.of(), null);
+        }
+        append(TodoJournalRecord.Type.SNAPSHOT_END, LocalDateTime.now(), List.of(), List.of(), Set.of(), null);
+    }
+
+    /**
+     * Hand a change to the writer, or lose it if the ring is full; the write it records is made
+     */
+    private void offer(TodoJournalRecord.Type type, LocalDateTime at, Collection<Todo> todos,
+                       Collection<String> ids, Set<String> changedFields, TodoUpdateManyRequest update) {
+        Entry entry = new Entry(type, TodoJournalCodec.epochMillis(at), codec.encode(todos, ids, changedFields, update));
+        if (!ring.offer(entry)) {
+            lose(entry);
+        }
+        wakeWriter();
+    }
+
+    /**
+     * Hand a snapshot record to the writer, waiting for room in the ring
+     */
+    private void append(TodoJournalRecord.Type type, LocalDateTime at, Collection<Todo> todos,
+                        Collection<String> ids, Set<String> changedFields, TodoUpdateManyRequest update) {
+        Entry entry = new Entry(type, TodoJournalCodec.epochMillis(at), codec.encode(todos, ids, changedFields, update));
+        while (!ring.offer(entry)) {
+            if (Thread.currentThread() == writer) {
+                // a snapshot after a gap run on the writer itself, without a background executor
+                drain();
+            } else {
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(STALL_NANOS);
+            }
+        }
+        wakeWriter();
+    }
+
+    private void wakeWriter() {
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Count a record that was not appended and leave the writer to mark the gap
+     */
+    private void lose(Entry entry) {
+        lost.increment();
+        intact = false;
+        gapSince.accumulateAndGet(entry.at(), Math::min);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        if (directory == null) {
+            throw new IllegalStateException("The todo journal is enabled but todo.journal.directory is not set");
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening the todo journal in " + directory + " failed", e);
+        }
+        running = true;
+        writer = writerFactory.newThread(this::writeLoop);
+        writer.start();
+        log.info("Todo journal in {}: next record {}", directory.toAbsolutePath(), nextSequence);
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = writer;
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        if (thread.isAlive()) {
+            // the ring has a single consumer: leave the writer to finish and the segment to recovery
+            log.warn("The todo journal writer did not stop within {} ms; records still queued are lost",
+                    STOP_TIMEOUT_MILLIS);
+            return;
+        }
+        // records published as the writer exited
+        drain();
+        segment.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Closing todo journal segment failed", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Find where the journal ends: after the last complete record of the last segment. Anything
+     * after it, such as a record torn by a crash, is zeroed so it is never read.
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<TodoJournalReader.Segment> segments = TodoJournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(0, segmentSize);
+            return;
+        }
+
+        TodoJournalReader.Cursor scan = reader().from(0);
+        TodoJournalCodec.Frame frame;
+        while ((frame = scan.nextFrame()) != null) {
+            switch (frame.type()) {
+                case RESET, GAP -> snapshotComplete = false;
+                case SNAPSHOT_END -> snapshotComplete = true;
+                default -> {
+                }
+            }
+            track(frame.type());
+        }
+
+        TodoJournalReader.Segment last = segments.get(segments.size() - 1);
+        TodoJournalReader.Cursor tail = reader().from(last.firstSequence());
+        long sequence = last.firstSequence() - 1;
+        while ((frame = tail.nextFrame()) != null) {
+            sequence = frame.sequence();
+        }
+        lastSequence = sequence;
+        nextSequence = sequence + 1;
+        if (tail.position() == 0) {
+            // created by a crashed run before its header was written
+            Files.delete(last.path());
+            openSegment(nextSequence, segmentSize);
+            return;
+        }
+        if (tail.rolled()) {
+            openSegment(nextSequence, segmentSize);
+            return;
+        }
+        channel = FileChannel.open(last.path(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        position = tail.position();
+        for (int i = position; i < segment.capacity(); i++) {
+            segment.put(i, (byte) 0);
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !ring.isEmpty()) {
+            markGap();
+            if (drain() == 0) {
+                sleeping = true;
+                if (running && ring.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    /**
+     * Append what is in the ring
+     *
+     * @return the number of records appended
+     */
+    private int drain() {
+        int appended = 0;
+        Entry entry;
+        while (appended < ring.capacity() && (entry = ring.poll()) != null) {
+            try {
+                write(entry);
+                appended++;
+            } catch (IOException | RuntimeException e) {
+                log.error("Appending a {} record to the todo journal failed", entry.type(), e);
+                lose(entry);
+            }
+        }
+        if (appended > 0) {
+            records.increment(appended);
+            if (force) {
+                segment.force();
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * Append a gap for the records lost since the last one, then start over with a snapshot
+     */
+    private void markGap() {
+        long since = gapSince.getAndSet(NO_GAP);
+        if (since == NO_GAP) {
+            return;
+        }
+        try {
+            write(new Entry(TodoJournalRecord.Type.GAP, since, codec.encode(List.of(), List.of(), Set.of(), null)));
+            records.increment();
+        } catch (IOException | RuntimeException e) {
+            log.error("Appending a gap to the todo journal failed", e);
+            gapSince.accumulateAndGet(since, Math::min);
+            return;
+        }
+        log.warn("Records were lost from the todo journal; taking a new snapshot");
+        executor.execute(this::snapshot);
+    }
+
+    private void write(Entry entry) throws IOException {
+        int size = TodoJournalCodec.frameSize(entry.body().length);
+        // room for the record and the length slot after it, which ends the segment
+        if (position + size + Integer.BYTES > segment.capacity()) {
+            roll(size);
+        }
+        TodoJournalCodec.write(segment, position, nextSequence, entry.at(), entry.type(), entry.body());
+        position += size;
+        lastSequence = nextSequence++;
+        track(entry.type());
+    }
+
+    /**
+     * Follow whether the journal is intact through the records appended or found on startup
+     */
+    private void track(TodoJournalRecord.Type type) {
+        switch (type) {
+            case GAP -> {
+                intact = false;
+                resetSinceGap = false;
+            }
+            case RESET -> resetSinceGap = true;
+            case SNAPSHOT_END -> {
+                if (resetSinceGap) {
+                    intact = true;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Continue in a new segment, large enough for a record of the given size
+     */
+    private void roll(int recordSize) throws IOException {
+        MappedByteBuffer previous = segment;
+        FileChannel previousChannel = channel;
+        int previousEnd = position;
+        if (previousEnd == TodoJournalCodec.SEGMENT_HEADER) {
+            // nothing was written to it, so it is replaced by a larger one under the same name
+            previousChannel.close();
+            Files.delete(directory.resolve(TodoJournalReader.segmentName(nextSequence)));
+            openSegment(nextSequence, TodoJournalCodec.SEGMENT_HEADER + recordSize + Integer.BYTES);
+            return;
+        }
+        openSegment(nextSequence, Math.max(segmentSize, TodoJournalCodec.SEGMENT_HEADER + recordSize + Integer.BYTES));
+        TodoJournalCodec.publishLength(previous, previousEnd, TodoJournalCodec.ROLLED);
+        previous.force();
+        previousChannel.close();
+    }
+
+    private void openSegment(long firstSequence, int size) throws IOException {
+        nextSequence = firstSequence;
+        channel = FileChannel.open(directory.resolve(TodoJournalReader.segmentName(firstSequence)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        TodoJournalCodec.writeHeader(segment, firstSequence);
+        position = TodoJournalCodec.SEGMENT_HEADER;
+    }
+
+    private record Entry(TodoJournalRecord.Type type, long at, byte[] body) {
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary format of the todo change journal.
+ * <p>
+ * A segment starts with a 16-byte header: {@link #MAGIC}, {@link #FORMAT_VERSION} and the
+ * sequence of its first record. Records follow back to back, each aligned to 8 bytes:
+ * <pre>
+ * int  length    of the body; 0 where nothing is written yet, -1 where the next segment continues
+ * int  crc       CRC-32C of everything after it up to the end of the body
+ * long sequence
+ * long at        local time of the change, as epoch milliseconds read as UTC
+ * byte type      {@link TodoJournalRecord.Type} ordinal
+ * ...  body      BSON document of the todos, ids, fields and update, as stored in MongoDB
+ * </pre>
+ * The length is written last with release semantics, so a reader that sees it also sees the
+ * rest of the record, and a record torn by a crash reads as the end of the journal.
+ */
+final class TodoJournalCodec {
+
+    static final int MAGIC = 0x546f446f;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int SEGMENT_HEADER = 16;
+
+    static final int FRAME_HEADER = 25;
+
+    static final int END = 0;
+
+    static final int ROLLED = -1;
+
+    private static final int ALIGNMENT = 8;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final DocumentCodec DOCUMENTS = new DocumentCodec();
+
+    private static final TodoJournalRecord.Type[] TYPES = TodoJournalRecord.Type.values();
+
+    private final MongoConverter converter;
+
+    TodoJournalCodec(MongoConverter converter) {
+        this.converter = converter;
+    }
+
+    /**
+     * Encode the body of a record; the todos are written in their stored form
+     */
+    byte[] encode(Collection<Todo> todos, Collection<String> ids, Set<String> changedFields,
+                  TodoUpdateManyRequest update) {
+        Document body = new Document();
+        if (!todos.isEmpty()) {
+            body.put("t", todos.stream().map(todo -> {
+                Document document = new Document();
+                converter.write(todo, document);
+                return document;
+            }).toList());
+        }
+        if (!ids.isEmpty()) {
+            body.put("i", List.copyOf(ids));
+        }
+        if (!changedFields.isEmpty()) {
+            body.put("f", List.copyOf(changedFields));
+        }
+        if (update != null) {
+            Document document = new Document();
+            converter.write(update, document);
+            body.put("u", document);
+        }
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        DOCUMENTS.encode(new BsonBinaryWriter(buffer), body, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    TodoJournalRecord decode(Frame frame) {
+        Document body = DOCUMENTS.decode(new BsonBinaryReader(frame.body()), DecoderContext.builder().build());
+        TodoJournalRecord record = TodoJournalRecord.builder()
+                .sequence(frame.sequence())
+                .type(frame.type())
+                .at(frame.at())
+                .build();
+        body.getList("t", Document.class, List.of())
+                .forEach(document -> record.getTodos().add(converter.read(Todo.class, document)));
+        record.getIds().addAll(body.getList("i", String.class, List.of()));
+        record.setChangedFields(new LinkedHashSet<>(body.getList("f", String.class, List.of())));
+        if (body.containsKey("u")) {
+            record.setUpdate(converter.read(TodoUpdateManyRequest.class, body.get("u", Document.class)));
+        }
+        return record;
+    }
+
+    /**
+     * Bytes taken by a record with a body of the given length
+     */
+    static int frameSize(int bodyLength) {
+        return (FRAME_HEADER + bodyLength + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Write a record at the position; its length is written last, which makes it visible
+     */
+    static void write(ByteBuffer segment, int position, long sequence, long at, TodoJournalRecord.Type type,
+                      byte[] body) {
+        segment.putLong(position + 8, sequence);
+        segment.putLong(position + 16, at);
+        segment.put(position + 24, (byte) type.ordinal());
+        segment.put(position + FRAME_HEADER, body);
+        segment.putInt(position + 4, crc(segment, position, body.length));
+        publishLength(segment, position, body.length);
+    }
+
+    /**
+     * Read the record at the position, or null if none is complete there
+     */
+    static Frame read(ByteBuffer segment, int position) {
+        int length = length(segment, position);
+        if (length <= 0 || length > segment.capacity() - position - FRAME_HEADER
+                || segment.getInt(position + 4) != crc(segment, position, length)) {
+            return null;
+        }
+        int type = segment.get(position + 24);
+        if (type < 0 || type >= TYPES.length) {
+            return null;
+        }
+        return new Frame(segment.getLong(position + 8), toLocal(segment.getLong(position + 16)), TYPES[type],
+                segment.slice(position + FRAME_HEADER, length).order(ByteOrder.LITTLE_ENDIAN), frameSize(length));
+    }
+
+    static void publishLength(ByteBuffer segment, int position, int length) {
+        INT.setRelease(segment, position, length);
+    }
+
+    static int length(ByteBuffer segment, int position) {
+        return (int) INT.getAcquire(segment, position);
+    }
+
+    static void writeHeader(ByteBuffer segment, long firstSequence) {
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, FORMAT_VERSION);
+        segment.putLong(8, firstSequence);
+    }
+
+    static boolean validHeader(ByteBuffer segment) {
+        return segment.capacity() >= SEGMENT_HEADER
+                && segment.getInt(0) == MAGIC && segment.getInt(4) == FORMAT_VERSION;
+    }
+
+    static long epochMillis(LocalDateTime at) {
+        return at.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    private static int crc(ByteBuffer segment, int position, int bodyLength) {
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position + 8, FRAME_HEADER - 8 + bodyLength));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A complete record as laid out in a segment, with its body not decoded yet
+     *
+     * @param size bytes the record takes in the segment
+     */
+    record Frame(long sequence, LocalDateTime at, TodoJournalRecord.Type type, ByteBuffer body, int size) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.todoapp.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the change journal down while records it lost have not been covered by a new snapshot,
+ * since the collection cannot be restored past them until then
+ */
+@Component
+@ConditionalOnProperty(name = "todo.journal.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class TodoJournalHealthIndicator implements HealthIndicator {
+
+    private final TodoJournal todoJournal;
+
+    @Override
+    public Health health() {
+        Health.Builder health = todoJournal.isIntact()
+                ? Health.up()
+                : Health.down().withDetail("reason", "Records were lost; waiting for a new snapshot");
+        return health.withDetail("lastSequence", todoJournal.getLastSequence()).build();
+    }
+}
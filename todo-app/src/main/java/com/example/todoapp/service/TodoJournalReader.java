@@ -0,0 +1,193 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.TodoJournalRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Reads the todo change journal in a directory, see {@link TodoJournalCodec} for its format.
+ * Readers map the segments themselves and never coordinate with the writer: a record is read
+ * once its length is published, so a cursor can replay the journal and then tail it while it
+ * is being written, in this process or another.
+ */
+public class TodoJournalReader {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("todos-(\\d{20})\\.journal");
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Path directory;
+
+    private final TodoJournalCodec codec;
+
+    TodoJournalReader(Path directory, TodoJournalCodec codec) {
+        this.directory = directory;
+        this.codec = codec;
+    }
+
+    /**
+     * Cursor over the records from the given sequence on
+     */
+    public Cursor from(long sequence) {
+        return new Cursor(sequence);
+    }
+
+    static String segmentName(long firstSequence) {
+        return "todos-%020d.journal".formatted(firstSequence);
+    }
+
+    /**
+     * Segment files in the directory, ordered by the sequence of their first record
+     */
+    static List<Segment> segments(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(path -> {
+                        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                        return matcher.matches() ? new Segment(path, Long.parseLong(matcher.group(1))) : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparingLong(Segment::firstSequence))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Listing the todo journal in " + directory + " failed", e);
+        }
+    }
+
+    record Segment(Path path, long firstSequence) {
+    }
+
+    /**
+     * Position in the journal. Not thread-safe.
+     */
+    public final class Cursor {
+
+        private final long from;
+
+        private Segment segment;
+
+        private MappedByteBuffer buffer;
+
+        private int position;
+
+        private Cursor(long from) {
+            this.from = from;
+        }
+
+        /**
+         * The next record, or empty at the end of what is written so far
+         */
+        public Optional<TodoJournalRecord> next() {
+            return Optional.ofNullable(nextFrame()).map(codec::decode);
+        }
+
+        /**
+         * The next record, waiting up to the timeout for one to be written
+         */
+        public Optional<TodoJournalRecord> next(Duration timeout) {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            TodoJournalCodec.Frame frame;
+            while ((frame = nextFrame()) == null && System.nanoTime() < deadline
+                    && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(POLL_NANOS);
+            }
+            return Optional.ofNullable(frame).map(codec::decode);
+        }
+
+        /**
+         * The next record without decoding its body, or null at the end of what is written so far
+         */
+        TodoJournalCodec.Frame nextFrame() {
+            while (buffer != null || open()) {
+                int length = TodoJournalCodec.length(buffer, position);
+                if (length == TodoJournalCodec.ROLLED) {
+                    if (!openNext()) {
+                        return null;
+                    }
+                    continue;
+                }
+                TodoJournalCodec.Frame frame = TodoJournalCodec.read(buffer, position);
+                if (frame == null) {
+                    return null;
+                }
+                position += frame.size();
+                if (frame.sequence() >= from) {
+                    return frame;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Offset of the next record in the current segment
+         */
+        int position() {
+            return position;
+        }
+
+        /**
+         * Whether the current segment ends at the cursor, with the journal continuing in the next
+         */
+        boolean rolled() {
+            return buffer != null && TodoJournalCodec.length(buffer, position) == TodoJournalCodec.ROLLED;
+        }
+
+        /**
+         * Open the last segment starting at or before {@code from}
+         */
+        private boolean open() {
+            List<Segment> segments = segments(directory);
+            Segment start = null;
+            for (Segment candidate : segments) {
+                if (start == null || candidate.firstSequence() <= from) {
+                    start = candidate;
+                }
+            }
+            return start != null && map(start);
+        }
+
+        private boolean openNext() {
+            return segments(directory).stream()
+                    .filter(candidate -> candidate.firstSequence() > segment.firstSequence())
+                    .findFirst()
+                    .map(this::map)
+                    .orElse(false);
+        }
+
+        private boolean map(Segment next) {
+            MappedByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(next.path(), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Reading todo journal segment " + next.path() + " failed", e);
+            }
+            if (!TodoJournalCodec.validHeader(mapped)) {
+                // created but not initialized yet
+                return false;
+            }
+            segment = next;
+            buffer = mapped;
+            position = TodoJournalCodec.SEGMENT_HEADER;
+            return true;
+        }
+    }
+}
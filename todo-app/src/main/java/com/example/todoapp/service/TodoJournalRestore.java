@@ -0,0 +1,264 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoRestoreResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rebuilds the todos collection as it was at a point in time by replaying the change journal
+ * from its snapshot. Todos are written back and the ones that did not exist then are deleted,
+ * in batches, so the collection is not consistent until the restore is done: it is meant to be
+ * run while nothing else writes. Restored todos are stamped with the time of the restore, so
+ * delta sync clients pick them up as changed, and get a version above the one stored, so a
+ * conditional request made against the state being replaced no longer matches. The ids of the
+ * deleted ones are published too, for tombstones. Once done, a {@link TodoChangeEvent#restored} event refreshes the caches and
+ * the search index and starts the journal over with the restored todos.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TodoJournalRestore {
+
+    static final int BATCH_SIZE = 500;
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private static final String VERSION = "v";
+
+    private static final String LEGACY_VERSION = "version";
+
+    private final TodoJournal todoJournal;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Serializes restores; a lock rather than a monitor, so a restore blocked on the database
+     * does not pin a virtual thread to its carrier
+     */
+    private final Lock restoreLock = new ReentrantLock();
+
+    /**
+     * Rebuild the collection as it was at the given time
+     *
+     * @throws IllegalStateException if the journal is disabled or has no complete snapshot
+     *                               taken before that time and after any records it lost
+     */
+    public TodoRestoreResult restore(LocalDateTime at) {
+        if (!todoJournal.isEnabled()) {
+            throw new IllegalStateException("The todo journal is disabled");
+        }
+        restoreLock.lock();
+        try {
+            State state = replay(todoJournal.reader().from(0), at);
+            if (!state.isComplete()) {
+                throw new IllegalStateException("The todo journal has no complete snapshot before " + at);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            state.todos.values().forEach(todo -> todo.setUpdatedAt(now));
+            List<String> deleted = write(state.todos);
+            log.info("Restored {} todos as of {} from the journal up to record {}, deleted {}",
+                    state.todos.size(), at, state.sequence, deleted.size());
+            eventPublisher.publishEvent(TodoChangeEvent.restored(state.todos.values(), deleted));
+            return TodoRestoreResult.builder()
+                    .at(at)
+                    .sequence(state.sequence)
+                    .restored(state.todos.size())
+                    .deleted(deleted.size())
+                    .build();
+        } finally {
+            restoreLock.unlock();
+        }
+    }
+
+    /**
+     * Fold the records written up to the given time into the todos they leave
+     */
+    static State replay(TodoJournalReader.Cursor cursor, LocalDateTime at) {
+        // records carry millisecond timestamps
+        LocalDateTime until = at.truncatedTo(ChronoUnit.MILLIS);
+        State state = new State();
+        TodoJournalRecord record;
+        while ((record = cursor.next().orElse(null)) != null) {
+            if (!record.getAt().isAfter(until)) {
+                state.apply(record);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Write the todos back, each one version above the one stored, and delete the others
+     *
+     * @return the ids of the todos deleted
+     */
+    private List<String> write(Map<String, Todo> todos) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(Todo.COLLECTION);
+        List<Object> stale = new ArrayList<>();
+        // todos not migrated yet keep their version under the legacy name
+        for (Document document : collection.find().projection(Projections.include("_id", VERSION, LEGACY_VERSION))) {
+            Object id = document.get("_id");
+            Todo todo = todos.get(id.toString());
+            if (todo == null) {
+                stale.add(id);
+            } else {
+                todo.setVersion(Math.max(todo.getVersion(), storedVersion(document)) + 1);
+            }
+        }
+        for (int i = 0; i < stale.size(); i += BATCH_SIZE) {
+            collection.deleteMany(Filters.in("_id", stale.subList(i, Math.min(i + BATCH_SIZE, stale.size()))));
+        }
+
+        List<ReplaceOneModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        for (Todo todo : todos.values()) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(todo, document);
+            batch.add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document, UPSERT));
+            if (batch.size() == BATCH_SIZE) {
+                collection.bulkWrite(batch, UNORDERED);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collection.bulkWrite(batch, UNORDERED);
+        }
+        return stale.stream().map(Object::toString).toList();
+    }
+
+    private static long storedVersion(Document document) {
+        Object version = document.containsKey(VERSION) ? document.get(VERSION) : document.get(LEGACY_VERSION);
+        return version instanceof Number number ? number.longValue() : 0;
+    }
+
+    /**
+     * Todos as left by the records applied so far
+     */
+    static final class State {
+
+        private final Map<String, Todo> todos = new LinkedHashMap<>();
+
+        /**
+         * Todos deleted since the last reset, which a snapshot read before the delete must not bring back
+         */
+        private final Set<String> deleted = new HashSet<>();
+
+        private boolean reset;
+
+        private boolean snapshotEnded;
+
+        private long sequence = -1;
+
+        Map<String, Todo> todos() {
+            return todos;
+        }
+
+        /**
+         * Whether the state starts from a complete snapshot, with no records lost since
+         */
+        boolean isComplete() {
+            return reset && snapshotEnded;
+        }
+
+        void apply(TodoJournalRecord record) {
+            sequence = record.getSequence();
+            switch (record.getType()) {
+                case RESET -> {
+                    todos.clear();
+                    deleted.clear();
+                    reset = true;
+                    snapshotEnded = false;
+                }
+                case SNAPSHOT -> record.getTodos().forEach(todo -> {
+                    if (!deleted.contains(todo.getId())) {
+                        putNewer(todo);
+                    }
+                });
+                case SNAPSHOT_END -> snapshotEnded = true;
+                case GAP -> reset = false;
+                case SAVED -> record.getTodos().forEach(todo -> {
+                    deleted.remove(todo.getId());
+                    putNewer(todo);
+                });
+                case DELETED -> record.getIds().forEach(id -> {
+                    todos.remove(id);
+                    deleted.add(id);
+                });
+                case UPDATED_MANY -> updateMany(record.getUpdate(), record.getAt());
+            }
+        }
+
+        /**
+         * Keep the todo unless a later state of it was applied already, as records of concurrent
+         * writes may be journaled out of order
+         */
+        private void putNewer(Todo todo) {
+            todos.merge(todo.getId(), todo, (current, next) -> next.getVersion() >= current.getVersion() ? next : current);
+        }
+
+        /**
+         * Apply a mass update the way the database applies it, see
+         * {@code TodoRepositoryImpl#updateManyUpdate}
+         */
+        private void updateMany(TodoUpdateManyRequest update, LocalDateTime at) {
+            TodoFilter filter = update.getFilter();
+            todos.replaceAll((id, todo) -> {
+                boolean changes = update.getCompleted() != null && update.getCompleted() != todo.isCompleted()
+                        || update.getPriority() != null && !update.getPriority().equals(todo.getPriority());
+                if (!changes || !filter.matches(todo)) {
+                    return todo;
+                }
+                Todo updated = Todo.builder()
+                        .id(todo.getId())
+                        .title(todo.getTitle())
+                        .description(todo.getDescription())
+                        .completed(todo.isCompleted())
+                        .createdAt(todo.getCreatedAt())
+                        .updatedAt(at)
+                        .priority(todo.getPriority())
+                        .completedAt(todo.getCompletedAt())
+                        .version(todo.getVersion() + 1)
+                        .build();
+                if (update.getCompleted() != null) {
+                    updated.setCompleted(update.getCompleted());
+                    if (!update.getCompleted()) {
+                        updated.setCompletedAt(null);
+                    } else if (updated.getCompletedAt() == null || at.isBefore(updated.getCompletedAt())) {
+                        updated.setCompletedAt(at);
+                    }
+                }
+                if (update.getPriority() != null) {
+                    updated.setPriority(update.getPriority());
+                }
+                return updated;
+            });
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of status and priority list queries. Todos are partitioned by completion status and
+ * by priority, and every partition has a generation counter that writes touching it bump.
+ * <p>
+ * A query is cached under its partition's generation at the time it was asked, so a bump makes
+ * every cached window of that partition unreachable while other partitions stay cached. The
+ * next request recomputes the window once under the new generation, however many callers ask
+ * for it at the same time; a load that overlapped a bump is cached under the old generation
+ * and never served. Unreachable windows are left to age out of the cache.
+ */
+@Component
+public class TodoQueryCache {
+
+    public static final String NAME = "todoQueries";
+
+    private static final String STATUS = "completed=";
+
+    private static final String PRIORITY = "priority=";
+
+    private final AsyncCache<Key, Window<Todo>> cache;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    record Key(String partition, long generation, ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+    }
+
+    @Autowired
+    public TodoQueryCache(MeterRegistry meterRegistry,
+                          @Value("${todo.query-cache.max-entries:1000}") long maxEntries,
+                          @Value("${todo.query-cache.ttl:1m}") Duration ttl) {
+        this(meterRegistry, maxEntries, ttl, ForkJoinPool.commonPool());
+    }
+
+    TodoQueryCache(MeterRegistry meterRegistry, long maxEntries, Duration ttl, Executor executor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    /**
+     * Get a cached window of todos with the given completion status, loading it on a miss
+     */
+    public Window<Todo> byStatus(boolean completed, ScrollPosition position, Limit limit, Sort sort,
+                                 TodoFields fields, Supplier<Window<Todo>> loader) {
+        return CacheLoads.join(byStatusAsync(completed, position, limit, sort, fields,
+                () -> CompletableFuture.completedFuture(loader.get())));
+    }
+
+    /**
+     * Get a cached window of todos with the given priority, loading it on a miss
+     */
+    public Window<Todo> byPriority(String priority, ScrollPosition position, Limit limit, Sort sort,
+                                   TodoFields fields, Supplier<Window<Todo>> loader) {
+        return CacheLoads.join(byPriorityAsync(priority, position, limit, sort, fields,
+                () -> CompletableFuture.completedFuture(loader.get())));
+    }
+
+    /**
+     * Get a cached window of todos with the given completion status, subscribing to a
+     * non-blocking load on a miss
+     */
+    public CompletableFuture<Window<Todo>> byStatusAsync(boolean completed, ScrollPosition position, Limit limit,
+                                                         Sort sort, TodoFields fields,
+                                                         Supplier<CompletableFuture<Window<Todo>>> loader) {
+        return get(STATUS + completed, position, limit, sort, fields, loader);
+    }
+
+    /**
+     * Get a cached window of todos with the given priority, subscribing to a non-blocking
+     * load on a miss
+     */
+    public CompletableFuture<Window<Todo>> byPriorityAsync(String priority, ScrollPosition position, Limit limit,
+                                                           Sort sort, TodoFields fields,
+                                                           Supplier<CompletableFuture<Window<Todo>>> loader) {
+        return get(PRIORITY + priority, position, limit, sort, fields, loader);
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED -> {
+                for (Todo todo : event.getTodos()) {
+                    bump(STATUS + todo.isCompleted());
+                    bump(PRIORITY + todo.getPriority());
+                    // the todo's previous state is unknown, so it may have left any partition
+                    // of a field the write changed
+                    if (event.getChangedFields().contains("completed")) {
+                        bump(STATUS + !todo.isCompleted());
+                    }
+                    if (event.getChangedFields().contains("priority")) {
+                        bumpAll(PRIORITY);
+                    }
+                }
+            }
+            case DELETED, RESTORED -> {
+                bumpAll(STATUS);
+                bumpAll(PRIORITY);
+            }
+            case UPDATED_MANY -> {
+                TodoUpdateManyRequest update = event.getUpdate();
+                TodoFilter filter = update.getFilter();
+                bumpMatching(STATUS, filter.getCompleted(), update.getCompleted());
+                bumpMatching(PRIORITY, filter.getPriority(), update.getPriority());
+            }
+        }
+    }
+
+    long generation(String partition) {
+        AtomicLong generation = generations.get(partition);
+        return generation == null ? 0 : generation.get();
+    }
+
+    private CompletableFuture<Window<Todo>> get(String partition, ScrollPosition position, Limit limit, Sort sort,
+                                                TodoFields fields, Supplier<CompletableFuture<Window<Todo>>> loader) {
+        long generation = generations.computeIfAbsent(partition, key -> new AtomicLong()).get();
+        return CacheLoads.get(cache, new Key(partition, generation, position, limit, sort, fields),
+                key -> loader.get());
+    }
+
+    /**
+     * Bump the partitions a mass update read from and wrote to; a filter without a value for
+     * the field may have matched todos in any of its partitions
+     */
+    private void bumpMatching(String field, Object matched, Object written) {
+        if (matched == null) {
+            bumpAll(field);
+        } else {
+            bump(field + matched);
+        }
+        if (written != null) {
+            bump(field + written);
+        }
+    }
+
+    private void bump(String partition) {
+        generations.computeIfAbsent(partition, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void bumpAll(String field) {
+        generations.forEach((partition, generation) -> {
+            if (partition.startsWith(field)) {
+                generation.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoRollup;
+import com.example.todoapp.repository.TodoRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps per-day, per-priority counts of created and completed todos in {@link TodoRollup}
+ * documents, so analytics read a handful of rollups instead of scanning the todos.
+ * <p>
+ * Rollups are incremented from {@link TodoChangeEvent}s: a todo at version 0 was just created,
+ * and a completed todo whose completedAt equals its updatedAt was completed by the write that
+ * produced it. Increments for one event go out as one bulk write on the executor, off the
+ * request path. Rollups are backfilled from the todos once the application is ready if there
+ * are none yet, e.g. on the first start with existing data.
+ */
+@Slf4j
+@Component
+public class TodoRollups {
+
+    private final TodoRollupRepository rollupRepository;
+
+    private final Executor executor;
+
+    @Autowired
+    public TodoRollups(TodoRollupRepository rollupRepository,
+                       @Value("${todo.analytics.background:true}") boolean background,
+                       @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this(rollupRepository, background ? executor : Runnable::run);
+    }
+
+    TodoRollups(TodoRollupRepository rollupRepository, Executor executor) {
+        this.rollupRepository = rollupRepository;
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        executor.execute(() -> {
+            try {
+                if (rollupRepository.isEmpty()) {
+                    backfill();
+                }
+            } catch (RuntimeException e) {
+                log.error("Backfilling todo rollups failed", e);
+            }
+        });
+    }
+
+    /**
+     * Rebuild every rollup from the todos. Increments made while the backfill runs may be
+     * lost or counted twice, so run it when writes are quiet.
+     */
+    public long backfill() {
+        long rollups = rollupRepository.backfill();
+        log.info("Backfilled {} todo rollups", rollups);
+        return rollups;
+    }
+
+    /**
+     * Todos created and completed per day from one day to the other, both included
+     */
+    public TodoAnalytics getAnalytics(LocalDate from, LocalDate to) {
+        return TodoAnalytics.of(from, to, rollupRepository.findBetween(from, to));
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED -> {
+                Map<String, TodoRollup> deltas = new LinkedHashMap<>();
+                for (Todo todo : event.getTodos()) {
+                    if (todo.getVersion() == 0 && todo.getCreatedAt() != null) {
+                        TodoRollup delta = delta(deltas, todo.getCreatedAt(), todo.getPriority());
+                        delta.setCreated(delta.getCreated() + 1);
+                    }
+                    if (completedBy(todo)) {
+                        TodoRollup delta = delta(deltas, todo.getCompletedAt(), todo.getPriority());
+                        delta.setCompleted(delta.getCompleted() + 1);
+                    }
+                }
+                increment(deltas);
+            }
+            case UPDATED_MANY -> {
+                if (Boolean.TRUE.equals(event.getUpdate().getCompleted())) {
+                    // the event only describes the update, so count what it completed in the database
+                    executor.execute(() -> guarded(() -> {
+                        Map<String, TodoRollup> deltas = new LinkedHashMap<>();
+                        rollupRepository.countCompletedAt(event.getTimestamp()).forEach((priority, completed) ->
+                                delta(deltas, event.getTimestamp(), priority).setCompleted(completed));
+                        rollupRepository.increment(deltas.values());
+                    }));
+                }
+            }
+            case DELETED, RESTORED -> {
+                // rollups count what happened on each day, which deleting or restoring todos does not undo
+            }
+        }
+    }
+
+    /**
+     * Whether the write that produced this state of the todo completed it
+     */
+    static boolean completedBy(Todo todo) {
+        return todo.isCompleted() && todo.getCompletedAt() != null && todo.getCompletedAt().equals(todo.getUpdatedAt());
+    }
+
+    private void increment(Map<String, TodoRollup> deltas) {
+        if (!deltas.isEmpty()) {
+            executor.execute(() -> guarded(() -> rollupRepository.increment(deltas.values())));
+        }
+    }
+
+    private static void guarded(Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            // analytics must never fail a write; a backfill repairs the counts
+            log.warn("Updating todo rollups failed", e);
+        }
+    }
+
+    private static TodoRollup delta(Map<String, TodoRollup> deltas, LocalDateTime time, String priority) {
+        LocalDate day = time.toLocalDate();
+        return deltas.computeIfAbsent(TodoRollup.idOf(day, priority), id -> TodoRollup.builder()
+                .id(id)
+                .day(day.toString())
+                .priority(TodoRollup.priorityOf(priority))
+                .build());
+    }
+}
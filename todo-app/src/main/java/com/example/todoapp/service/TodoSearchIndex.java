@@ -0,0 +1,478 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over todo titles and descriptions, answering typo-tolerant
+ * searches without a database round trip.
+ * <p>
+ * Every word of a query must match a word of the todo exactly, as a prefix, or within a
+ * small edit distance; candidate words are found through a trigram index over the term
+ * dictionary. The index holds a snapshot of every todo, is rebuilt from MongoDB once the
+ * application is ready and is kept current from {@link TodoChangeEvent}s.
+ */
+@Slf4j
+@Component
+public final class TodoSearchIndex {
+
+    static final int TITLE_WEIGHT = 3;
+
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    static final double PREFIX_MATCH = 0.75;
+
+    /**
+     * Query words shorter than this only match exactly
+     */
+    static final int MIN_FUZZY_LENGTH = 3;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final TodoRepository todoRepository;
+
+    private final Executor executor;
+
+    private final Timer rebuildTimer;
+
+    private final Object writeLock = new Object();
+
+    private volatile Index live = new Index();
+
+    private volatile boolean ready;
+
+    /**
+     * Changes seen while a rebuild is running, replayed onto the rebuilt index; guarded by writeLock
+     */
+    private List<TodoChangeEvent> pending;
+
+    @Autowired
+    public TodoSearchIndex(TodoRepository todoRepository, MeterRegistry meterRegistry,
+                           @Value("${todo.search.background:true}") boolean background,
+                           @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this(todoRepository, meterRegistry, background ? executor : Runnable::run);
+    }
+
+    TodoSearchIndex(TodoRepository todoRepository, MeterRegistry meterRegistry, Executor executor) {
+        this.todoRepository = todoRepository;
+        this.executor = executor;
+        this.rebuildTimer = Timer.builder("todo.search.index.rebuild")
+                .description("Time taken to rebuild the in-memory search index from the database")
+                .register(meterRegistry);
+        Gauge.builder("todo.search.index.documents", this, TodoSearchIndex::documentCount)
+                .description("Todos held in the in-memory search index")
+                .register(meterRegistry);
+        Gauge.builder("todo.search.index.terms", this, TodoSearchIndex::termCount)
+                .description("Distinct words in the in-memory search index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        executor.execute(this::rebuild);
+    }
+
+    /**
+     * Whether the index has been built and can answer searches
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Replace the index with one built from every todo in the database. Writes made while the
+     * rebuild runs are applied to the live index and replayed onto the new one before the swap.
+     */
+    public void rebuild() {
+        synchronized (writeLock) {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        Index rebuilt = new Index();
+        try (Stream<Todo> todos = todoRepository.streamBy(null, null)) {
+            todos.forEach(rebuilt::put);
+        } catch (RuntimeException e) {
+            log.error("Rebuilding the in-memory search index failed", e);
+            synchronized (writeLock) {
+                pending = null;
+            }
+            return;
+        }
+        synchronized (writeLock) {
+            pending.forEach(rebuilt::apply);
+            pending = null;
+            live = rebuilt;
+            ready = true;
+        }
+        long elapsed = System.nanoTime() - start;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Rebuilt in-memory search index: {} todos, {} terms in {} ms",
+                rebuilt.documentCount(), rebuilt.termCount(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        synchronized (writeLock) {
+            live.apply(event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        }
+    }
+
+    /**
+     * Search the index, best matches first, ties broken by id
+     */
+    public Window<Todo> search(String query, ScrollPosition position, Limit limit) {
+        if (!(position instanceof OffsetScrollPosition offset)) {
+            throw new IllegalArgumentException("Ranked results are paged by offset: " + position);
+        }
+        return live.search(terms(query), offset, limit);
+    }
+
+    int documentCount() {
+        return live.documentCount();
+    }
+
+    int termCount() {
+        return live.termCount();
+    }
+
+    /**
+     * Lower-cased words of the text with diacritics removed, so "Café" and "cafe" are the same word
+     */
+    static List<String> terms(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Stream.of(NON_WORD.split(folded.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty())
+                .toList();
+    }
+
+    static Set<String> trigrams(String padded) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Optimal string alignment distance (insertions, deletions, substitutions and adjacent
+     * transpositions), giving up with {@code max + 1} as soon as it must exceed {@code max}
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, previous2[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static int maxEdits(String term) {
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    private static Todo copyOf(Todo todo) {
+        return Todo.builder()
+                .id(todo.getId())
+                .title(todo.getTitle())
+                .description(todo.getDescription())
+                .completed(todo.isCompleted())
+                .createdAt(todo.getCreatedAt())
+                .updatedAt(todo.getUpdatedAt())
+                .priority(todo.getPriority())
+                .completedAt(todo.getCompletedAt())
+                .version(todo.getVersion())
+                .build();
+    }
+
+    /**
+     * One generation of the index. Searches take the read lock, single writes the write lock.
+     */
+    static final class Index {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<String, Todo> todos = new HashMap<>();
+
+        /**
+         * Term to the weight of that term in each todo containing it
+         */
+        private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+
+        /**
+         * Trigram of a padded term to the terms containing it
+         */
+        private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+        void apply(TodoChangeEvent event) {
+            switch (event.getType()) {
+                case SAVED -> event.getTodos().forEach(this::put);
+                case DELETED -> event.getIds().forEach(this::remove);
+                case UPDATED_MANY -> updateMany(event.getUpdate(), event);
+                case RESTORED -> replaceAll(event.getTodos());
+            }
+        }
+
+        void put(Todo todo) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(todo.getId());
+                Todo snapshot = copyOf(todo);
+                todos.put(snapshot.getId(), snapshot);
+                weightedTerms(snapshot).forEach((term, weight) -> postings
+                        .computeIfAbsent(term, this::addTerm)
+                        .put(snapshot.getId(), weight));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String id) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void replaceAll(List<Todo> restored) {
+            lock.writeLock().lock();
+            try {
+                todos.clear();
+                postings.clear();
+                termsByTrigram.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            restored.forEach(this::put);
+        }
+
+        /**
+         * Mirror a mass update on the snapshots. It never changes title or description,
+         * so the postings stay as they are.
+         */
+        private void updateMany(TodoUpdateManyRequest update, TodoChangeEvent event) {
+            TodoFilter filter = update.getFilter();
+            lock.writeLock().lock();
+            try {
+                todos.replaceAll((id, todo) -> {
+                    boolean changes = update.getCompleted() != null && update.getCompleted() != todo.isCompleted()
+                            || update.getPriority() != null && !update.getPriority().equals(todo.getPriority());
+                    if (!changes || !filter.matches(todo)) {
+                        return todo;
+                    }
+                    Todo updated = copyOf(todo);
+                    if (update.getCompleted() != null) {
+                        updated.setCompleted(update.getCompleted());
+                        updated.setCompletedAt(update.getCompleted() ? event.getTimestamp() : null);
+                    }
+                    if (update.getPriority() != null) {
+                        updated.setPriority(update.getPriority());
+                    }
+                    updated.setUpdatedAt(event.getTimestamp());
+                    updated.setVersion(todo.getVersion() + 1);
+                    return updated;
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Window<Todo> search(List<String> queryTerms, OffsetScrollPosition position, Limit limit) {
+            lock.readLock().lock();
+            try {
+                Map<String, Double> scores = null;
+                for (String queryTerm : new LinkedHashSet<>(queryTerms)) {
+                    Map<String, Double> termScores = new HashMap<>();
+                    matchingTerms(queryTerm).forEach((term, quality) -> postings.get(term)
+                            .forEach((id, weight) -> termScores.merge(id, weight * quality, Math::max)));
+                    if (scores == null) {
+                        scores = termScores;
+                    } else {
+                        scores.keySet().retainAll(termScores.keySet());
+                        scores.replaceAll((id, score) -> score + termScores.get(id));
+                    }
+                    if (scores.isEmpty()) {
+                        break;
+                    }
+                }
+                if (scores == null) {
+                    scores = Map.of();
+                }
+
+                long offset = position.getOffset();
+                List<Todo> ranked = scores.entrySet().stream()
+                        .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder())
+                                .thenComparing(Map.Entry.comparingByKey()))
+                        .skip(offset)
+                        .limit(limit.max() + 1L)
+                        .map(entry -> todos.get(entry.getKey()))
+                        .toList();
+                boolean hasNext = ranked.size() > limit.max();
+                return Window.from(hasNext ? ranked.subList(0, limit.max()) : ranked,
+                        OffsetScrollPosition.positionFunction(offset), hasNext);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int documentCount() {
+            lock.readLock().lock();
+            try {
+                return todos.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int termCount() {
+            lock.readLock().lock();
+            try {
+                return postings.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Dictionary terms matching a query word, with the quality of each match
+         */
+        private Map<String, Double> matchingTerms(String queryTerm) {
+            Map<String, Double> matches = new LinkedHashMap<>();
+            if (postings.containsKey(queryTerm)) {
+                matches.put(queryTerm, 1.0);
+            }
+            if (queryTerm.length() < MIN_FUZZY_LENGTH) {
+                return matches;
+            }
+            int maxEdits = maxEdits(queryTerm);
+            // every edit destroys at most three trigrams, which bounds how many a match must share
+            Set<String> queryTrigrams = trigrams("$" + queryTerm + "$");
+            int minShared = Math.max(1, queryTrigrams.size() - 1 - 3 * maxEdits);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                for (String term : termsByTrigram.getOrDefault(trigram, Set.of())) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+            shared.forEach((term, count) -> {
+                if (count < minShared || term.equals(queryTerm)) {
+                    return;
+                }
+                if (term.startsWith(queryTerm)) {
+                    matches.put(term, PREFIX_MATCH);
+                    return;
+                }
+                int distance = editDistance(queryTerm, term, maxEdits);
+                if (distance <= maxEdits) {
+                    matches.put(term, 1.0 / (1 + distance));
+                }
+            });
+            return matches;
+        }
+
+        private Map<String, Integer> addTerm(String term) {
+            trigrams("$" + term + "$").forEach(trigram ->
+                    termsByTrigram.computeIfAbsent(trigram, key -> new HashSet<>()).add(term));
+            return new HashMap<>();
+        }
+
+        private void removeUnlocked(String id) {
+            Todo previous = todos.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String term : weightedTerms(previous).keySet()) {
+                Map<String, Integer> todosWithTerm = postings.get(term);
+                todosWithTerm.remove(id);
+                if (todosWithTerm.isEmpty()) {
+                    postings.remove(term);
+                    for (String trigram : trigrams("$" + term + "$")) {
+                        Set<String> terms = termsByTrigram.get(trigram);
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            termsByTrigram.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static Map<String, Integer> weightedTerms(Todo todo) {
+            Map<String, Integer> weights = new HashMap<>();
+            terms(todo.getTitle()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Math::max));
+            terms(todo.getDescription()).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Math::max));
+            return weights;
+        }
+    }
+}
@@ -1,115 +1,463 @@
 package com.example.todoapp.service;
 
 import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoDeleteManyResult;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoIndexReport;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.repository.TodoIndexManager;
+import com.example.todoapp.repository.TodoSchemaMigration;
 import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
+/**
+ * Todo operations for the servlet stack. Every public method is timed as {@code todo.service},
+ * tagged with its class and method name. Writes are rejected before they are made while the
+ * change journal is behind, see {@link TodoJournal#requireCapacity()}.
+ */
 @Service
+@Timed(TodoService.TIMER)
 @RequiredArgsConstructor
 public class TodoService {
 
+    public static final String TIMER = "todo.service";
+
+    static final Set<String> COMPLETION = Set.of("completed");
+
     private final TodoRepository todoRepository;
 
+    private final TodoIndexManager todoIndexManager;
+
+    private final TodoSchemaMigration todoSchemaMigration;
+
+    private final TodoSearchIndex todoSearchIndex;
+
+    private final TodoCache todoCache;
+
+    private final TodoQueryCache todoQueryCache;
+
+    private final TodoRollups todoRollups;
+
+    private final TodoWriteBehind todoWriteBehind;
+
+    private final TodoJournal todoJournal;
+
+    private final TodoChangeFeed todoChangeFeed;
+
+    private final TodoSync todoSync;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     /**
      * Create a new todo
      */
     public Todo createTodo(Todo todo) {
+        todoJournal.requireCapacity();
         todo.setCreatedAt(LocalDateTime.now());
         todo.setUpdatedAt(LocalDateTime.now());
         todo.setCompleted(false);
-        return todoRepository.save(todo);
+        todo.setCompletedAt(null);
+        todo.setVersion(0);
+        Todo saved = todoRepository.save(todo);
+        eventPublisher.publishEvent(TodoChangeEvent.saved(List.of(saved), Set.of()));
+        return saved;
     }
 
     /**
-     * Get all todos
+     * Execute a batch of writes as a single bulk write
      */
-    public List<Todo> getAllTodos() {
-        return todoRepository.findAll();
+    public List<TodoOperationResult> executeBatch(TodoBatchRequest batch) {
+        todoJournal.requireCapacity();
+        LocalDateTime now = LocalDateTime.now();
+        for (TodoOperation operation : batch.getOperations()) {
+            if (operation.getType() == TodoOperation.Type.CREATE) {
+                Todo todo = operation.getTodo();
+                todo.setCreatedAt(now);
+                todo.setUpdatedAt(now);
+                todo.setCompleted(false);
+                todo.setCompletedAt(null);
+                todo.setVersion(0);
+            }
+        }
+        List<TodoOperationResult> results = todoRepository.bulkWrite(batch.getOperations(), batch.isOrdered());
+        publishBatchChanges(batch.getOperations(), results);
+        return results;
     }
 
     /**
-     * Get todo by ID
+     * Set completion and/or priority on every todo matching the request's filter
+     */
+    public TodoUpdateManyResult updateMany(TodoUpdateManyRequest request) {
+        todoJournal.requireCapacity();
+        LocalDateTime now = LocalDateTime.now();
+        TodoUpdateManyResult result = todoRepository.updateMany(
+                request.getFilter(), request.getCompleted(), request.getPriority(), now);
+        if (result.getModified() > 0) {
+            eventPublisher.publishEvent(TodoChangeEvent.updatedMany(request, now));
+        }
+        return result;
+    }
+
+    /**
+     * Get a window of todos, resuming after the given keyset position and reading only the
+     * given fields
+     */
+    public Window<Todo> getAllTodos(ScrollPosition position, Limit limit, Sort sort, TodoFields fields) {
+        return todoRepository.findAllBy(position, limit, sort, fields);
+    }
+
+    /**
+     * Get todo by ID, served from the cache when it holds the todo
      */
     public Optional<Todo> getTodoById(String id) {
-        return todoRepository.findById(id);
+        return todoCache.get(id, todoRepository::findById);
+    }
+
+    /**
+     * Get the version of a todo without reading the document: from the cache when it holds
+     * the todo, otherwise from the version index, falling back to a cached read while that
+     * index is not built yet
+     */
+    public Optional<Long> getTodoVersion(String id) {
+        Todo cached = todoCache.peek(id);
+        if (cached != null) {
+            return Optional.of(cached.getVersion());
+        }
+        if (!todoIndexManager.hasIndex(Todo.VERSION_INDEX)) {
+            return getTodoById(id).map(Todo::getVersion);
+        }
+        return todoRepository.findVersion(id);
+    }
+
+    /**
+     * Stream todos for export, optionally filtered by status and priority.
+     * The stream holds a database cursor open and must be closed by the caller.
+     */
+    public Stream<Todo> exportTodos(Boolean completed, String priority) {
+        return todoRepository.streamBy(completed, priority);
     }
 
     /**
-     * Update a todo
+     * Update a todo in a single atomic round trip, touching only the given fields; with
+     * write-behind, as part of the next bulk write
      */
     public Optional<Todo> updateTodo(String id, Todo todoDetails) {
-        return todoRepository.findById(id).map(todo -> {
-            if (todoDetails.getTitle() != null) {
-                todo.setTitle(todoDetails.getTitle());
-            }
-            if (todoDetails.getDescription() != null) {
-                todo.setDescription(todoDetails.getDescription());
-            }
-            if (todoDetails.getPriority() != null) {
-                todo.setPriority(todoDetails.getPriority());
-            }
-            todo.setCompleted(todoDetails.isCompleted());
-            todo.setUpdatedAt(LocalDateTime.now());
-            return todoRepository.save(todo);
-        });
+        if (todoWriteBehind.isEnabled()) {
+            return await(queueUpdate(id, todoDetails));
+        }
+        todoJournal.requireCapacity();
+        return published(todoRepository.findAndUpdate(id, todoDetails), changedFields(todoDetails));
     }
 
     /**
-     * Delete a todo
+     * Update a todo only if it is still at one of the given versions, in the same single atomic
+     * round trip and without locking: a write that got in first makes this one fail rather than
+     * be overwritten
+     *
+     * @throws OptimisticLockingFailureException if the todo is at another version
+     */
+    public Optional<Todo> updateTodo(String id, Todo todoDetails, Collection<Long> versions) {
+        todoJournal.requireCapacity();
+        Optional<Todo> updated = published(todoRepository.findAndUpdate(id, versions, todoDetails),
+                changedFields(todoDetails));
+        if (updated.isEmpty() && todoRepository.existsById(id)) {
+            throw conflict(id, versions);
+        }
+        return updated;
+    }
+
+    /**
+     * Delete a todo in a single round trip, reporting whether it existed
      */
     public boolean deleteTodo(String id) {
-        if (todoRepository.existsById(id)) {
-            todoRepository.deleteById(id);
+        todoJournal.requireCapacity();
+        if (todoRepository.removeById(id) > 0) {
+            eventPublisher.publishEvent(TodoChangeEvent.deleted(List.of(id)));
             return true;
         }
         return false;
     }
 
     /**
-     * Get todos by completion status
+     * Delete all todos with the given ids in a single round trip
+     */
+    public TodoDeleteManyResult deleteTodos(Collection<String> ids) {
+        todoJournal.requireCapacity();
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        long deleted = todoRepository.removeByIdIn(distinct);
+        if (deleted > 0) {
+            eventPublisher.publishEvent(TodoChangeEvent.deleted(distinct));
+        }
+        return TodoDeleteManyResult.builder()
+                .requested(distinct.size())
+                .deleted(deleted)
+                .build();
+    }
+
+    /**
+     * Get a window of todos by completion status, served from the query cache while no write
+     * has touched that status
      */
-    public List<Todo> getTodosByStatus(boolean completed) {
-        return todoRepository.findByCompleted(completed);
+    public Window<Todo> getTodosByStatus(boolean completed, ScrollPosition position, Limit limit, Sort sort,
+                                         TodoFields fields) {
+        return todoQueryCache.byStatus(completed, position, limit, sort, fields,
+                () -> todoRepository.findByCompleted(completed, position, limit, sort, fields));
     }
 
     /**
-     * Get todos by priority
+     * Get a window of todos by priority, served from the query cache while no write has
+     * touched that priority
      */
-    public List<Todo> getTodosByPriority(String priority) {
-        return todoRepository.findByPriority(priority);
+    public Window<Todo> getTodosByPriority(String priority, ScrollPosition position, Limit limit, Sort sort,
+                                           TodoFields fields) {
+        return todoQueryCache.byPriority(priority, position, limit, sort, fields,
+                () -> todoRepository.findByPriority(priority, position, limit, sort, fields));
     }
 
     /**
-     * Search todos by title
+     * Search a window of todos by the words in their title and description, best matches first
      */
-    public List<Todo> searchTodosByTitle(String title) {
-        return todoRepository.findByTitleContainingIgnoreCase(title);
+    public Window<Todo> searchTodos(String text, ScrollPosition position, Limit limit) {
+        return todoRepository.searchByText(text, position, limit);
+    }
+
+    /**
+     * Typo-tolerant search served from the in-memory index, falling back to the text index
+     * while the in-memory index is still being built
+     */
+    public Window<Todo> quickSearch(String query, ScrollPosition position, Limit limit) {
+        if (!todoSearchIndex.isReady()) {
+            return todoRepository.searchByText(query, position, limit);
+        }
+        return todoSearchIndex.search(query, position, limit);
     }
 
     /**
      * Mark todo as completed
      */
     public Optional<Todo> markAsCompleted(String id) {
-        return todoRepository.findById(id).map(todo -> {
-            todo.setCompleted(true);
-            todo.setUpdatedAt(LocalDateTime.now());
-            return todoRepository.save(todo);
-        });
+        if (todoWriteBehind.isEnabled()) {
+            return await(queueCompletion(id, true));
+        }
+        todoJournal.requireCapacity();
+        return published(todoRepository.findAndSetCompleted(id, true), COMPLETION);
     }
 
     /**
      * Mark todo as incomplete
      */
     public Optional<Todo> markAsIncomplete(String id) {
-        return todoRepository.findById(id).map(todo -> {
-            todo.setCompleted(false);
-            todo.setUpdatedAt(LocalDateTime.now());
-            return todoRepository.save(todo);
-        });
+        if (todoWriteBehind.isEnabled()) {
+            return await(queueCompletion(id, false));
+        }
+        todoJournal.requireCapacity();
+        return published(todoRepository.findAndSetCompleted(id, false), COMPLETION);
+    }
+
+    /**
+     * Whether updates and completion changes of single todos go through the write-behind
+     * pipeline, and so can be accepted before they are written
+     */
+    public boolean isWriteBehind() {
+        return todoWriteBehind.isEnabled();
+    }
+
+    /**
+     * Queue an update of a todo for the next bulk write without waiting for it
+     */
+    public CompletableFuture<Optional<Todo>> queueUpdate(String id, Todo todoDetails) {
+        todoJournal.requireCapacity();
+        return todoWriteBehind.submit(id, todoDetails);
+    }
+
+    /**
+     * Queue a completion change of a todo for the next bulk write without waiting for it
+     */
+    public CompletableFuture<Optional<Todo>> queueCompletion(String id, boolean completed) {
+        todoJournal.requireCapacity();
+        return todoWriteBehind.submit(id, Todo.builder().completed(completed).build());
+    }
+
+    /**
+     * Flip the completion status of a todo atomically
+     */
+    public Optional<Todo> toggleCompleted(String id) {
+        todoJournal.requireCapacity();
+        return published(todoRepository.findAndToggleCompleted(id), COMPLETION);
+    }
+
+    /**
+     * Todos created and completed per day from one day to the other, both included, read from
+     * the rollups
+     */
+    public TodoAnalytics getAnalytics(LocalDate from, LocalDate to) {
+        return todoRollups.getAnalytics(from, to);
+    }
+
+    /**
+     * Read up to {@code limit} records of the change journal from the given sequence on
+     */
+    public List<TodoJournalRecord> getJournal(long from, int limit) {
+        return todoJournal.read(from, limit);
+    }
+
+    /**
+     * Follow the changes to todos with the given status and priority, either unset to follow
+     * all, after the given resume token if any
+     */
+    public TodoChangeFeed.Subscription subscribeToChanges(Boolean completed, String priority, String resumeToken,
+                                                          TodoChangeFeed.Sink sink) {
+        return todoChangeFeed.subscribe(TodoFilter.builder().completed(completed).priority(priority).build(),
+                resumeToken, sink);
+    }
+
+    /**
+     * How long a change feed subscription stays open before the client is expected to reconnect
+     */
+    public Duration getChangeFeedTimeout() {
+        return todoChangeFeed.getTimeout();
+    }
+
+    /**
+     * The todos changed and deleted since the given sync token, up to {@code limit} of each, or
+     * every todo if there is no token
+     */
+    public TodoChanges getChanges(String since, int limit) {
+        return todoSync.getChanges(since, limit);
+    }
+
+    /**
+     * Get the latest index reconciliation report
+     */
+    public TodoIndexReport getIndexReport() {
+        return todoIndexManager.getReport();
+    }
+
+    /**
+     * Get the progress of rewriting todos stored before the compact schema
+     */
+    public TodoMigrationReport getMigrationReport() {
+        return todoSchemaMigration.getReport();
+    }
+
+    private Optional<Todo> published(Optional<Todo> saved, Set<String> changedFields) {
+        saved.ifPresent(todo -> eventPublisher.publishEvent(TodoChangeEvent.saved(List.of(todo), changedFields)));
+        return saved;
+    }
+
+    /**
+     * Wait for a queued write, rethrowing what failed it
+     */
+    private static Optional<Todo> await(CompletableFuture<Optional<Todo>> write) {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    static OptimisticLockingFailureException conflict(String id, Collection<Long> versions) {
+        return new OptimisticLockingFailureException("Todo " + id + " is not at version " + versions);
+    }
+
+    /**
+     * Fields an update with the given details writes; completion is always written
+     */
+    static Set<String> changedFields(Todo details) {
+        Set<String> fields = new HashSet<>(COMPLETION);
+        if (details.getTitle() != null) {
+            fields.add("title");
+        }
+        if (details.getDescription() != null) {
+            fields.add("description");
+        }
+        if (details.getPriority() != null) {
+            fields.add("priority");
+        }
+        return fields;
+    }
+
+    /**
+     * Publish what a bulk write changed. Created todos are known as sent; updated ones are
+     * read back in one query, since the bulk write does not return their new state.
+     */
+    private void publishBatchChanges(List<TodoOperation> operations, List<TodoOperationResult> results) {
+        BatchChanges changes = BatchChanges.of(operations, results);
+        List<Todo> saved = new ArrayList<>(changes.created());
+        if (!changes.updated().isEmpty()) {
+            todoRepository.findAllById(changes.updated()).forEach(saved::add);
+        }
+        changes.publish(eventPublisher, saved);
+    }
+
+    /**
+     * What a bulk write did, sorted out of its per-operation results
+     */
+    record BatchChanges(List<Todo> created, List<String> updated, List<String> deleted, Set<String> changedFields) {
+
+        static BatchChanges of(List<TodoOperation> operations, List<TodoOperationResult> results) {
+            List<Todo> created = new ArrayList<>();
+            List<String> updated = new ArrayList<>();
+            List<String> deleted = new ArrayList<>();
+            Set<String> changedFields = new HashSet<>();
+            for (TodoOperationResult result : results) {
+                TodoOperation operation = operations.get(result.getIndex());
+                switch (result.getStatus()) {
+                    case CREATED -> created.add(operation.getTodo());
+                    case UPDATED -> {
+                        updated.add(result.getId());
+                        changedFields.addAll(operation.getType() == TodoOperation.Type.UPDATE
+                                ? TodoService.changedFields(operation.getTodo()) : COMPLETION);
+                    }
+                    case DELETED -> deleted.add(result.getId());
+                    default -> {
+                    }
+                }
+            }
+            return new BatchChanges(created, updated, deleted, changedFields);
+        }
+
+        /**
+         * Publish the changes, given the created todos followed by the updated ones as read back
+         */
+        void publish(ApplicationEventPublisher eventPublisher, List<Todo> saved) {
+            if (!saved.isEmpty()) {
+                eventPublisher.publishEvent(TodoChangeEvent.saved(saved, changedFields));
+            }
+            if (!deleted.isEmpty()) {
+                eventPublisher.publishEvent(TodoChangeEvent.deleted(deleted));
+            }
+        }
     }
 }
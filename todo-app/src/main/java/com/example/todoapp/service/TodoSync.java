@@ -0,0 +1,147 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoTombstone;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.repository.TodoTombstoneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delta sync for offline clients: the todos changed and deleted since a {@link TodoSyncToken},
+ * so a sync costs as much as what changed rather than the whole collection.
+ * <p>
+ * Changed todos are read with a keyset scan over {@link Todo#CHANGES_INDEX}. Deleted todos
+ * leave a {@link TodoTombstone}, written from {@link TodoChangeEvent}s on the executor and
+ * expired by a TTL index after tombstone-ttl; a token older than that may have missed
+ * deletions, so it gets every todo again flagged as a reset. So does a token from before a
+ * deletion whose tombstone could not be written, as long as this instance runs.
+ * <p>
+ * updatedAt is stamped before the write reaches the database, so a write may become visible
+ * after a sync has scanned past its time. Once a sync has caught up, the next one therefore
+ * resumes lookback before it started, and clients may see a todo again.
+ */
+@Slf4j
+@Component
+public class TodoSync {
+
+    private final TodoRepository todoRepository;
+
+    private final TodoTombstoneRepository tombstoneRepository;
+
+    private final Duration lookback;
+
+    private final Duration tombstoneTtl;
+
+    private final Executor executor;
+
+    /**
+     * The earliest deletion whose tombstone could not be written, or null
+     */
+    private final AtomicReference<LocalDateTime> lostTombstones = new AtomicReference<>();
+
+    @Autowired
+    public TodoSync(TodoRepository todoRepository,
+                    TodoTombstoneRepository tombstoneRepository,
+                    @Value("${todo.sync.lookback:5s}") Duration lookback,
+                    @Value("${todo.sync.tombstone-ttl:30d}") Duration tombstoneTtl,
+                    @Value("${todo.sync.background:true}") boolean background,
+                    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        this(todoRepository, tombstoneRepository, lookback, tombstoneTtl, background ? executor : Runnable::run);
+    }
+
+    TodoSync(TodoRepository todoRepository, TodoTombstoneRepository tombstoneRepository, Duration lookback,
+             Duration tombstoneTtl, Executor executor) {
+        this.todoRepository = todoRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.lookback = lookback;
+        this.tombstoneTtl = tombstoneTtl;
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexesOnStartup() {
+        executor.execute(() -> guarded(() -> tombstoneRepository.ensureIndexes(tombstoneTtl),
+                "Building the todo tombstone expiry index failed"));
+    }
+
+    /**
+     * Up to {@code limit} todos changed and up to {@code limit} todos deleted since the given
+     * token, or every todo if there is none
+     *
+     * @throws IllegalArgumentException if the token is not one this returned
+     */
+    public TodoChanges getChanges(String since, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizon = now.minus(lookback);
+        TodoSyncToken token = since == null || since.isBlank() ? null : TodoSyncToken.decode(since);
+        LocalDateTime lost = lostTombstones.get();
+        boolean reset = token != null && (token.deleted().isBefore(now.minus(tombstoneTtl))
+                || lost != null && !token.deleted().isAfter(lost));
+        if (token == null || reset) {
+            token = new TodoSyncToken(null, null, horizon, null);
+        }
+
+        // todos first: one deleted after this read is then found in the tombstones, now or next time
+        List<Todo> todos = todoRepository.findChangedSince(token.todos(), token.todosId(), limit);
+        List<TodoTombstone> tombstones = tombstoneRepository.findDeletedSince(token.deleted(), token.deletedId(), limit);
+
+        boolean moreTodos = todos.size() == limit;
+        boolean moreDeleted = tombstones.size() == limit;
+        Todo lastTodo = moreTodos ? todos.get(todos.size() - 1) : null;
+        TodoTombstone lastTombstone = moreDeleted ? tombstones.get(tombstones.size() - 1) : null;
+        TodoSyncToken next = new TodoSyncToken(
+                moreTodos ? lastTodo.getUpdatedAt() : horizon, moreTodos ? lastTodo.getId() : null,
+                moreDeleted ? lastTombstone.getDeletedAt() : horizon, moreDeleted ? lastTombstone.getId() : null);
+        return TodoChanges.builder()
+                .todos(todos)
+                .deleted(tombstones.stream().map(TodoTombstone::getId).toList())
+                .next(next.encode())
+                .hasMore(moreTodos || moreDeleted)
+                .reset(reset)
+                .build();
+    }
+
+    @EventListener
+    public void onChange(TodoChangeEvent event) {
+        // a restore stamps the todos it writes back as changed, and its ids are the todos it removed
+        boolean removes = event.getType() == TodoChangeEvent.Type.DELETED
+                || event.getType() == TodoChangeEvent.Type.RESTORED;
+        if (removes && !event.getIds().isEmpty()) {
+            executor.execute(() -> record(event.getIds(), event.getTimestamp()));
+        }
+    }
+
+    private void record(List<String> ids, LocalDateTime deletedAt) {
+        try {
+            tombstoneRepository.record(ids, deletedAt);
+        } catch (RuntimeException e) {
+            // sync must never fail a write; the tokens that would have seen these tombstones resync instead
+            lostTombstones.accumulateAndGet(deletedAt,
+                    (earliest, at) -> earliest == null || at.isBefore(earliest) ? at : earliest);
+            log.warn("Recording {} todo tombstones failed; syncs from before {} will be reset",
+                    ids.size(), deletedAt, e);
+        }
+    }
+
+    private static void guarded(Runnable update, String failure) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            log.warn(failure, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.todoapp.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque delta sync token: where the next sync resumes the todos changed and the tombstones
+ * left, each as an {@code (updatedAt, id)} keyset position. A position without an id resumes
+ * at its time, so writes that land within the lookback are seen again rather than missed.
+ *
+ * @param todos     position in the todos changed, or null to start with every todo
+ * @param todosId   id of the last todo returned at {@code todos}, if the scan stopped mid-way
+ * @param deleted   position in the tombstones left
+ * @param deletedId id of the last tombstone returned at {@code deleted}, if the scan stopped mid-way
+ */
+record TodoSyncToken(LocalDateTime todos, String todosId, LocalDateTime deleted, String deletedId) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    String encode() {
+        Payload payload = new Payload(todos == null ? null : todos.toString(), todosId, deleted.toString(), deletedId);
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(payload);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode sync token", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not issued by {@link #encode()}
+     */
+    static TodoSyncToken decode(String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII));
+            Payload payload = MAPPER.readValue(json, Payload.class);
+            if (payload.d() == null || (payload.t() == null && payload.ti() != null)) {
+                throw new IllegalArgumentException("Sync token carries no position");
+            }
+            return new TodoSyncToken(payload.t() == null ? null : LocalDateTime.parse(payload.t()), payload.ti(),
+                    LocalDateTime.parse(payload.d()), payload.di());
+        } catch (DateTimeParseException | IOException e) {
+            throw new IllegalArgumentException("Invalid sync token", e);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Payload(String t, String ti, String d, String di) {
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional write-behind pipeline for updates and completion changes of single todos. Instead of
+ * a round trip each, writes are queued and a flusher thread sends what has queued up as one
+ * ordered bulk write, as soon as {@code batch-size} todos are waiting or the oldest write has
+ * waited {@code flush-interval}. A write to a todo that is still queued is merged into the queued
+ * write, so a burst of writes to one todo costs a single update and a single version.
+ * <p>
+ * Each write returns a future that completes once its bulk write is acknowledged, with the todo
+ * as stored then, or empty if there is no such todo. The queue and the merging are lock-free, and
+ * the queue holds at most {@code capacity} todos: past that, writes are rejected with a
+ * {@link TaskRejectedException} instead of buffered, so clients outpacing the database are
+ * pushed back rather than growing the heap. Queued writes are flushed on shutdown.
+ */
+@Slf4j
+@Component
+public class TodoWriteBehind implements SmartLifecycle {
+
+    /**
+     * Started before and stopped after the web server, so writes queued by the last requests
+     * are still flushed
+     */
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private static final long STOP_TIMEOUT_MILLIS = 10_000;
+
+    private final TodoRepository todoRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final ConcurrentLinkedQueue<QueuedWrite> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Queued write of each todo, for later writes to merge into until it is taken by a flush
+     */
+    private final ConcurrentHashMap<String, QueuedWrite> queuedById = new ConcurrentHashMap<>();
+
+    /**
+     * Todos in the queue, reserved before a write is queued so the capacity is never exceeded
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Counter coalesced;
+
+    private final Counter rejected;
+
+    private final DistributionSummary batches;
+
+    private volatile boolean running;
+
+    private volatile Thread flusher;
+
+    @Autowired
+    public TodoWriteBehind(TodoRepository todoRepository, ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${todo.write-behind.enabled:false}") boolean enabled,
+                           @Value("${todo.write-behind.capacity:10000}") int capacity,
+                           @Value("${todo.write-behind.batch-size:500}") int batchSize,
+                           @Value("${todo.write-behind.flush-interval:10ms}") Duration flushInterval) {
+        this.todoRepository = todoRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.coalesced = Counter.builder("todo.write-behind.coalesced")
+                .description("Writes merged into a write to the same todo that was still queued")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("todo.write-behind.rejected")
+                .description("Writes rejected because the write-behind queue was full")
+                .register(meterRegistry);
+        this.batches = DistributionSummary.builder("todo.write-behind.batch")
+                .description("Todos written per bulk write of the write-behind pipeline")
+                .register(meterRegistry);
+        Gauge.builder("todo.write-behind.queued", queued, AtomicInteger::get)
+                .description("Todos with a write waiting in the write-behind queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether updates of single todos are to go through this pipeline
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue an update of a todo with the semantics of {@link TodoRepository#findAndUpdate(String, Todo)}
+     *
+     * @throws TaskRejectedException if the queue is full or the pipeline is not running
+     */
+    public CompletableFuture<Optional<Todo>> submit(String id, Todo details) {
+        if (!running) {
+            rejected.increment();
+            throw new TaskRejectedException("The todo write-behind pipeline is not running");
+        }
+        int[] reserved = {0};
+        QueuedWrite write = queuedById.compute(id, (key, queuedWrite) -> {
+            if (queuedWrite != null) {
+                queuedWrite.details = merge(queuedWrite.details, details);
+                coalesced.increment();
+                return queuedWrite;
+            }
+            reserved[0] = reserve();
+            return reserved[0] == 0 ? null : new QueuedWrite(key, merge(null, details), System.nanoTime());
+        });
+        if (write == null) {
+            rejected.increment();
+            throw new TaskRejectedException("The todo write-behind queue is full (" + capacity + " todos)");
+        }
+        if (reserved[0] > 0) {
+            queue.offer(write);
+            // wake the flusher to start the interval on the first write, or to flush a full batch
+            if (reserved[0] == 1 || reserved[0] >= batchSize) {
+                LockSupport.unpark(flusher);
+            }
+            if (!running) {
+                // stopped while queuing, possibly after the last flush
+                flush();
+            }
+        }
+        // a copy, so one caller cancelling does not cancel the write for the others merged into it
+        return write.result.copy();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofPlatform().name("todo-write-behind").daemon().start(this::flushLoop);
+        log.info("Todo write-behind enabled: up to {} todos per bulk write, flushed every {} ms",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = flusher;
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+        // writes that were queued as the flusher exited
+        while (flush() > 0) {
+            // drained
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Flush until stopped, each time a batch is full or the oldest queued write has waited the
+     * flush interval, then flush what is left
+     */
+    private void flushLoop() {
+        while (running || !queue.isEmpty()) {
+            QueuedWrite oldest = queue.peek();
+            if (oldest == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            long wait = oldest.queuedAt + flushIntervalNanos - System.nanoTime();
+            if (running && wait > 0 && queued.get() < batchSize) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Write up to one batch of queued writes as an ordered bulk write
+     *
+     * @return the number of todos written
+     */
+    int flush() {
+        List<QueuedWrite> batch = new ArrayList<>(Math.min(batchSize, queued.get()));
+        QueuedWrite write;
+        while (batch.size() < batchSize && (write = queue.poll()) != null) {
+            // later writes to the todo queue a new write; taken under the same lock as merges,
+            // so the details read below are final
+            queuedById.remove(write.id, write);
+            queued.decrementAndGet();
+            batch.add(write);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batches.record(batch.size());
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            log.error("Writing {} queued todo writes failed", batch.size(), e);
+            batch.forEach(failed -> failed.result.completeExceptionally(e));
+        }
+        return batch.size();
+    }
+
+    private void write(List<QueuedWrite> batch) {
+        List<TodoOperation> operations = batch.stream()
+                .map(queuedWrite -> TodoOperation.builder()
+                        .type(TodoOperation.Type.UPDATE)
+                        .id(queuedWrite.id)
+                        .todo(queuedWrite.details)
+                        .build())
+                .toList();
+        List<TodoOperationResult> results = bulkWrite(operations);
+
+        TodoService.BatchChanges changes = TodoService.BatchChanges.of(operations, results);
+        Map<String, Todo> saved = new HashMap<>();
+        if (!changes.updated().isEmpty()) {
+            todoRepository.findAllById(changes.updated()).forEach(todo -> saved.put(todo.getId(), todo));
+        }
+        changes.publish(eventPublisher, List.copyOf(saved.values()));
+
+        for (int i = 0; i < batch.size(); i++) {
+            TodoOperationResult result = results.get(i);
+            CompletableFuture<Optional<Todo>> future = batch.get(i).result;
+            switch (result.getStatus()) {
+                case UPDATED -> future.complete(Optional.ofNullable(saved.get(result.getId())));
+                case NOT_FOUND -> future.complete(Optional.empty());
+                default -> future.completeExceptionally(new DataIntegrityViolationException(
+                        "Writing todo " + result.getId() + " failed: " + result.getError()));
+            }
+        }
+    }
+
+    /**
+     * Run the operations as ordered bulk writes. An ordered bulk write stops at its first
+     * failure, so the operations it skipped are sent again until each has run.
+     */
+    private List<TodoOperationResult> bulkWrite(List<TodoOperation> operations) {
+        TodoOperationResult[] results = new TodoOperationResult[operations.size()];
+        List<Integer> remaining = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            remaining.add(i);
+        }
+        while (!remaining.isEmpty()) {
+            List<TodoOperationResult> attempt = todoRepository.bulkWrite(
+                    remaining.stream().map(operations::get).toList(), true);
+            List<Integer> skipped = new ArrayList<>();
+            for (TodoOperationResult result : attempt) {
+                int index = remaining.get(result.getIndex());
+                if (result.getStatus() == TodoOperationResult.Status.SKIPPED) {
+                    skipped.add(index);
+                } else {
+                    result.setIndex(index);
+                    results[index] = result;
+                }
+            }
+            remaining = skipped;
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Reserve room for another todo in the queue
+     *
+     * @return the number of queued todos including this one, or 0 if the queue is full
+     */
+    private int reserve() {
+        int current;
+        do {
+            current = queued.get();
+            if (current >= capacity) {
+                return 0;
+            }
+        } while (!queued.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    /**
+     * The update applying a later write on top of a queued one: fields the later write sets
+     * replace the queued ones, and completion is always the later write's
+     */
+    static Todo merge(Todo queued, Todo later) {
+        Todo merged = new Todo();
+        if (queued != null) {
+            merged.setTitle(queued.getTitle());
+            merged.setDescription(queued.getDescription());
+            merged.setPriority(queued.getPriority());
+        }
+        if (later.getTitle() != null) {
+            merged.setTitle(later.getTitle());
+        }
+        if (later.getDescription() != null) {
+            merged.setDescription(later.getDescription());
+        }
+        if (later.getPriority() != null) {
+            merged.setPriority(later.getPriority());
+        }
+        merged.setCompleted(later.isCompleted());
+        return merged;
+    }
+
+    private static final class QueuedWrite {
+
+        private final String id;
+
+        private final long queuedAt;
+
+        private final CompletableFuture<Optional<Todo>> result = new CompletableFuture<>();
+
+        /**
+         * Replaced only while the write is in {@code queuedById}, under its lock
+         */
+        private Todo details;
+
+        private QueuedWrite(String id, Todo details, long queuedAt) {
+            this.id = id;
+            this.details = details;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.todoapp;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.repository.TodoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares request handling on virtual threads with Tomcat's pool of platform threads. Each
+ * mode boots the application against the test profile's MongoDB, in a database of its own,
+ * and keeps {@code benchmark.connections} clients (default 10000) sending reads that go to
+ * MongoDB on every request, one after another on their own connection.
+ * <p>
+ * Skipped unless enabled:
+ * <pre>
+ * mvn test -Dtest=ThreadModeBenchmark -Dbenchmark=true -Dbenchmark.connections=10000 -Dbenchmark.duration=PT30S
+ * </pre>
+ * The open file limit must allow two descriptors per connection ({@code ulimit -n}).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Virtual vs platform thread benchmark")
+class ThreadModeBenchmark {
+
+    private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 10_000);
+
+    private static final Duration WARM_UP = Duration.parse(System.getProperty("benchmark.warm-up", "PT10S"));
+
+    private static final Duration DURATION = Duration.parse(System.getProperty("benchmark.duration", "PT30S"));
+
+    private static final int SEED_TODOS = 1_000;
+
+    private static final String DATABASE = "todo_benchmark";
+
+    private static final String PATH = "/api/todos?limit=20";
+
+    record Result(String mode, long requests, long errors, Duration elapsed, long[] latenciesMicros) {
+
+        double throughput() {
+            return requests * 1_000_000_000.0 / elapsed.toNanos();
+        }
+
+        double percentileMillis(double percentile) {
+            if (latenciesMicros.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latenciesMicros.length) - 1;
+            return latenciesMicros[Math.max(index, 0)] / 1000.0;
+        }
+    }
+
+    @Test
+    @DisplayName("should serve concurrent connections on virtual and platform threads")
+    void compareThreadModes() throws Exception {
+        seed();
+        List<Result> results = List.of(
+                run("platform", "spring.threads.virtual.enabled=false", "server.tomcat.threads.max=200"),
+                run("virtual", "spring.threads.virtual.enabled=true"));
+
+        System.out.printf("%n%d connections, GET %s, %ds measured after %ds warm-up%n",
+                CONNECTIONS, PATH, DURATION.toSeconds(), WARM_UP.toSeconds());
+        System.out.printf("%-10s %12s %10s %10s %10s %10s %8s%n",
+                "mode", "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (Result result : results) {
+            System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f %10.1f %8d%n", result.mode(), result.throughput(),
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9),
+                    result.percentileMillis(100), result.errors());
+            assertThat(result.requests()).isPositive();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.data.mongodb.database=" + DATABASE,
+                "server.tomcat.max-connections=" + (CONNECTIONS + 1000),
+                "server.tomcat.accept-count=" + CONNECTIONS,
+                "logging.level.com.example.todoapp=INFO"));
+        all.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(TodoAppApplication.class)
+                .profiles("test")
+                .properties(all.toArray(String[]::new))
+                .run();
+    }
+
+    private static void seed() {
+        try (ConfigurableApplicationContext context = start()) {
+            context.getBean(MongoTemplate.class).getDb().drop();
+            context.getBean(TodoRepository.class).saveAll(IntStream.range(0, SEED_TODOS)
+                    .mapToObj(i -> Todo.builder()
+                            .title("Benchmark todo " + i)
+                            .description("Seeded for the thread mode benchmark")
+                            .priority(i % 3 == 0 ? "HIGH" : "LOW")
+                            .build())
+                    .toList());
+        }
+    }
+
+    private static Result run(String mode, String... properties) throws Exception {
+        try (ConfigurableApplicationContext context = start(properties);
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + PATH))
+                    .timeout(Duration.ofMinutes(1))
+                    .build();
+
+            long warmUpEnds = System.nanoTime() + WARM_UP.toNanos();
+            long ends = warmUpEnds + DURATION.toNanos();
+            AtomicLong errors = new AtomicLong();
+            List<Future<long[]>> latencies = new ArrayList<>(CONNECTIONS);
+            for (int i = 0; i < CONNECTIONS; i++) {
+                latencies.add(clients.submit(() -> {
+                    long[] measured = new long[64];
+                    int count = 0;
+                    for (long now = System.nanoTime(); now < ends; now = System.nanoTime()) {
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            long done = System.nanoTime();
+                            // only requests made entirely within the measured period count
+                            if (now >= warmUpEnds && done <= ends) {
+                                if (status != 200) {
+                                    errors.incrementAndGet();
+                                } else {
+                                    if (count == measured.length) {
+                                        measured = Arrays.copyOf(measured, count * 2);
+                                    }
+                                    measured[count++] = (done - now) / 1000;
+                                }
+                            }
+                        } catch (IOException e) {
+                            if (now >= warmUpEnds) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                    return Arrays.copyOf(measured, count);
+                }));
+            }
+
+            List<long[]> measured = new ArrayList<>(CONNECTIONS);
+            for (Future<long[]> future : latencies) {
+                measured.add(future.get());
+            }
+            long[] all = new long[measured.stream().mapToInt(values -> values.length).sum()];
+            int offset = 0;
+            for (long[] values : measured) {
+                System.arraycopy(values, 0, all, offset, values.length);
+                offset += values.length;
+            }
+            Arrays.sort(all);
+            return new Result(mode, all.length, errors.get(), DURATION, all);
+        }
+    }
+}
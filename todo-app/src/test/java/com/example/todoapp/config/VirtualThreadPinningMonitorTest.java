@@ -0,0 +1,113 @@
+package com.example.todoapp.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("VirtualThreadPinningMonitor Unit Tests")
+class VirtualThreadPinningMonitorTest {
+
+    private static final Duration EVENT_DELIVERY = Duration.ofSeconds(10);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private VirtualThreadPinningMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(10));
+        monitor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    private Timer pinned() {
+        return meterRegistry.get("todo.threads.pinned").timer();
+    }
+
+    private void awaitPinned(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + EVENT_DELIVERY.toNanos();
+        while (pinned().count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    // ==================== Pinning Tests ====================
+
+    @Test
+    @DisplayName("should record a virtual thread blocking inside a monitor")
+    void testRecordsPinnedThread() throws Exception {
+        // Arrange
+        Object monitorLock = new Object();
+
+        // Act
+        Thread.ofVirtual().start(() -> {
+            synchronized (monitorLock) {
+                sleep(100);
+            }
+        }).join();
+        awaitPinned(1);
+
+        // Assert
+        assertThat(monitor.isRunning()).isTrue();
+        assertThat(pinned().count()).isEqualTo(1);
+        assertThat(pinned().totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("should not record a virtual thread blocking while holding a lock")
+    void testIgnoresUnpinnedThread() throws Exception {
+        // Arrange
+        ReentrantLock lock = new ReentrantLock();
+
+        // Act
+        Thread.ofVirtual().start(() -> {
+            lock.lock();
+            try {
+                sleep(100);
+            } finally {
+                lock.unlock();
+            }
+        }).join();
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                sleep(100);
+            }
+        }).join();
+        awaitPinned(1);
+
+        // Assert
+        assertThat(pinned().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should stop recording when stopped")
+    void testStop() {
+        // Act
+        monitor.stop();
+
+        // Assert
+        assertThat(monitor.isRunning()).isFalse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.TodoFeedEvent;
+import com.example.todoapp.service.ReactiveTodoService;
+import com.example.todoapp.service.TodoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockReset;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * The {@link TodoControllerContractTest} contract, run against the reactive controller, and the
+ * reactive controller's own behaviour
+ */
+@WebFluxTest(ReactiveTodoController.class)
+@DisplayName("ReactiveTodoController Unit Tests")
+class ReactiveTodoControllerTest extends TodoControllerContractTest {
+
+    @Autowired
+    private ReactiveTodoService reactiveTodoService;
+
+    // ==================== Change Feed Tests ====================
+
+    @Test
+    @DisplayName("should stream changes as server-sent events, resuming from the since token")
+    void testStreamChanges() {
+        // Arrange
+        when(todoService.getChangeFeedTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(reactiveTodoService.subscribeToChanges(null, "HIGH", "t-0")).thenReturn(Flux.just(
+                TodoFeedEvent.builder().token("t-0").type(TodoFeedEvent.Type.SUBSCRIBED).build(),
+                TodoFeedEvent.builder().token("t-1").type(TodoFeedEvent.Type.DELETED).id("1").build()));
+
+        // Act
+        String body = webTestClient.get().uri("/api/todos/events?priority=HIGH&since=t-0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        // Assert
+        assertThat(body).contains("id:t-0", "event:SUBSCRIBED", "id:t-1", "event:DELETED");
+    }
+
+    @TestConfiguration
+    static class ReactiveService {
+
+        @Bean
+        ReactiveTodoService reactiveTodoService(TodoService todoService) {
+            return mock(ReactiveTodoService.class,
+                    MockReset.withSettings(MockReset.AFTER).defaultAnswer(new FromTodoService(todoService)));
+        }
+    }
+
+    /**
+     * Answers a {@link ReactiveTodoService} call with the same call on the {@link TodoService}
+     * mock: a value or {@link Optional} becomes a {@link Mono}, a {@link Stream} a {@link Flux}
+     * and a thrown exception an error signal. Methods without a counterpart answer as mocks do.
+     */
+    static final class FromTodoService implements Answer<Object> {
+
+        private final TodoService todoService;
+
+        FromTodoService(TodoService todoService) {
+            this.todoService = todoService;
+        }
+
+        @Override
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            Method counterpart;
+            try {
+                counterpart = TodoService.class.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                return RETURNS_DEFAULTS.answer(invocation);
+            }
+            Class<?> type = method.getReturnType();
+            Object result;
+            try {
+                result = counterpart.invoke(todoService, invocation.getArguments());
+            } catch (InvocationTargetException e) {
+                if (type == Mono.class) {
+                    return Mono.error(e.getCause());
+                }
+                if (type == Flux.class) {
+                    return Flux.error(e.getCause());
+                }
+                throw e.getCause();
+            }
+            if (type == Flux.class) {
+                return result == null ? Flux.empty() : Flux.fromStream((Stream<?>) result);
+            }
+            if (type == Mono.class) {
+                return result instanceof Optional<?> optional ? Mono.justOrEmpty(optional) : Mono.justOrEmpty(result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.service.TodoRollups;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoAnalyticsEndpoint Unit Tests")
+class TodoAnalyticsEndpointTest {
+
+    @Test
+    @DisplayName("should backfill analytics rollups")
+    void testBackfill() {
+        // Arrange
+        TodoRollups todoRollups = mock(TodoRollups.class);
+        when(todoRollups.backfill()).thenReturn(42L);
+
+        // Act & Assert
+        assertThat(new TodoAnalyticsEndpoint(todoRollups).backfill()).containsEntry("rollups", 42L);
+    }
+}
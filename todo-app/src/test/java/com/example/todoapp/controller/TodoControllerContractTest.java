@@ -0,0 +1,1293 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoDeleteManyResult;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoIndexReport;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.service.TodoChangeEvent;
+import com.example.todoapp.service.TodoSearchIndex;
+import com.example.todoapp.service.TodoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * The behaviour over HTTP that {@link TodoController} and {@link ReactiveTodoController} share.
+ * <p>
+ * Tests stub and verify {@link TodoService}; {@link ReactiveTodoControllerTest} answers the
+ * reactive service from the same mock. Subclasses add the tests of their own mode.
+ */
+abstract class TodoControllerContractTest {
+
+    @Autowired
+    protected WebTestClient webTestClient;
+
+    @MockBean
+    protected TodoService todoService;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    protected Todo testTodo;
+
+    @BeforeEach
+    void setUp() {
+        testTodo = Todo.builder()
+                .id("1")
+                .title("Test Todo")
+                .description("Test Description")
+                .priority("HIGH")
+                .completed(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static Window<Todo> window(List<Todo> todos) {
+        return Window.from(todos, ScrollPosition::offset);
+    }
+
+    // ==================== GET Tests ====================
+
+    @Test
+    @DisplayName("should return all todos with 200 status")
+    void testGetAllTodos() {
+        // Arrange
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(window(List.of(testTodo)));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectHeader().doesNotExist(TodoController.NEXT_CURSOR_HEADER)
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].id").isEqualTo("1")
+                .jsonPath("$[0].title").isEqualTo("Test Todo");
+
+        verify(todoService, times(1)).getAllTodos(ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(), TodoFields.ALL);
+    }
+
+    @Test
+    @DisplayName("should return empty list when no todos exist")
+    void testGetAllTodosEmpty() {
+        // Arrange
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(window(List.of()));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(0));
+
+        verify(todoService, times(1)).getAllTodos(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should return next cursor that resumes after the last todo")
+    void testGetAllTodosNextCursor() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        testTodo.setCreatedAt(createdAt);
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(Window.from(List.of(testTodo),
+                index -> ScrollPosition.forward(Map.of("createdAt", createdAt, "id", "1")), true));
+
+        // Act
+        String cursor = webTestClient.get().uri("/api/todos?limit=1&sort=createdAt,desc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(TodoController.NEXT_CURSOR_HEADER)
+                .returnResult(String.class).getResponseHeaders().getFirst(TodoController.NEXT_CURSOR_HEADER);
+
+        webTestClient.get().uri(builder -> builder.path("/api/todos")
+                        .queryParam("limit", 1).queryParam("cursor", cursor).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        // Assert
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdAt");
+        verify(todoService).getAllTodos(ScrollPosition.keyset(), Limit.of(1), sort, TodoFields.ALL);
+        verify(todoService).getAllTodos(ScrollPosition.forward(Map.of("createdAt", createdAt, "id", "1")), Limit.of(1), sort,
+                TodoFields.ALL);
+    }
+
+    @Test
+    @DisplayName("should cap the page size at the maximum limit")
+    void testGetAllTodosLimitCapped() {
+        // Arrange
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(window(List.of()));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos?limit=100000")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(todoService).getAllTodos(any(), eq(Limit.of(TodoController.MAX_LIMIT)), any(), any());
+    }
+
+    @Test
+    @DisplayName("should return 400 for invalid paging parameters")
+    void testGetAllTodosInvalidPaging() {
+        // Act & Assert
+        webTestClient.get().uri("/api/todos?limit=0").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/todos?sort=title").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/todos?cursor=not-a-cursor").exchange().expectStatus().isBadRequest();
+
+        verify(todoService, never()).getAllTodos(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should answer a conditional get of an unchanged page with 304")
+    void testGetAllTodosNotModified() {
+        // Arrange
+        testTodo.setVersion(1);
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(window(List.of(testTodo)));
+
+        // Act
+        String etag = webTestClient.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(String.class).getResponseHeaders().getETag();
+        webTestClient.get().uri("/api/todos")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        webTestClient.get().uri("/api/todos?fields=summary")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk();
+        testTodo.setVersion(2);
+
+        // Assert
+        webTestClient.get().uri("/api/todos")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].version").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should return only the requested fields of each todo")
+    void testGetAllTodosFields() {
+        // Arrange: a projected todo only has the requested fields set
+        Todo summary = Todo.builder().id("1").title("Test Todo").priority("HIGH").build();
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(window(List.of(summary)));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos?fields=summary")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1")
+                .jsonPath("$[0].title").isEqualTo("Test Todo")
+                .jsonPath("$[0].completed").isEqualTo(false)
+                .jsonPath("$[0].priority").isEqualTo("HIGH")
+                .jsonPath("$[0].description").doesNotExist()
+                .jsonPath("$[0].createdAt").doesNotExist();
+        webTestClient.get().uri("/api/todos?fields=priority, title")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].*").value(hasSize(3))
+                .jsonPath("$[0].completed").doesNotExist();
+
+        verify(todoService).getAllTodos(ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(), TodoFields.SUMMARY);
+        verify(todoService).getAllTodos(ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(),
+                TodoFields.parse("id,title,priority"));
+    }
+
+    @Test
+    @DisplayName("should return 400 for unknown fields")
+    void testGetAllTodosUnknownField() {
+        // Act & Assert
+        webTestClient.get().uri("/api/todos?fields=title,owner").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/todos/status/true?fields=title,owner").exchange().expectStatus().isBadRequest();
+
+        verify(todoService, never()).getAllTodos(any(), any(), any(), any());
+        verify(todoService, never()).getTodosByStatus(anyBoolean(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should return only the requested fields of each todo by priority")
+    void testGetTodosByPriorityFields() {
+        // Arrange: a projected todo only has the requested fields set
+        Todo summary = Todo.builder().id("1").title("Test Todo").priority("HIGH").build();
+        when(todoService.getTodosByPriority(eq("HIGH"), any(), any(), any(), any())).thenReturn(window(List.of(summary)));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/priority/HIGH?fields=summary")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1")
+                .jsonPath("$[0].title").isEqualTo("Test Todo")
+                .jsonPath("$[0].completed").isEqualTo(false)
+                .jsonPath("$[0].description").doesNotExist()
+                .jsonPath("$[0].updatedAt").doesNotExist();
+        webTestClient.get().uri("/api/todos/priority/HIGH?fields=owner").exchange().expectStatus().isBadRequest();
+
+        verify(todoService, times(1)).getTodosByPriority("HIGH", ScrollPosition.keyset(), Limit.of(100),
+                Sort.unsorted(), TodoFields.SUMMARY);
+    }
+
+    @Test
+    @DisplayName("should export todos as newline-delimited JSON")
+    void testExportTodos() throws Exception {
+        // Arrange
+        Todo other = Todo.builder().id("2").title("Other Todo").priority("HIGH").build();
+        when(todoService.exportTodos(null, "HIGH")).thenReturn(Stream.of(testTodo, other));
+
+        // Act
+        String body = webTestClient.get().uri("/api/todos/export?priority=HIGH")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        // Assert
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], Todo.class).getId()).isEqualTo("1");
+        assertThat(objectMapper.readValue(lines[1], Todo.class).getTitle()).isEqualTo("Other Todo");
+        verify(todoService, times(1)).exportTodos(null, "HIGH");
+    }
+
+    @Test
+    @DisplayName("should gzip the export when the client accepts it")
+    void testExportTodosGzip() throws Exception {
+        // Arrange
+        when(todoService.exportTodos(true, null)).thenReturn(Stream.of(testTodo));
+
+        // Act
+        byte[] body = webTestClient.get().uri("/api/todos/export?completed=true")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        // Assert
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(ndjson).endsWith("\n");
+            assertThat(objectMapper.readValue(ndjson.trim(), Todo.class).getId()).isEqualTo("1");
+        }
+    }
+
+    @Test
+    @DisplayName("should not gzip the export when the client refuses it with a zero q-value")
+    void testExportTodosGzipRefused() throws Exception {
+        // Arrange
+        when(todoService.exportTodos(null, null)).thenAnswer(invocation -> Stream.of(testTodo));
+
+        // Act & Assert
+        for (String acceptEncoding : List.of("gzip;q=0", "deflate, GZIP ; q=0.000", "*;q=0", "br, *;q=0.5, gzip;q=0")) {
+            String body = webTestClient.get().uri("/api/todos/export")
+                    .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                    .expectBody(String.class).returnResult().getResponseBody();
+            assertThat(objectMapper.readValue(body.trim(), Todo.class).getId()).isEqualTo("1");
+        }
+        webTestClient.get().uri("/api/todos/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br, *;q=0.5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+
+    @Test
+    @DisplayName("should return todo by ID with 200 status")
+    void testGetTodoById() {
+        // Arrange
+        when(todoService.getTodoById("1")).thenReturn(Optional.of(testTodo));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.title").isEqualTo("Test Todo")
+                .jsonPath("$.description").isEqualTo("Test Description");
+
+        verify(todoService, times(1)).getTodoById("1");
+    }
+
+    @Test
+    @DisplayName("should answer a conditional get of an unchanged todo with 304 without reading it")
+    void testGetTodoByIdNotModified() {
+        // Arrange
+        testTodo.setVersion(3);
+        when(todoService.getTodoById("1")).thenReturn(Optional.of(testTodo));
+        when(todoService.getTodoVersion("1")).thenReturn(Optional.of(3L));
+
+        // Act
+        String etag = webTestClient.get().uri("/api/todos/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .returnResult(String.class).getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/api/todos/1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+        webTestClient.get().uri("/api/todos/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1");
+
+        // Assert
+        verify(todoService, times(2)).getTodoById("1");
+        verify(todoService, times(2)).getTodoVersion("1");
+    }
+
+    @Test
+    @DisplayName("should return 404 when todo not found")
+    void testGetTodoByIdNotFound() {
+        // Arrange
+        when(todoService.getTodoById("999")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/999")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(todoService, times(1)).getTodoById("999");
+    }
+
+    @Test
+    @DisplayName("should return health check with 200 status")
+    void testHealthCheck() {
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/health")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Todo App is running!");
+    }
+
+    @Test
+    @DisplayName("should return the index reconciliation report")
+    void testGetIndexReport() {
+        // Arrange
+        TodoIndexReport report = TodoIndexReport.builder()
+                .status(TodoIndexReport.Status.DRIFT)
+                .created(List.of("updatedAt"))
+                .unexpected(List.of("title_1"))
+                .build();
+        when(todoService.getIndexReport()).thenReturn(report);
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/indexes")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("DRIFT")
+                .jsonPath("$.created[0]").isEqualTo("updatedAt")
+                .jsonPath("$.unexpected[0]").isEqualTo("title_1");
+
+        verify(todoService, never()).getTodoById(any());
+    }
+
+    @Test
+    @DisplayName("should return the schema migration report")
+    void testGetMigrationReport() {
+        // Arrange
+        when(todoService.getMigrationReport()).thenReturn(TodoMigrationReport.builder()
+                .status(TodoMigrationReport.Status.DONE).migrated(42).passes(1).build());
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/migration")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("DONE")
+                .jsonPath("$.migrated").isEqualTo(42);
+
+        verify(todoService, never()).getTodoById(any());
+    }
+
+    @Test
+    @DisplayName("should read the change journal from a sequence on")
+    void testGetJournal() {
+        // Arrange
+        when(todoService.getJournal(7L, 2)).thenReturn(List.of(TodoJournalRecord.builder()
+                .sequence(7).type(TodoJournalRecord.Type.DELETED).ids(List.of("1")).build()));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/journal?from=7&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].sequence").isEqualTo(7)
+                .jsonPath("$[0].type").isEqualTo("DELETED");
+    }
+
+    @Test
+    @DisplayName("should return the todos changed and deleted since the sync token")
+    void testGetChanges() {
+        // Arrange
+        when(todoService.getChanges("token", 2)).thenReturn(TodoChanges.builder()
+                .todos(List.of(testTodo)).deleted(List.of("9")).next("next").hasMore(true).build());
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/changes?since=token&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.todos").value(hasSize(1))
+                .jsonPath("$.deleted[0]").isEqualTo("9")
+                .jsonPath("$.next").isEqualTo("next")
+                .jsonPath("$.hasMore").isEqualTo(true)
+                .jsonPath("$.reset").isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("should return 400 for a sync token the service did not issue")
+    void testGetChangesInvalidToken() {
+        // Arrange
+        when(todoService.getChanges(eq("bogus"), anyInt()))
+                .thenThrow(new IllegalArgumentException("Invalid sync token"));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/changes?since=bogus")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("should return analytics for the requested days")
+    void testGetAnalytics() {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(todoService.getAnalytics(from, to)).thenReturn(TodoAnalytics.builder()
+                .from(from).to(to).total(new TodoAnalytics.Counts(12, 7)).build());
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/analytics?from=2024-01-01&to=2024-01-31")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.from").isEqualTo("2024-01-01")
+                .jsonPath("$.total.created").isEqualTo(12)
+                .jsonPath("$.total.completed").isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("should default analytics to the last 30 days")
+    void testGetAnalyticsDefaultRange() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        when(todoService.getAnalytics(any(), any())).thenReturn(new TodoAnalytics());
+
+        // Act
+        webTestClient.get().uri("/api/todos/analytics").exchange().expectStatus().isOk();
+
+        // Assert
+        verify(todoService).getAnalytics(today.minusDays(29), today);
+    }
+
+    @Test
+    @DisplayName("should reject inverted or overlong analytics ranges")
+    void testGetAnalyticsInvalidRange() {
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/analytics?from=2024-02-01&to=2024-01-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/todos/analytics?from=2022-12-31&to=2024-01-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/todos/analytics?from=yesterday")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(todoService, never()).getAnalytics(any(), any());
+    }
+
+    // ==================== POST Tests ====================
+
+    @Test
+    @DisplayName("should create a new todo and return 201 status")
+    void testCreateTodo() {
+        // Arrange
+        Todo newTodo = Todo.builder()
+                .title("New Todo")
+                .description("New Description")
+                .priority("MEDIUM")
+                .build();
+
+        Todo createdTodo = Todo.builder()
+                .id("2")
+                .title("New Todo")
+                .description("New Description")
+                .priority("MEDIUM")
+                .completed(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        when(todoService.createTodo(any(Todo.class))).thenReturn(createdTodo);
+
+        // Act & Assert
+        webTestClient.post().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newTodo)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("2")
+                .jsonPath("$.title").isEqualTo("New Todo")
+                .jsonPath("$.completed").isEqualTo(false);
+
+        verify(todoService, times(1)).createTodo(any(Todo.class));
+    }
+
+    @Test
+    @DisplayName("should return 400 when creating todo with null title")
+    void testCreateTodoWithInvalidData() {
+        // Arrange
+        Todo invalidTodo = Todo.builder()
+                .description("Missing title")
+                .build();
+        when(todoService.createTodo(any(Todo.class))).thenReturn(invalidTodo);
+
+        // Act & Assert
+        webTestClient.post().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(invalidTodo)
+                .exchange()
+                .expectStatus().isCreated(); // Spring still creates it but allows null
+
+        verify(todoService, times(1)).createTodo(any(Todo.class));
+    }
+
+    // ==================== PUT Tests ====================
+
+    @Test
+    @DisplayName("should update a todo and return 200 status")
+    void testUpdateTodo() {
+        // Arrange
+        Todo updateData = Todo.builder()
+                .title("Updated Title")
+                .description("Updated Description")
+                .priority("LOW")
+                .completed(true)
+                .build();
+
+        Todo updatedTodo = Todo.builder()
+                .id("1")
+                .title("Updated Title")
+                .description("Updated Description")
+                .priority("LOW")
+                .completed(true)
+                .createdAt(testTodo.getCreatedAt())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        when(todoService.updateTodo(eq("1"), any(Todo.class))).thenReturn(Optional.of(updatedTodo));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updateData)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.title").isEqualTo("Updated Title")
+                .jsonPath("$.priority").isEqualTo("LOW")
+                .jsonPath("$.completed").isEqualTo(true);
+
+        verify(todoService, times(1)).updateTodo(eq("1"), any(Todo.class));
+    }
+
+    @Test
+    @DisplayName("should return 404 when updating non-existent todo")
+    void testUpdateTodoNotFound() {
+        // Arrange
+        when(todoService.updateTodo(eq("999"), any(Todo.class))).thenReturn(Optional.empty());
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(testTodo)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(todoService, times(1)).updateTodo(eq("999"), any(Todo.class));
+    }
+
+    @Test
+    @DisplayName("should update todo only at the version named by If-Match")
+    void testUpdateTodoIfMatch() {
+        // Arrange
+        Todo updatedTodo = Todo.builder().id("1").title("Updated Title").version(4).build();
+        when(todoService.updateTodo(eq("1"), any(Todo.class), eq(List.of(3L)))).thenReturn(Optional.of(updatedTodo));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedTodo)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"")
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(4);
+
+        verify(todoService, never()).updateTodo(any(), any());
+    }
+
+    @Test
+    @DisplayName("should return 412 when the todo was changed since the If-Match version")
+    void testUpdateTodoIfMatchConflict() {
+        // Arrange
+        when(todoService.updateTodo(eq("1"), any(Todo.class), any()))
+                .thenThrow(new OptimisticLockingFailureException("Todo 1 is not at version [3]"));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(testTodo)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    @DisplayName("should match no version for weak or foreign If-Match tags and any version for *")
+    void testUpdateTodoIfMatchTags() {
+        // Arrange
+        when(todoService.updateTodo(eq("1"), any(Todo.class))).thenReturn(Optional.of(testTodo));
+        when(todoService.updateTodo(eq("1"), any(Todo.class), any())).thenReturn(Optional.of(testTodo));
+
+        // Act
+        webTestClient.put().uri("/api/todos/1")
+                .header(HttpHeaders.IF_MATCH, "W/\"3\", \"abc\", \"5\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(testTodo)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.put().uri("/api/todos/1")
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(testTodo)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.put().uri("/api/todos/1")
+                .header(HttpHeaders.IF_MATCH, "5")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(testTodo)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // Assert
+        verify(todoService).updateTodo(eq("1"), any(Todo.class), eq(List.of(5L)));
+        verify(todoService).updateTodo(eq("1"), any(Todo.class));
+    }
+
+    @Test
+    @DisplayName("should mark todo as completed")
+    void testMarkAsCompleted() {
+        // Arrange
+        testTodo.setCompleted(true);
+        when(todoService.markAsCompleted("1")).thenReturn(Optional.of(testTodo));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1/complete")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.completed").isEqualTo(true);
+
+        verify(todoService, times(1)).markAsCompleted("1");
+    }
+
+    @Test
+    @DisplayName("should mark todo as incomplete")
+    void testMarkAsIncomplete() {
+        // Arrange
+        testTodo.setCompleted(false);
+        when(todoService.markAsIncomplete("1")).thenReturn(Optional.of(testTodo));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1/incomplete")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.completed").isEqualTo(false);
+
+        verify(todoService, times(1)).markAsIncomplete("1");
+    }
+
+    @Test
+    @DisplayName("should return 404 when marking non-existent todo as completed")
+    void testMarkAsCompletedNotFound() {
+        // Arrange
+        when(todoService.markAsCompleted("999")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/999/complete")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(todoService, times(1)).markAsCompleted("999");
+    }
+
+    @Test
+    @DisplayName("should accept a completion without waiting for it when asked to respond async")
+    void testMarkAsCompletedRespondAsync() {
+        // Arrange
+        when(todoService.isWriteBehind()).thenReturn(true);
+        when(todoService.queueCompletion("1", true)).thenReturn(new CompletableFuture<>());
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1/complete")
+                .header("Prefer", "respond-async")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().valueEquals(HttpHeaders.LOCATION, "/api/todos/1")
+                .expectHeader().valueEquals("Preference-Applied", "respond-async");
+
+        verify(todoService, never()).markAsCompleted(any());
+    }
+
+    @Test
+    @DisplayName("should wait for the write when write-behind is disabled, whatever the preference")
+    void testMarkAsIncompleteRespondAsyncIgnored() {
+        // Arrange
+        testTodo.setCompleted(false);
+        when(todoService.markAsIncomplete("1")).thenReturn(Optional.of(testTodo));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1/incomplete")
+                .header("Prefer", "respond-async")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.completed").isEqualTo(false);
+
+        verify(todoService, never()).queueCompletion(any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("should return 503 with Retry-After when the write queue is full")
+    void testWriteQueueFull() {
+        // Arrange
+        when(todoService.isWriteBehind()).thenReturn(true);
+        when(todoService.queueUpdate(eq("1"), any(Todo.class))).thenThrow(new TaskRejectedException("full"));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1")
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(testTodo)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    @DisplayName("should return 503 with Retry-After when a write is shed")
+    void testWriteRejected() {
+        // Arrange
+        when(todoService.markAsIncomplete("1")).thenThrow(new TaskRejectedException("full"));
+
+        // Act & Assert
+        webTestClient.put().uri("/api/todos/1/incomplete")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    @DisplayName("should return 503 with Retry-After for a filtered listing while todos are migrated")
+    void testSchemaMigrating() {
+        // Arrange
+        when(todoService.getTodosByStatus(eq(true), any(), any(), any(), any()))
+                .thenThrow(new TransientDataAccessResourceException("migrating"));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/status/true")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    @DisplayName("should toggle todo completion")
+    void testToggleCompleted() {
+        // Arrange
+        testTodo.setCompleted(true);
+        when(todoService.toggleCompleted("1")).thenReturn(Optional.of(testTodo));
+
+        // Act & Assert
+        webTestClient.patch().uri("/api/todos/1/toggle")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.completed").isEqualTo(true);
+
+        verify(todoService, times(1)).toggleCompleted("1");
+    }
+
+    @Test
+    @DisplayName("should return 404 when toggling non-existent todo")
+    void testToggleCompletedNotFound() {
+        // Arrange
+        when(todoService.toggleCompleted("999")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        webTestClient.patch().uri("/api/todos/999/toggle")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    // ==================== Batch Tests ====================
+
+    @Test
+    @DisplayName("should execute a batch and return a result per operation")
+    void testExecuteBatch() {
+        // Arrange
+        TodoBatchRequest batch = TodoBatchRequest.builder()
+                .ordered(false)
+                .operations(List.of(
+                        TodoOperation.builder().type(TodoOperation.Type.CREATE).todo(Todo.builder().title("New").build()).build(),
+                        TodoOperation.builder().type(TodoOperation.Type.COMPLETE).id("1").build(),
+                        TodoOperation.builder().type(TodoOperation.Type.DELETE).id("999").build()))
+                .build();
+        when(todoService.executeBatch(any(TodoBatchRequest.class))).thenReturn(List.of(
+                TodoOperationResult.builder().index(0).type(TodoOperation.Type.CREATE).id("2")
+                        .status(TodoOperationResult.Status.CREATED).build(),
+                TodoOperationResult.builder().index(1).type(TodoOperation.Type.COMPLETE).id("1")
+                        .status(TodoOperationResult.Status.UPDATED).build(),
+                TodoOperationResult.builder().index(2).type(TodoOperation.Type.DELETE).id("999")
+                        .status(TodoOperationResult.Status.NOT_FOUND).build()));
+
+        // Act & Assert
+        webTestClient.post().uri("/api/todos/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(3))
+                .jsonPath("$[0].status").isEqualTo("CREATED")
+                .jsonPath("$[0].id").isEqualTo("2")
+                .jsonPath("$[1].status").isEqualTo("UPDATED")
+                .jsonPath("$[2].status").isEqualTo("NOT_FOUND");
+
+        verify(todoService, times(1)).executeBatch(argThat(request -> !request.isOrdered()
+                && request.getOperations().size() == 3));
+    }
+
+    @Test
+    @DisplayName("should return 400 for an invalid batch")
+    void testExecuteBatchInvalid() {
+        // Arrange
+        TodoBatchRequest missingId = TodoBatchRequest.builder()
+                .operations(List.of(TodoOperation.builder().type(TodoOperation.Type.DELETE).build()))
+                .build();
+        TodoBatchRequest missingPayload = TodoBatchRequest.builder()
+                .operations(List.of(TodoOperation.builder().type(TodoOperation.Type.UPDATE).id("1").build()))
+                .build();
+
+        // Act & Assert
+        for (TodoBatchRequest batch : List.of(new TodoBatchRequest(), missingId, missingPayload)) {
+            webTestClient.post().uri("/api/todos/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(batch)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+
+        verify(todoService, never()).executeBatch(any());
+    }
+
+    @Test
+    @DisplayName("should update all matching todos and return the modified count")
+    void testUpdateMany() {
+        // Arrange
+        TodoUpdateManyRequest request = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().priority("HIGH").completed(false).build())
+                .completed(true)
+                .build();
+        when(todoService.updateMany(any(TodoUpdateManyRequest.class)))
+                .thenReturn(new TodoUpdateManyResult(42, 42));
+
+        // Act & Assert
+        webTestClient.patch().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.matched").isEqualTo(42)
+                .jsonPath("$.modified").isEqualTo(42);
+
+        verify(todoService, times(1)).updateMany(argThat(r -> "HIGH".equals(r.getFilter().getPriority())
+                && Boolean.TRUE.equals(r.getCompleted())));
+    }
+
+    @Test
+    @DisplayName("should return 400 for an update-many without filter or changes")
+    void testUpdateManyInvalid() {
+        // Arrange
+        TodoUpdateManyRequest noFilter = TodoUpdateManyRequest.builder()
+                .filter(new TodoFilter())
+                .completed(true)
+                .build();
+        TodoUpdateManyRequest noChanges = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().priority("LOW").build())
+                .build();
+
+        // Act & Assert
+        for (TodoUpdateManyRequest request : List.of(noFilter, noChanges)) {
+            webTestClient.patch().uri("/api/todos")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(request)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+
+        verify(todoService, never()).updateMany(any());
+    }
+
+    // ==================== DELETE Tests ====================
+
+    @Test
+    @DisplayName("should delete a todo and return 204 status")
+    void testDeleteTodo() {
+        // Arrange
+        when(todoService.deleteTodo("1")).thenReturn(true);
+
+        // Act & Assert
+        webTestClient.delete().uri("/api/todos/1")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(todoService, times(1)).deleteTodo("1");
+    }
+
+    @Test
+    @DisplayName("should return 404 when deleting non-existent todo")
+    void testDeleteTodoNotFound() {
+        // Arrange
+        when(todoService.deleteTodo("999")).thenReturn(false);
+
+        // Act & Assert
+        webTestClient.delete().uri("/api/todos/999")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(todoService, times(1)).deleteTodo("999");
+    }
+
+    @Test
+    @DisplayName("should delete multiple todos and report the count")
+    void testDeleteTodos() {
+        // Arrange
+        when(todoService.deleteTodos(List.of("1", "2")))
+                .thenReturn(TodoDeleteManyResult.builder().requested(2).deleted(1).build());
+
+        // Act & Assert
+        webTestClient.delete().uri("/api/todos?ids=1&ids=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.requested").isEqualTo(2)
+                .jsonPath("$.deleted").isEqualTo(1);
+
+        verify(todoService, times(1)).deleteTodos(List.of("1", "2"));
+    }
+
+    @Test
+    @DisplayName("should return 404 when none of the todos exist")
+    void testDeleteTodosNotFound() {
+        // Arrange
+        when(todoService.deleteTodos(List.of("998", "999")))
+                .thenReturn(TodoDeleteManyResult.builder().requested(2).deleted(0).build());
+
+        // Act & Assert
+        webTestClient.delete().uri("/api/todos?ids=998,999")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.deleted").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should return 400 when no ids are given")
+    void testDeleteTodosWithoutIds() {
+        // Act & Assert
+        webTestClient.delete().uri("/api/todos")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(todoService, never()).deleteTodos(any());
+    }
+
+    // ==================== Filter Tests ====================
+
+    @Test
+    @DisplayName("should return todos filtered by completion status")
+    void testGetTodosByStatus() {
+        // Arrange
+        when(todoService.getTodosByStatus(eq(true), any(), any(), any(), any()))
+                .thenReturn(window(List.of(Todo.builder().id("1").title("Todo 1").completed(true).build())));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/status/true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].completed").isEqualTo(true);
+
+        verify(todoService, times(1)).getTodosByStatus(eq(true), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should return todos filtered by priority")
+    void testGetTodosByPriority() {
+        // Arrange
+        when(todoService.getTodosByPriority(eq("HIGH"), any(), any(), any(), any()))
+                .thenReturn(window(List.of(Todo.builder().id("1").title("Todo 1").priority("HIGH").build())));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/priority/HIGH")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].priority").isEqualTo("HIGH");
+
+        verify(todoService, times(1)).getTodosByPriority(eq("HIGH"), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should search todos by title")
+    void testSearchTodosByTitle() {
+        // Arrange
+        when(todoService.searchTodos(eq("Buy"), any(), any()))
+                .thenReturn(window(List.of(Todo.builder().id("1").title("Buy Groceries").build())));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/search/Buy")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].title").isEqualTo("Buy Groceries");
+
+        verify(todoService, times(1)).searchTodos(eq("Buy"), any(), any());
+    }
+
+    @Test
+    @DisplayName("should answer quick search with typo-tolerant matches")
+    void testQuickSearch() {
+        // Arrange
+        when(todoService.quickSearch(eq("grocereis"), any(), any()))
+                .thenReturn(window(List.of(Todo.builder().id("1").title("Buy Groceries").build())));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/search?q=grocereis&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].title").isEqualTo("Buy Groceries");
+
+        verify(todoService, times(1)).quickSearch("grocereis", ScrollPosition.offset(), Limit.of(5));
+    }
+
+    @Test
+    @DisplayName("should change the quick search ETag when a listed todo is updated")
+    void testQuickSearchNotModifiedAfterUpdate() {
+        // Arrange: answered from the in-memory index, as the service does once it is built
+        TodoSearchIndex searchIndex = new TodoSearchIndex(mock(TodoRepository.class), new SimpleMeterRegistry(),
+                false, Runnable::run);
+        when(todoService.quickSearch(any(), any(), any())).thenAnswer(invocation -> searchIndex.search(
+                invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        testTodo.setVersion(1);
+        searchIndex.onChange(TodoChangeEvent.saved(List.of(testTodo)));
+        String etag = webTestClient.get().uri("/api/todos/search?q=test")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+
+        // Act
+        Todo updated = Todo.builder().id("1").title("Test Todo").description("Edited").version(2).build();
+        searchIndex.onChange(TodoChangeEvent.saved(List.of(updated)));
+
+        // Assert
+        String next = webTestClient.get().uri("/api/todos/search?q=test")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].version").isEqualTo(2)
+                .jsonPath("$[0].description").isEqualTo("Edited")
+                .returnResult().getResponseHeaders().getETag();
+        assertThat(next).isNotNull().isNotEqualTo(etag);
+    }
+
+    @Test
+    @DisplayName("should page ranked search results by offset cursor")
+    void testSearchTodosNextCursor() {
+        // Arrange
+        when(todoService.searchTodos(eq("Buy"), any(), any()))
+                .thenReturn(Window.from(List.of(testTodo), index -> ScrollPosition.offset(index + 1), true));
+
+        // Act
+        String cursor = webTestClient.get().uri("/api/todos/search/Buy?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(TodoController.NEXT_CURSOR_HEADER)
+                .returnResult(String.class).getResponseHeaders().getFirst(TodoController.NEXT_CURSOR_HEADER);
+
+        webTestClient.get().uri(builder -> builder.path("/api/todos/search/Buy")
+                        .queryParam("limit", 1).queryParam("cursor", cursor).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        // Assert
+        verify(todoService).searchTodos("Buy", ScrollPosition.offset(), Limit.of(1));
+        verify(todoService).searchTodos("Buy", ScrollPosition.offset(1), Limit.of(1));
+    }
+
+    @Test
+    @DisplayName("should reject a keyset cursor for ranked search")
+    void testSearchTodosWithKeysetCursor() {
+        // Arrange
+        when(todoService.getAllTodos(any(), any(), any(), any())).thenReturn(Window.from(List.of(testTodo),
+                index -> ScrollPosition.forward(Map.of("id", "1")), true));
+        String cursor = webTestClient.get().uri("/api/todos?limit=1")
+                .exchange()
+                .returnResult(String.class).getResponseHeaders().getFirst(TodoController.NEXT_CURSOR_HEADER);
+
+        // Act & Assert
+        webTestClient.get().uri(builder -> builder.path("/api/todos/search/Buy").queryParam("cursor", cursor).build())
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(todoService, never()).searchTodos(any(), any(), any());
+    }
+
+    // ==================== Edge Cases ====================
+
+    @Test
+    @DisplayName("should handle special characters in title")
+    void testSearchWithSpecialCharacters() {
+        // Arrange
+        when(todoService.searchTodos(eq("@"), any(), any()))
+                .thenReturn(window(List.of(Todo.builder().id("1").title("Test @ #123").build())));
+
+        // Act & Assert
+        webTestClient.get().uri("/api/todos/search/@")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1));
+
+        verify(todoService, times(1)).searchTodos(eq("@"), any(), any());
+    }
+
+    @Test
+    @DisplayName("should handle large payloads")
+    void testCreateTodoWithLargeDescription() {
+        // Arrange
+        String largeDescription = "x".repeat(5000);
+        Todo todoWithLargeDescription = Todo.builder()
+                .title("Large Description Todo")
+                .description(largeDescription)
+                .priority("MEDIUM")
+                .build();
+
+        Todo createdTodo = Todo.builder()
+                .id("3")
+                .title("Large Description Todo")
+                .description(largeDescription)
+                .priority("MEDIUM")
+                .completed(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        when(todoService.createTodo(any(Todo.class))).thenReturn(createdTodo);
+
+        // Act & Assert
+        webTestClient.post().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(todoWithLargeDescription)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.description").isEqualTo(largeDescription);
+
+        verify(todoService, times(1)).createTodo(any(Todo.class));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.TodoRestoreResult;
+import com.example.todoapp.service.TodoJournalRestore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoJournalEndpoint Unit Tests")
+class TodoJournalEndpointTest {
+
+    @Mock
+    private TodoJournalRestore todoJournalRestore;
+
+    private TodoJournalEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        endpoint = new TodoJournalEndpoint(todoJournalRestore);
+    }
+
+    @Test
+    @DisplayName("should restore the todos to a point in time from the journal")
+    void testRestore() {
+        // Arrange
+        LocalDateTime at = LocalDateTime.of(2024, 1, 15, 12, 0);
+        TodoRestoreResult result = TodoRestoreResult.builder().at(at).sequence(41).restored(12).deleted(3).build();
+        when(todoJournalRestore.restore(at)).thenReturn(result);
+
+        // Act
+        WebEndpointResponse<Object> response = endpoint.restore("2024-01-15T12:00:00");
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(result);
+    }
+
+    @Test
+    @DisplayName("should return 409 when the journal cannot restore the point in time")
+    void testRestoreConflict() {
+        // Arrange
+        when(todoJournalRestore.restore(any()))
+                .thenThrow(new IllegalStateException("The todo journal has no complete snapshot"));
+
+        // Act
+        WebEndpointResponse<Object> response = endpoint.restore("2024-01-15T12:00:00");
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getBody()).hasToString("{message=The todo journal has no complete snapshot}");
+    }
+
+    @Test
+    @DisplayName("should reject a time that is not an ISO local date-time")
+    void testRestoreInvalidTime() {
+        assertThatThrownBy(() -> endpoint.restore("yesterday")).isInstanceOf(InvalidEndpointRequestException.class);
+        verifyNoInteractions(todoJournalRestore);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.todoapp.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: requests are scheduled at a fixed rate whether or not earlier
+ * ones have completed, and each runs on its own virtual thread.
+ * <p>
+ * Latency is measured from the time a request was scheduled to be sent, not from when it was
+ * actually sent. When the target stalls, the requests that should have gone out meanwhile
+ * are charged the time they spent waiting, which is the correction for coordinated omission.
+ * The uncorrected service time is recorded alongside for comparison.
+ */
+final class LoadGenerator {
+
+    /**
+     * Sends one request, returning whether it succeeded
+     */
+    @FunctionalInterface
+    interface Target {
+        boolean send(Operation operation) throws Exception;
+    }
+
+    record Settings(double rate, Duration warmUp, Duration duration, int maxInFlight) {
+    }
+
+    private final Settings settings;
+
+    LoadGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Drive the mix at the target for the warm-up and measured periods; only requests
+     * scheduled in the measured period are recorded
+     */
+    LoadReport run(TrafficMix mix, Target target) throws InterruptedException {
+        Histogram latency = new ConcurrentHistogram(3);
+        Histogram serviceTime = new ConcurrentHistogram(3);
+        Map<Operation, Histogram> byOperation = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> failures = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            byOperation.put(operation, new ConcurrentHistogram(3));
+            failures.put(operation, new AtomicLong());
+        }
+        AtomicLong lastCompletion = new AtomicLong();
+        Semaphore inFlight = new Semaphore(settings.maxInFlight());
+
+        long interval = (long) (1_000_000_000L / settings.rate());
+        long start = System.nanoTime();
+        long measuredFrom = start + settings.warmUp().toNanos();
+        long end = measuredFrom + settings.duration().toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long intended = start; intended < end; intended += interval) {
+                long delay;
+                while ((delay = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                Operation operation = mix.pick(ThreadLocalRandom.current());
+                // past the cap the schedule falls behind, but latency still counts from the
+                // intended time, so the backlog shows up in the results
+                inFlight.acquire();
+                long scheduled = intended;
+                executor.execute(() -> {
+                    long sent = System.nanoTime();
+                    boolean succeeded;
+                    try {
+                        succeeded = target.send(operation);
+                    } catch (Exception e) {
+                        succeeded = false;
+                    } finally {
+                        inFlight.release();
+                    }
+                    long done = System.nanoTime();
+                    if (scheduled < measuredFrom) {
+                        return;
+                    }
+                    lastCompletion.accumulateAndGet(done, Math::max);
+                    if (succeeded) {
+                        latency.recordValue(done - scheduled);
+                        serviceTime.recordValue(done - sent);
+                        byOperation.get(operation).recordValue(done - scheduled);
+                    } else {
+                        failures.get(operation).incrementAndGet();
+                    }
+                });
+            }
+        }
+        byOperation.values().removeIf(histogram -> histogram.getTotalCount() == 0);
+        Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        failures.forEach((operation, count) -> {
+            if (count.get() > 0) {
+                errors.put(operation, count.get());
+            }
+        });
+        Duration elapsed = Duration.ofNanos(Math.max(lastCompletion.get(), end) - measuredFrom);
+        return new LoadReport(mix, settings.rate(), elapsed, latency, serviceTime, byOperation, errors);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.todoapp.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LoadGenerator Unit Tests")
+class LoadGeneratorTest {
+
+    // ==================== Scheduling Tests ====================
+
+    @Test
+    @DisplayName("should charge requests held back by a stall with the time they waited")
+    void testCorrectsCoordinatedOmission() throws Exception {
+        // Arrange: one request at a time, so a stall holds back everything scheduled behind it
+        LoadGenerator generator = new LoadGenerator(
+                new LoadGenerator.Settings(1000, Duration.ZERO, Duration.ofSeconds(1), 1));
+        AtomicInteger sent = new AtomicInteger();
+
+        // Act
+        LoadReport report = generator.run(TrafficMix.READ_HEAVY, operation -> {
+            if (sent.incrementAndGet() == 100) {
+                Thread.sleep(300);
+            }
+            return true;
+        });
+
+        // Assert: about 300 requests were due during the stall, waiting up to 300 ms each
+        assertThat(report.errors()).isZero();
+        assertThat(report.latency().getMaxValue()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(250));
+        assertThat(report.latency().getValueAtPercentile(90)).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(report.serviceTime().getValueAtPercentile(90)).isLessThan(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    @DisplayName("should count failed requests as errors and leave them out of the latencies")
+    void testCountsErrors() throws Exception {
+        // Arrange
+        LoadGenerator generator = new LoadGenerator(
+                new LoadGenerator.Settings(500, Duration.ZERO, Duration.ofMillis(400), 100));
+
+        // Act
+        LoadReport report = generator.run(TrafficMix.WRITE_HEAVY, operation -> {
+            if (operation == Operation.DELETE) {
+                throw new IllegalStateException("Delete failed");
+            }
+            return operation != Operation.TOGGLE;
+        });
+
+        // Assert
+        assertThat(report.errors()).isPositive();
+        assertThat(report.completed() + report.errors()).isEqualTo(200);
+        assertThat(report.byOperation()).doesNotContainKeys(Operation.DELETE, Operation.TOGGLE);
+        assertThat(report.errorsByOperation()).containsOnlyKeys(Operation.DELETE, Operation.TOGGLE);
+    }
+
+    @Test
+    @DisplayName("should leave requests scheduled during the warm-up out of the report")
+    void testWarmUpNotRecorded() throws Exception {
+        // Arrange
+        LoadGenerator generator = new LoadGenerator(
+                new LoadGenerator.Settings(1000, Duration.ofMillis(200), Duration.ofMillis(100), 100));
+        AtomicInteger sent = new AtomicInteger();
+
+        // Act
+        LoadReport report = generator.run(TrafficMix.SEARCH_HEAVY, operation -> sent.incrementAndGet() > 0);
+
+        // Assert
+        assertThat(sent.get()).isEqualTo(300);
+        assertThat(report.completed()).isEqualTo(100);
+    }
+
+    // ==================== Traffic Mix Tests ====================
+
+    @Test
+    @DisplayName("should pick operations in proportion to their weights")
+    void testMixWeights() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(42);
+        int[] picks = new int[Operation.values().length];
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            picks[TrafficMix.READ_HEAVY.pick(random).ordinal()]++;
+        }
+
+        // Assert
+        assertThat(picks[Operation.GET_BY_ID.ordinal()]).isBetween(49_000, 51_000);
+        assertThat(picks[Operation.LIST.ordinal()]).isBetween(14_000, 16_000);
+        assertThat(picks[Operation.TEXT_SEARCH.ordinal()]).isZero();
+        assertThat(picks[Operation.DELETE.ordinal()]).isZero();
+    }
+
+    @Test
+    @DisplayName("should parse mix names as given on the command line")
+    void testParseMix() {
+        // Act & Assert
+        assertThat(TrafficMix.parse("read-heavy")).isEqualTo(TrafficMix.READ_HEAVY);
+        assertThat(TrafficMix.parse(" Search-Heavy ")).isEqualTo(TrafficMix.SEARCH_HEAVY);
+        assertThat(TrafficMix.WRITE_HEAVY).hasToString("write-heavy");
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.todoapp.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Throughput and latency distribution of one load run. Histograms hold nanoseconds and are
+ * reported in milliseconds.
+ */
+record LoadReport(TrafficMix mix, double offeredRate, Duration elapsed, Histogram latency, Histogram serviceTime,
+                  Map<Operation, Histogram> byOperation, Map<Operation, Long> errorsByOperation) {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final Histogram EMPTY = new Histogram(3);
+
+    long completed() {
+        return latency.getTotalCount();
+    }
+
+    long errors() {
+        return errorsByOperation.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    double throughput() {
+        return completed() * 1_000_000_000.0 / elapsed.toNanos();
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%s: offered %.0f req/s, achieved %.0f req/s, %d completed, %d errors%n",
+                mix, offeredRate, throughput(), completed(), errors());
+        out.printf("%-22s %9s %9s %9s %9s %9s %9s %9s%n",
+                "", "count", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "mean ms", "errors");
+        row(out, "latency (corrected)", latency, errors());
+        row(out, "service time", serviceTime, errors());
+        Set<Operation> operations = EnumSet.noneOf(Operation.class);
+        operations.addAll(byOperation.keySet());
+        operations.addAll(errorsByOperation.keySet());
+        for (Operation operation : operations) {
+            row(out, "  " + operation, byOperation.getOrDefault(operation, EMPTY),
+                    errorsByOperation.getOrDefault(operation, 0L));
+        }
+    }
+
+    /**
+     * Write the corrected latency distribution in HdrHistogram's percentile format, which the
+     * HdrHistogram plotter reads
+     */
+    void writeDistribution(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private static void row(PrintStream out, String label, Histogram histogram, long errors) {
+        out.printf("%-22s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %9d%n", label, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                histogram.getMaxValue() / NANOS_PER_MILLI,
+                histogram.getMean() / NANOS_PER_MILLI,
+                errors);
+    }
+}
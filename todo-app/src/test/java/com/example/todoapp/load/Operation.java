@@ -0,0 +1,18 @@
+package com.example.todoapp.load;
+
+/**
+ * Requests the load generator sends, one per {@link com.example.todoapp.controller.TodoController}
+ * endpoint exercised
+ */
+enum Operation {
+    GET_BY_ID,
+    LIST,
+    BY_STATUS,
+    BY_PRIORITY,
+    QUICK_SEARCH,
+    TEXT_SEARCH,
+    CREATE,
+    UPDATE,
+    TOGGLE,
+    DELETE
+}
@@ -0,0 +1,150 @@
+package com.example.todoapp.load;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Sends each {@link Operation} to the running application's REST API
+ */
+final class TodoApiTarget implements LoadGenerator.Target, AutoCloseable {
+
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "HIGH"};
+
+    private static final String[] WORDS = {"groceries", "report", "dentist", "invoice", "garden", "meeting",
+            "laundry", "birthday", "taxes", "holiday"};
+
+    private static final int SEED_BATCH = 1000;
+
+    private static final TypeReference<List<TodoOperationResult>> RESULTS = new TypeReference<>() {
+    };
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final ObjectMapper objectMapper;
+
+    private final String baseUri;
+
+    private final List<String> seededIds = new ArrayList<>();
+
+    /**
+     * Todos created by the run, which are the only ones it deletes
+     */
+    private final Queue<String> createdIds = new ConcurrentLinkedQueue<>();
+
+    TodoApiTarget(ObjectMapper objectMapper, int port) {
+        this.objectMapper = objectMapper;
+        this.baseUri = "http://localhost:" + port + "/api/todos";
+    }
+
+    /**
+     * Create todos through the batch endpoint, so the caches and the search index see them
+     */
+    void seed(int count) throws IOException, InterruptedException {
+        for (int from = 0; from < count; from += SEED_BATCH) {
+            List<TodoOperation> operations = IntStream.range(from, Math.min(from + SEED_BATCH, count))
+                    .mapToObj(i -> TodoOperation.builder().type(TodoOperation.Type.CREATE).todo(todo(i)).build())
+                    .toList();
+            HttpResponse<byte[]> response = client.send(json("/batch", "POST",
+                            TodoBatchRequest.builder().ordered(false).operations(operations).build()),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+            }
+            objectMapper.readValue(response.body(), RESULTS).forEach(result -> seededIds.add(result.getId()));
+        }
+    }
+
+    @Override
+    public boolean send(Operation operation) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest request = switch (operation) {
+            case GET_BY_ID -> get("/" + seededId(random));
+            case LIST -> get("?limit=20");
+            case BY_STATUS -> get("/status/" + random.nextBoolean() + "?limit=20");
+            case BY_PRIORITY -> get("/priority/" + PRIORITIES[random.nextInt(PRIORITIES.length)] + "?limit=20");
+            case QUICK_SEARCH -> get("/search?limit=20&q=" + typo(WORDS[random.nextInt(WORDS.length)], random));
+            case TEXT_SEARCH -> get("/search/" + WORDS[random.nextInt(WORDS.length)] + "?limit=20");
+            case CREATE -> json("", "POST", todo(random.nextInt(1_000_000)));
+            case UPDATE -> json("/" + seededId(random), "PUT", Todo.builder()
+                    .title("Updated " + WORDS[random.nextInt(WORDS.length)])
+                    .priority(PRIORITIES[random.nextInt(PRIORITIES.length)])
+                    .build());
+            case TOGGLE -> HttpRequest.newBuilder(URI.create(baseUri + "/" + seededId(random) + "/toggle"))
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            case DELETE -> {
+                String id = createdIds.poll();
+                yield id == null ? json("", "POST", todo(random.nextInt(1_000_000)))
+                        : HttpRequest.newBuilder(URI.create(baseUri + "/" + id)).DELETE().build();
+            }
+        };
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        boolean succeeded = response.statusCode() / 100 == 2;
+        if (succeeded && request.method().equals("POST")) {
+            createdIds.add(objectMapper.readValue(response.body(), Todo.class).getId());
+        }
+        return succeeded;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private String seededId(ThreadLocalRandom random) {
+        return seededIds.get(random.nextInt(seededIds.size()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path)).timeout(Duration.ofMinutes(1)).GET().build();
+    }
+
+    private HttpRequest json(String path, String method, Object body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(Duration.ofMinutes(1))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private static Todo todo(int i) {
+        return Todo.builder()
+                .title("Todo " + i + " " + WORDS[i % WORDS.length])
+                .description("Load test todo about " + WORDS[(i / WORDS.length) % WORDS.length])
+                .priority(PRIORITIES[i % PRIORITIES.length])
+                .build();
+    }
+
+    /**
+     * Swap two adjacent letters, as quick search is meant to forgive
+     */
+    private static String typo(String word, ThreadLocalRandom random) {
+        int at = random.nextInt(word.length() - 1);
+        char[] letters = word.toCharArray();
+        char swapped = letters[at];
+        letters[at] = letters[at + 1];
+        letters[at + 1] = swapped;
+        return new String(letters);
+    }
+}
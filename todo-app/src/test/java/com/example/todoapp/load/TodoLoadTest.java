@@ -0,0 +1,95 @@
+package com.example.todoapp.load;
+
+import com.example.todoapp.TodoAppApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load test: starts the application on a random port, seeds it with todos and
+ * drives one or more traffic mixes at a fixed request rate, reporting throughput and latency
+ * percentiles. MongoDB is an in-process stand-in unless {@code load.mongo-uri} points at a
+ * real server; the stand-in has no text index, so text search needs a real one.
+ * <p>
+ * Skipped unless enabled:
+ * <pre>
+ * mvn test -Dtest=TodoLoadTest -Dload=true -Dload.mix=read-heavy,write-heavy,search-heavy -Dload.rate=500
+ * </pre>
+ * Other settings: {@code load.todos} (10000), {@code load.warm-up} (PT10S),
+ * {@code load.duration} (PT60S), {@code load.max-in-flight} (10000) and {@code load.profiles},
+ * e.g. {@code virtual}. The corrected latency distribution of every mix is written to
+ * {@code target/load/<mix>.hgrm}.
+ */
+@EnabledIfSystemProperty(named = "load", matches = "true")
+@DisplayName("HTTP load test")
+class TodoLoadTest {
+
+    private static final String DATABASE = "todo_load";
+
+    @Test
+    @DisplayName("should sustain the configured traffic mixes")
+    void runTrafficMixes() throws Exception {
+        List<TrafficMix> mixes = Stream.of(System.getProperty("load.mix", "read-heavy").split(","))
+                .map(TrafficMix::parse)
+                .toList();
+        LoadGenerator generator = new LoadGenerator(new LoadGenerator.Settings(
+                Double.parseDouble(System.getProperty("load.rate", "500")),
+                Duration.parse(System.getProperty("load.warm-up", "PT10S")),
+                Duration.parse(System.getProperty("load.duration", "PT60S")),
+                Integer.getInteger("load.max-in-flight", 10_000)));
+
+        String mongoUri = System.getProperty("load.mongo-uri");
+        MongoServer standIn = null;
+        if (mongoUri == null) {
+            standIn = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = standIn.bind();
+            mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort() + "/" + DATABASE;
+        }
+        try (ConfigurableApplicationContext context = start(mongoUri);
+             TodoApiTarget target = new TodoApiTarget(context.getBean(ObjectMapper.class),
+                     ((WebServerApplicationContext) context).getWebServer().getPort())) {
+            target.seed(Integer.getInteger("load.todos", 10_000));
+            for (TrafficMix mix : mixes) {
+                LoadReport report = generator.run(mix, target);
+                report.print(System.out);
+                report.writeDistribution(Path.of("target", "load", mix + ".hgrm"));
+                assertThat(report.completed()).isPositive();
+            }
+        } finally {
+            if (standIn != null) {
+                standIn.shutdownNow();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String mongoUri) {
+        List<String> profiles = new ArrayList<>(List.of("test"));
+        String extraProfiles = System.getProperty("load.profiles", "");
+        if (!extraProfiles.isBlank()) {
+            profiles.addAll(List.of(extraProfiles.split(",")));
+        }
+        return new SpringApplicationBuilder(TodoAppApplication.class)
+                .profiles(profiles.toArray(String[]::new))
+                .properties(
+                        "server.port=0",
+                        "spring.data.mongodb.uri=" + mongoUri,
+                        "spring.data.mongodb.database=" + DATABASE,
+                        "logging.level.com.example.todoapp=INFO")
+                .run();
+    }
+}
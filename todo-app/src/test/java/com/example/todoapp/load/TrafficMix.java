@@ -0,0 +1,55 @@
+package com.example.todoapp.load;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+import static com.example.todoapp.load.Operation.*;
+
+/**
+ * Weighted mixes of operations, picked at random for every request
+ */
+enum TrafficMix {
+    READ_HEAVY(Map.of(GET_BY_ID, 50, LIST, 15, BY_STATUS, 10, BY_PRIORITY, 10, QUICK_SEARCH, 5,
+            UPDATE, 5, CREATE, 5)),
+    WRITE_HEAVY(Map.of(CREATE, 30, UPDATE, 25, TOGGLE, 20, DELETE, 10, GET_BY_ID, 15)),
+    SEARCH_HEAVY(Map.of(QUICK_SEARCH, 50, TEXT_SEARCH, 25, GET_BY_ID, 15, CREATE, 5, UPDATE, 5));
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    TrafficMix(Map<Operation, Integer> weights) {
+        Map<Operation, Integer> ordered = new EnumMap<>(weights);
+        operations = ordered.keySet().toArray(Operation[]::new);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += ordered.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Parse a mix name as given on the command line, e.g. {@code read-heavy}
+     */
+    static TrafficMix parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    Operation pick(RandomGenerator random) {
+        int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Weights out of range");
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
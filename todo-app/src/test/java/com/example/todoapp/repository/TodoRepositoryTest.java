@@ -1,20 +1,80 @@
 package com.example.todoapp.repository;
 
 import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.config.MongoMappingConfiguration;
+import com.example.todoapp.model.TodoIndexReport;
+import com.example.todoapp.model.TodoMigrationReport;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoRollup;
+import com.example.todoapp.model.TodoTombstone;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.service.TodoChangeEvent;
+import com.example.todoapp.service.TodoJournal;
+import com.example.todoapp.service.TodoJournalRestore;
+import com.example.todoapp.service.TodoSync;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Updates;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 @DataMongoTest
+@Import({TodoLegacySchema.class, MongoMappingConfiguration.class})
 @ActiveProfiles("test")
 @DisplayName("TodoRepository Integration Tests")
 class TodoRepositoryTest {
@@ -22,6 +82,15 @@ class TodoRepositoryTest {
     @Autowired
     private TodoRepository todoRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TodoLegacySchema legacySchema;
+
+    @Autowired
+    private CommandRecorder commands;
+
     private Todo todo1;
     private Todo todo2;
     private Todo todo3;
@@ -30,6 +99,8 @@ class TodoRepositoryTest {
     void setUp() {
         // Clear the repository before each test
         todoRepository.deleteAll();
+        // only the legacy schema tests below run before the migration has finished
+        legacySchema.markMigrated();
 
         // Create test data
         todo1 = Todo.builder()
@@ -60,6 +131,13 @@ class TodoRepositoryTest {
                 .build();
     }
 
+    @AfterEach
+    void tearDown() {
+        // Leave the shared test database empty for the other test classes
+        todoRepository.deleteAll();
+        mongoTemplate.dropCollection(TodoSchemaMigration.CHECKPOINTS);
+    }
+
     // ==================== Standard CRUD Tests ====================
 
     @Test
@@ -376,6 +454,1139 @@ class TodoRepositoryTest {
         assertThat(highPriority).containsExactly(todo1);
     }
 
+    // ==================== Keyset Paging Tests ====================
+
+    @Test
+    @DisplayName("should page through all todos with keyset positions")
+    void testFindAllByKeyset() {
+        // Arrange
+        todo1.setCreatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
+        todo2.setCreatedAt(LocalDateTime.of(2024, 1, 2, 10, 0));
+        todo3.setCreatedAt(LocalDateTime.of(2024, 1, 3, 10, 0));
+        todoRepository.save(todo1);
+        todoRepository.save(todo2);
+        todoRepository.save(todo3);
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdAt");
+
+        // Act
+        Window<Todo> first = todoRepository.findAllBy(ScrollPosition.keyset(), Limit.of(2), sort, TodoFields.ALL);
+        Window<Todo> second = todoRepository.findAllBy(first.positionAt(first.size() - 1), Limit.of(2), sort,
+                TodoFields.ALL);
+
+        // Assert
+        assertThat(first.getContent()).extracting(Todo::getTitle).containsExactly("Buy Groceries", "Review Code");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting(Todo::getTitle).containsExactly("Complete Project");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should page through todos filtered by completion status")
+    void testFindByCompletedKeyset() {
+        // Arrange
+        todoRepository.save(todo1); // false
+        todoRepository.save(todo2); // true
+        todoRepository.save(todo3); // false
+
+        // Act
+        Window<Todo> first = todoRepository.findByCompleted(false, ScrollPosition.keyset(), Limit.of(1), Sort.unsorted(),
+                TodoFields.ALL);
+        Window<Todo> second = todoRepository.findByCompleted(false, first.positionAt(0), Limit.of(1), Sort.unsorted(),
+                TodoFields.ALL);
+
+        // Assert
+        assertThat(first.getContent()).extracting(Todo::getId).containsExactly(todo1.getId());
+        assertThat(second.getContent()).extracting(Todo::getId).containsExactly(todo3.getId());
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should read only the requested fields while paging by an unrequested sort key")
+    void testFindByPriorityProjected() {
+        // Arrange
+        todo1.setPriority("LOW");
+        todo1.setCreatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
+        todo3.setCreatedAt(LocalDateTime.of(2024, 1, 3, 10, 0));
+        todoRepository.save(todo1);
+        todoRepository.save(todo2);
+        todoRepository.save(todo3);
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdAt");
+
+        // Act
+        Window<Todo> first = todoRepository.findByPriority("LOW", ScrollPosition.keyset(), Limit.of(1), sort,
+                TodoFields.SUMMARY);
+        Window<Todo> second = todoRepository.findByPriority("LOW", first.positionAt(0), Limit.of(1), sort,
+                TodoFields.SUMMARY);
+
+        // Assert
+        assertThat(first.getContent()).extracting(Todo::getTitle).containsExactly("Buy Groceries");
+        assertThat(second.getContent()).extracting(Todo::getTitle).containsExactly("Complete Project");
+        assertThat(second.getContent().get(0).getPriority()).isEqualTo("LOW");
+        assertThat(second.getContent().get(0).getDescription()).isNull();
+        assertThat(second.getContent().get(0).getUpdatedAt()).isNull();
+    }
+
+    // ==================== Streaming Tests ====================
+
+    @Test
+    @DisplayName("should stream all todos in id order")
+    void testStreamAll() {
+        // Arrange
+        todoRepository.save(todo1);
+        todoRepository.save(todo2);
+        todoRepository.save(todo3);
+
+        // Act
+        List<String> ids;
+        try (Stream<Todo> todos = todoRepository.streamBy(null, null)) {
+            ids = todos.map(Todo::getId).toList();
+        }
+
+        // Assert
+        assertThat(ids).containsExactly(todo1.getId(), todo2.getId(), todo3.getId());
+    }
+
+    @Test
+    @DisplayName("should stream todos filtered by status and priority")
+    void testStreamFiltered() {
+        // Arrange
+        todo3.setPriority("HIGH");
+        todoRepository.save(todo1); // false, HIGH
+        todoRepository.save(todo2); // true, MEDIUM
+        todoRepository.save(todo3); // false, HIGH
+
+        // Act
+        List<String> ids;
+        try (Stream<Todo> todos = todoRepository.streamBy(false, "HIGH")) {
+            ids = todos.map(Todo::getId).toList();
+        }
+
+        // Assert
+        assertThat(ids).containsExactly(todo1.getId(), todo3.getId());
+    }
+
+    // ==================== Bulk Write Tests ====================
+
+    @Test
+    @DisplayName("should apply mixed operations in one bulk write")
+    void testBulkWrite() {
+        // Arrange
+        todoRepository.save(todo1);
+        todoRepository.save(todo2);
+        List<TodoOperation> operations = List.of(
+                TodoOperation.builder().type(TodoOperation.Type.CREATE).todo(todo3).build(),
+                TodoOperation.builder().type(TodoOperation.Type.UPDATE).id(todo1.getId())
+                        .todo(Todo.builder().title("Renamed").completed(true).build()).build(),
+                TodoOperation.builder().type(TodoOperation.Type.DELETE).id(todo2.getId()).build(),
+                TodoOperation.builder().type(TodoOperation.Type.COMPLETE).id("6500000000000000000000ff").build());
+
+        // Act
+        List<TodoOperationResult> results = todoRepository.bulkWrite(operations, true);
+
+        // Assert
+        assertThat(results).extracting(TodoOperationResult::getStatus).containsExactly(
+                TodoOperationResult.Status.CREATED,
+                TodoOperationResult.Status.UPDATED,
+                TodoOperationResult.Status.DELETED,
+                TodoOperationResult.Status.NOT_FOUND);
+        assertThat(results.get(0).getId()).isNotNull();
+        assertThat(todoRepository.findById(results.get(0).getId())).isPresent();
+        Todo updated = todoRepository.findById(todo1.getId()).orElseThrow();
+        assertThat(updated.getTitle()).isEqualTo("Renamed");
+        assertThat(updated.getDescription()).isEqualTo("Finish Spring Boot project");
+        assertThat(updated.isCompleted()).isTrue();
+        assertThat(todoRepository.existsById(todo2.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("should skip the rest of an ordered bulk write after a failure")
+    void testBulkWriteOrderedFailure() {
+        // Arrange
+        todoRepository.save(todo1);
+        Todo duplicate = Todo.builder().id(todo1.getId()).title("Duplicate").build();
+        List<TodoOperation> operations = List.of(
+                TodoOperation.builder().type(TodoOperation.Type.CREATE).todo(duplicate).build(),
+                TodoOperation.builder().type(TodoOperation.Type.COMPLETE).id(todo1.getId()).build());
+
+        // Act
+        List<TodoOperationResult> results = todoRepository.bulkWrite(operations, true);
+
+        // Assert
+        assertThat(results).extracting(TodoOperationResult::getStatus).containsExactly(
+                TodoOperationResult.Status.FAILED,
+                TodoOperationResult.Status.SKIPPED);
+        assertThat(results.get(0).getError()).isNotBlank();
+        assertThat(todoRepository.findById(todo1.getId()).orElseThrow().isCompleted()).isFalse();
+    }
+
+    // ==================== Update Many Tests ====================
+
+    @Test
+    @DisplayName("should complete every todo matching the filter")
+    void testUpdateManyCompletes() {
+        // Arrange
+        todo3.setPriority("HIGH");
+        todoRepository.save(todo1); // false, HIGH
+        todoRepository.save(todo2); // true, MEDIUM
+        todoRepository.save(todo3); // false, HIGH
+
+        // Act
+        TodoUpdateManyResult result = todoRepository.updateMany(
+                TodoFilter.builder().priority("HIGH").build(), true, null, LocalDateTime.now());
+
+        // Assert
+        assertThat(result.getModified()).isEqualTo(2);
+        assertThat(todoRepository.findByCompleted(true)).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("should only touch todos whose values change")
+    void testUpdateManySkipsUnchanged() {
+        // Arrange
+        todo1.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        todo2.setCreatedAt(LocalDateTime.of(2024, 2, 1, 0, 0));
+        todo3.setCreatedAt(LocalDateTime.of(2024, 3, 1, 0, 0));
+        todoRepository.save(todo1); // HIGH
+        todoRepository.save(todo2); // MEDIUM
+        todoRepository.save(todo3); // LOW
+        TodoFilter filter = TodoFilter.builder()
+                .createdFrom(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .createdTo(LocalDateTime.of(2024, 3, 1, 0, 0))
+                .build();
+
+        // Act
+        TodoUpdateManyResult result = todoRepository.updateMany(filter, null, "MEDIUM", LocalDateTime.now());
+
+        // Assert
+        assertThat(result.getMatched()).isEqualTo(1);
+        assertThat(result.getModified()).isEqualTo(1);
+        assertThat(todoRepository.findByPriority("MEDIUM")).extracting(Todo::getId)
+                .containsExactlyInAnyOrder(todo1.getId(), todo2.getId());
+        assertThat(todoRepository.findById(todo3.getId()).orElseThrow().getPriority()).isEqualTo("LOW");
+    }
+
+    @Test
+    @DisplayName("should record when a mass update completed each todo")
+    void testUpdateManySetsCompletedAt() {
+        // Arrange
+        LocalDateTime completedAt = LocalDateTime.of(2024, 1, 10, 0, 0);
+        todo2.setCompletedAt(completedAt);
+        todoRepository.save(todo1); // false
+        todoRepository.save(todo2); // true, completed earlier
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        // Act
+        todoRepository.updateMany(TodoFilter.builder().build(), true, null, now);
+
+        // Assert
+        assertThat(todoRepository.findById(todo1.getId()).orElseThrow().getCompletedAt()).isEqualTo(now);
+        assertThat(todoRepository.findById(todo2.getId()).orElseThrow().getCompletedAt()).isEqualTo(completedAt);
+    }
+
+    // ==================== Atomic Update Tests ====================
+
+    @Test
+    @DisplayName("should update only non-null fields and return the post-image")
+    void testFindAndUpdatePartial() {
+        // Arrange
+        LocalDateTime originalTime = LocalDateTime.now().minusHours(1);
+        todo1.setUpdatedAt(originalTime);
+        todoRepository.save(todo1);
+        Todo details = Todo.builder().title("Updated Title").completed(true).build();
+
+        // Act
+        Optional<Todo> result = todoRepository.findAndUpdate(todo1.getId(), details);
+
+        // Assert
+        assertThat(result).isPresent();
+        assertThat(result.get().getTitle()).isEqualTo("Updated Title");
+        assertThat(result.get().getDescription()).isEqualTo("Finish Spring Boot project");
+        assertThat(result.get().getPriority()).isEqualTo("HIGH");
+        assertThat(result.get().isCompleted()).isTrue();
+        assertThat(result.get().getUpdatedAt()).isAfter(originalTime);
+        assertThat(todoRepository.findById(todo1.getId()).orElseThrow().getTitle()).isEqualTo("Updated Title");
+    }
+
+    @Test
+    @DisplayName("should bump the version with every write and read it back from the version index")
+    void testWritesBumpVersion() {
+        // Arrange
+        todoRepository.save(todo1);
+        new TodoIndexManager(mongoTemplate, true, Runnable::run).reconcile();
+
+        // Act
+        Todo updated = todoRepository.findAndUpdate(todo1.getId(), Todo.builder().title("Updated").build())
+                .orElseThrow();
+        Todo completed = todoRepository.findAndSetCompleted(todo1.getId(), true).orElseThrow();
+        todoRepository.updateMany(TodoFilter.builder().completed(true).build(), null, "LOW", LocalDateTime.now());
+
+        // Assert
+        assertThat(updated.getVersion()).isEqualTo(1);
+        assertThat(completed.getVersion()).isEqualTo(2);
+        assertThat(todoRepository.findVersion(todo1.getId())).contains(3L);
+        assertThat(todoRepository.findVersion("6500000000000000000000ff")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should return empty Optional when atomically updating a missing todo")
+    void testFindAndUpdateNotFound() {
+        // Act & Assert
+        assertThat(todoRepository.findAndSetCompleted("6500000000000000000000ff", true)).isEmpty();
+        assertThat(todoRepository.findAndToggleCompleted("6500000000000000000000ff")).isEmpty();
+        assertThat(todoRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("should set and toggle completion atomically")
+    void testFindAndSetAndToggleCompleted() {
+        // Arrange
+        todoRepository.save(todo1); // false
+
+        // Act & Assert
+        assertThat(todoRepository.findAndSetCompleted(todo1.getId(), true).orElseThrow().isCompleted()).isTrue();
+        assertThat(todoRepository.findAndToggleCompleted(todo1.getId()).orElseThrow().isCompleted()).isFalse();
+        assertThat(todoRepository.findAndToggleCompleted(todo1.getId()).orElseThrow().isCompleted()).isTrue();
+        assertThat(todoRepository.findById(todo1.getId()).orElseThrow().isCompleted()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should keep the first completion time and clear it when reopened")
+    void testFindAndSetCompletedTracksCompletedAt() {
+        // Arrange
+        todoRepository.save(todo1); // false
+
+        // Act
+        Todo completed = todoRepository.findAndSetCompleted(todo1.getId(), true).orElseThrow();
+        Todo completedAgain = todoRepository.findAndSetCompleted(todo1.getId(), true).orElseThrow();
+        Todo reopened = todoRepository.findAndSetCompleted(todo1.getId(), false).orElseThrow();
+
+        // Assert
+        assertThat(completed.getCompletedAt()).isNotNull().isEqualTo(completed.getUpdatedAt());
+        assertThat(completedAgain.getCompletedAt()).isEqualTo(completed.getCompletedAt());
+        assertThat(completedAgain.getUpdatedAt()).isAfterOrEqualTo(completed.getUpdatedAt());
+        assertThat(reopened.getCompletedAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("should not lose toggles under concurrent writers")
+    void testConcurrentTogglesLoseNoUpdates() throws Exception {
+        // Arrange
+        todoRepository.save(todo1); // false
+        int toggles = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < toggles; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return todoRepository.findAndToggleCompleted(todo1.getId()).orElseThrow().isCompleted();
+            }));
+        }
+        start.countDown();
+        long completedImages = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                completedImages++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert: every toggle observed its own state transition, so half the post-images are completed
+        assertThat(completedImages).isEqualTo(toggles / 2);
+        assertThat(todoRepository.findById(todo1.getId()).orElseThrow().isCompleted()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should apply a versioned update only at the expected version")
+    void testFindAndUpdateAtVersion() {
+        // Arrange
+        todoRepository.save(todo1); // version 0
+        Todo details = Todo.builder().title("Updated").build();
+
+        // Act
+        Optional<Todo> first = todoRepository.findAndUpdate(todo1.getId(), List.of(0L), details);
+        Optional<Todo> stale = todoRepository.findAndUpdate(todo1.getId(), List.of(0L), details);
+        Optional<Todo> either = todoRepository.findAndUpdate(todo1.getId(), List.of(0L, 1L), details);
+
+        // Assert
+        assertThat(first).map(Todo::getVersion).contains(1L);
+        assertThat(stale).isEmpty();
+        assertThat(either).map(Todo::getVersion).contains(2L);
+        assertThat(todoRepository.findAndUpdate("6500000000000000000000ff", List.of(0L), details)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should treat a todo stored without a version as version 0")
+    void testFindAndUpdateUnversioned() {
+        // Arrange
+        todoRepository.save(todo1);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(todo1.getId())),
+                new Update().unset("version"), Todo.class);
+
+        // Act
+        Optional<Todo> updated = todoRepository.findAndUpdate(todo1.getId(), List.of(0L),
+                Todo.builder().title("Updated").build());
+
+        // Assert
+        assertThat(updated).map(Todo::getVersion).contains(1L);
+    }
+
+    @Test
+    @DisplayName("should let exactly one of concurrent writers at the same version win")
+    void testConcurrentVersionedUpdatesOneWins() throws Exception {
+        // Arrange
+        todoRepository.save(todo1); // version 0
+        int writers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            String title = "Writer " + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return todoRepository.findAndUpdate(todo1.getId(), List.of(0L),
+                        Todo.builder().title(title).build()).isPresent();
+            }));
+        }
+        start.countDown();
+        int applied = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                applied++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(applied).isEqualTo(1);
+        assertThat(todoRepository.findById(todo1.getId()).orElseThrow().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not clobber concurrent updates to different fields")
+    void testConcurrentFieldUpdatesDoNotClobber() throws Exception {
+        // Arrange
+        todoRepository.save(todo1); // false, HIGH
+        int rounds = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        Future<?> titles = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < rounds; i++) {
+                Todo details = Todo.builder().title("Title " + i).completed(true).build();
+                todoRepository.findAndUpdate(todo1.getId(), details);
+            }
+            return null;
+        });
+        Future<?> priorities = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < rounds; i++) {
+                Todo details = Todo.builder().priority(i % 2 == 0 ? "LOW" : "MEDIUM").completed(true).build();
+                todoRepository.findAndUpdate(todo1.getId(), details);
+            }
+            return null;
+        });
+        start.countDown();
+        titles.get(30, TimeUnit.SECONDS);
+        priorities.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert: each writer's last value survives, regardless of interleaving
+        Todo result = todoRepository.findById(todo1.getId()).orElseThrow();
+        assertThat(result.getTitle()).isEqualTo("Title " + (rounds - 1));
+        assertThat(result.getPriority()).isEqualTo("MEDIUM");
+        assertThat(result.getDescription()).isEqualTo("Finish Spring Boot project");
+    }
+
+    // ==================== Rollup Tests ====================
+
+    @Test
+    @DisplayName("should backfill rollups from creation and completion days")
+    void testRollupBackfill() {
+        // Arrange
+        TodoRollupRepository rollups = new TodoRollupRepository(mongoTemplate, legacySchema);
+        mongoTemplate.remove(new Query(), TodoRollup.class);
+        LocalDateTime monday = LocalDateTime.of(2024, 1, 15, 9, 0);
+        LocalDateTime tuesday = LocalDateTime.of(2024, 1, 16, 9, 0);
+        todo1.setCreatedAt(monday); // false, HIGH
+        todo2.setCreatedAt(monday); // true, MEDIUM, completed before completedAt was recorded
+        todo2.setUpdatedAt(tuesday);
+        todo3.setCreatedAt(tuesday);
+        todo3.setPriority("HIGH");
+        todo3.setCompleted(true);
+        todo3.setCompletedAt(tuesday);
+        todoRepository.saveAll(List.of(todo1, todo2, todo3));
+
+        // Act
+        long written = rollups.backfill();
+
+        // Assert
+        assertThat(written).isEqualTo(4);
+        assertThat(rollups.findBetween(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 16)))
+                .extracting(TodoRollup::getId, TodoRollup::getCreated, TodoRollup::getCompleted)
+                .containsExactly(
+                        tuple("2024-01-15/HIGH", 1L, 0L),
+                        tuple("2024-01-15/MEDIUM", 1L, 0L),
+                        tuple("2024-01-16/HIGH", 1L, 1L),
+                        tuple("2024-01-16/MEDIUM", 0L, 1L));
+        assertThat(rollups.findBetween(LocalDate.of(2024, 1, 16), LocalDate.of(2024, 1, 16))).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("should add increments to existing rollups and create missing ones")
+    void testRollupIncrement() {
+        // Arrange
+        TodoRollupRepository rollups = new TodoRollupRepository(mongoTemplate, legacySchema);
+        mongoTemplate.remove(new Query(), TodoRollup.class);
+        TodoRollup delta = TodoRollup.builder().id("2024-01-15/HIGH").day("2024-01-15").priority("HIGH")
+                .created(2).completed(1).build();
+
+        // Act
+        rollups.increment(List.of(delta));
+        rollups.increment(List.of(delta));
+
+        // Assert
+        assertThat(rollups.isEmpty()).isFalse();
+        assertThat(rollups.findBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .extracting(TodoRollup::getDay, TodoRollup::getPriority, TodoRollup::getCreated,
+                        TodoRollup::getCompleted)
+                .containsExactly(tuple("2024-01-15", "HIGH", 4L, 2L));
+    }
+
+    // ==================== Delta Sync Tests ====================
+
+    @Test
+    @DisplayName("should page through changed todos by updatedAt, resuming after the last id")
+    void testFindChangedSince() {
+        // Arrange
+        LocalDateTime before = LocalDateTime.of(2024, 1, 15, 9, 0);
+        LocalDateTime at = before.plusMinutes(1);
+        todo1.setUpdatedAt(before);
+        todo2.setUpdatedAt(at);
+        todo3.setUpdatedAt(at);
+        todoRepository.saveAll(List.of(todo1, todo2, todo3));
+        List<String> sameTime = Stream.of(todo2.getId(), todo3.getId()).sorted().toList();
+
+        // Act
+        List<Todo> all = todoRepository.findChangedSince(null, null, 10);
+        List<Todo> since = todoRepository.findChangedSince(at, null, 1);
+        List<Todo> after = todoRepository.findChangedSince(at, since.get(0).getId(), 10);
+
+        // Assert
+        assertThat(all).extracting(Todo::getId).containsExactly(todo1.getId(), sameTime.get(0), sameTime.get(1));
+        assertThat(since).extracting(Todo::getId).containsExactly(sameTime.get(0));
+        assertThat(after).extracting(Todo::getId).containsExactly(sameTime.get(1));
+    }
+
+    @Test
+    @DisplayName("should record tombstones once per id and page through them by deletedAt")
+    void testTombstones() {
+        // Arrange
+        TodoTombstoneRepository tombstones = new TodoTombstoneRepository(mongoTemplate);
+        mongoTemplate.remove(new Query(), TodoTombstone.class);
+        LocalDateTime first = LocalDateTime.of(2024, 1, 15, 9, 0);
+        LocalDateTime second = first.plusMinutes(1);
+
+        // Act
+        tombstones.record(List.of("a", "b"), first);
+        tombstones.record(List.of("b", "c"), second);
+
+        // Assert
+        assertThat(tombstones.findDeletedSince(first, null, 10))
+                .extracting(TodoTombstone::getId, TodoTombstone::getDeletedAt)
+                .containsExactly(tuple("a", first), tuple("b", second), tuple("c", second));
+        assertThat(tombstones.findDeletedSince(second, "b", 10))
+                .extracting(TodoTombstone::getId)
+                .containsExactly("c");
+        mongoTemplate.dropCollection(TodoTombstone.class);
+    }
+
+    @Test
+    @DisplayName("should sync the todos a journal restore removed and reverted to a client that synced before it")
+    void testSyncAcrossRestore(@TempDir Path directory) throws Exception {
+        // Arrange
+        mongoTemplate.remove(new Query(), TodoTombstone.class);
+        TodoSync sync = new TodoSync(todoRepository, new TodoTombstoneRepository(mongoTemplate), Duration.ZERO,
+                Duration.ofDays(30), false, Runnable::run);
+        TodoJournal journal = new TodoJournal(todoRepository, mongoTemplate.getConverter(), new SimpleMeterRegistry(),
+                true, directory.toString(), DataSize.ofKilobytes(64), 8, false, false, Runnable::run);
+        TodoJournalRestore restore = new TodoJournalRestore(journal, mongoTemplate, event -> {
+            journal.onChange((TodoChangeEvent) event);
+            sync.onChange((TodoChangeEvent) event);
+        });
+        journal.start();
+        try {
+            todoRepository.saveAll(List.of(todo1, todo2));
+            journal.snapshot();
+            awaitJournal(journal, 2);
+            Thread.sleep(5);
+            LocalDateTime at = LocalDateTime.now();
+            Thread.sleep(5);
+            todo1.setTitle("Renamed");
+            todo1.setVersion(1);
+            todoRepository.save(todo1);
+            todoRepository.save(todo3);
+            journal.onChange(TodoChangeEvent.saved(List.of(todo1, todo3)));
+            awaitJournal(journal, 3);
+            String token = sync.getChanges(null, 10).getNext();
+            Thread.sleep(5);
+
+            // Act
+            restore.restore(at);
+            TodoChanges changes = sync.getChanges(token, 10);
+
+            // Assert
+            assertThat(changes.isReset()).isFalse();
+            assertThat(changes.getTodos()).extracting(Todo::getId, Todo::getTitle)
+                    .contains(tuple(todo1.getId(), "Complete Project"));
+            assertThat(changes.getDeleted()).containsExactly(todo3.getId());
+        } finally {
+            journal.stop();
+            mongoTemplate.dropCollection(TodoTombstone.class);
+        }
+    }
+
+    @Test
+    @DisplayName("should write restored todos back above the version stored, so stale If-Match no longer matches")
+    void testRestoreBumpsVersion(@TempDir Path directory) throws Exception {
+        // Arrange
+        TodoJournal journal = new TodoJournal(todoRepository, mongoTemplate.getConverter(), new SimpleMeterRegistry(),
+                true, directory.toString(), DataSize.ofKilobytes(64), 8, false, false, Runnable::run);
+        TodoJournalRestore restore = new TodoJournalRestore(journal, mongoTemplate,
+                event -> journal.onChange((TodoChangeEvent) event));
+        journal.start();
+        try {
+            todoRepository.saveAll(List.of(todo1, todo2));
+            journal.snapshot();
+            awaitJournal(journal, 2);
+            Thread.sleep(5);
+            LocalDateTime at = LocalDateTime.now();
+            Thread.sleep(5);
+            todo1.setTitle("Renamed");
+            todo1.setVersion(3);
+            todoRepository.save(todo1);
+            Thread.sleep(5);
+
+            // Act
+            restore.restore(at);
+
+            // Assert
+            assertThat(todoRepository.findById(todo1.getId())).get()
+                    .extracting(Todo::getTitle, Todo::getVersion)
+                    .containsExactly("Complete Project", 4L);
+            assertThat(todoRepository.findById(todo2.getId())).get()
+                    .extracting(Todo::getVersion)
+                    .isEqualTo(todo2.getVersion() + 1);
+        } finally {
+            journal.stop();
+        }
+    }
+
+    private static void awaitJournal(TodoJournal journal, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (journal.getLastSequence() < sequence && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    // ==================== Delete Tests ====================
+
+    @Test
+    @DisplayName("should report the removed count from a single delete")
+    void testRemoveById() {
+        // Arrange
+        todoRepository.save(todo1);
+
+        // Act & Assert
+        assertThat(todoRepository.removeById(todo1.getId())).isEqualTo(1);
+        assertThat(todoRepository.removeById(todo1.getId())).isZero();
+        assertThat(todoRepository.existsById(todo1.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("should remove only existing todos from an id list")
+    void testRemoveByIdIn() {
+        // Arrange
+        todoRepository.saveAll(List.of(todo1, todo2, todo3));
+
+        // Act
+        long removed = todoRepository.removeByIdIn(List.of(todo1.getId(), todo2.getId(), "6500000000000000000000ff"));
+
+        // Assert
+        assertThat(removed).isEqualTo(2);
+        assertThat(todoRepository.findAll()).extracting(Todo::getId).containsExactly(todo3.getId());
+    }
+
+    @Test
+    @DisplayName("should delete in one round trip where exists-then-delete takes two")
+    void testDeleteRoundTrips() {
+        // Arrange
+        List<String> ids = todoRepository.saveAll(List.of(todo1, todo2)).stream().map(Todo::getId).toList();
+        commands.clear();
+
+        // Act
+        if (todoRepository.existsById(ids.get(0))) {
+            todoRepository.deleteById(ids.get(0));
+        }
+        List<String> existsThenDelete = commands.drain();
+        long removed = todoRepository.removeById(ids.get(1));
+        List<String> remove = commands.drain();
+
+        // Assert
+        assertThat(existsThenDelete).hasSize(2).endsWith("delete");
+        assertThat(remove).containsExactly("delete");
+        assertThat(removed).isEqualTo(1);
+        assertThat(todoRepository.count()).isZero();
+    }
+
+    // ==================== Text Search Tests ====================
+
+    @Test
+    @DisplayName("should rank title matches above description matches")
+    void testSearchByTextRanksByScore() {
+        // Arrange
+        new TodoIndexManager(mongoTemplate, true, Runnable::run).reconcile();
+        Todo descriptionMatch = Todo.builder().title("Weekly errands").description("Buy milk").build();
+        Todo titleMatch = Todo.builder().title("Buy milk").description("From the corner shop").build();
+        todoRepository.saveAll(List.of(descriptionMatch, titleMatch, todo1));
+
+        // Act
+        Window<Todo> results = todoRepository.searchByText("milk", ScrollPosition.offset(), Limit.of(10));
+
+        // Assert
+        assertThat(results.getContent()).extracting(Todo::getTitle).containsExactly("Buy milk", "Weekly errands");
+        assertThat(results.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should match stemmed words and page through ranked results")
+    void testSearchByTextPaging() {
+        // Arrange
+        new TodoIndexManager(mongoTemplate, true, Runnable::run).reconcile();
+        todoRepository.saveAll(List.of(
+                Todo.builder().title("Review the reviews").build(),
+                Todo.builder().title("Review code").build(),
+                Todo.builder().title("Reviewing notes").build(),
+                todo3));
+
+        // Act
+        Window<Todo> first = todoRepository.searchByText("reviewed", ScrollPosition.offset(), Limit.of(2));
+        Window<Todo> second = todoRepository.searchByText("reviewed",
+                first.positionAt(first.size() - 1), Limit.of(2));
+
+        // Assert
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.getContent().get(0).getTitle()).isEqualTo("Review the reviews");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(1);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(Stream.concat(first.stream(), second.stream()).map(Todo::getTitle))
+                .containsExactlyInAnyOrder("Review the reviews", "Review code", "Reviewing notes");
+    }
+
+    // ==================== Index Management Tests ====================
+
+    @Test
+    @DisplayName("should build all declared indexes on an unindexed collection")
+    void testIndexManagerCreatesMissingIndexes() {
+        // Arrange
+        mongoTemplate.indexOps(Todo.class).dropAllIndexes();
+        TodoIndexManager manager = new TodoIndexManager(mongoTemplate, true, Runnable::run);
+
+        // Act
+        TodoIndexReport first = manager.reconcile();
+        TodoIndexReport second = manager.reconcile();
+
+        // Assert
+        assertThat(first.getCreated()).containsExactlyInAnyOrder(
+                "c_p_ca", "p_ca", Todo.VERSION_INDEX, Todo.CHANGES_INDEX, "ca",
+                "Todo_TextIndex");
+        assertThat(first.getStatus()).isEqualTo(TodoIndexReport.Status.IN_SYNC);
+        assertThat(manager.hasIndex(Todo.VERSION_INDEX)).isTrue();
+        assertThat(second.getCreated()).isEmpty();
+        assertThat(second.getStatus()).isEqualTo(TodoIndexReport.Status.IN_SYNC);
+        assertThat(manager.getReport()).isSameAs(second);
+        assertThat(mongoTemplate.indexOps(Todo.class).getIndexInfo())
+                .extracting(IndexInfo::getName)
+                .contains("c_p_ca", "p_ca", "ca", Todo.CHANGES_INDEX);
+    }
+
+    @Test
+    @DisplayName("should report missing, mismatched and undeclared indexes as drift")
+    void testIndexManagerReportsDrift() {
+        // Arrange
+        IndexOperations indexOps = mongoTemplate.indexOps(Todo.class);
+        indexOps.dropAllIndexes();
+        indexOps.ensureIndex(new Index().on("ua", Sort.Direction.DESC).named(Todo.CHANGES_INDEX));
+        indexOps.ensureIndex(new Index().on("title", Sort.Direction.ASC).named("title_1"));
+        TodoIndexManager manager = new TodoIndexManager(mongoTemplate, false, Runnable::run);
+
+        // Act
+        TodoIndexReport report = manager.reconcile();
+
+        // Assert
+        assertThat(report.getStatus()).isEqualTo(TodoIndexReport.Status.DRIFT);
+        assertThat(report.getCreated()).isEmpty();
+        assertThat(report.getMissing()).containsExactlyInAnyOrder(
+                "c_p_ca", "p_ca", Todo.VERSION_INDEX, "ca", "Todo_TextIndex");
+        assertThat(report.getMismatched()).containsExactly(Todo.CHANGES_INDEX);
+        assertThat(report.getUnexpected()).containsExactly("title_1");
+        assertThat(manager.hasIndex(Todo.VERSION_INDEX)).isFalse();
+        assertThat(manager.hasIndex(Todo.CHANGES_INDEX)).isFalse();
+
+        // restore the declared indexes for the tests that follow
+        indexOps.dropAllIndexes();
+        new TodoIndexManager(mongoTemplate, true, Runnable::run).reconcile();
+    }
+
+    @Test
+    @DisplayName("should replace the text index on the legacy field names with the declared one")
+    void testIndexManagerReplacesLegacyTextIndex() {
+        // Arrange
+        IndexOperations indexOps = mongoTemplate.indexOps(Todo.class);
+        indexOps.dropAllIndexes();
+        todos().createIndex(Indexes.compoundIndex(Indexes.text("title"), Indexes.text("description")),
+                new IndexOptions().name("Todo_TextIndex"));
+        TodoIndexManager manager = new TodoIndexManager(mongoTemplate, true, Runnable::run);
+
+        // Act
+        TodoIndexReport report = manager.reconcile();
+
+        // Assert
+        assertThat(report.getStatus()).isEqualTo(TodoIndexReport.Status.IN_SYNC);
+        assertThat(report.getDropped()).containsExactly("Todo_TextIndex");
+        assertThat(report.getCreated()).contains("Todo_TextIndex");
+        assertThat(manager.hasIndex("Todo_TextIndex")).isTrue();
+    }
+
+    // ==================== Compact Schema Tests ====================
+
+    @Test
+    @DisplayName("should store todos under short field names with coded priorities and no type hint")
+    void testStoresCompactDocument() {
+        // Act
+        Todo saved = todoRepository.save(todo1);
+
+        // Assert
+        Document stored = todos().find(Filters.eq("_id", new ObjectId(saved.getId()))).first();
+        assertThat(stored).containsOnlyKeys("_id", "t", "d", "c", "ca", "ua", "p", "v");
+        assertThat(stored.get("p")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should page by priority in LOW, MEDIUM, HIGH order")
+    void testFindAllByKeysetSortedByPriority() {
+        // Arrange
+        todoRepository.save(todo1); // HIGH
+        todoRepository.save(todo2); // MEDIUM
+        todoRepository.save(todo3); // LOW
+        Sort sort = Sort.by("priority");
+
+        // Act
+        Window<Todo> first = todoRepository.findAllBy(ScrollPosition.keyset(), Limit.of(2), sort, TodoFields.ALL);
+        Window<Todo> second = todoRepository.findAllBy(first.positionAt(first.size() - 1), Limit.of(2), sort,
+                TodoFields.ALL);
+
+        // Assert
+        assertThat(first.getContent()).extracting(Todo::getPriority).containsExactly("LOW", "MEDIUM");
+        assertThat(second.getContent()).extracting(Todo::getPriority).containsExactly("HIGH");
+    }
+
+    @Test
+    @DisplayName("should read a todo stored in the legacy schema")
+    void testFindLegacyTodo() {
+        // Arrange
+        Document legacy = legacyTodo("Legacy Todo", "HIGH", 2);
+        todos().insertOne(legacy);
+
+        // Act
+        Optional<Todo> found = todoRepository.findById(legacy.getObjectId("_id").toHexString());
+
+        // Assert
+        assertThat(found).isPresent();
+        assertThat(found.get().getTitle()).isEqualTo("Legacy Todo");
+        assertThat(found.get().getPriority()).isEqualTo("HIGH");
+        assertThat(found.get().getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should rewrite a legacy todo before updating it by id")
+    void testFindAndSetCompletedCompactsLegacyTodo() {
+        // Arrange
+        Document legacy = legacyTodo("Legacy Todo", "LOW", 4);
+        todos().insertOne(legacy);
+
+        // Act
+        Optional<Todo> updated = unmigrated().findAndSetCompleted(legacy.getObjectId("_id").toHexString(), true);
+
+        // Assert
+        assertThat(updated).isPresent();
+        assertThat(updated.get().isCompleted()).isTrue();
+        assertThat(updated.get().getVersion()).isEqualTo(5);
+        Document stored = todos().find(Filters.eq("_id", legacy.get("_id"))).first();
+        assertThat(stored).doesNotContainKeys("_class", "title", "completed", "version");
+        assertThat(stored.get("c")).isEqualTo(true);
+        assertThat(stored.get("p")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should update a compact todo by id without rewriting it while the migration runs")
+    void testFindAndSetCompletedSkipsCompactionOfCompactTodo() {
+        // Arrange
+        Todo saved = todoRepository.save(todo1);
+
+        // Act
+        Optional<Todo> updated = unmigrated().findAndSetCompleted(saved.getId(), true);
+        Optional<Todo> missing = unmigrated().findAndSetCompleted(new ObjectId().toHexString(), true);
+
+        // Assert
+        assertThat(updated).isPresent();
+        assertThat(updated.get().isCompleted()).isTrue();
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should rewrite the legacy todos a bulk write targets while finding them")
+    void testBulkWriteCompactsLegacyTodos() {
+        // Arrange
+        Document legacy = legacyTodo("Legacy Todo", "HIGH", 1);
+        todos().insertOne(legacy);
+        String id = legacy.getObjectId("_id").toHexString();
+
+        // Act
+        List<TodoOperationResult> results = unmigrated().bulkWrite(List.of(
+                TodoOperation.builder().type(TodoOperation.Type.COMPLETE).id(id).build(),
+                TodoOperation.builder().type(TodoOperation.Type.DELETE).id(new ObjectId().toHexString()).build()),
+                false);
+
+        // Assert
+        assertThat(results).extracting(TodoOperationResult::getStatus)
+                .containsExactly(TodoOperationResult.Status.UPDATED, TodoOperationResult.Status.NOT_FOUND);
+        Document stored = todos().find(Filters.eq("_id", legacy.get("_id"))).first();
+        assertThat(stored).doesNotContainKeys("_class", "title", "completed", "version");
+        assertThat(stored.get("c")).isEqualTo(true);
+        assertThat(stored.get("v")).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("should refuse queries ordered by or searching stored field names until the migration has finished")
+    void testQueriesOnStoredFieldsWaitForMigration() {
+        // Arrange
+        todoRepository.save(todo1);
+        TodoRepositoryImpl repository = unmigrated();
+
+        // Act & Assert
+        assertThatThrownBy(() -> repository.findByCompleted(false, ScrollPosition.keyset(), Limit.of(10),
+                Sort.by("createdAt"), TodoFields.ALL))
+                .isInstanceOf(TransientDataAccessResourceException.class);
+        assertThatThrownBy(() -> repository.findAllBy(ScrollPosition.keyset(), Limit.of(10), Sort.by("createdAt"),
+                TodoFields.ALL))
+                .isInstanceOf(TransientDataAccessResourceException.class);
+        assertThatThrownBy(() -> repository.searchByText("project", ScrollPosition.offset(), Limit.of(10)))
+                .isInstanceOf(TransientDataAccessResourceException.class);
+        assertThat(repository.findAllBy(ScrollPosition.keyset(), Limit.of(10), Sort.unsorted(), TodoFields.ALL))
+                .hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should filter legacy and compact todos alike while the migration runs")
+    void testFiltersMatchLegacyTodosDuringMigration() {
+        // Arrange
+        todoRepository.saveAll(List.of(todo1, todo2));
+        Document legacy = legacyTodo("Legacy Todo", "HIGH", 1);
+        todos().insertOne(legacy);
+        todos().insertOne(legacyTodo("Legacy Low", "LOW", 1).append("completed", true));
+        TodoRepositoryImpl repository = unmigrated();
+
+        // Act
+        Window<Todo> high = repository.findByPriority("HIGH", ScrollPosition.keyset(), Limit.of(10), Sort.unsorted(),
+                TodoFields.ALL);
+        Window<Todo> incomplete = repository.findByCompleted(false, ScrollPosition.keyset(), Limit.of(10),
+                Sort.unsorted(), TodoFields.ALL);
+        List<Todo> exported;
+        try (Stream<Todo> stream = repository.streamBy(true, null)) {
+            exported = stream.toList();
+        }
+
+        // Assert
+        assertThat(high).extracting(Todo::getTitle).containsExactlyInAnyOrder("Complete Project", "Legacy Todo");
+        assertThat(incomplete).extracting(Todo::getTitle).containsExactlyInAnyOrder("Complete Project", "Legacy Todo");
+        assertThat(exported).extracting(Todo::getTitle).containsExactlyInAnyOrder("Review Code", "Legacy Low");
+        assertThat(todos().find(Filters.eq("_id", legacy.get("_id"))).first()).containsKey("_class");
+    }
+
+    @Test
+    @DisplayName("should rewrite the legacy todos a mass update selects before updating them")
+    void testUpdateManyCompactsLegacyTodos() {
+        // Arrange
+        todoRepository.save(todo1);
+        Document legacy = legacyTodo("Legacy Todo", "HIGH", 4);
+        Document other = legacyTodo("Legacy Low", "LOW", 1);
+        todos().insertMany(List.of(legacy, other));
+        TodoRepositoryImpl repository = unmigrated();
+
+        // Act
+        TodoUpdateManyResult result = repository.updateMany(TodoFilter.builder().priority("HIGH").build(), true,
+                null, LocalDateTime.now());
+
+        // Assert
+        assertThat(result.getMatched()).isEqualTo(2);
+        Document stored = todos().find(Filters.eq("_id", legacy.get("_id"))).first();
+        assertThat(stored).doesNotContainKeys("_class", "completed", "version");
+        assertThat(stored.get("c")).isEqualTo(true);
+        assertThat(stored.get("v")).isEqualTo(5L);
+        assertThat(todos().find(Filters.eq("_id", other.get("_id"))).first()).containsKey("_class");
+    }
+
+    @Test
+    @DisplayName("should rewrite the legacy todos on a page of changes before reading it")
+    void testChangedSinceCompactsLegacyTodos() {
+        // Arrange
+        todo1.setUpdatedAt(LocalDateTime.now().minusDays(2));
+        todoRepository.save(todo1);
+        Document older = legacyTodo("Older", "LOW", 1)
+                .append("updatedAt", Date.from(Instant.now().minus(Duration.ofDays(3))));
+        Document newer = legacyTodo("Newer", "LOW", 1)
+                .append("updatedAt", Date.from(Instant.now().minus(Duration.ofDays(1))));
+        Document newest = legacyTodo("Newest", "LOW", 1);
+        todos().insertMany(List.of(older, newer, newest));
+        TodoRepositoryImpl repository = unmigrated();
+
+        // Act
+        List<Todo> page = repository.findChangedSince(null, null, 2);
+
+        // Assert
+        assertThat(page).extracting(Todo::getTitle).containsExactly("Older", "Complete Project");
+        assertThat(todos().find(Filters.eq("_id", older.get("_id"))).first()).doesNotContainKey("_class");
+        // no more legacy todos than fit on the page are rewritten
+        assertThat(todos().find(Filters.eq("_id", newest.get("_id"))).first()).containsKey("_class");
+    }
+
+    @Test
+    @DisplayName("should migrate every legacy todo in batches and drop the legacy indexes")
+    void testSchemaMigrationRewritesLegacyTodos() {
+        // Arrange
+        todoRepository.save(todo1);
+        for (int i = 0; i < 5; i++) {
+            todos().insertOne(legacyTodo("Legacy " + i, i == 4 ? "URGENT" : "HIGH", 1));
+        }
+        todos().createIndex(Indexes.ascending("createdAt"), new IndexOptions().name("createdAt"));
+        TodoLegacySchema schema = new TodoLegacySchema(mappingContext());
+        TodoSchemaMigration migration = new TodoSchemaMigration(mongoTemplate, schema,
+                new TodoIndexManager(mongoTemplate, true, Runnable::run), true, 2, Duration.ZERO, Runnable::run);
+
+        // Act
+        TodoMigrationReport report = migration.migrate();
+
+        // Assert
+        assertThat(report.getStatus()).isEqualTo(TodoMigrationReport.Status.DONE);
+        assertThat(report.getMigrated()).isEqualTo(5);
+        assertThat(report.getSkipped()).isZero();
+        assertThat(report.getDroppedIndexes()).containsExactly("createdAt");
+        assertThat(migration.getReport()).isSameAs(report);
+        assertThat(schema.isMigrated()).isTrue();
+        assertThat(todos().countDocuments(schema.legacy())).isZero();
+        assertThat(todos().find(Filters.eq("t", "Legacy 4")).first().get("p")).isEqualTo("URGENT");
+        assertThat(todoRepository.findByPriority("HIGH")).hasSize(5);
+        assertThat(migration.migrate().getStatus()).isEqualTo(TodoMigrationReport.Status.DONE);
+    }
+
+    @Test
+    @DisplayName("should resume the migration after the saved checkpoint")
+    void testSchemaMigrationResumesFromCheckpoint() {
+        // Arrange
+        List<Document> legacy = List.of(legacyTodo("First", "LOW", 1), legacyTodo("Second", "LOW", 1),
+                legacyTodo("Third", "LOW", 1));
+        todos().insertMany(legacy);
+        mongoTemplate.getCollection(TodoSchemaMigration.CHECKPOINTS).insertOne(
+                new Document("_id", TodoSchemaMigration.CHECKPOINT_ID)
+                        .append("after", legacy.get(0).get("_id"))
+                        .append("migrated", 10L));
+        TodoSchemaMigration migration = new TodoSchemaMigration(mongoTemplate, new TodoLegacySchema(mappingContext()),
+                new TodoIndexManager(mongoTemplate, true, Runnable::run), true, 500, Duration.ZERO, Runnable::run);
+
+        // Act
+        TodoMigrationReport report = migration.migrate();
+
+        // Assert
+        assertThat(report.getStatus()).isEqualTo(TodoMigrationReport.Status.DONE);
+        assertThat(report.getMigrated()).isEqualTo(12);
+        assertThat(todos().find(Filters.eq("_id", legacy.get(0).get("_id"))).first()).containsKey("title");
+        assertThat(todos().find(Filters.eq("_id", legacy.get(2).get("_id"))).first()).containsKey("t");
+    }
+
+    @Test
+    @DisplayName("should retry a migration that failed, on startup")
+    void testSchemaMigrationRetriesAfterFailure() {
+        // Arrange
+        MongoTemplate failing = mock(MongoTemplate.class);
+        when(failing.getCollection(TodoSchemaMigration.CHECKPOINTS)).thenThrow(new IllegalStateException("down"));
+        TodoSchemaMigration migration = new TodoSchemaMigration(failing, new TodoLegacySchema(mappingContext()),
+                null, true, 500, Duration.ofMillis(1), Runnable::run);
+
+        // Act
+        migration.migrateOnStartup();
+
+        // Assert
+        verify(failing, timeout(5000).atLeast(3)).getCollection(TodoSchemaMigration.CHECKPOINTS);
+        assertThat(migration.getReport().getStatus()).isEqualTo(TodoMigrationReport.Status.FAILED);
+        assertThat(migration.getReport().getError()).isEqualTo("down");
+    }
+
+    @Test
+    @DisplayName("should not rewrite a legacy todo written since it was read")
+    void testLegacyRewriteSkipsConcurrentWrite() {
+        // Arrange
+        Document legacy = legacyTodo("Legacy Todo", "MEDIUM", 1);
+        todos().insertOne(legacy);
+        Document read = todos().find(Filters.eq("_id", legacy.get("_id"))).first();
+        todos().updateOne(Filters.eq("_id", legacy.get("_id")),
+                Updates.combine(Updates.set("completed", true), Updates.inc("version", 1L)));
+
+        // Act
+        long matched = todos().bulkWrite(List.of(legacySchema.rewrite(read))).getMatchedCount();
+
+        // Assert
+        assertThat(matched).isZero();
+        Document stored = todos().find(Filters.eq("_id", legacy.get("_id"))).first();
+        assertThat(stored.get("completed")).isEqualTo(true);
+        assertThat(stored).doesNotContainKey("c");
+    }
+
+    private MongoCollection<Document> todos() {
+        return mongoTemplate.getCollection(Todo.COLLECTION);
+    }
+
+    /**
+     * The repository as it runs before the schema migration has finished
+     */
+    private TodoRepositoryImpl unmigrated() {
+        return new TodoRepositoryImpl(mongoTemplate, new TodoLegacySchema(mappingContext()));
+    }
+
+    private MongoMappingContext mappingContext() {
+        return (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+    }
+
+    private static Document legacyTodo(String title, String priority, long version) {
+        Date now = new Date();
+        return new Document("_id", new ObjectId())
+                .append("title", title)
+                .append("description", "Stored before the compact schema")
+                .append("completed", false)
+                .append("priority", priority)
+                .append("createdAt", now)
+                .append("updatedAt", now)
+                .append("version", version)
+                .append("_class", Todo.class.getName());
+    }
+
     // ==================== Edge Cases ====================
 
     @Test
@@ -439,4 +1650,44 @@ class TodoRepositoryTest {
         // Assert
         assertThat(count).isEqualTo(3);
     }
+
+    /**
+     * Records the commands the driver sends, to count round trips
+     */
+    static final class CommandRecorder implements CommandListener {
+
+        private final List<String> commands = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            commands.add(event.getCommandName());
+        }
+
+        void clear() {
+            commands.clear();
+        }
+
+        /**
+         * Names of the commands sent since the last drain, in order
+         */
+        List<String> drain() {
+            List<String> sent = List.copyOf(commands);
+            commands.clear();
+            return sent;
+        }
+    }
+
+    @TestConfiguration
+    static class CommandRecording {
+
+        @Bean
+        CommandRecorder commandRecorder() {
+            return new CommandRecorder();
+        }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandRecording(CommandRecorder commandRecorder) {
+            return settings -> settings.addCommandListener(commandRecorder);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TodoCache Unit Tests")
+class TodoCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TodoCache todoCache;
+
+    private List<String> loads;
+
+    private Function<String, Optional<Todo>> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        todoCache = new TodoCache(meterRegistry, 1024 * 1024, Duration.ofMinutes(10), Runnable::run);
+        loads = new ArrayList<>();
+        loader = id -> {
+            loads.add(id);
+            return "404".equals(id) ? Optional.empty() : Optional.of(todo(id, false));
+        };
+    }
+
+    private static Todo todo(String id, boolean completed) {
+        return Todo.builder().id(id).title("Todo " + id).priority("LOW").completed(completed)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0)).build();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", TodoCache.NAME).tag("result", result)
+                .functionCounter().count();
+    }
+
+    // ==================== Read-Through Tests ====================
+
+    @Test
+    @DisplayName("should load a todo once and serve later reads from memory")
+    void testReadThrough() {
+        // Act
+        Optional<Todo> first = todoCache.get("1", loader);
+        Optional<Todo> second = todoCache.get("1", loader);
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(loads).containsExactly("1");
+        assertThat(gets("miss")).isEqualTo(1);
+        assertThat(gets("hit")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should cache lookups of missing todos")
+    void testMissingTodoCached() {
+        // Act
+        todoCache.get("404", loader);
+        Optional<Todo> result = todoCache.get("404", loader);
+
+        // Assert
+        assertThat(result).isEmpty();
+        assertThat(loads).containsExactly("404");
+    }
+
+    @Test
+    @DisplayName("should load a missing entry once for concurrent readers")
+    void testConcurrentMissLoadsOnce() throws InterruptedException {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, Optional<Todo>> slowLoader = id -> {
+            calls.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(todo(id, false));
+        };
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(new Thread(() -> todoCache.get("1", slowLoader)));
+        }
+
+        // Act
+        readers.forEach(Thread::start);
+        loading.await();
+        release.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        // Assert
+        assertThat(calls).hasValue(1);
+    }
+
+    // ==================== Invalidation Tests ====================
+
+    @Test
+    @DisplayName("should drop saved todos so the next read sees their new state")
+    void testSavedEvent() {
+        // Arrange
+        todoCache.get("1", loader);
+        todoCache.get("2", loader);
+
+        // Act
+        todoCache.onChange(TodoChangeEvent.saved(List.of(todo("1", true))));
+        todoCache.get("1", loader);
+        todoCache.get("2", loader);
+
+        // Assert
+        assertThat(loads).containsExactly("1", "2", "1");
+    }
+
+    @Test
+    @DisplayName("should drop deleted todos and cached misses of created ones")
+    void testDeletedAndCreatedEvents() {
+        // Arrange
+        todoCache.get("1", loader);
+        todoCache.get("404", loader);
+
+        // Act
+        todoCache.onChange(TodoChangeEvent.deleted(List.of("1")));
+        todoCache.onChange(TodoChangeEvent.saved(List.of(todo("404", false))));
+
+        // Assert
+        assertThat(todoCache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should drop only the todos a mass update matched")
+    void testUpdatedManyEvent() {
+        // Arrange
+        todoCache.get("1", id -> Optional.of(todo(id, false)));
+        todoCache.get("2", id -> Optional.of(todo(id, true)));
+        todoCache.get("404", loader);
+        TodoUpdateManyRequest update = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().completed(false).build())
+                .priority("HIGH")
+                .build();
+
+        // Act
+        todoCache.onChange(TodoChangeEvent.updatedMany(update, LocalDateTime.now()));
+
+        // Assert
+        assertThat(todoCache.size()).isEqualTo(2);
+        todoCache.get("2", loader);
+        todoCache.get("404", loader);
+        assertThat(loads).containsExactly("404");
+    }
+
+    @Test
+    @DisplayName("should not keep a load that overlapped a mass update")
+    void testLoadRacingMassUpdate() {
+        // Arrange
+        TodoUpdateManyRequest update = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().completed(false).build())
+                .completed(true)
+                .build();
+
+        // Act
+        Optional<Todo> stale = todoCache.get("1", id -> {
+            todoCache.onChange(TodoChangeEvent.updatedMany(update, LocalDateTime.now()));
+            return Optional.of(todo(id, false));
+        });
+
+        // Assert
+        assertThat(stale).isPresent();
+        assertThat(todoCache.size()).isZero();
+    }
+
+    // ==================== Eviction Tests ====================
+
+    @Test
+    @DisplayName("should evict entries to stay within its size bound and record evictions")
+    void testSizeBound() {
+        // Arrange
+        int entryWeight = TodoCache.weigh("1", Optional.of(todo("1", false)));
+        SimpleMeterRegistry smallRegistry = new SimpleMeterRegistry();
+        TodoCache small = new TodoCache(smallRegistry, 10L * entryWeight, Duration.ofMinutes(10), Runnable::run);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            small.get(String.valueOf(i), loader);
+        }
+
+        // Assert
+        assertThat(small.size()).isLessThanOrEqualTo(10);
+        assertThat(smallRegistry.get("cache.evictions").tag("cache", TodoCache.NAME).functionCounter().count())
+                .isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("should weigh entries by the length of their strings")
+    void testWeigh() {
+        // Arrange
+        Todo shortTodo = Todo.builder().id("1").title("a").build();
+        Todo longTodo = Todo.builder().id("1").title("a".repeat(1000)).build();
+
+        // Act & Assert
+        assertThat(TodoCache.weigh("1", Optional.empty())).isEqualTo(TodoCache.ENTRY_BYTES + 2);
+        assertThat(TodoCache.weigh("1", Optional.of(longTodo)) - TodoCache.weigh("1", Optional.of(shortTodo)))
+                .isEqualTo(2 * 999);
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFeedEvent;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@DisplayName("TodoChangeFeed Unit Tests")
+class TodoChangeFeedTest {
+
+    private static final TodoFilter ALL = new TodoFilter();
+
+    /**
+     * Sending tasks, run when a test chooses to
+     */
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TodoChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        feed = feed(Runnable::run);
+    }
+
+    private TodoChangeFeed feed(Executor executor) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new TodoChangeFeed(meterRegistry, 4, 8, Duration.ofMinutes(30), executor);
+    }
+
+    private static Todo todo(String id, boolean completed, String priority, long version) {
+        return Todo.builder()
+                .id(id)
+                .title("Todo " + id)
+                .completed(completed)
+                .priority(priority)
+                .version(version)
+                .build();
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static List<TodoFeedEvent.Type> types(List<TodoFeedEvent> events) {
+        return events.stream().map(TodoFeedEvent::getType).toList();
+    }
+
+    /**
+     * Sink recording what it is sent, taking as many events as it is given
+     */
+    private static class RecordingSink implements TodoChangeFeed.Sink {
+
+        final List<TodoFeedEvent> events = new ArrayList<>();
+
+        long requested = Long.MAX_VALUE;
+
+        Boolean closedDropped;
+
+        @Override
+        public long requested() {
+            return requested;
+        }
+
+        @Override
+        public void send(TodoFeedEvent event) {
+            events.add(event);
+            requested--;
+        }
+
+        @Override
+        public void close(boolean dropped) {
+            closedDropped = dropped;
+        }
+    }
+
+    // ==================== Fan-out Tests ====================
+
+    @Test
+    @DisplayName("should push creates, updates and deletes in order after the subscription event")
+    void testPushesChanges() {
+        // Arrange
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(ALL, null, sink);
+
+        // Act
+        feed.onChange(TodoChangeEvent.saved(List.of(todo("1", false, "HIGH", 0)), Set.of()));
+        feed.onChange(TodoChangeEvent.saved(List.of(todo("1", true, "HIGH", 1)), Set.of("completed")));
+        feed.onChange(TodoChangeEvent.deleted(List.of("1")));
+
+        // Assert
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED,
+                TodoFeedEvent.Type.CREATED, TodoFeedEvent.Type.UPDATED, TodoFeedEvent.Type.DELETED);
+        assertThat(sink.events.get(2).getTodo().isCompleted()).isTrue();
+        assertThat(sink.events.get(3).getId()).isEqualTo("1");
+        assertThat(sink.events.stream().map(TodoFeedEvent::getToken).distinct()).hasSize(4);
+        assertThat(meterRegistry.get("todo.feed.events").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should only push todos matching the filter, and those that may have just left it")
+    void testFiltersByStatusAndPriority() {
+        // Arrange
+        RecordingSink open = new RecordingSink();
+        RecordingSink high = new RecordingSink();
+        feed.subscribe(TodoFilter.builder().completed(false).build(), null, open);
+        feed.subscribe(TodoFilter.builder().priority("HIGH").build(), null, high);
+
+        // Act
+        feed.onChange(TodoChangeEvent.saved(List.of(todo("1", false, "LOW", 0)), Set.of()));
+        feed.onChange(TodoChangeEvent.saved(List.of(todo("2", true, "HIGH", 0)), Set.of()));
+        // completed: it may have been open before, so open subscribers learn it left
+        feed.onChange(TodoChangeEvent.saved(List.of(todo("1", true, "LOW", 1)), Set.of("completed")));
+        feed.onChange(TodoChangeEvent.updatedMany(TodoUpdateManyRequest.builder()
+                .filter(new TodoFilter()).priority("LOW").build(), LocalDateTime.now()));
+
+        // Assert
+        assertThat(open.events).extracting(event -> event.getTodo() == null ? null : event.getTodo().getId())
+                .containsExactly(null, "1", "1", null);
+        assertThat(high.events).extracting(event -> event.getTodo() == null ? null : event.getTodo().getId())
+                .containsExactly(null, "2", null);
+    }
+
+    @Test
+    @DisplayName("should drop and close a subscriber that stops taking events")
+    void testDropsSlowSubscriber() {
+        // Arrange
+        RecordingSink slow = new RecordingSink();
+        slow.requested = 0;
+        feed.subscribe(ALL, null, slow);
+
+        // Act: the subscription event and three changes fill the buffer of four, the fifth overflows
+        for (int i = 0; i < 4; i++) {
+            feed.onChange(TodoChangeEvent.deleted(List.of(String.valueOf(i))));
+        }
+
+        // Assert
+        assertThat(slow.events).isEmpty();
+        assertThat(slow.closedDropped).isTrue();
+        assertThat(meterRegistry.get("todo.feed.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("todo.feed.subscribers").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("should hand events out on the feed's threads rather than the writer's")
+    void testHandsOutOffWriter() {
+        // Arrange
+        feed = feed(tasks::add);
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(ALL, null, sink);
+        runTasks();
+
+        // Act
+        feed.onChange(TodoChangeEvent.deleted(List.of("1")));
+        feed.onChange(TodoChangeEvent.deleted(List.of("2")));
+
+        // Assert
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED);
+        assertThat(tasks).hasSize(1);
+        runTasks();
+        assertThat(sink.events.subList(1, sink.events.size())).extracting(TodoFeedEvent::getId)
+                .containsExactly("1", "2");
+    }
+
+    @Test
+    @DisplayName("should drop subscribers that missed events the history dropped before they were handed out")
+    void testDropsSubscribersBehindHistory() {
+        // Arrange
+        feed = feed(tasks::add);
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(ALL, null, sink);
+        runTasks();
+
+        // Act: nine events overflow the history of eight before they are handed out
+        for (int i = 0; i < 9; i++) {
+            feed.onChange(TodoChangeEvent.deleted(List.of(String.valueOf(i))));
+        }
+        runTasks();
+
+        // Assert
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED);
+        assertThat(sink.closedDropped).isTrue();
+    }
+
+    @Test
+    @DisplayName("should keep accepting writes and subscribers while a send blocks")
+    void testSendDoesNotHoldLock() throws Exception {
+        // Arrange
+        feed = feed(command -> Thread.ofPlatform().daemon().start(command));
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        feed.subscribe(ALL, null, new RecordingSink() {
+            @Override
+            public void send(TodoFeedEvent event) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act & Assert
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                feed.onChange(TodoChangeEvent.deleted(List.of("1")));
+                feed.subscribe(ALL, null, new RecordingSink());
+            });
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("should only send as many events as the subscriber requests")
+    void testHonoursDemand() {
+        // Arrange
+        RecordingSink sink = new RecordingSink();
+        sink.requested = 1;
+        TodoChangeFeed.Subscription subscription = feed.subscribe(ALL, null, sink);
+        feed.onChange(TodoChangeEvent.deleted(List.of("1", "2")));
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED);
+
+        // Act
+        sink.requested = 2;
+        subscription.signal();
+
+        // Assert
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED,
+                TodoFeedEvent.Type.DELETED, TodoFeedEvent.Type.DELETED);
+    }
+
+    @Test
+    @DisplayName("should stop sending and close once cancelled")
+    void testCancel() {
+        // Arrange
+        RecordingSink sink = new RecordingSink();
+        TodoChangeFeed.Subscription subscription = feed.subscribe(ALL, null, sink);
+
+        // Act
+        subscription.cancel();
+        feed.onChange(TodoChangeEvent.deleted(List.of("1")));
+
+        // Assert
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED);
+        assertThat(sink.closedDropped).isFalse();
+    }
+
+    // ==================== Resume Tests ====================
+
+    @Test
+    @DisplayName("should resume after the token with the events missed")
+    void testResume() {
+        // Arrange
+        RecordingSink first = new RecordingSink();
+        TodoChangeFeed.Subscription subscription = feed.subscribe(ALL, null, first);
+        feed.onChange(TodoChangeEvent.deleted(List.of("1")));
+        subscription.cancel();
+        String token = first.events.get(first.events.size() - 1).getToken();
+        feed.onChange(TodoChangeEvent.deleted(List.of("2")));
+        feed.onChange(TodoChangeEvent.deleted(List.of("3")));
+
+        // Act
+        RecordingSink resumed = new RecordingSink();
+        feed.subscribe(ALL, token, resumed);
+        feed.onChange(TodoChangeEvent.deleted(List.of("4")));
+
+        // Assert
+        assertThat(resumed.events.get(0).getType()).isEqualTo(TodoFeedEvent.Type.SUBSCRIBED);
+        assertThat(resumed.events.get(0).getToken()).isEqualTo(token);
+        assertThat(resumed.events.subList(1, resumed.events.size())).extracting(TodoFeedEvent::getId)
+                .containsExactly("2", "3", "4");
+    }
+
+    @Test
+    @DisplayName("should reset a subscriber whose token is unknown or older than the history")
+    void testResumeUnknownToken() {
+        // Arrange
+        RecordingSink first = new RecordingSink();
+        feed.subscribe(ALL, null, first);
+        String token = first.events.get(0).getToken();
+        for (int i = 0; i < 9; i++) {
+            feed.onChange(TodoChangeEvent.deleted(List.of(String.valueOf(i))));
+        }
+
+        // Act
+        RecordingSink expired = new RecordingSink();
+        feed.subscribe(ALL, token, expired);
+        RecordingSink foreign = new RecordingSink();
+        feed.subscribe(ALL, "another-instance-3", foreign);
+
+        // Assert
+        assertThat(types(expired.events)).containsExactly(TodoFeedEvent.Type.RESET);
+        assertThat(types(foreign.events)).containsExactly(TodoFeedEvent.Type.RESET);
+        assertThat(expired.events.get(0).getToken()).isEqualTo(first.events.get(first.events.size() - 1).getToken());
+    }
+
+    @Test
+    @DisplayName("should tell subscribers to reload when the collection is restored")
+    void testResetOnRestore() {
+        // Arrange
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(TodoFilter.builder().completed(true).build(), null, sink);
+
+        // Act
+        feed.onChange(TodoChangeEvent.restored(List.of(todo("1", false, "LOW", 3))));
+
+        // Assert
+        assertThat(types(sink.events)).containsExactly(TodoFeedEvent.Type.SUBSCRIBED, TodoFeedEvent.Type.RESET);
+    }
+}
@@ -0,0 +1,622 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoJournalRecord;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoJournal Unit Tests")
+class TodoJournalTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    @TempDir
+    private Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<TodoJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(TodoJournal::stop);
+    }
+
+    private TodoJournal journal(DataSize segmentSize) {
+        return journal(segmentSize, 64, Thread.ofPlatform().daemon().factory());
+    }
+
+    private TodoJournal journal(DataSize segmentSize, int ringSize, ThreadFactory writerFactory) {
+        TodoJournal journal = new TodoJournal(todoRepository, mongoConverter(), meterRegistry, true,
+                directory, segmentSize, ringSize, false, Runnable::run, writerFactory);
+        journals.add(journal);
+        journal.start();
+        return journal;
+    }
+
+    /**
+     * A journal whose writer does not start appending until the latch is released
+     */
+    private TodoJournal heldJournal(int ringSize, CountDownLatch release) {
+        return journal(DataSize.ofKilobytes(64), ringSize, task -> Thread.ofPlatform().daemon().unstarted(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        }));
+    }
+
+    private TodoJournal journal() {
+        return journal(DataSize.ofKilobytes(64));
+    }
+
+    private static MappingMongoConverter mongoConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private static Todo todo(String title, long version) {
+        return Todo.builder()
+                .id(new ObjectId().toHexString())
+                .title(title)
+                .priority("HIGH")
+                .createdAt(NOON)
+                .updatedAt(NOON)
+                .version(version)
+                .build();
+    }
+
+    private static List<TodoJournalRecord> readAll(TodoJournal journal) {
+        return journal.read(0, Integer.MAX_VALUE);
+    }
+
+    // ==================== Append Tests ====================
+
+    @Test
+    @DisplayName("should record every change in order with its todos, ids and update")
+    void testAppendRecordsChanges() {
+        // Arrange
+        TodoJournal journal = journal();
+        Todo todo = todo("Buy milk", 0);
+        TodoUpdateManyRequest update = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().priority("HIGH").build())
+                .completed(true)
+                .build();
+
+        // Act
+        journal.onChange(TodoChangeEvent.saved(List.of(todo), Set.of()));
+        journal.onChange(TodoChangeEvent.updatedMany(update, NOON));
+        journal.onChange(TodoChangeEvent.deleted(List.of(todo.getId())));
+        journal.stop();
+
+        // Assert
+        List<TodoJournalRecord> records = readAll(journal);
+        assertThat(records).extracting(TodoJournalRecord::getSequence, TodoJournalRecord::getType)
+                .containsExactly(
+                        tuple(0L, TodoJournalRecord.Type.SAVED),
+                        tuple(1L, TodoJournalRecord.Type.UPDATED_MANY),
+                        tuple(2L, TodoJournalRecord.Type.DELETED));
+        assertThat(records.get(0).getTodos()).singleElement().satisfies(saved -> {
+            assertThat(saved.getId()).isEqualTo(todo.getId());
+            assertThat(saved.getTitle()).isEqualTo("Buy milk");
+            assertThat(saved.getPriority()).isEqualTo("HIGH");
+            assertThat(saved.getCreatedAt()).isEqualTo(NOON);
+        });
+        assertThat(records.get(1).getAt()).isEqualTo(NOON);
+        assertThat(records.get(1).getUpdate()).isEqualTo(update);
+        assertThat(records.get(2).getIds()).containsExactly(todo.getId());
+        assertThat(journal.getLastSequence()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should roll over to new segments when records no longer fit")
+    void testAppendRollsSegments() {
+        // Arrange
+        TodoJournal journal = journal(DataSize.ofBytes(1024));
+
+        // Act
+        IntStream.range(0, 50).forEach(i -> journal.onChange(TodoChangeEvent.saved(List.of(todo("Todo " + i, 0)))));
+        journal.stop();
+
+        // Assert
+        assertThat(TodoJournalReader.segments(directory)).hasSizeGreaterThan(1);
+        assertThat(readAll(journal)).extracting(record -> record.getTodos().get(0).getTitle())
+                .containsExactlyElementsOf(IntStream.range(0, 50).mapToObj(i -> "Todo " + i).toList());
+    }
+
+    @Test
+    @DisplayName("should give a record larger than a segment a segment of its own")
+    void testAppendOversizedRecord() {
+        // Arrange
+        TodoJournal journal = journal(DataSize.ofBytes(1024));
+        List<Todo> todos = IntStream.range(0, 40).mapToObj(i -> todo("Todo " + i, 0)).toList();
+
+        // Act
+        journal.onChange(TodoChangeEvent.saved(List.of(todo("Small", 0))));
+        journal.onChange(TodoChangeEvent.saved(todos));
+        journal.onChange(TodoChangeEvent.saved(List.of(todo("After", 0))));
+        journal.stop();
+
+        // Assert
+        assertThat(readAll(journal)).extracting(record -> record.getTodos().size()).containsExactly(1, 40, 1);
+    }
+
+    @Test
+    @DisplayName("should read from a sequence on, up to the limit")
+    void testReadFromSequence() {
+        // Arrange
+        TodoJournal journal = journal(DataSize.ofBytes(1024));
+        IntStream.range(0, 20).forEach(i -> journal.onChange(TodoChangeEvent.deleted(List.of("id-" + i))));
+        journal.stop();
+
+        // Act
+        List<TodoJournalRecord> records = journal.read(12, 5);
+
+        // Assert
+        assertThat(records).extracting(TodoJournalRecord::getSequence).containsExactly(12L, 13L, 14L, 15L, 16L);
+    }
+
+    // ==================== Backpressure Tests ====================
+
+    @Test
+    @DisplayName("should reject writes without waiting once the ring is three quarters full")
+    void testRejectsWritesWhileBehind() {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        TodoJournal journal = heldJournal(8, release);
+        IntStream.range(0, 5).forEach(i -> {
+            journal.requireCapacity();
+            journal.onChange(TodoChangeEvent.deleted(List.of("id-" + i)));
+        });
+        journal.requireCapacity();
+        journal.onChange(TodoChangeEvent.deleted(List.of("id-5")));
+
+        // Act
+        Throwable rejected = catchThrowable(journal::requireCapacity);
+        release.countDown();
+        journal.stop();
+
+        // Assert
+        assertThat(rejected).isInstanceOf(TaskRejectedException.class);
+        assertThat(meterRegistry.get("todo.journal.rejected").counter().count()).isEqualTo(1);
+        assertThat(readAll(journal)).hasSize(6);
+        assertThat(journal.isIntact()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should mark a record lost to a full ring with a gap and start over with a snapshot")
+    void testMarksLostRecordsWithGap() {
+        // Arrange
+        when(todoRepository.streamBy(null, null)).thenReturn(Stream.of(todo("Todo", 1)));
+        CountDownLatch release = new CountDownLatch(1);
+        TodoJournal journal = heldJournal(8, release);
+        IntStream.range(0, 8).forEach(i -> journal.onChange(TodoChangeEvent.deleted(List.of("id-" + i))));
+        TodoChangeEvent lost = TodoChangeEvent.deleted(List.of("lost"));
+
+        // Act
+        journal.onChange(lost);
+        boolean intactWhileBehind = journal.isIntact();
+        release.countDown();
+        journal.stop();
+
+        // Assert
+        assertThat(intactWhileBehind).isFalse();
+        assertThat(meterRegistry.get("todo.journal.lost").counter().count()).isEqualTo(1);
+        List<TodoJournalRecord> records = readAll(journal);
+        assertThat(records).extracting(TodoJournalRecord::getType).containsExactly(
+                TodoJournalRecord.Type.GAP,
+                TodoJournalRecord.Type.DELETED, TodoJournalRecord.Type.DELETED, TodoJournalRecord.Type.DELETED,
+                TodoJournalRecord.Type.DELETED, TodoJournalRecord.Type.DELETED, TodoJournalRecord.Type.DELETED,
+                TodoJournalRecord.Type.DELETED, TodoJournalRecord.Type.DELETED,
+                TodoJournalRecord.Type.RESET, TodoJournalRecord.Type.SNAPSHOT, TodoJournalRecord.Type.SNAPSHOT_END);
+        assertThat(records.get(0).getAt()).isEqualTo(lost.getTimestamp().truncatedTo(ChronoUnit.MILLIS));
+        assertThat(records).noneMatch(record -> record.getIds().contains("lost"));
+        assertThat(journal.isIntact()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should refuse to start without a directory")
+    void testRequiresDirectory() {
+        // Arrange
+        TodoJournal journal = new TodoJournal(todoRepository, mongoConverter(), meterRegistry, true, null,
+                DataSize.ofKilobytes(64), 8, false, Runnable::run, Thread.ofPlatform().daemon().factory());
+
+        // Act & Assert
+        assertThatThrownBy(journal::start).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("todo.journal.directory");
+        assertThat(journal.isRunning()).isFalse();
+    }
+
+    // ==================== Recovery Tests ====================
+
+    @Test
+    @DisplayName("should continue the sequence after a restart")
+    void testRestartContinuesSequence() {
+        // Arrange
+        TodoJournal first = journal();
+        first.onChange(TodoChangeEvent.deleted(List.of("a")));
+        first.onChange(TodoChangeEvent.deleted(List.of("b")));
+        first.stop();
+
+        // Act
+        TodoJournal second = journal();
+        second.onChange(TodoChangeEvent.deleted(List.of("c")));
+        second.stop();
+
+        // Assert
+        assertThat(readAll(second)).extracting(TodoJournalRecord::getSequence, record -> record.getIds().get(0))
+                .containsExactly(tuple(0L, "a"), tuple(1L, "b"), tuple(2L, "c"));
+    }
+
+    @Test
+    @DisplayName("should drop a torn record at the end of the journal on restart")
+    void testRestartDropsTornRecord() throws IOException {
+        // Arrange
+        TodoJournal first = journal();
+        first.onChange(TodoChangeEvent.deleted(List.of("a")));
+        first.onChange(TodoChangeEvent.deleted(List.of("b")));
+        first.stop();
+        // corrupt the body of the last record, as a crash in the middle of writing it would
+        Path segment = TodoJournalReader.segments(directory).get(0).path();
+        int lastRecord = TodoJournalCodec.SEGMENT_HEADER
+                + TodoJournalCodec.frameSize(TodoJournalCodec.length(
+                        ByteBuffer.wrap(Files.readAllBytes(segment)), TodoJournalCodec.SEGMENT_HEADER));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(lastRecord + TodoJournalCodec.FRAME_HEADER + 4);
+            file.write(0x7f);
+        }
+
+        // Act
+        TodoJournal second = journal();
+        second.onChange(TodoChangeEvent.deleted(List.of("c")));
+        second.stop();
+
+        // Assert
+        assertThat(readAll(second)).extracting(TodoJournalRecord::getSequence, record -> record.getIds().get(0))
+                .containsExactly(tuple(0L, "a"), tuple(1L, "c"));
+    }
+
+    // ==================== Tail Tests ====================
+
+    @Test
+    @DisplayName("should let a cursor wait for records written after it reached the end")
+    void testCursorTailsJournal() throws Exception {
+        // Arrange
+        TodoJournal journal = journal();
+        journal.onChange(TodoChangeEvent.deleted(List.of("a")));
+        TodoJournalReader.Cursor cursor = journal.reader().from(0);
+        assertThat(cursor.next(Duration.ofSeconds(5))).map(record -> record.getIds().get(0)).contains("a");
+        assertThat(cursor.next()).isEmpty();
+
+        // Act
+        CompletableFuture<?> write = CompletableFuture.runAsync(() -> {
+            sleep(50);
+            journal.onChange(TodoChangeEvent.deleted(List.of("b")));
+        });
+
+        // Assert
+        assertThat(cursor.next(Duration.ofSeconds(5))).map(record -> record.getIds().get(0)).contains("b");
+        write.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== Snapshot Tests ====================
+
+    @Test
+    @DisplayName("should start a new journal with a snapshot of the collection")
+    void testSnapshotOnStartup() {
+        // Arrange
+        List<Todo> todos = IntStream.range(0, TodoJournal.SNAPSHOT_CHUNK + 1).mapToObj(i -> todo("Todo " + i, 1)).toList();
+        when(todoRepository.streamBy(null, null)).thenReturn(todos.stream());
+        TodoJournal journal = journal(DataSize.ofMegabytes(1));
+
+        // Act
+        journal.snapshotOnStartup();
+        journal.stop();
+
+        // Assert
+        List<TodoJournalRecord> records = readAll(journal);
+        assertThat(records).extracting(TodoJournalRecord::getType).containsExactly(
+                TodoJournalRecord.Type.RESET, TodoJournalRecord.Type.SNAPSHOT, TodoJournalRecord.Type.SNAPSHOT,
+                TodoJournalRecord.Type.SNAPSHOT_END);
+        assertThat(records.get(1).getTodos()).hasSize(TodoJournal.SNAPSHOT_CHUNK);
+        assertThat(records.get(2).getTodos()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should not snapshot again once the journal holds a complete snapshot")
+    void testSnapshotOnlyOnce() {
+        // Arrange
+        when(todoRepository.streamBy(null, null)).thenAnswer(invocation -> Stream.of(todo("Todo", 1)));
+        TodoJournal first = journal();
+        first.snapshotOnStartup();
+        first.stop();
+
+        // Act
+        TodoJournal second = journal();
+        second.snapshotOnStartup();
+        second.stop();
+
+        // Assert
+        verify(todoRepository, times(1)).streamBy(any(), any());
+        assertThat(readAll(second)).hasSize(3);
+    }
+
+    // ==================== Replay Tests ====================
+
+    @Test
+    @DisplayName("should replay the journal up to a point in time on top of its snapshot")
+    void testReplayToPointInTime() {
+        // Arrange
+        Todo kept = todo("Kept", 1);
+        Todo deleted = todo("Deleted", 1);
+        TodoJournal journal = journal();
+        journal.onChange(TodoChangeEvent.restored(List.of(kept, deleted)));
+        journal.onChange(TodoChangeEvent.saved(List.of(renamed(kept, "Renamed", 2))));
+        journal.onChange(TodoChangeEvent.deleted(List.of(deleted.getId())));
+        sleep(5);
+        LocalDateTime at = LocalDateTime.now();
+        sleep(5);
+        journal.onChange(TodoChangeEvent.saved(List.of(todo("Created", 0))));
+        journal.stop();
+
+        // Act
+        TodoJournalRestore.State state = TodoJournalRestore.replay(journal.reader().from(0), at);
+
+        // Assert
+        assertThat(state.isComplete()).isTrue();
+        assertThat(state.todos().values()).singleElement().satisfies(todo -> {
+            assertThat(todo.getId()).isEqualTo(kept.getId());
+            assertThat(todo.getTitle()).isEqualTo("Renamed");
+            assertThat(todo.getVersion()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    @DisplayName("should not restore a point in time before the snapshot was complete")
+    void testReplayBeforeSnapshotIsIncomplete() {
+        // Arrange
+        Records records = new Records();
+        records.add(TodoJournalRecord.Type.SAVED, List.of(todo("Before", 0)));
+        records.add(TodoJournalRecord.Type.RESET, List.of());
+        records.add(TodoJournalRecord.Type.SNAPSHOT, List.of(todo("Snapshot", 1)));
+
+        // Act
+        TodoJournalRestore.State state = new TodoJournalRestore.State();
+        records.forEach(state::apply);
+
+        // Assert
+        assertThat(state.isComplete()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not restore a point in time after records were lost until the next snapshot is complete")
+    void testReplayAfterGapIsIncomplete() {
+        // Arrange
+        Records records = new Records();
+        records.add(TodoJournalRecord.Type.RESET, List.of());
+        records.add(TodoJournalRecord.Type.SNAPSHOT, List.of(todo("Snapshot", 1)));
+        records.add(TodoJournalRecord.Type.SNAPSHOT_END, List.of());
+        records.add(TodoJournalRecord.Type.GAP, List.of());
+        TodoJournalRestore.State state = new TodoJournalRestore.State();
+        records.forEach(state::apply);
+        boolean completeAfterGap = state.isComplete();
+
+        // Act
+        records.add(TodoJournalRecord.Type.RESET, List.of());
+        records.add(TodoJournalRecord.Type.SNAPSHOT_END, List.of());
+        records.subList(4, 6).forEach(state::apply);
+
+        // Assert
+        assertThat(completeAfterGap).isFalse();
+        assertThat(state.isComplete()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should keep the newest state of a todo and not bring back a deleted one from the snapshot")
+    void testReplaySnapshotRace() {
+        // Arrange
+        Todo todo = todo("Todo", 3);
+        Todo gone = todo("Gone", 1);
+        Records records = new Records();
+        records.add(TodoJournalRecord.Type.RESET, List.of());
+        records.add(TodoJournalRecord.Type.SAVED, List.of(renamed(todo, "Newer", 4)));
+        records.add(TodoJournalRecord.Type.DELETED, List.of());
+        records.get(2).getIds().add(gone.getId());
+        // read from the database before the writes above were journaled
+        records.add(TodoJournalRecord.Type.SNAPSHOT, List.of(todo, gone));
+        records.add(TodoJournalRecord.Type.SNAPSHOT_END, List.of());
+
+        // Act
+        TodoJournalRestore.State state = new TodoJournalRestore.State();
+        records.forEach(state::apply);
+
+        // Assert
+        assertThat(state.isComplete()).isTrue();
+        assertThat(state.todos().values()).extracting(Todo::getTitle).containsExactly("Newer");
+    }
+
+    @Test
+    @DisplayName("should apply a mass update the way the database does")
+    void testReplayUpdateMany() {
+        // Arrange
+        Todo high = todo("High", 1);
+        Todo low = todo("Low", 1);
+        low.setPriority("LOW");
+        Todo done = todo("Done", 1);
+        done.setCompleted(true);
+        done.setCompletedAt(NOON.minusDays(1));
+        Records records = new Records();
+        records.add(TodoJournalRecord.Type.RESET, List.of());
+        records.add(TodoJournalRecord.Type.SNAPSHOT, List.of(high, low, done));
+        records.add(TodoJournalRecord.Type.SNAPSHOT_END, List.of());
+        records.add(TodoJournalRecord.Type.UPDATED_MANY, List.of());
+        records.get(3).setUpdate(TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().priority("HIGH").build())
+                .completed(true)
+                .build());
+
+        // Act
+        TodoJournalRestore.State state = new TodoJournalRestore.State();
+        records.forEach(state::apply);
+
+        // Assert
+        Todo updated = state.todos().get(high.getId());
+        assertThat(updated.isCompleted()).isTrue();
+        assertThat(updated.getCompletedAt()).isEqualTo(NOON.plusMinutes(3));
+        assertThat(updated.getUpdatedAt()).isEqualTo(NOON.plusMinutes(3));
+        assertThat(updated.getVersion()).isEqualTo(2);
+        assertThat(state.todos().get(low.getId())).isSameAs(low);
+        assertThat(state.todos().get(done.getId())).isSameAs(done);
+    }
+
+    /**
+     * Records a minute apart from noon on, numbered in order
+     */
+    private static final class Records extends ArrayList<TodoJournalRecord> {
+
+        private static final long serialVersionUID = 1L;
+
+        void add(TodoJournalRecord.Type type, List<Todo> todos) {
+            add(TodoJournalRecord.builder()
+                    .sequence(size())
+                    .type(type)
+                    .at(NOON.plusMinutes(size()))
+                    .todos(new ArrayList<>(todos))
+                    .build());
+        }
+    }
+
+    private static Todo renamed(Todo todo, String title, long version) {
+        return Todo.builder()
+                .id(todo.getId())
+                .title(title)
+                .priority(todo.getPriority())
+                .createdAt(todo.getCreatedAt())
+                .updatedAt(todo.getUpdatedAt())
+                .version(version)
+                .build();
+    }
+
+    // ==================== Ring Buffer Tests ====================
+
+    @Test
+    @DisplayName("should hand elements over in order and report a full ring")
+    void testRingBufferFull() {
+        // Arrange
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+
+        // Act
+        List<Boolean> offered = IntStream.range(0, 5).mapToObj(ring::offer).toList();
+
+        // Assert
+        assertThat(offered).containsExactly(true, true, true, true, false);
+        assertThat(ring.size()).isEqualTo(4);
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.offer(5)).isTrue();
+        assertThat(Stream.generate(ring::poll).limit(5).toList()).containsExactly(1, 2, 3, 5, null);
+        assertThat(ring.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should deliver every element of concurrent producers exactly once")
+    void testRingBufferConcurrentProducers() throws Exception {
+        // Arrange
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        List<CompletableFuture<Void>> writes = IntStream.range(0, producers)
+                .mapToObj(p -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!ring.offer(p * perProducer + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }))
+                .toList();
+
+        // Act
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] lastOfProducer = new int[producers];
+        Arrays.fill(lastOfProducer, -1);
+        for (int received = 0; received < seen.length; ) {
+            Integer element = ring.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertThat(seen[element]).isFalse();
+            seen[element] = true;
+            // each producer's elements come out in the order it offered them
+            assertThat(element % perProducer).isGreaterThan(lastOfProducer[element / perProducer]);
+            lastOfProducer[element / perProducer] = element % perProducer;
+            received++;
+        }
+
+        // Assert
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        assertThat(ring.poll()).isNull();
+    }
+}
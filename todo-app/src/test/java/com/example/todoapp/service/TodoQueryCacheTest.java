@@ -0,0 +1,257 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TodoQueryCache Unit Tests")
+class TodoQueryCacheTest {
+
+    private static final Sort SORT = Sort.by("createdAt");
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TodoQueryCache queryCache;
+
+    private List<String> loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queryCache = new TodoQueryCache(meterRegistry, 100, Duration.ofMinutes(1), Runnable::run);
+        loads = new ArrayList<>();
+    }
+
+    private Window<Todo> byStatus(boolean completed) {
+        return queryCache.byStatus(completed, ScrollPosition.keyset(), Limit.of(10), SORT, TodoFields.ALL,
+                loader("completed=" + completed));
+    }
+
+    private Window<Todo> byPriority(String priority) {
+        return queryCache.byPriority(priority, ScrollPosition.keyset(), Limit.of(10), SORT, TodoFields.ALL,
+                loader("priority=" + priority));
+    }
+
+    private Supplier<Window<Todo>> loader(String partition) {
+        return () -> {
+            loads.add(partition);
+            return Window.from(List.of(), ScrollPosition::offset);
+        };
+    }
+
+    private static Todo todo(boolean completed, String priority) {
+        return Todo.builder().id("1").completed(completed).priority(priority).build();
+    }
+
+    private void queryAll() {
+        byStatus(true);
+        byStatus(false);
+        byPriority("LOW");
+        byPriority("HIGH");
+    }
+
+    // ==================== Caching Tests ====================
+
+    @Test
+    @DisplayName("should serve repeated queries from the cache and record hits and misses")
+    void testRepeatedQueries() {
+        // Act
+        Window<Todo> first = byStatus(true);
+        Window<Todo> second = byStatus(true);
+        byStatus(false);
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(loads).containsExactly("completed=true", "completed=false");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", TodoQueryCache.NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should key cached windows by position, limit, sort and fields")
+    void testKeyedByQuery() {
+        // Act
+        byStatus(true);
+        queryCache.byStatus(true, ScrollPosition.keyset(), Limit.of(20), SORT, TodoFields.ALL, loader("limit=20"));
+        queryCache.byStatus(true, ScrollPosition.keyset(), Limit.of(10), Sort.by("priority"), TodoFields.ALL,
+                loader("sort=priority"));
+        queryCache.byStatus(true, ScrollPosition.keyset(), Limit.of(10), SORT, TodoFields.SUMMARY,
+                loader("fields=summary"));
+        byStatus(true);
+
+        // Assert
+        assertThat(loads).containsExactly("completed=true", "limit=20", "sort=priority", "fields=summary");
+    }
+
+    @Test
+    @DisplayName("should recompute an invalidated query once for concurrent callers")
+    void testNoThunderingHerd() throws InterruptedException {
+        // Arrange
+        byStatus(true);
+        queryCache.onChange(TodoChangeEvent.saved(List.of(todo(true, "LOW")), Set.of("title")));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Window<Todo>> slowLoader = () -> {
+            calls.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Window.from(List.of(), ScrollPosition::offset);
+        };
+        List<Thread> pollers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            pollers.add(new Thread(() ->
+                    queryCache.byStatus(true, ScrollPosition.keyset(), Limit.of(10), SORT, TodoFields.ALL, slowLoader)));
+        }
+
+        // Act
+        pollers.forEach(Thread::start);
+        loading.await();
+        release.countDown();
+        for (Thread poller : pollers) {
+            poller.join();
+        }
+
+        // Assert
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("should not serve a window loaded while a write touched its partition")
+    void testLoadRacingWrite() {
+        // Act
+        queryCache.byStatus(true, ScrollPosition.keyset(), Limit.of(10), SORT, TodoFields.ALL, () -> {
+            queryCache.onChange(TodoChangeEvent.saved(List.of(todo(true, "LOW")), Set.of()));
+            return Window.from(List.of(), ScrollPosition::offset);
+        });
+        byStatus(true);
+
+        // Assert
+        assertThat(loads).containsExactly("completed=true");
+    }
+
+    // ==================== Invalidation Tests ====================
+
+    @Test
+    @DisplayName("should only invalidate the partitions of a created todo")
+    void testCreatedTodo() {
+        // Arrange
+        queryAll();
+        loads.clear();
+
+        // Act
+        queryCache.onChange(TodoChangeEvent.saved(List.of(todo(false, "LOW")), Set.of()));
+        queryAll();
+
+        // Assert
+        assertThat(loads).containsExactly("completed=false", "priority=LOW");
+        assertThat(queryCache.generation("completed=true")).isZero();
+    }
+
+    @Test
+    @DisplayName("should invalidate both statuses but one priority when completion changes")
+    void testCompletionChanged() {
+        // Arrange
+        queryAll();
+        loads.clear();
+
+        // Act
+        queryCache.onChange(TodoChangeEvent.saved(List.of(todo(true, "LOW")), Set.of("completed")));
+        queryAll();
+
+        // Assert
+        assertThat(loads).containsExactly("completed=true", "completed=false", "priority=LOW");
+    }
+
+    @Test
+    @DisplayName("should invalidate every priority when a write may have changed the priority")
+    void testPriorityChanged() {
+        // Arrange
+        queryAll();
+        loads.clear();
+
+        // Act
+        queryCache.onChange(TodoChangeEvent.saved(List.of(todo(false, "HIGH")), Set.of("priority")));
+        queryAll();
+
+        // Assert
+        assertThat(loads).containsExactly("completed=false", "priority=LOW", "priority=HIGH");
+    }
+
+    @Test
+    @DisplayName("should invalidate every partition when todos are deleted")
+    void testDeleted() {
+        // Arrange
+        queryAll();
+        loads.clear();
+
+        // Act
+        queryCache.onChange(TodoChangeEvent.deleted(List.of("1")));
+        queryAll();
+
+        // Assert
+        assertThat(loads).containsExactly("completed=true", "completed=false", "priority=LOW", "priority=HIGH");
+    }
+
+    @Test
+    @DisplayName("should invalidate the partitions a mass update matched and wrote")
+    void testUpdatedMany() {
+        // Arrange
+        queryAll();
+        loads.clear();
+        TodoUpdateManyRequest update = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().completed(false).priority("LOW").build())
+                .completed(true)
+                .build();
+
+        // Act
+        queryCache.onChange(TodoChangeEvent.updatedMany(update, LocalDateTime.now()));
+        queryAll();
+
+        // Assert
+        assertThat(loads).containsExactly("completed=true", "completed=false", "priority=LOW");
+    }
+
+    @Test
+    @DisplayName("should invalidate every partition of a field a mass update did not filter on")
+    void testUpdatedManyUnfilteredField() {
+        // Arrange
+        queryAll();
+        loads.clear();
+        TodoUpdateManyRequest update = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().completed(true).build())
+                .priority("HIGH")
+                .build();
+
+        // Act
+        queryCache.onChange(TodoChangeEvent.updatedMany(update, LocalDateTime.now()));
+        queryAll();
+
+        // Assert
+        assertThat(loads).containsExactly("completed=true", "priority=LOW", "priority=HIGH");
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoAnalytics;
+import com.example.todoapp.model.TodoRollup;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.repository.TodoRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoRollups Unit Tests")
+class TodoRollupsTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 1, 15, 9, 30);
+
+    private static final LocalDateTime TUESDAY = LocalDateTime.of(2024, 1, 16, 18, 0);
+
+    @Mock
+    private TodoRollupRepository rollupRepository;
+
+    private TodoRollups rollups;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rollups = new TodoRollups(rollupRepository, Runnable::run);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TodoRollup> incremented() {
+        ArgumentCaptor<Collection<TodoRollup>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(rollupRepository).increment(deltas.capture());
+        return List.copyOf(deltas.getValue());
+    }
+
+    // ==================== Increment Tests ====================
+
+    @Test
+    @DisplayName("should count created todos by day and priority")
+    void testCountsCreated() {
+        // Arrange
+        Todo high = Todo.builder().id("1").priority("HIGH").createdAt(MONDAY).updatedAt(MONDAY).build();
+        Todo none = Todo.builder().id("2").createdAt(MONDAY).updatedAt(MONDAY).build();
+        Todo another = Todo.builder().id("3").priority("HIGH").createdAt(MONDAY).updatedAt(MONDAY).build();
+
+        // Act
+        rollups.onChange(TodoChangeEvent.saved(List.of(high, none, another), Set.of()));
+
+        // Assert
+        assertThat(incremented())
+                .extracting(TodoRollup::getId, TodoRollup::getDay, TodoRollup::getCreated, TodoRollup::getCompleted)
+                .containsExactly(
+                        tuple("2024-01-15/HIGH", "2024-01-15", 2L, 0L),
+                        tuple("2024-01-15/NONE", "2024-01-15", 1L, 0L));
+    }
+
+    @Test
+    @DisplayName("should count a completion only on the write that completed the todo")
+    void testCountsCompletedOnce() {
+        // Arrange
+        Todo justCompleted = Todo.builder().id("1").priority("LOW").completed(true).version(3)
+                .createdAt(MONDAY).updatedAt(TUESDAY).completedAt(TUESDAY).build();
+        Todo completedEarlier = Todo.builder().id("2").priority("LOW").completed(true).version(4)
+                .createdAt(MONDAY).updatedAt(TUESDAY).completedAt(MONDAY).build();
+        Todo edited = Todo.builder().id("3").priority("LOW").version(1)
+                .createdAt(MONDAY).updatedAt(TUESDAY).build();
+
+        // Act
+        rollups.onChange(TodoChangeEvent.saved(List.of(justCompleted, completedEarlier, edited)));
+
+        // Assert
+        assertThat(incremented())
+                .extracting(TodoRollup::getId, TodoRollup::getCreated, TodoRollup::getCompleted)
+                .containsExactly(tuple("2024-01-16/LOW", 0L, 1L));
+    }
+
+    @Test
+    @DisplayName("should not write when nothing was created or completed")
+    void testSkipsPlainEdits() {
+        // Arrange
+        Todo edited = Todo.builder().id("1").version(2).createdAt(MONDAY).updatedAt(TUESDAY).build();
+
+        // Act
+        rollups.onChange(TodoChangeEvent.saved(List.of(edited)));
+        rollups.onChange(TodoChangeEvent.deleted(List.of("1")));
+
+        // Assert
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    @DisplayName("should count the todos a mass update completed from the database")
+    void testCountsUpdateManyCompletions() {
+        // Arrange
+        when(rollupRepository.countCompletedAt(TUESDAY)).thenReturn(Map.of("HIGH", 5L));
+
+        // Act
+        rollups.onChange(TodoChangeEvent.updatedMany(
+                TodoUpdateManyRequest.builder().completed(true).build(), TUESDAY));
+        rollups.onChange(TodoChangeEvent.updatedMany(
+                TodoUpdateManyRequest.builder().priority("LOW").build(), TUESDAY));
+
+        // Assert
+        verify(rollupRepository, times(1)).countCompletedAt(TUESDAY);
+        assertThat(incremented())
+                .extracting(TodoRollup::getId, TodoRollup::getCompleted)
+                .containsExactly(tuple("2024-01-16/HIGH", 5L));
+    }
+
+    @Test
+    @DisplayName("should never fail the write when the rollups cannot be updated")
+    void testIncrementFailureIsSwallowed() {
+        // Arrange
+        doThrow(new IllegalStateException("down")).when(rollupRepository).increment(any());
+        Todo created = Todo.builder().id("1").createdAt(MONDAY).updatedAt(MONDAY).build();
+
+        // Act & Assert
+        assertThatCode(() -> rollups.onChange(TodoChangeEvent.saved(List.of(created))))
+                .doesNotThrowAnyException();
+    }
+
+    // ==================== Analytics Tests ====================
+
+    @Test
+    @DisplayName("should sum rollups into days and priorities")
+    void testGetAnalytics() {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 15);
+        LocalDate to = LocalDate.of(2024, 1, 21);
+        when(rollupRepository.findBetween(from, to)).thenReturn(List.of(
+                TodoRollup.builder().day("2024-01-15").priority("HIGH").created(3).completed(1).build(),
+                TodoRollup.builder().day("2024-01-15").priority("LOW").created(2).build(),
+                TodoRollup.builder().day("2024-01-17").priority("HIGH").completed(2).build()));
+
+        // Act
+        TodoAnalytics analytics = rollups.getAnalytics(from, to);
+
+        // Assert
+        assertThat(analytics.getTotal()).isEqualTo(new TodoAnalytics.Counts(5, 3));
+        assertThat(analytics.getByPriority()).containsOnly(
+                entry("HIGH", new TodoAnalytics.Counts(3, 3)),
+                entry("LOW", new TodoAnalytics.Counts(2, 0)));
+        assertThat(analytics.getDays()).extracting(TodoAnalytics.Day::getDay, TodoAnalytics.Day::getTotal)
+                .containsExactly(
+                        tuple(from, new TodoAnalytics.Counts(5, 1)),
+                        tuple(LocalDate.of(2024, 1, 17), new TodoAnalytics.Counts(0, 2)));
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoSearchIndex Unit Tests")
+class TodoSearchIndexTest {
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TodoSearchIndex searchIndex;
+
+    private Todo groceries;
+    private Todo review;
+    private Todo cafe;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        searchIndex = new TodoSearchIndex(todoRepository, meterRegistry, Runnable::run);
+
+        groceries = Todo.builder().id("1").title("Buy Groceries").description("Milk, eggs, bread")
+                .priority("LOW").createdAt(LocalDateTime.of(2024, 1, 1, 0, 0)).build();
+        review = Todo.builder().id("2").title("Review Code").description("Review the milk delivery service")
+                .priority("HIGH").createdAt(LocalDateTime.of(2024, 2, 1, 0, 0)).build();
+        cafe = Todo.builder().id("3").title("Café meeting").description("Discuss the roadmap")
+                .priority("MEDIUM").createdAt(LocalDateTime.of(2024, 3, 1, 0, 0)).build();
+        when(todoRepository.streamBy(null, null)).thenAnswer(invocation -> Stream.of(groceries, review, cafe));
+        searchIndex.rebuild();
+    }
+
+    private List<String> search(String query) {
+        return searchIndex.search(query, ScrollPosition.offset(), Limit.of(10)).stream().map(Todo::getId).toList();
+    }
+
+    // ==================== Matching Tests ====================
+
+    @Test
+    @DisplayName("should match exact words case-insensitively")
+    void testExactMatch() {
+        // Act & Assert
+        assertThat(search("GROCERIES")).containsExactly("1");
+        assertThat(search("roadmap")).containsExactly("3");
+    }
+
+    @Test
+    @DisplayName("should tolerate typos and transpositions")
+    void testTypoTolerance() {
+        // Act & Assert
+        assertThat(search("grocereis")).containsExactly("1");
+        assertThat(search("revew")).containsExactly("2");
+        assertThat(search("rodmap")).containsExactly("3");
+    }
+
+    @Test
+    @DisplayName("should match words by prefix")
+    void testPrefixMatch() {
+        // Act & Assert
+        assertThat(search("groc")).containsExactly("1");
+        assertThat(search("deliv")).containsExactly("2");
+    }
+
+    @Test
+    @DisplayName("should ignore diacritics")
+    void testDiacriticsFolded() {
+        // Act & Assert
+        assertThat(search("cafe")).containsExactly("3");
+        assertThat(search("CAFÉ")).containsExactly("3");
+    }
+
+    @Test
+    @DisplayName("should require every query word to match")
+    void testAllWordsMustMatch() {
+        // Act & Assert
+        assertThat(search("milk review")).containsExactly("2");
+        assertThat(search("milk roadmap")).isEmpty();
+        assertThat(search("   ")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should only match short words exactly")
+    void testShortWordsExact() {
+        // Act & Assert
+        assertThat(search("gr")).isEmpty();
+        assertThat(search("eg")).isEmpty();
+    }
+
+    // ==================== Ranking Tests ====================
+
+    @Test
+    @DisplayName("should rank title matches above description matches and exact above fuzzy")
+    void testRanking() {
+        // Arrange
+        Todo milkTitle = Todo.builder().id("4").title("Milk").build();
+        Todo milkTypo = Todo.builder().id("5").title("Mikl").build();
+        searchIndex.onChange(TodoChangeEvent.saved(List.of(milkTitle, milkTypo)));
+
+        // Act & Assert
+        assertThat(search("milk")).containsExactly("4", "5", "1", "2");
+    }
+
+    @Test
+    @DisplayName("should page through ranked results by offset")
+    void testPaging() {
+        // Act
+        Window<Todo> first = searchIndex.search("milk", ScrollPosition.offset(), Limit.of(1));
+        Window<Todo> second = searchIndex.search("milk", first.positionAt(0), Limit.of(1));
+
+        // Assert
+        assertThat(first.getContent()).extracting(Todo::getId).containsExactly("1");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting(Todo::getId).containsExactly("2");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    // ==================== Change Tests ====================
+
+    @Test
+    @DisplayName("should reindex saved todos and forget their old words")
+    void testSavedEvent() {
+        // Arrange
+        Todo renamed = Todo.builder().id("1").title("Buy Flowers").description("Tulips").build();
+
+        // Act
+        searchIndex.onChange(TodoChangeEvent.saved(List.of(renamed)));
+
+        // Assert
+        assertThat(search("groceries")).isEmpty();
+        assertThat(search("tulips")).containsExactly("1");
+        assertThat(searchIndex.documentCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should keep the version and completion time of indexed todos")
+    void testSnapshotKeepsVersionAndCompletedAt() {
+        // Arrange
+        LocalDateTime completedAt = LocalDateTime.of(2024, 5, 1, 9, 30);
+        Todo done = Todo.builder().id("4").title("File taxes").completed(true).completedAt(completedAt)
+                .version(7).build();
+
+        // Act
+        searchIndex.onChange(TodoChangeEvent.saved(List.of(done)));
+
+        // Assert
+        Todo found = searchIndex.search("taxes", ScrollPosition.offset(), Limit.of(1)).getContent().get(0);
+        assertThat(found.getVersion()).isEqualTo(7);
+        assertThat(found.getCompletedAt()).isEqualTo(completedAt);
+    }
+
+    @Test
+    @DisplayName("should drop deleted todos and their words")
+    void testDeletedEvent() {
+        // Act
+        searchIndex.onChange(TodoChangeEvent.deleted(List.of("3", "404")));
+
+        // Assert
+        assertThat(search("roadmap")).isEmpty();
+        assertThat(searchIndex.documentCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("todo.search.index.terms").gauge().value())
+                .isEqualTo(searchIndex.termCount());
+    }
+
+    @Test
+    @DisplayName("should mirror mass updates on the snapshots it serves")
+    void testUpdatedManyEvent() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        TodoUpdateManyRequest update = TodoUpdateManyRequest.builder()
+                .filter(TodoFilter.builder().createdTo(LocalDateTime.of(2024, 3, 1, 0, 0)).build())
+                .completed(true)
+                .build();
+
+        // Act
+        searchIndex.onChange(TodoChangeEvent.updatedMany(update, now));
+
+        // Assert
+        Todo updated = searchIndex.search("groceries", ScrollPosition.offset(), Limit.of(1)).getContent().get(0);
+        assertThat(updated.isCompleted()).isTrue();
+        assertThat(updated.getUpdatedAt()).isEqualTo(now);
+        assertThat(updated.getCompletedAt()).isEqualTo(now);
+        assertThat(updated.getVersion()).isEqualTo(groceries.getVersion() + 1);
+        Todo untouched = searchIndex.search("roadmap", ScrollPosition.offset(), Limit.of(1)).getContent().get(0);
+        assertThat(untouched.isCompleted()).isFalse();
+        assertThat(groceries.isCompleted()).isFalse();
+    }
+
+    // ==================== Rebuild Tests ====================
+
+    @Test
+    @DisplayName("should be ready after a rebuild and record size and rebuild time")
+    void testRebuildMetrics() {
+        // Assert
+        assertThat(searchIndex.isReady()).isTrue();
+        assertThat(meterRegistry.get("todo.search.index.documents").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("todo.search.index.terms").gauge().value()).isGreaterThan(10);
+        assertThat(meterRegistry.get("todo.search.index.rebuild").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not be ready when the rebuild fails")
+    void testRebuildFailure() {
+        // Arrange
+        TodoSearchIndex failing = new TodoSearchIndex(todoRepository, new SimpleMeterRegistry(), Runnable::run);
+        when(todoRepository.streamBy(null, null)).thenThrow(new IllegalStateException("database down"));
+
+        // Act
+        failing.rebuildOnStartup();
+
+        // Assert
+        assertThat(failing.isReady()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should compute edit distances with an early cut-off")
+    void testEditDistance() {
+        // Act & Assert
+        assertThat(TodoSearchIndex.editDistance("milk", "milk", 2)).isZero();
+        assertThat(TodoSearchIndex.editDistance("milk", "mikl", 2)).isEqualTo(1);
+        assertThat(TodoSearchIndex.editDistance("milk", "silky", 2)).isEqualTo(2);
+        assertThat(TodoSearchIndex.editDistance("milk", "roadmap", 2)).isEqualTo(3);
+    }
+}
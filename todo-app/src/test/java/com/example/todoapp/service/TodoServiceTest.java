@@ -1,20 +1,46 @@
 package com.example.todoapp.service;
 
 import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoBatchRequest;
+import com.example.todoapp.model.TodoDeleteManyResult;
+import com.example.todoapp.model.TodoFields;
+import com.example.todoapp.model.TodoFilter;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.model.TodoUpdateManyResult;
+import com.example.todoapp.repository.TodoIndexManager;
+import com.example.todoapp.repository.TodoSchemaMigration;
 import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @DisplayName("TodoService Unit Tests")
@@ -23,12 +49,46 @@ class TodoServiceTest {
     @Mock
     private TodoRepository todoRepository;
 
+    @Mock
+    private TodoIndexManager todoIndexManager;
+
+    @Mock
+    private TodoSchemaMigration todoSchemaMigration;
+
+    @Mock
+    private TodoSearchIndex todoSearchIndex;
+
+    @Mock
+    private TodoRollups todoRollups;
+
+    @Mock
+    private TodoWriteBehind todoWriteBehind;
+
+    @Mock
+    private TodoJournal todoJournal;
+
+    @Mock
+    private TodoChangeFeed todoChangeFeed;
+
+    @Mock
+    private TodoSync todoSync;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private TodoService todoService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        todoService = new TodoService(todoRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        TodoCache todoCache = new TodoCache(meterRegistry, 1024 * 1024, Duration.ofMinutes(10), Runnable::run);
+        TodoQueryCache todoQueryCache = new TodoQueryCache(meterRegistry, 100, Duration.ofMinutes(1), Runnable::run);
+        todoService = new TodoService(todoRepository, todoIndexManager, todoSchemaMigration, todoSearchIndex, todoCache, todoQueryCache,
+                todoRollups, todoWriteBehind, todoJournal, todoChangeFeed, todoSync,
+                eventPublisher);
     }
 
     // ==================== Create Tests ====================
@@ -66,6 +126,8 @@ class TodoServiceTest {
         assertThat(result.getCreatedAt()).isNotNull();
         assertThat(result.getUpdatedAt()).isNotNull();
         verify(todoRepository, times(1)).save(any(Todo.class));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof TodoChangeEvent change
+                && change.getType() == TodoChangeEvent.Type.SAVED && change.getTodos().equals(List.of(savedTodo))));
     }
 
     @Test
@@ -95,7 +157,7 @@ class TodoServiceTest {
     // ==================== Read Tests ====================
 
     @Test
-    @DisplayName("should return all todos")
+    @DisplayName("should return a window of todos")
     void testGetAllTodos() {
         // Arrange
         List<Todo> todos = Arrays.asList(
@@ -103,29 +165,58 @@ class TodoServiceTest {
                 Todo.builder().id("2").title("Todo 2").build(),
                 Todo.builder().id("3").title("Todo 3").build()
         );
-        when(todoRepository.findAll()).thenReturn(todos);
+        ScrollPosition position = ScrollPosition.keyset();
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdAt");
+        when(todoRepository.findAllBy(position, Limit.of(3), sort, TodoFields.ALL))
+                .thenReturn(Window.from(todos, ScrollPosition::offset, true));
 
         // Act
-        List<Todo> result = todoService.getAllTodos();
+        Window<Todo> result = todoService.getAllTodos(position, Limit.of(3), sort, TodoFields.ALL);
 
         // Assert
-        assertThat(result).hasSize(3);
-        assertThat(result).containsExactlyElementsOf(todos);
-        verify(todoRepository, times(1)).findAll();
+        assertThat(result.getContent()).hasSize(3);
+        assertThat(result.getContent()).containsExactlyElementsOf(todos);
+        assertThat(result.hasNext()).isTrue();
+        verify(todoRepository, times(1)).findAllBy(position, Limit.of(3), sort, TodoFields.ALL);
+        verify(todoRepository, never()).findAll();
     }
 
     @Test
-    @DisplayName("should return empty list when no todos exist")
+    @DisplayName("should return empty window when no todos exist")
     void testGetAllTodosEmpty() {
         // Arrange
-        when(todoRepository.findAll()).thenReturn(Arrays.asList());
+        when(todoRepository.findAllBy(any(), any(), any(), any()))
+                .thenReturn(Window.from(Arrays.asList(), ScrollPosition::offset));
 
         // Act
-        List<Todo> result = todoService.getAllTodos();
+        Window<Todo> result = todoService.getAllTodos(ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(), TodoFields.ALL);
 
         // Assert
-        assertThat(result).isEmpty();
-        verify(todoRepository, times(1)).findAll();
+        assertThat(result.isEmpty()).isTrue();
+        assertThat(result.hasNext()).isFalse();
+        verify(todoRepository, times(1)).findAllBy(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should stream todos for export")
+    void testExportTodos() {
+        // Arrange
+        List<Todo> todos = Arrays.asList(
+                Todo.builder().id("1").title("Todo 1").completed(true).build(),
+                Todo.builder().id("2").title("Todo 2").completed(true).build()
+        );
+        when(todoRepository.streamBy(true, null)).thenReturn(todos.stream());
+
+        // Act
+        List<Todo> result;
+        try (Stream<Todo> exported = todoService.exportTodos(true, null)) {
+            result = exported.toList();
+        }
+
+        // Assert
+        assertThat(result).containsExactlyElementsOf(todos);
+        verify(todoRepository, times(1)).streamBy(true, null);
+        verify(todoRepository, never()).findAll();
     }
 
     @Test
@@ -162,32 +253,84 @@ class TodoServiceTest {
         verify(todoRepository, times(1)).findById("999");
     }
 
+    @Test
+    @DisplayName("should serve repeated reads of a todo from the cache")
+    void testGetTodoByIdCached() {
+        // Arrange
+        Todo todo = Todo.builder()
+                .id("1")
+                .title("Test Todo")
+                .build();
+        when(todoRepository.findById("1")).thenReturn(Optional.of(todo));
+
+        // Act
+        todoService.getTodoById("1");
+        Optional<Todo> result = todoService.getTodoById("1");
+
+        // Assert
+        assertThat(result).contains(todo);
+        verify(todoRepository, times(1)).findById("1");
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should read versions from the version index once it is built")
+    void testGetTodoVersionFromIndex() {
+        // Arrange
+        when(todoIndexManager.hasIndex(Todo.VERSION_INDEX)).thenReturn(true);
+        when(todoRepository.findVersion("1")).thenReturn(Optional.of(4L));
+
+        // Act
+        Optional<Long> result = todoService.getTodoVersion("1");
+
+        // Assert
+        assertThat(result).contains(4L);
+        verify(todoRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("should read versions of cached todos from the cache")
+    void testGetTodoVersionCached() {
+        // Arrange: before the index is built the version comes from a cached read
+        when(todoRepository.findById("1")).thenReturn(Optional.of(Todo.builder().id("1").version(2).build()));
+
+        // Act
+        Optional<Long> first = todoService.getTodoVersion("1");
+        when(todoIndexManager.hasIndex(Todo.VERSION_INDEX)).thenReturn(true);
+        Optional<Long> second = todoService.getTodoVersion("1");
+
+        // Assert
+        assertThat(first).contains(2L);
+        assertThat(second).contains(2L);
+        verify(todoRepository, times(1)).findById("1");
+        verify(todoRepository, never()).findVersion(any());
+    }
+
     // ==================== Update Tests ====================
 
     @Test
-    @DisplayName("should update todo successfully")
+    @DisplayName("should update todo in a single atomic call")
     void testUpdateTodo() {
         // Arrange
         String todoId = "1";
-        Todo existingTodo = Todo.builder()
-                .id(todoId)
-                .title("Old Title")
-                .description("Old Description")
-                .priority("LOW")
-                .completed(false)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
+        Todo updateDetails = Todo.builder()
+                .title("New Title")
+                .description("New Description")
+                .priority("HIGH")
+                .completed(true)
                 .build();
 
-        Todo updateDetails = Todo.builder()
+        Todo updatedTodo = Todo.builder()
+                .id(todoId)
                 .title("New Title")
                 .description("New Description")
                 .priority("HIGH")
                 .completed(true)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
                 .build();
 
-        when(todoRepository.findById(todoId)).thenReturn(Optional.of(existingTodo));
-        when(todoRepository.save(any(Todo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(todoRepository.findAndUpdate(todoId, updateDetails)).thenReturn(Optional.of(updatedTodo));
 
         // Act
         Optional<Todo> result = todoService.updateTodo(todoId, updateDetails);
@@ -199,54 +342,58 @@ class TodoServiceTest {
         assertThat(result.get().getPriority()).isEqualTo("HIGH");
         assertThat(result.get().isCompleted()).isTrue();
         assertThat(result.get().getUpdatedAt()).isNotNull();
-        verify(todoRepository, times(1)).findById(todoId);
-        verify(todoRepository, times(1)).save(any(Todo.class));
+        verify(todoRepository, times(1)).findAndUpdate(todoId, updateDetails);
+        verify(todoRepository, never()).findById(any());
+        verify(todoRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("should update only non-null fields")
-    void testUpdateTodoPartial() {
+    @DisplayName("should return empty Optional when updating non-existent todo")
+    void testUpdateTodoNotFound() {
         // Arrange
-        String todoId = "1";
-        Todo existingTodo = Todo.builder()
-                .id(todoId)
-                .title("Original Title")
-                .description("Original Description")
-                .priority("LOW")
-                .build();
-
-        Todo updateDetails = Todo.builder()
-                .title("Updated Title")
-                .description(null)
-                .priority(null)
-                .build();
-
-        when(todoRepository.findById(todoId)).thenReturn(Optional.of(existingTodo));
-        when(todoRepository.save(any(Todo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(todoRepository.findAndUpdate(eq("999"), any(Todo.class))).thenReturn(Optional.empty());
 
         // Act
-        Optional<Todo> result = todoService.updateTodo(todoId, updateDetails);
+        Optional<Todo> result = todoService.updateTodo("999", new Todo());
 
         // Assert
-        assertThat(result).isPresent();
-        assertThat(result.get().getTitle()).isEqualTo("Updated Title");
-        assertThat(result.get().getDescription()).isEqualTo("Original Description");
-        assertThat(result.get().getPriority()).isEqualTo("LOW");
+        assertThat(result).isEmpty();
+        verify(todoRepository, times(1)).findAndUpdate(eq("999"), any(Todo.class));
+        verify(todoRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("should return empty Optional when updating non-existent todo")
-    void testUpdateTodoNotFound() {
+    @DisplayName("should reject an update when the todo is at another version")
+    void testUpdateTodoVersionConflict() {
         // Arrange
-        when(todoRepository.findById("999")).thenReturn(Optional.empty());
+        Todo details = Todo.builder().title("New Title").build();
+        when(todoRepository.findAndUpdate("1", List.of(3L), details)).thenReturn(Optional.empty());
+        when(todoRepository.existsById("1")).thenReturn(true);
+        when(todoRepository.findAndUpdate("2", List.of(3L), details)).thenReturn(Optional.empty());
+        when(todoRepository.existsById("2")).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> todoService.updateTodo("1", details, List.of(3L)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(todoService.updateTodo("2", details, List.of(3L))).isEmpty();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("should apply an update at the expected version without checking existence")
+    void testUpdateTodoAtVersion() {
+        // Arrange
+        Todo details = Todo.builder().title("New Title").build();
+        Todo updated = Todo.builder().id("1").title("New Title").version(4).build();
+        when(todoRepository.findAndUpdate("1", List.of(3L), details)).thenReturn(Optional.of(updated));
 
         // Act
-        Optional<Todo> result = todoService.updateTodo("999", new Todo());
+        Optional<Todo> result = todoService.updateTodo("1", details, List.of(3L));
 
         // Assert
-        assertThat(result).isEmpty();
-        verify(todoRepository, times(1)).findById("999");
-        verify(todoRepository, never()).save(any());
+        assertThat(result).contains(updated);
+        verify(todoRepository, never()).existsById(any());
+        verify(eventPublisher).publishEvent(any(TodoChangeEvent.class));
     }
 
     // ==================== Delete Tests ====================
@@ -256,16 +403,17 @@ class TodoServiceTest {
     void testDeleteTodo() {
         // Arrange
         String todoId = "1";
-        when(todoRepository.existsById(todoId)).thenReturn(true);
-        doNothing().when(todoRepository).deleteById(todoId);
+        when(todoRepository.removeById(todoId)).thenReturn(1L);
 
         // Act
         boolean result = todoService.deleteTodo(todoId);
 
         // Assert
         assertThat(result).isTrue();
-        verify(todoRepository, times(1)).existsById(todoId);
-        verify(todoRepository, times(1)).deleteById(todoId);
+        verify(todoRepository, times(1)).removeById(todoId);
+        verify(todoRepository, never()).existsById(any());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof TodoChangeEvent change
+                && change.getType() == TodoChangeEvent.Type.DELETED && change.getIds().equals(List.of("1"))));
     }
 
     @Test
@@ -273,15 +421,84 @@ class TodoServiceTest {
     void testDeleteTodoNotFound() {
         // Arrange
         String todoId = "999";
-        when(todoRepository.existsById(todoId)).thenReturn(false);
+        when(todoRepository.removeById(todoId)).thenReturn(0L);
 
         // Act
         boolean result = todoService.deleteTodo(todoId);
 
         // Assert
         assertThat(result).isFalse();
-        verify(todoRepository, times(1)).existsById(todoId);
-        verify(todoRepository, never()).deleteById(any());
+        verify(todoRepository, times(1)).removeById(todoId);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("should delete distinct ids with a single remove")
+    void testDeleteTodos() {
+        // Arrange
+        when(todoRepository.removeByIdIn(Set.of("1", "2"))).thenReturn(1L);
+
+        // Act
+        TodoDeleteManyResult result = todoService.deleteTodos(List.of("1", "2", "1"));
+
+        // Assert
+        assertThat(result.getRequested()).isEqualTo(2);
+        assertThat(result.getDeleted()).isEqualTo(1);
+        verify(todoRepository, times(1)).removeByIdIn(Set.of("1", "2"));
+    }
+
+    // ==================== Batch Tests ====================
+
+    @Test
+    @DisplayName("should stamp created todos and hand the batch to a single bulk write")
+    void testExecuteBatch() {
+        // Arrange
+        Todo newTodo = Todo.builder().title("New").completed(true).build();
+        List<TodoOperation> operations = Arrays.asList(
+                TodoOperation.builder().type(TodoOperation.Type.CREATE).todo(newTodo).build(),
+                TodoOperation.builder().type(TodoOperation.Type.COMPLETE).id("1").build()
+        );
+        List<TodoOperationResult> results = Arrays.asList(
+                TodoOperationResult.builder().index(0).status(TodoOperationResult.Status.CREATED).build(),
+                TodoOperationResult.builder().index(1).id("1").status(TodoOperationResult.Status.UPDATED).build()
+        );
+        Todo completed = Todo.builder().id("1").title("Done").completed(true).build();
+        when(todoRepository.bulkWrite(operations, true)).thenReturn(results);
+        when(todoRepository.findAllById(List.of("1"))).thenReturn(List.of(completed));
+
+        // Act
+        List<TodoOperationResult> result = todoService.executeBatch(
+                TodoBatchRequest.builder().operations(operations).build());
+
+        // Assert
+        assertThat(result).isEqualTo(results);
+        assertThat(newTodo.isCompleted()).isFalse();
+        assertThat(newTodo.getCreatedAt()).isNotNull();
+        assertThat(newTodo.getUpdatedAt()).isNotNull();
+        verify(todoRepository, times(1)).bulkWrite(operations, true);
+        verify(todoRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof TodoChangeEvent change
+                && change.getType() == TodoChangeEvent.Type.SAVED && change.getTodos().equals(List.of(newTodo, completed))));
+    }
+
+    @Test
+    @DisplayName("should update matching todos in the database without loading them")
+    void testUpdateMany() {
+        // Arrange
+        TodoFilter filter = TodoFilter.builder().priority("HIGH").build();
+        when(todoRepository.updateMany(eq(filter), eq(true), isNull(), any())).thenReturn(new TodoUpdateManyResult(3, 2));
+
+        // Act
+        TodoUpdateManyResult result = todoService.updateMany(
+                TodoUpdateManyRequest.builder().filter(filter).completed(true).build());
+
+        // Assert
+        assertThat(result.getMatched()).isEqualTo(3);
+        assertThat(result.getModified()).isEqualTo(2);
+        verify(todoRepository, times(1)).updateMany(eq(filter), eq(true), isNull(), any());
+        verify(eventPublisher, times(1)).publishEvent(any(TodoChangeEvent.class));
+        verify(todoRepository, never()).findAll();
+        verify(todoRepository, never()).save(any());
     }
 
     // ==================== Filter Tests ====================
@@ -294,15 +511,18 @@ class TodoServiceTest {
                 Todo.builder().id("1").title("Todo 1").completed(true).build(),
                 Todo.builder().id("2").title("Todo 2").completed(true).build()
         );
-        when(todoRepository.findByCompleted(true)).thenReturn(completedTodos);
+        when(todoRepository.findByCompleted(eq(true), any(), any(), any(), any()))
+                .thenReturn(Window.from(completedTodos, ScrollPosition::offset));
 
         // Act
-        List<Todo> result = todoService.getTodosByStatus(true);
+        List<Todo> result = todoService.getTodosByStatus(true, ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(),
+                TodoFields.ALL)
+                .getContent();
 
         // Assert
         assertThat(result).hasSize(2);
         assertThat(result).allMatch(Todo::isCompleted);
-        verify(todoRepository, times(1)).findByCompleted(true);
+        verify(todoRepository, times(1)).findByCompleted(eq(true), any(), any(), any(), any());
     }
 
     @Test
@@ -313,34 +533,91 @@ class TodoServiceTest {
                 Todo.builder().id("1").title("Todo 1").priority("HIGH").build(),
                 Todo.builder().id("2").title("Todo 2").priority("HIGH").build()
         );
-        when(todoRepository.findByPriority("HIGH")).thenReturn(highPriorityTodos);
+        when(todoRepository.findByPriority(eq("HIGH"), any(), any(), any(), any()))
+                .thenReturn(Window.from(highPriorityTodos, ScrollPosition::offset));
 
         // Act
-        List<Todo> result = todoService.getTodosByPriority("HIGH");
+        List<Todo> result = todoService.getTodosByPriority("HIGH", ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(),
+                TodoFields.ALL)
+                .getContent();
 
         // Assert
         assertThat(result).hasSize(2);
         assertThat(result).allMatch(todo -> "HIGH".equals(todo.getPriority()));
-        verify(todoRepository, times(1)).findByPriority("HIGH");
+        verify(todoRepository, times(1)).findByPriority(eq("HIGH"), any(), any(), any(), any());
     }
 
     @Test
-    @DisplayName("should search todos by title")
-    void testSearchTodosByTitle() {
+    @DisplayName("should serve repeated status queries from the query cache")
+    void testGetTodosByStatusCached() {
+        // Arrange
+        List<Todo> completedTodos = List.of(Todo.builder().id("1").title("Todo 1").completed(true).build());
+        when(todoRepository.findByCompleted(eq(true), any(), any(), any(), any()))
+                .thenReturn(Window.from(completedTodos, ScrollPosition::offset));
+
+        // Act
+        todoService.getTodosByStatus(true, ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(),
+                TodoFields.ALL);
+        List<Todo> result = todoService.getTodosByStatus(true, ScrollPosition.keyset(), Limit.of(100), Sort.unsorted(),
+                TodoFields.ALL)
+                .getContent();
+
+        // Assert
+        assertThat(result).isEqualTo(completedTodos);
+        verify(todoRepository, times(1)).findByCompleted(eq(true), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should search todos by text")
+    void testSearchTodos() {
         // Arrange
         List<Todo> searchResults = Arrays.asList(
                 Todo.builder().id("1").title("Buy Groceries").build(),
                 Todo.builder().id("2").title("Buy Books").build()
         );
-        when(todoRepository.findByTitleContainingIgnoreCase("Buy")).thenReturn(searchResults);
+        when(todoRepository.searchByText(eq("Buy"), any(), any()))
+                .thenReturn(Window.from(searchResults, ScrollPosition::offset));
 
         // Act
-        List<Todo> result = todoService.searchTodosByTitle("Buy");
+        List<Todo> result = todoService.searchTodos("Buy", ScrollPosition.offset(), Limit.of(100)).getContent();
 
         // Assert
         assertThat(result).hasSize(2);
         assertThat(result).allMatch(todo -> todo.getTitle().contains("Buy"));
-        verify(todoRepository, times(1)).findByTitleContainingIgnoreCase("Buy");
+        verify(todoRepository, times(1)).searchByText(eq("Buy"), any(), any());
+    }
+
+    @Test
+    @DisplayName("should answer quick search from the in-memory index once it is ready")
+    void testQuickSearch() {
+        // Arrange
+        Window<Todo> hits = Window.from(List.of(Todo.builder().id("1").title("Buy Groceries").build()),
+                ScrollPosition::offset);
+        when(todoSearchIndex.isReady()).thenReturn(true);
+        when(todoSearchIndex.search("grocerys", ScrollPosition.offset(), Limit.of(10))).thenReturn(hits);
+
+        // Act
+        Window<Todo> result = todoService.quickSearch("grocerys", ScrollPosition.offset(), Limit.of(10));
+
+        // Assert
+        assertThat(result).isSameAs(hits);
+        verify(todoRepository, never()).searchByText(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should fall back to the text index while the in-memory index is building")
+    void testQuickSearchFallback() {
+        // Arrange
+        when(todoSearchIndex.isReady()).thenReturn(false);
+        when(todoRepository.searchByText(eq("Buy"), any(), any()))
+                .thenReturn(Window.from(List.of(), ScrollPosition::offset));
+
+        // Act
+        todoService.quickSearch("Buy", ScrollPosition.offset(), Limit.of(10));
+
+        // Assert
+        verify(todoRepository, times(1)).searchByText("Buy", ScrollPosition.offset(), Limit.of(10));
+        verify(todoSearchIndex, never()).search(any(), any(), any());
     }
 
     // ==================== Status Change Tests ====================
@@ -353,13 +630,12 @@ class TodoServiceTest {
         Todo todo = Todo.builder()
                 .id(todoId)
                 .title("Test Todo")
-                .completed(false)
+                .completed(true)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        when(todoRepository.findById(todoId)).thenReturn(Optional.of(todo));
-        when(todoRepository.save(any(Todo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(todoRepository.findAndSetCompleted(todoId, true)).thenReturn(Optional.of(todo));
 
         // Act
         Optional<Todo> result = todoService.markAsCompleted(todoId);
@@ -367,8 +643,10 @@ class TodoServiceTest {
         // Assert
         assertThat(result).isPresent();
         assertThat(result.get().isCompleted()).isTrue();
-        verify(todoRepository, times(1)).findById(todoId);
-        verify(todoRepository, times(1)).save(any(Todo.class));
+        verify(todoRepository, times(1)).findAndSetCompleted(todoId, true);
+        verify(todoRepository, never()).save(any(Todo.class));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof TodoChangeEvent change
+                && change.getChangedFields().equals(Set.of("completed"))));
     }
 
     @Test
@@ -379,13 +657,12 @@ class TodoServiceTest {
         Todo todo = Todo.builder()
                 .id(todoId)
                 .title("Test Todo")
-                .completed(true)
+                .completed(false)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        when(todoRepository.findById(todoId)).thenReturn(Optional.of(todo));
-        when(todoRepository.save(any(Todo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(todoRepository.findAndSetCompleted(todoId, false)).thenReturn(Optional.of(todo));
 
         // Act
         Optional<Todo> result = todoService.markAsIncomplete(todoId);
@@ -393,32 +670,94 @@ class TodoServiceTest {
         // Assert
         assertThat(result).isPresent();
         assertThat(result.get().isCompleted()).isFalse();
-        verify(todoRepository, times(1)).findById(todoId);
-        verify(todoRepository, times(1)).save(any(Todo.class));
+        verify(todoRepository, times(1)).findAndSetCompleted(todoId, false);
+        verify(todoRepository, never()).save(any(Todo.class));
     }
 
     @Test
-    @DisplayName("should update timestamp when marking as completed")
-    void testMarkAsCompletedUpdatesTimestamp() {
+    @DisplayName("should return empty Optional when marking non-existent todo as completed")
+    void testMarkAsCompletedNotFound() {
         // Arrange
-        String todoId = "1";
-        LocalDateTime originalTime = LocalDateTime.now().minusHours(1);
-        Todo todo = Todo.builder()
-                .id(todoId)
-                .title("Test Todo")
-                .completed(false)
-                .createdAt(originalTime)
-                .updatedAt(originalTime)
-                .build();
+        when(todoRepository.findAndSetCompleted("999", true)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Todo> result = todoService.markAsCompleted("999");
+
+        // Assert
+        assertThat(result).isEmpty();
+    }
 
-        when(todoRepository.findById(todoId)).thenReturn(Optional.of(todo));
-        when(todoRepository.save(any(Todo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    @Test
+    @DisplayName("should toggle todo completion atomically")
+    void testToggleCompleted() {
+        // Arrange
+        Todo toggled = Todo.builder().id("1").completed(true).build();
+        when(todoRepository.findAndToggleCompleted("1")).thenReturn(Optional.of(toggled));
 
         // Act
-        Optional<Todo> result = todoService.markAsCompleted(todoId);
+        Optional<Todo> result = todoService.toggleCompleted("1");
 
         // Assert
-        assertThat(result).isPresent();
-        assertThat(result.get().getUpdatedAt()).isAfter(originalTime);
+        assertThat(result).contains(toggled);
+        verify(todoRepository, times(1)).findAndToggleCompleted("1");
+        verify(todoRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("should queue completion on the write-behind pipeline when enabled")
+    void testMarkAsCompletedWriteBehind() {
+        // Arrange
+        Todo completed = Todo.builder().id("1").completed(true).version(2).build();
+        when(todoWriteBehind.isEnabled()).thenReturn(true);
+        when(todoWriteBehind.submit(eq("1"), any(Todo.class)))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(completed)));
+
+        // Act
+        Optional<Todo> result = todoService.markAsCompleted("1");
+
+        // Assert
+        assertThat(result).contains(completed);
+        verify(todoWriteBehind).submit(eq("1"), argThat(Todo::isCompleted));
+        verify(todoRepository, never()).findAndSetCompleted(any(), anyBoolean());
+        // events are published by the pipeline once the bulk write is acknowledged
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("should rethrow why a queued write failed")
+    void testUpdateTodoWriteBehindFailure() {
+        // Arrange
+        when(todoWriteBehind.isEnabled()).thenReturn(true);
+        when(todoWriteBehind.submit(eq("1"), any(Todo.class)))
+                .thenReturn(CompletableFuture.failedFuture(new DataIntegrityViolationException("rejected")));
+
+        // Act & Assert
+        assertThatThrownBy(() -> todoService.updateTodo("1", Todo.builder().title("New").build()))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessage("rejected");
+        verify(todoRepository, never()).findAndUpdate(any(), any(Todo.class));
+    }
+
+    // ==================== Metrics Tests ====================
+
+    @Test
+    @DisplayName("should time each service method under its own name")
+    void testServiceMethodsTimed() {
+        // Arrange
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(todoService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new TimedAspect(meterRegistry));
+        TodoService timedService = proxyFactory.getProxy();
+        when(todoRepository.findAndToggleCompleted("1")).thenReturn(Optional.empty());
+        when(todoRepository.removeById("1")).thenReturn(1L);
+
+        // Act
+        timedService.toggleCompleted("1");
+        timedService.toggleCompleted("1");
+        timedService.deleteTodo("1");
+
+        // Assert
+        assertThat(meterRegistry.get(TodoService.TIMER).tag("method", "toggleCompleted").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(TodoService.TIMER).tag("method", "deleteTodo").timer().count()).isEqualTo(1);
     }
 }
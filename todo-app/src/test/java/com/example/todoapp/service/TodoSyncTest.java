@@ -0,0 +1,186 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoChanges;
+import com.example.todoapp.model.TodoTombstone;
+import com.example.todoapp.model.TodoUpdateManyRequest;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.repository.TodoTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoSync Unit Tests")
+class TodoSyncTest {
+
+    private static final Duration LOOKBACK = Duration.ofSeconds(5);
+
+    private static final Duration TOMBSTONE_TTL = Duration.ofDays(30);
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    @Mock
+    private TodoTombstoneRepository tombstoneRepository;
+
+    private TodoSync sync;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sync = new TodoSync(todoRepository, tombstoneRepository, LOOKBACK, TOMBSTONE_TTL, Runnable::run);
+    }
+
+    private static Todo todo(String id, LocalDateTime updatedAt) {
+        return Todo.builder().id(id).title("Todo " + id).updatedAt(updatedAt).build();
+    }
+
+    // ==================== Changes Tests ====================
+
+    @Test
+    @DisplayName("should start with every todo and the deletions from just before the sync")
+    void testFirstSync() {
+        // Arrange
+        LocalDateTime before = LocalDateTime.now().minus(LOOKBACK);
+        when(todoRepository.findChangedSince(isNull(), isNull(), eq(10)))
+                .thenReturn(List.of(todo("1", before.minusDays(1))));
+
+        // Act
+        TodoChanges changes = sync.getChanges(null, 10);
+
+        // Assert
+        assertThat(changes.getTodos()).extracting(Todo::getId).containsExactly("1");
+        assertThat(changes.getDeleted()).isEmpty();
+        assertThat(changes.isHasMore()).isFalse();
+        assertThat(changes.isReset()).isFalse();
+        TodoSyncToken next = TodoSyncToken.decode(changes.getNext());
+        assertThat(next.todos()).isAfterOrEqualTo(before);
+        assertThat(next.todosId()).isNull();
+        verify(tombstoneRepository).findDeletedSince(argThat(from -> !from.isBefore(before)), isNull(), eq(10));
+    }
+
+    @Test
+    @DisplayName("should resume a full page right after its last todo and tombstone")
+    void testResumesFullPage() {
+        // Arrange
+        LocalDateTime at = LocalDateTime.now().minusHours(1);
+        String since = new TodoSyncToken(at, null, at, null).encode();
+        when(todoRepository.findChangedSince(at, null, 2))
+                .thenReturn(List.of(todo("1", at), todo("2", at.plusSeconds(1))));
+        when(tombstoneRepository.findDeletedSince(at, null, 2))
+                .thenReturn(List.of(new TodoTombstone("3", at)));
+
+        // Act
+        TodoChanges changes = sync.getChanges(since, 2);
+
+        // Assert
+        assertThat(changes.getTodos()).extracting(Todo::getId).containsExactly("1", "2");
+        assertThat(changes.getDeleted()).containsExactly("3");
+        assertThat(changes.isHasMore()).isTrue();
+        TodoSyncToken next = TodoSyncToken.decode(changes.getNext());
+        assertThat(next.todos()).isEqualTo(at.plusSeconds(1));
+        assertThat(next.todosId()).isEqualTo("2");
+        // the tombstones have caught up, so they resume a lookback before now
+        assertThat(next.deleted()).isAfter(at);
+        assertThat(next.deletedId()).isNull();
+    }
+
+    @Test
+    @DisplayName("should resync from scratch when the token is older than the tombstones kept")
+    void testResetsExpiredToken() {
+        // Arrange
+        LocalDateTime expired = LocalDateTime.now().minus(TOMBSTONE_TTL).minusDays(1);
+        String since = new TodoSyncToken(expired, "1", expired, null).encode();
+        when(todoRepository.findChangedSince(isNull(), isNull(), eq(10))).thenReturn(List.of(todo("1", expired)));
+
+        // Act
+        TodoChanges changes = sync.getChanges(since, 10);
+
+        // Assert
+        assertThat(changes.isReset()).isTrue();
+        assertThat(changes.getTodos()).extracting(Todo::getId).containsExactly("1");
+        verify(todoRepository, never()).findChangedSince(eq(expired), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("should reject a token it did not issue")
+    void testRejectsInvalidToken() {
+        assertThatThrownBy(() -> sync.getChanges("not-a-token", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(todoRepository, tombstoneRepository);
+    }
+
+    // ==================== Tombstone Tests ====================
+
+    @Test
+    @DisplayName("should leave tombstones for deleted todos at the time of the delete")
+    void testRecordsTombstones() {
+        // Arrange
+        TodoChangeEvent event = TodoChangeEvent.deleted(List.of("1", "2"));
+
+        // Act
+        sync.onChange(event);
+
+        // Assert
+        verify(tombstoneRepository).record(List.of("1", "2"), event.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("should leave tombstones for the todos a restore removed")
+    void testRecordsRestoreTombstones() {
+        // Arrange
+        TodoChangeEvent event = TodoChangeEvent.restored(List.of(todo("1", LocalDateTime.now())), List.of("2"));
+
+        // Act
+        sync.onChange(event);
+
+        // Assert
+        verify(tombstoneRepository).record(List.of("2"), event.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("should leave no tombstones for other writes, nor fail them when recording fails")
+    void testIgnoresOtherWrites() {
+        // Arrange
+        doThrow(new IllegalStateException("down")).when(tombstoneRepository).record(any(), any());
+
+        // Act
+        sync.onChange(TodoChangeEvent.saved(List.of(todo("1", LocalDateTime.now()))));
+        sync.onChange(TodoChangeEvent.updatedMany(TodoUpdateManyRequest.builder().completed(true).build(),
+                LocalDateTime.now()));
+        sync.onChange(TodoChangeEvent.deleted(List.of("1")));
+
+        // Assert
+        verify(tombstoneRepository, times(1)).record(any(), any());
+    }
+
+    @Test
+    @DisplayName("should reset the tokens that would have seen a tombstone that failed to record")
+    void testResetsTokensMissingTombstones() {
+        // Arrange
+        LocalDateTime before = LocalDateTime.now().minusHours(1);
+        doThrow(new IllegalStateException("down")).when(tombstoneRepository).record(any(), any());
+        TodoChangeEvent event = TodoChangeEvent.deleted(List.of("1"));
+        sync.onChange(event);
+        LocalDateTime after = event.getTimestamp().plusSeconds(1);
+
+        // Act
+        TodoChanges stale = sync.getChanges(new TodoSyncToken(before, null, before, null).encode(), 10);
+        TodoChanges current = sync.getChanges(new TodoSyncToken(after, null, after, null).encode(), 10);
+
+        // Assert
+        assertThat(stale.isReset()).isTrue();
+        assertThat(current.isReset()).isFalse();
+        verify(todoRepository).findChangedSince(after, null, 10);
+    }
+}
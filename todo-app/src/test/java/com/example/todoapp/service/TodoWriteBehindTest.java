@@ -0,0 +1,319 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.Todo;
+import com.example.todoapp.model.TodoOperation;
+import com.example.todoapp.model.TodoOperationResult;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TodoWriteBehind Unit Tests")
+class TodoWriteBehindTest {
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TodoWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // every todo exists: each update is reported as applied and read back as sent
+        when(todoRepository.bulkWrite(anyList(), anyBoolean())).thenAnswer(invocation -> {
+            List<TodoOperation> operations = invocation.getArgument(0);
+            return IntStream.range(0, operations.size())
+                    .mapToObj(i -> result(i, operations.get(i).getId(), TodoOperationResult.Status.UPDATED))
+                    .toList();
+        });
+        when(todoRepository.findAllById(any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> Todo.builder().id(id).version(1).build()).toList();
+        });
+        // flushed by the tests alone: the interval never elapses and batches never fill up
+        writeBehind = writeBehind(100, 1000, Duration.ofHours(1));
+        writeBehind.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.stop();
+    }
+
+    private TodoWriteBehind writeBehind(int capacity, int batchSize, Duration flushInterval) {
+        return new TodoWriteBehind(todoRepository, eventPublisher, new SimpleMeterRegistry(), true,
+                capacity, batchSize, flushInterval);
+    }
+
+    private static TodoOperationResult result(int index, String id, TodoOperationResult.Status status) {
+        return TodoOperationResult.builder().index(index).id(id).type(TodoOperation.Type.UPDATE).status(status).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<TodoOperation>> bulkWrites() {
+        ArgumentCaptor<List<TodoOperation>> operations = ArgumentCaptor.forClass(List.class);
+        verify(todoRepository, atLeastOnce()).bulkWrite(operations.capture(), eq(true));
+        return operations.getAllValues();
+    }
+
+    // ==================== Group Commit Tests ====================
+
+    @Test
+    @DisplayName("should write queued todos as one ordered bulk write")
+    void testFlushWritesOneOrderedBulkWrite() throws Exception {
+        // Arrange
+        CompletableFuture<Optional<Todo>> first = writeBehind.submit("1", Todo.builder().completed(true).build());
+        CompletableFuture<Optional<Todo>> second = writeBehind.submit("2", Todo.builder().title("Renamed").build());
+
+        // Act
+        int written = writeBehind.flush();
+
+        // Assert
+        assertThat(written).isEqualTo(2);
+        assertThat(bulkWrites()).singleElement().satisfies(operations -> assertThat(operations)
+                .extracting(TodoOperation::getType, TodoOperation::getId)
+                .containsExactly(tuple(TodoOperation.Type.UPDATE, "1"), tuple(TodoOperation.Type.UPDATE, "2")));
+        assertThat(first.get()).map(Todo::getId).contains("1");
+        assertThat(second.get()).map(Todo::getId).contains("2");
+        verify(todoRepository, times(1)).findAllById(any());
+        verify(eventPublisher).publishEvent(any(TodoChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("should merge writes to a todo that is still queued")
+    void testCoalescesWritesToSameTodo() throws Exception {
+        // Arrange
+        CompletableFuture<Optional<Todo>> rename = writeBehind.submit("1",
+                Todo.builder().title("Renamed").priority("LOW").build());
+        CompletableFuture<Optional<Todo>> reprioritize = writeBehind.submit("1", Todo.builder().priority("HIGH").build());
+        CompletableFuture<Optional<Todo>> complete = writeBehind.submit("1", Todo.builder().completed(true).build());
+
+        // Act
+        writeBehind.flush();
+
+        // Assert
+        Todo merged = bulkWrites().get(0).get(0).getTodo();
+        assertThat(bulkWrites().get(0)).hasSize(1);
+        assertThat(merged.getTitle()).isEqualTo("Renamed");
+        assertThat(merged.getPriority()).isEqualTo("HIGH");
+        assertThat(merged.isCompleted()).isTrue();
+        assertThat(List.of(rename.get(), reprioritize.get(), complete.get()))
+                .allSatisfy(result -> assertThat(result).map(Todo::getId).contains("1"));
+    }
+
+    @Test
+    @DisplayName("should queue a new write for a todo once its previous write was taken")
+    void testWriteAfterFlushIsQueuedAgain() {
+        // Arrange
+        writeBehind.submit("1", Todo.builder().completed(true).build());
+        writeBehind.flush();
+
+        // Act
+        writeBehind.submit("1", Todo.builder().completed(false).build());
+        writeBehind.flush();
+
+        // Assert
+        assertThat(bulkWrites()).hasSize(2);
+        assertThat(bulkWrites().get(1).get(0).getTodo().isCompleted()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should write at most one batch per flush")
+    void testFlushIsBoundedByBatchSize() {
+        // Arrange
+        TodoWriteBehind small = writeBehind(100, 2, Duration.ofHours(1));
+        List<CompletableFuture<Optional<Todo>>> writes = new ArrayList<>();
+
+        // Act
+        small.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                writes.add(small.submit(String.valueOf(i), Todo.builder().completed(true).build()));
+            }
+        } finally {
+            small.stop();
+        }
+
+        // Assert
+        assertThat(writes).allSatisfy(write -> assertThat(write).isCompleted());
+        assertThat(bulkWrites()).extracting(List::size).containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("should flush on its own once the flush interval has passed")
+    void testFlushesAfterInterval() throws Exception {
+        // Arrange
+        TodoWriteBehind timed = writeBehind(100, 1000, Duration.ofMillis(5));
+        timed.start();
+
+        try {
+            // Act
+            CompletableFuture<Optional<Todo>> write = timed.submit("1", Todo.builder().completed(true).build());
+
+            // Assert
+            assertThat(write.get(5, TimeUnit.SECONDS)).map(Todo::getId).contains("1");
+        } finally {
+            timed.stop();
+        }
+    }
+
+    // ==================== Result Tests ====================
+
+    @Test
+    @DisplayName("should complete with empty when the todo does not exist")
+    void testMissingTodo() throws Exception {
+        // Arrange
+        when(todoRepository.bulkWrite(anyList(), anyBoolean()))
+                .thenReturn(List.of(result(0, "404", TodoOperationResult.Status.NOT_FOUND)));
+        CompletableFuture<Optional<Todo>> write = writeBehind.submit("404", Todo.builder().completed(true).build());
+
+        // Act
+        writeBehind.flush();
+
+        // Assert
+        assertThat(write.get()).isEmpty();
+        verify(todoRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("should send again the writes an ordered bulk write skipped after a failure")
+    void testRetriesSkippedWrites() {
+        // Arrange
+        when(todoRepository.bulkWrite(anyList(), anyBoolean()))
+                .thenReturn(List.of(
+                        result(0, "1", TodoOperationResult.Status.UPDATED),
+                        result(1, "2", TodoOperationResult.Status.FAILED),
+                        result(2, "3", TodoOperationResult.Status.SKIPPED)))
+                .thenReturn(List.of(result(0, "3", TodoOperationResult.Status.UPDATED)));
+        CompletableFuture<Optional<Todo>> first = writeBehind.submit("1", Todo.builder().completed(true).build());
+        CompletableFuture<Optional<Todo>> failed = writeBehind.submit("2", Todo.builder().completed(true).build());
+        CompletableFuture<Optional<Todo>> skipped = writeBehind.submit("3", Todo.builder().completed(true).build());
+
+        // Act
+        writeBehind.flush();
+
+        // Assert
+        assertThat(bulkWrites()).extracting(operations -> operations.stream().map(TodoOperation::getId).toList())
+                .containsExactly(List.of("1", "2", "3"), List.of("3"));
+        assertThat(first.join()).map(Todo::getId).contains("1");
+        assertThatThrownBy(failed::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(skipped.join()).map(Todo::getId).contains("3");
+    }
+
+    @Test
+    @DisplayName("should fail every write of a bulk write that could not be sent")
+    void testFailsBatchOnError() {
+        // Arrange
+        when(todoRepository.bulkWrite(anyList(), anyBoolean())).thenThrow(new IllegalStateException("down"));
+        CompletableFuture<Optional<Todo>> write = writeBehind.submit("1", Todo.builder().completed(true).build());
+
+        // Act
+        writeBehind.flush();
+
+        // Assert
+        assertThat(write).isCompletedExceptionally();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // ==================== Backpressure Tests ====================
+
+    @Test
+    @DisplayName("should reject writes to new todos once the queue is full")
+    void testRejectsWhenFull() {
+        // Arrange
+        TodoWriteBehind bounded = writeBehind(2, 1000, Duration.ofHours(1));
+        bounded.start();
+
+        try {
+            bounded.submit("1", Todo.builder().completed(true).build());
+            bounded.submit("2", Todo.builder().completed(true).build());
+
+            // Act & Assert
+            assertThatThrownBy(() -> bounded.submit("3", Todo.builder().completed(true).build()))
+                    .isInstanceOf(TaskRejectedException.class);
+            // merging into a queued write takes no room
+            assertThatCode(() -> bounded.submit("1", Todo.builder().completed(false).build()))
+                    .doesNotThrowAnyException();
+            bounded.flush();
+            assertThatCode(() -> bounded.submit("3", Todo.builder().completed(true).build()))
+                    .doesNotThrowAnyException();
+        } finally {
+            bounded.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("should reject writes while not running")
+    void testRejectsWhenStopped() {
+        // Arrange
+        writeBehind.stop();
+
+        // Act & Assert
+        assertThatThrownBy(() -> writeBehind.submit("1", Todo.builder().completed(true).build()))
+                .isInstanceOf(TaskRejectedException.class);
+        verify(todoRepository, never()).bulkWrite(anyList(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("should flush queued writes when stopped")
+    void testStopFlushesQueue() {
+        // Arrange
+        CompletableFuture<Optional<Todo>> write = writeBehind.submit("1", Todo.builder().completed(true).build());
+
+        // Act
+        writeBehind.stop();
+
+        // Assert
+        assertThat(write).isCompleted();
+        assertThat(writeBehind.isRunning()).isFalse();
+    }
+
+    // ==================== Merge Tests ====================
+
+    @Test
+    @DisplayName("should keep queued fields the later write leaves unset, and its completion")
+    void testMerge() {
+        // Arrange
+        Todo queued = Todo.builder().title("Title").description("Queued").completed(true).build();
+        Todo later = Todo.builder().description("Later").build();
+
+        // Act
+        Todo merged = TodoWriteBehind.merge(queued, later);
+
+        // Assert
+        assertThat(merged.getTitle()).isEqualTo("Title");
+        assertThat(merged.getDescription()).isEqualTo("Later");
+        assertThat(merged.getPriority()).isNull();
+        assertThat(merged.isCompleted()).isFalse();
+    }
+}